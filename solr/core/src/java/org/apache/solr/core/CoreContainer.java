@@ -142,6 +142,8 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestHandler;
 import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.search.CacheConfig;
+import org.apache.solr.search.MemoryAccounting;
+import org.apache.solr.search.SegmentCache;
 import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.SolrFieldCacheBean;
 import org.apache.solr.search.SolrIndexSearcher;
@@ -154,6 +156,7 @@ import org.apache.solr.security.PKIAuthenticationPlugin;
 import org.apache.solr.security.PublicKeyHandler;
 import org.apache.solr.security.SecurityPluginHolder;
 import org.apache.solr.security.SolrNodeKeyPair;
+import org.apache.solr.servlet.RequestLanes;
 import org.apache.solr.update.CommitUpdateCommand;
 import org.apache.solr.update.SolrCoreState;
 import org.apache.solr.update.UpdateShardHandler;
@@ -179,6 +182,7 @@ public class CoreContainer {
     // Declared up top to ensure this is present before anything else.
     // note: will not be re-added if already there
     ExecutorUtil.addThreadLocalProvider(SolrRequestInfo.getInheritableThreadLocalProvider());
+    ExecutorUtil.addThreadLocalProvider(MemoryAccounting.getInheritableThreadLocalProvider());
   }
 
   final SolrCores solrCores;
@@ -278,6 +282,8 @@ public class CoreContainer {
 
   protected volatile SolrMetricsContext solrMetricsContext;
 
+  private final RequestLanes requestLanes = RequestLanes.fromSystemProperties();
+
   protected volatile Tracer tracer;
 
   protected MetricsHandler metricsHandler;
@@ -715,6 +721,11 @@ public class CoreContainer {
     return metricManager;
   }
 
+  /** The lanes isolating the execution of the different classes of requests */
+  public RequestLanes getRequestLanes() {
+    return requestLanes;
+  }
+
   public MetricsHandler getMetricsHandler() {
     return metricsHandler;
   }
@@ -1038,6 +1049,13 @@ public class CoreContainer {
 
     SolrFieldCacheBean fieldCacheBean = new SolrFieldCacheBean();
     fieldCacheBean.initializeMetrics(solrMetricsContext, null);
+    solrMetricsContext.gauge(
+        SegmentCache.DEFAULT.getMetricsMap(),
+        true,
+        "segmentCache",
+        SolrInfoBean.Category.CACHE.toString());
+
+    requestLanes.initializeMetrics(solrMetricsContext, "requestLanes");
 
     if (isZooKeeperAware()) {
       metricManager.loadClusterReporters(metricReporters, this);
@@ -25,6 +25,7 @@ import org.apache.solr.client.solrj.request.beans.RateLimiterPayload;
 
 public class RateLimiterConfig {
   public static final String RL_CONFIG_KEY = "rate-limiters";
+  public static final int DEFAULT_MIN_ALLOWED_REQUESTS = 4;
 
   public final SolrRequest.SolrRequestType requestType;
   public final boolean isEnabled;
@@ -32,6 +33,9 @@ public class RateLimiterConfig {
   public final int allowedRequests;
   public final boolean isSlotBorrowingEnabled;
   public final int guaranteedSlotsThreshold;
+  public final boolean isAdaptive;
+  public final int minAllowedRequests;
+  public final int maxAllowedRequests;
 
   /**
    * We store the config definition in order to determine whether anything has changed that would
@@ -98,6 +102,18 @@ public class RateLimiterConfig {
             ? DEFAULT_SLOT_ACQUISITION_TIMEOUT_MS
             : definition.slotAcquisitionTimeoutInMS.longValue();
 
+    isAdaptive = definition.adaptiveEnabled == null ? false : definition.adaptiveEnabled;
+
+    minAllowedRequests =
+        definition.minAllowedRequests == null
+            ? Math.min(DEFAULT_MIN_ALLOWED_REQUESTS, this.allowedRequests)
+            : definition.minAllowedRequests;
+
+    maxAllowedRequests =
+        definition.maxAllowedRequests == null
+            ? this.allowedRequests * 2
+            : Math.max(definition.maxAllowedRequests, this.allowedRequests);
+
     this.definition = definition;
   }
 
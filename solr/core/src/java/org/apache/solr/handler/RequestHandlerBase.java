@@ -20,6 +20,7 @@ import static org.apache.solr.core.RequestParams.USEPARAM;
 import static org.apache.solr.response.SolrQueryResponse.haveCompleteResults;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import java.lang.invoke.MethodHandles;
@@ -192,6 +193,7 @@ public abstract class RequestHandlerBase
     public final Counter requests;
     public final Timer requestTimes;
     public final Counter totalTime;
+    public final Histogram retainedMemory;
 
     public HandlerMetrics(SolrMetricsContext solrMetricsContext, String... metricPath) {
       numErrors = solrMetricsContext.meter("errors", metricPath);
@@ -201,6 +203,7 @@ public abstract class RequestHandlerBase
       requests = solrMetricsContext.counter("requests", metricPath);
       requestTimes = solrMetricsContext.timer("requestTimes", metricPath);
       totalTime = solrMetricsContext.counter("totalTime", metricPath);
+      retainedMemory = solrMetricsContext.histogram("retainedMemory", metricPath);
     }
   }
 
@@ -253,6 +256,12 @@ public abstract class RequestHandlerBase
         long elapsed = timer.stop();
         metrics.totalTime.inc(elapsed);
 
+        long retainedMemory =
+            QueryLimits.getCurrentLimits().getMemoryAccounting().getPeakRetainedBytes();
+        if (retainedMemory > 0) {
+          metrics.retainedMemory.update(retainedMemory);
+        }
+
         if (publishCpuTime) {
           Optional<Long> cpuTime = ThreadCpuTimer.readMSandReset(REQUEST_CPU_TIMER_CONTEXT);
           if (QueryLimits.getCurrentLimits().isLimitsEnabled()) {
@@ -38,6 +38,8 @@ import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.DocList;
+import org.apache.solr.search.MemoryAccounting;
+import org.apache.solr.search.QueryLimits;
 import org.apache.solr.search.QueryParsing;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.facet.FacetDebugInfo;
@@ -120,6 +122,11 @@ public class DebugComponent extends SearchComponent {
         info.add(JSON, rb.req.getJSON());
       }
 
+      MemoryAccounting memoryAccounting = QueryLimits.getCurrentLimits().getMemoryAccounting();
+      if (memoryAccounting.getPeakRetainedBytes() > 0) {
+        info.add("memory", memoryAccounting.toNamedList());
+      }
+
       if (rb.isDebugQuery() && rb.getQparser() != null) {
         rb.getQparser().addDebugInfo(rb.getDebugInfo());
       }
@@ -28,6 +28,7 @@ import com.carrotsearch.hppc.cursors.ObjectCursor;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +42,7 @@ import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -53,6 +55,7 @@ import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.TotalHits;
@@ -61,8 +64,10 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.CharsRefBuilder;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.IOSupplier;
 import org.apache.lucene.util.LongValues;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ExpandParams;
 import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.SolrParams;
@@ -204,7 +209,6 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
     }
 
     SolrIndexSearcher searcher = req.getSearcher();
-    LeafReader reader = searcher.getSlowAtomicReader();
 
     SchemaField schemaField = searcher.getSchema().getField(field);
     FieldType fieldType = schemaField.getType();
@@ -213,13 +217,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
 
     if (fieldType instanceof StrField) {
       // Get The Top Level SortedDocValues
-      if (CollapsingQParserPlugin.HINT_TOP_FC.equals(hint)) {
-        LeafReader uninvertingReader =
-            CollapsingQParserPlugin.getTopFieldCacheReader(searcher, field);
-        values = uninvertingReader.getSortedDocValues(field);
-      } else {
-        values = DocValues.getSorted(reader, field);
-      }
+      values = getSortedDocValues(searcher, field, hint);
     } else if (fieldType.getNumberType() == null) {
       // possible if directly expand.field is specified
       throw new SolrException(
@@ -390,44 +388,40 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
       groupQuery = outer.build();
     }
 
-    Collector collector;
-    if (sort != null) sort = sort.rewrite(searcher);
-
-    GroupCollector groupExpandCollector = null;
-
+    final Sort expandSort = sort != null ? sort.rewrite(searcher) : null;
+    final String expandField = field;
+    final String collapseHint = hint;
+    final IntObjectHashMap<BytesRef> groupOrdBytes = ordBytes;
+    final FixedBitSet groupOrds = groupBits;
+    final LongHashSet groupValues = groupSet;
+    final IOSupplier<GroupCollector> groupCollectorFactory;
     if (values != null) {
-      // Get The Top Level SortedDocValues again so we can re-iterate:
-      if (CollapsingQParserPlugin.HINT_TOP_FC.equals(hint)) {
-        LeafReader uninvertingReader =
-            CollapsingQParserPlugin.getTopFieldCacheReader(searcher, field);
-        values = uninvertingReader.getSortedDocValues(field);
-      } else {
-        values = DocValues.getSorted(reader, field);
-      }
-
-      groupExpandCollector =
-          new GroupExpandCollector(
-              limit,
-              sort,
-              query,
-              expandNullGroup,
-              fieldType,
-              ordBytes,
-              values,
-              groupBits,
-              collapsedSet);
+      groupCollectorFactory =
+          () ->
+              new GroupExpandCollector(
+                  limit,
+                  expandSort,
+                  query,
+                  expandNullGroup,
+                  fieldType,
+                  groupOrdBytes,
+                  // Get The Top Level SortedDocValues again so we can re-iterate:
+                  getSortedDocValues(searcher, expandField, collapseHint),
+                  groupOrds,
+                  collapsedSet);
     } else {
-      groupExpandCollector =
-          new NumericGroupExpandCollector(
-              limit,
-              sort,
-              query,
-              expandNullGroup,
-              fieldType,
-              ordBytes,
-              field,
-              groupSet,
-              collapsedSet);
+      groupCollectorFactory =
+          () ->
+              new NumericGroupExpandCollector(
+                  limit,
+                  expandSort,
+                  query,
+                  expandNullGroup,
+                  fieldType,
+                  groupOrdBytes,
+                  expandField,
+                  groupValues,
+                  collapsedSet);
     }
 
     if (groupQuery != null) {
@@ -436,19 +430,57 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
     }
 
     SolrIndexSearcher.ProcessedFilter pfilter = searcher.getProcessedFilter(newFilters);
-    if (pfilter.postFilter != null) {
-      pfilter.postFilter.setLastDelegate(groupExpandCollector);
-      collector = pfilter.postFilter;
+    Query expandQuery = QueryUtils.combineQueryAndFilter(query, pfilter.filter);
+    List<GroupCollector> groupExpandCollectors;
+    if (pfilter.postFilter == null
+        && params.getBool(CommonParams.MULTI_THREADED, false)
+        && !CollapsingQParserPlugin.HINT_TOP_FC.equals(collapseHint)) {
+      // collect the segment slices in parallel, the top level doc values of the top_fc hint can
+      // only be iterated in doc order
+      groupExpandCollectors =
+          searcher.search(
+              expandQuery,
+              new CollectorManager<GroupCollector, List<GroupCollector>>() {
+                @Override
+                public GroupCollector newCollector() throws IOException {
+                  return groupCollectorFactory.get();
+                }
+
+                @Override
+                public List<GroupCollector> reduce(Collection<GroupCollector> collectors) {
+                  return new ArrayList<>(collectors);
+                }
+              });
     } else {
-      collector = groupExpandCollector;
+      GroupCollector groupExpandCollector = groupCollectorFactory.get();
+      Collector collector;
+      if (pfilter.postFilter != null) {
+        pfilter.postFilter.setLastDelegate(groupExpandCollector);
+        collector = pfilter.postFilter;
+      } else {
+        collector = groupExpandCollector;
+      }
+      searcher.search(expandQuery, collector);
+      groupExpandCollectors = List.of(groupExpandCollector);
     }
-
-    searcher.search(QueryUtils.combineQueryAndFilter(query, pfilter.filter), collector);
     if (queryLimits.maybeExitWithPartialResults("Expand expand")) {
       return;
     }
 
-    rb.rsp.add("expanded", groupExpandCollector.getGroups(searcher, rb.rsp.getReturnFields()));
+    rb.rsp.add(
+        "expanded",
+        GroupCollector.getGroups(groupExpandCollectors, searcher, rb.rsp.getReturnFields()));
+  }
+
+  private static SortedDocValues getSortedDocValues(
+      SolrIndexSearcher searcher, String field, String hint) throws IOException {
+    if (CollapsingQParserPlugin.HINT_TOP_FC.equals(hint)) {
+      LeafReader uninvertingReader =
+          CollapsingQParserPlugin.getTopFieldCacheReader(searcher, field);
+      return uninvertingReader.getSortedDocValues(field);
+    } else {
+      return DocValues.getSorted(searcher.getSlowAtomicReader(), field);
+    }
   }
 
   @Override
@@ -573,17 +605,12 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
 
       final LeafCollector leafNullGroupCollector =
           expandNullGroup ? nullGroupCollector.getLeafCollector(context) : null;
-      final LongObjectMap<LeafCollector> leafCollectors = new LongObjectHashMap<>();
-      for (LongObjectCursor<Collector> entry : groups) {
-        leafCollectors.put(entry.key, entry.value.getLeafCollector(context));
-      }
+      final GroupLeafCollectors leafCollectors = new GroupLeafCollectors(groups, context);
       return new LeafCollector() {
 
         @Override
         public void setScorer(Scorable scorer) throws IOException {
-          for (ObjectCursor<LeafCollector> c : leafCollectors.values()) {
-            c.value.setScorer(scorer);
-          }
+          leafCollectors.setScorer(scorer);
           if (expandNullGroup) {
             leafNullGroupCollector.setScorer(scorer);
           }
@@ -617,8 +644,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
 
           if (ord > -1) {
             if (groupBits.get(ord)) {
-              LeafCollector c = leafCollectors.get(ord);
-              c.collect(docId);
+              leafCollectors.get(ord).collect(docId);
             }
           } else if (expandNullGroup) {
             leafNullGroupCollector.collect(docId);
@@ -668,18 +694,13 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
       final NumericDocValues docValues = context.reader().getNumericDocValues(this.field);
       final LeafCollector leafNullGroupCollector =
           expandNullGroup ? nullGroupCollector.getLeafCollector(context) : null;
-      final LongObjectHashMap<LeafCollector> leafCollectors = new LongObjectHashMap<>();
-      for (LongObjectCursor<Collector> entry : groups) {
-        leafCollectors.put(entry.key, entry.value.getLeafCollector(context));
-      }
+      final GroupLeafCollectors leafCollectors = new GroupLeafCollectors(groups, context);
 
       return new LeafCollector() {
 
         @Override
         public void setScorer(Scorable scorer) throws IOException {
-          for (ObjectCursor<LeafCollector> c : leafCollectors.values()) {
-            c.value.setScorer(scorer);
-          }
+          leafCollectors.setScorer(scorer);
           if (expandNullGroup) {
             leafNullGroupCollector.setScorer(scorer);
           }
@@ -689,9 +710,8 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
         public void collect(int docId) throws IOException {
           if (docValues.advanceExact(docId)) {
             final long value = docValues.longValue();
-            final int index = leafCollectors.indexOf(value);
-            if (index >= 0 && !collapsedSet.contains(docId + docBase)) {
-              leafCollectors.indexGet(index).collect(docId);
+            if (groups.containsKey(value) && !collapsedSet.contains(docId + docBase)) {
+              leafCollectors.get(value).collect(docId);
             }
           } else if (expandNullGroup && !collapsedSet.contains(docId + docBase)) {
             leafNullGroupCollector.collect(docId);
@@ -706,6 +726,42 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
     }
   }
 
+  /**
+   * The leaf collectors of the groups to expand for a segment, which are only created for the
+   * groups that have documents in the segment.
+   */
+  private static class GroupLeafCollectors {
+    private final LongObjectMap<Collector> groups;
+    private final LeafReaderContext context;
+    private final LongObjectHashMap<LeafCollector> leafCollectors = new LongObjectHashMap<>();
+    private Scorable scorer;
+
+    GroupLeafCollectors(LongObjectMap<Collector> groups, LeafReaderContext context) {
+      this.groups = groups;
+      this.context = context;
+    }
+
+    void setScorer(Scorable scorer) throws IOException {
+      this.scorer = scorer;
+      for (ObjectCursor<LeafCollector> c : leafCollectors.values()) {
+        c.value.setScorer(scorer);
+      }
+    }
+
+    /** Returns the leaf collector of a group, which must be one of the groups to expand. */
+    LeafCollector get(long group) throws IOException {
+      LeafCollector leafCollector = leafCollectors.get(group);
+      if (leafCollector == null) {
+        leafCollector = groups.get(group).getLeafCollector(context);
+        if (scorer != null) {
+          leafCollector.setScorer(scorer);
+        }
+        leafCollectors.put(group, leafCollector);
+      }
+      return leafCollector;
+    }
+  }
+
   private abstract static class GroupCollector implements Collector {
 
     protected final int limit;
@@ -736,21 +792,35 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
 
     protected abstract LongObjectMap<Collector> getGroups();
 
-    public final SimpleOrderedMap<DocSlice> getGroups(
-        SolrIndexSearcher searcher, ReturnFields returnFields) throws IOException {
+    /**
+     * Returns the expanded groups collected by collectors that expanded the same groups, e.g. for
+     * different slices of the index.
+     */
+    public static SimpleOrderedMap<DocSlice> getGroups(
+        List<GroupCollector> collectors, SolrIndexSearcher searcher, ReturnFields returnFields)
+        throws IOException {
 
+      final GroupCollector first = collectors.get(0);
       final SimpleOrderedMap<DocSlice> outMap = new SimpleOrderedMap<>();
       final CharsRefBuilder charsRef = new CharsRefBuilder();
-      for (LongObjectCursor<Collector> cursor : getGroups()) {
+      final Collector[] groupCollectors = new Collector[collectors.size()];
+      for (LongObjectCursor<Collector> cursor : first.getGroups()) {
         final long groupValue = cursor.key;
-        final DocSlice slice = collectorToDocSlice(cursor.value, searcher, returnFields);
+        for (int i = 0; i < groupCollectors.length; i++) {
+          groupCollectors[i] = collectors.get(i).getGroups().get(groupValue);
+        }
+        final DocSlice slice = first.collectorsToDocSlice(groupCollectors, searcher, returnFields);
         if (null != slice) {
-          addGroupSliceToOutputMap(outMap, charsRef, groupValue, slice);
+          first.addGroupSliceToOutputMap(outMap, charsRef, groupValue, slice);
         }
       }
-      if (expandNullGroup) {
-        assert null != nullGroupCollector;
-        final DocSlice nullGroup = collectorToDocSlice(nullGroupCollector, searcher, returnFields);
+      if (first.expandNullGroup) {
+        for (int i = 0; i < groupCollectors.length; i++) {
+          groupCollectors[i] = collectors.get(i).nullGroupCollector;
+          assert null != groupCollectors[i];
+        }
+        final DocSlice nullGroup =
+            first.collectorsToDocSlice(groupCollectors, searcher, returnFields);
         if (null != nullGroup) {
           outMap.add(null, nullGroup);
         }
@@ -758,12 +828,11 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
       return outMap;
     }
 
-    private DocSlice collectorToDocSlice(
-        Collector groupCollector, SolrIndexSearcher searcher, ReturnFields returnFields)
+    private DocSlice collectorsToDocSlice(
+        Collector[] groupCollectors, SolrIndexSearcher searcher, ReturnFields returnFields)
         throws IOException {
-      if (groupCollector instanceof TopDocsCollector) {
-        TopDocsCollector<?> topDocsCollector = TopDocsCollector.class.cast(groupCollector);
-        TopDocs topDocs = topDocsCollector.topDocs();
+      if (groupCollectors[0] instanceof TopDocsCollector) {
+        TopDocs topDocs = mergeTopDocs(groupCollectors);
         ScoreDoc[] scoreDocs = topDocs.scoreDocs;
         if (scoreDocs.length > 0) {
           if (returnFields.wantsScore() && sort != null) {
@@ -787,7 +856,10 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
               TotalHits.Relation.EQUAL_TO);
         }
       } else {
-        int totalHits = ((TotalHitCountCollector) groupCollector).getTotalHits();
+        int totalHits = 0;
+        for (Collector groupCollector : groupCollectors) {
+          totalHits += ((TotalHitCountCollector) groupCollector).getTotalHits();
+        }
         if (totalHits > 0) {
           return new DocSlice(0, 0, null, null, totalHits, 0, TotalHits.Relation.EQUAL_TO);
         }
@@ -795,6 +867,25 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
       return null;
     }
 
+    private TopDocs mergeTopDocs(Collector[] groupCollectors) {
+      if (groupCollectors.length == 1) {
+        return ((TopDocsCollector<?>) groupCollectors[0]).topDocs();
+      }
+      if (sort == null) {
+        TopDocs[] shardHits = new TopDocs[groupCollectors.length];
+        for (int i = 0; i < shardHits.length; i++) {
+          shardHits[i] = ((TopDocsCollector<?>) groupCollectors[i]).topDocs();
+        }
+        return TopDocs.merge(limit, shardHits);
+      } else {
+        TopFieldDocs[] shardHits = new TopFieldDocs[groupCollectors.length];
+        for (int i = 0; i < shardHits.length; i++) {
+          shardHits[i] = (TopFieldDocs) ((TopDocsCollector<?>) groupCollectors[i]).topDocs();
+        }
+        return TopDocs.merge(sort, limit, shardHits);
+      }
+    }
+
     private void addGroupSliceToOutputMap(
         NamedList<DocSlice> outMap, CharsRefBuilder charsRef, long groupValue, DocSlice slice) {
       if (fieldType instanceof StrField) {
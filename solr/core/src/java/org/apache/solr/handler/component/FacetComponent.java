@@ -766,9 +766,11 @@ public class FacetComponent extends SearchComponent {
       SpatialHeatmapFacets.distribHandleResponse(fi.heatmapFacets, facet_counts);
     } // end for-each-response-in-shard-request...
 
-    // refine each pivot based on the new shard data
-    for (Entry<String, PivotFacet> pivotFacet : fi.pivotFacets) {
-      pivotFacet.getValue().queuePivotRefinementRequests();
+    // refine each pivot based on the new shard data, unless the pivots are merged in one round
+    if (rb.req.getParams().getBool(FacetParams.FACET_PIVOT_REFINE, true)) {
+      for (Entry<String, PivotFacet> pivotFacet : fi.pivotFacets) {
+        pivotFacet.getValue().queuePivotRefinementRequests();
+      }
     }
 
     //
@@ -26,6 +26,7 @@ import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -93,6 +94,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   int permittedLoadBalancerRequestsMinimumAbsolute = 0;
   float permittedLoadBalancerRequestsMaximumFraction = 1.0f;
   boolean accessPolicy = false;
+  boolean useVirtualThreads = false;
   private SolrMetricsContext solrMetricsContext;
 
   private String scheme = null;
@@ -128,6 +130,9 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   // Configure if the threadpool favours fairness over throughput
   static final String INIT_FAIRNESS_POLICY = "fairnessPolicy";
 
+  // Configure if the shard requests run on a virtual thread per task rather than a threadpool
+  static final String INIT_USE_VIRTUAL_THREADS = "useVirtualThreads";
+
   /** Get {@link ShardHandler} that uses the default http client. */
   @Override
   public ShardHandler getShardHandler() {
@@ -260,6 +265,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             permittedLoadBalancerRequestsMaximumFraction,
             sb);
     this.accessPolicy = getParameter(args, INIT_FAIRNESS_POLICY, accessPolicy, sb);
+    this.useVirtualThreads = getParameter(args, INIT_USE_VIRTUAL_THREADS, useVirtualThreads, sb);
 
     if (args != null && args.get("shardsWhitelist") != null) {
       log.warn(
@@ -273,22 +279,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
       r.setSeed(Long.parseLong(v));
     }
 
-    BlockingQueue<Runnable> blockingQueue =
-        (this.queueSize == -1)
-            ? new SynchronousQueue<Runnable>(this.accessPolicy)
-            : new ArrayBlockingQueue<Runnable>(this.queueSize, this.accessPolicy);
-
-    this.commExecutor =
-        new ExecutorUtil.MDCAwareThreadPoolExecutor(
-            this.corePoolSize,
-            this.maximumPoolSize,
-            this.keepAliveTime,
-            TimeUnit.SECONDS,
-            blockingQueue,
-            new SolrNamedThreadFactory("httpShardExecutor"),
-            // the Runnable added to this executor handles all exceptions so we disable stack trace
-            // collection as an optimization. see SOLR-11880 for more details
-            false);
+    this.commExecutor = newCommExecutor();
 
     this.httpListenerFactory = new InstrumentedHttpListenerFactory(this.metricNameStrategy);
     int connectionTimeout =
@@ -321,6 +312,37 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
     log.debug("created with {}", sb);
   }
 
+  /**
+   * Creates the executor sending shard requests and processing their responses. With {@link
+   * #INIT_USE_VIRTUAL_THREADS} it starts a virtual thread per task instead of pooling platform
+   * threads, so that requests fanning out to hundreds of shards, which mostly wait on I/O, do not
+   * need as many platform threads.
+   */
+  private ExecutorService newCommExecutor() {
+    // the Runnable added to this executor handles all exceptions so we disable stack trace
+    // collection as an optimization. see SOLR-11880 for more details
+    if (useVirtualThreads) {
+      return ExecutorUtil.newMDCAwareExecutor(
+          Executors.newThreadPerTaskExecutor(
+              Thread.ofVirtual().name("httpShardExecutor-", 0).factory()),
+          false);
+    }
+
+    BlockingQueue<Runnable> blockingQueue =
+        (this.queueSize == -1)
+            ? new SynchronousQueue<Runnable>(this.accessPolicy)
+            : new ArrayBlockingQueue<Runnable>(this.queueSize, this.accessPolicy);
+
+    return new ExecutorUtil.MDCAwareThreadPoolExecutor(
+        this.corePoolSize,
+        this.maximumPoolSize,
+        this.keepAliveTime,
+        TimeUnit.SECONDS,
+        blockingQueue,
+        new SolrNamedThreadFactory("httpShardExecutor"),
+        false);
+  }
+
   @Override
   public void setSecurityBuilder(HttpClientBuilderPlugin clientBuilderPlugin) {
     if (clientBuilderPlugin != null) {
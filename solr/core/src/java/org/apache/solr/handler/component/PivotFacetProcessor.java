@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -43,6 +44,7 @@ import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
+import org.apache.solr.search.facet.FacetRequest;
 import org.apache.solr.util.PivotListEntry;
 
 /** Processes all Pivot facet logic for a single node -- both non-distrib, and per-shard */
@@ -204,6 +206,15 @@ public class PivotFacetProcessor extends SimpleFacets {
     SolrIndexSearcher searcher = rb.req.getSearcher();
     SimpleOrderedMap<List<NamedList<Object>>> pivotResponse = new SimpleOrderedMap<>();
 
+    if (null == refinements
+        && statsFields.isEmpty()
+        && facetQueries.isEmpty()
+        && facetRanges.isEmpty()
+        && canUseJsonFacets(pivotFields, parsed.params)) {
+      pivotResponse.add(parsed.key, doPivotsWithJsonFacets(pivotFields, parsed));
+      return pivotResponse;
+    }
+
     String field = pivotFields.get(0);
     SchemaField sfield = searcher.getSchema().getField(field);
 
@@ -388,6 +399,93 @@ public class PivotFacetProcessor extends SimpleFacets {
     return values;
   }
 
+  /**
+   * Whether the pivot may be computed by {@link #doPivotsWithJsonFacets}: if it was requested, and
+   * the fields have no options that the JSON terms facets don't support the same way.
+   */
+  private static boolean canUseJsonFacets(List<String> pivotFields, SolrParams params) {
+    if (!params.getBool(FacetParams.FACET_PIVOT_JSON, false)) {
+      return false;
+    }
+    for (String field : pivotFields) {
+      if (params.getFieldInt(field, FacetParams.FACET_LIMIT, 100) == 0
+          || params.getFieldInt(field, FacetParams.FACET_PIVOT_MINCOUNT, 1) < 1
+          || params.getFieldBool(field, FacetParams.FACET_MISSING, false)
+          || params.getFieldBool(field, FacetParams.FACET_EXISTS, false)
+          || null != params.getFieldParam(field, FacetParams.FACET_CONTAINS)
+          || null != params.getFieldParam(field, FacetParams.FACET_MATCHES)
+          || null != params.getFieldParam(field, FacetParams.FACET_EXCLUDETERMS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the pivot with a single JSON terms facet on the first field, nesting a terms facet on
+   * each next field, so that the counts of all the levels are collected by the JSON facet engines
+   * rather than by a field facet per value of the parent field.
+   */
+  private List<NamedList<Object>> doPivotsWithJsonFacets(
+      List<String> pivotFields, ParsedParams parsed) throws IOException {
+    Map<String, Object> jsonFacet = null;
+    for (int i = pivotFields.size() - 1; i >= 0; i--) {
+      String field = pivotFields.get(i);
+      int limit = parsed.params.getFieldInt(field, FacetParams.FACET_LIMIT, 100);
+      String sort =
+          parsed.params.getFieldParam(
+              field,
+              FacetParams.FACET_SORT,
+              limit > 0 ? FacetParams.FACET_SORT_COUNT : FacetParams.FACET_SORT_INDEX);
+      if (FacetParams.FACET_SORT_COUNT_LEGACY.equals(sort)) {
+        sort = FacetParams.FACET_SORT_COUNT;
+      } else if (FacetParams.FACET_SORT_INDEX_LEGACY.equals(sort)) {
+        sort = FacetParams.FACET_SORT_INDEX;
+      }
+
+      Map<String, Object> fieldFacet = new HashMap<>();
+      fieldFacet.put("type", "terms");
+      fieldFacet.put("field", field);
+      fieldFacet.put("offset", parsed.params.getFieldInt(field, FacetParams.FACET_OFFSET, 0));
+      fieldFacet.put("limit", limit);
+      fieldFacet.put(
+          "mincount", parsed.params.getFieldInt(field, FacetParams.FACET_PIVOT_MINCOUNT, 1));
+      fieldFacet.put("prefix", parsed.params.getFieldParam(field, FacetParams.FACET_PREFIX));
+      fieldFacet.put("sort", sort);
+      if (jsonFacet != null) {
+        fieldFacet.put("facet", Collections.singletonMap("pivot", jsonFacet));
+      }
+      jsonFacet = fieldFacet;
+    }
+
+    Object res = FacetRequest.parseOneFacetReq(req, jsonFacet).process(req, parsed.docs);
+    return toPivots(pivotFields, 0, res);
+  }
+
+  /** Converts the buckets of a JSON terms facet, and of its nested facets, to pivot values. */
+  @SuppressWarnings("unchecked")
+  private List<NamedList<Object>> toPivots(List<String> pivotFields, int level, Object facetRes) {
+    String field = pivotFields.get(level);
+    List<NamedList<Object>> buckets =
+        (List<NamedList<Object>>) ((NamedList<Object>) facetRes).get("buckets");
+    List<NamedList<Object>> values = new ArrayList<>(buckets.size());
+    for (NamedList<Object> bucket : buckets) {
+      SimpleOrderedMap<Object> pivot = new SimpleOrderedMap<>();
+      pivot.add("field", field);
+      pivot.add("value", bucket.get("val"));
+      pivot.add("count", ((Number) bucket.get("count")).intValue());
+      Object subRes = bucket.get("pivot");
+      if (subRes != null) {
+        List<NamedList<Object>> subValues = toPivots(pivotFields, level + 1, subRes);
+        if (!subValues.isEmpty()) {
+          pivot.add("pivot", subValues);
+        }
+      }
+      values.add(pivot);
+    }
+    return values;
+  }
+
   /**
    * Given a base docset, computes the size of the subset of documents corresponding to the
    * specified pivotValue
@@ -611,7 +611,9 @@ public class QueryComponent extends SearchComponent {
     } else if (rb.stage < ResponseBuilder.STAGE_EXECUTE_QUERY) {
       nextStage = ResponseBuilder.STAGE_EXECUTE_QUERY;
     } else if (rb.stage == ResponseBuilder.STAGE_EXECUTE_QUERY) {
-      shardRequestFactory = new TopGroupsShardRequestFactory();
+      if (!rb.topGroupsFromFirstPhase || !rb.ambiguousSearchGroups.isEmpty()) {
+        shardRequestFactory = new TopGroupsShardRequestFactory();
+      }
       nextStage = ResponseBuilder.STAGE_GET_FIELDS;
     } else if (rb.stage < ResponseBuilder.STAGE_GET_FIELDS) {
       nextStage = ResponseBuilder.STAGE_GET_FIELDS;
@@ -1574,14 +1576,17 @@ public class QueryComponent extends SearchComponent {
             .setIncludeHitCount(true)
             .setSearcher(searcher);
 
+    List<SearchGroupsFieldCommand> searchGroupsCommands = new ArrayList<>();
     for (String field : groupingSpec.getFields()) {
-      topsGroupsActionBuilder.addCommandField(
+      SearchGroupsFieldCommand searchGroupsCommand =
           new SearchGroupsFieldCommand.Builder()
               .setField(schema.getField(field))
               .setGroupSort(groupingSpec.getGroupSortSpec().getSort())
               .setTopNGroups(cmd.getOffset() + cmd.getLen())
               .setIncludeGroupCount(groupingSpec.isIncludeGroupCount())
-              .build());
+              .build();
+      searchGroupsCommands.add(searchGroupsCommand);
+      topsGroupsActionBuilder.addCommandField(searchGroupsCommand);
     }
 
     CommandHandler commandHandler = topsGroupsActionBuilder.build();
@@ -1591,9 +1596,58 @@ public class QueryComponent extends SearchComponent {
     var result = new QueryResult();
     rsp.add("firstPhase", commandHandler.processResult(result, serializer));
     rsp.add("totalHitCount", commandHandler.getTotalHitCount());
+
+    if (req.getParams().get(GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS) != null) {
+      // also return the top documents of our own top groups, so that the coordinator may not need
+      // a second phase
+      CommandHandler.Builder topGroupsBuilder =
+          new CommandHandler.Builder().setQueryCommand(cmd).setSearcher(searcher);
+      for (SearchGroupsFieldCommand searchGroupsCommand : searchGroupsCommands) {
+        Collection<SearchGroup<BytesRef>> searchGroups =
+            searchGroupsCommand.result().getSearchGroups();
+        topGroupsBuilder.addCommandField(
+            newTopGroupsFieldCommand(
+                rb,
+                cmd,
+                schema.getField(searchGroupsCommand.getKey()),
+                searchGroups != null ? searchGroups : Collections.emptyList()));
+      }
+      CommandHandler topGroupsHandler = topGroupsBuilder.build();
+      topGroupsHandler.execute();
+      TopGroupsResultTransformer topGroupsSerializer = new TopGroupsResultTransformer(rb);
+      rsp.add("secondPhase", topGroupsHandler.processResult(result, topGroupsSerializer));
+    }
     rb.setResult(result);
   }
 
+  private TopGroupsFieldCommand newTopGroupsFieldCommand(
+      ResponseBuilder rb,
+      QueryCommand cmd,
+      SchemaField schemaField,
+      Collection<SearchGroup<BytesRef>> topGroups) {
+    GroupingSpecification groupingSpec = rb.getGroupingSpec();
+    boolean needScores = (cmd.getFlags() & SolrIndexSearcher.GET_SCORES) != 0;
+    return new TopGroupsFieldCommand.Builder()
+        .setQuery(cmd.getQuery())
+        .setField(schemaField)
+        .setGroupSort(groupingSpec.getGroupSortSpec().getSort())
+        .setSortWithinGroup(groupingSpec.getWithinGroupSortSpec().getSort())
+        .setFirstPhaseGroups(topGroups)
+        .setMaxDocPerGroup(getWithinGroupDocsToCollect(groupingSpec, rb.req.getSearcher()))
+        .setNeedScores(needScores)
+        .setNeedMaxScore(needScores)
+        .build();
+  }
+
+  private static int getWithinGroupDocsToCollect(
+      GroupingSpecification groupingSpec, SolrIndexSearcher searcher) {
+    SortSpec withinGroupSortSpec = groupingSpec.getWithinGroupSortSpec();
+    int docsToCollect =
+        Grouping.getMax(
+            withinGroupSortSpec.getOffset(), withinGroupSortSpec.getCount(), searcher.maxDoc());
+    return Math.max(docsToCollect, 1);
+  }
+
   private void doProcessGroupedDistributedSearchSecondPhase(ResponseBuilder rb, QueryCommand cmd)
       throws IOException, SyntaxError {
 
@@ -1617,12 +1671,6 @@ public class QueryComponent extends SearchComponent {
                 groupingSpec.isTruncateGroups() && groupingSpec.getFields().length > 0)
             .setSearcher(searcher);
 
-    SortSpec withinGroupSortSpec = groupingSpec.getWithinGroupSortSpec();
-    int docsToCollect =
-        Grouping.getMax(
-            withinGroupSortSpec.getOffset(), withinGroupSortSpec.getCount(), searcher.maxDoc());
-    docsToCollect = Math.max(docsToCollect, 1);
-
     for (String field : groupingSpec.getFields()) {
       SchemaField schemaField = schema.getField(field);
       String[] topGroupsParam =
@@ -1642,20 +1690,11 @@ public class QueryComponent extends SearchComponent {
         topGroups.add(searchGroup);
       }
 
-      secondPhaseBuilder.addCommandField(
-          new TopGroupsFieldCommand.Builder()
-              .setQuery(cmd.getQuery())
-              .setField(schemaField)
-              .setGroupSort(groupingSpec.getGroupSortSpec().getSort())
-              .setSortWithinGroup(withinGroupSortSpec.getSort())
-              .setFirstPhaseGroups(topGroups)
-              .setMaxDocPerGroup(docsToCollect)
-              .setNeedScores(needScores)
-              .setNeedMaxScore(needScores)
-              .build());
+      secondPhaseBuilder.addCommandField(newTopGroupsFieldCommand(rb, cmd, schemaField, topGroups));
     }
 
     SortSpec groupSortSpec = groupingSpec.getGroupSortSpec();
+    int docsToCollect = getWithinGroupDocsToCollect(groupingSpec, searcher);
     // use start and rows for group.format=simple and group.main=true
     if (rb.getGroupingSpec().getResponseFormat() == Grouping.Format.simple
         || rb.getGroupingSpec().isMain()) {
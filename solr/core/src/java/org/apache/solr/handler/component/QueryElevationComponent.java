@@ -18,6 +18,8 @@ package org.apache.solr.handler.component;
 
 import com.carrotsearch.hppc.IntIntHashMap;
 import com.carrotsearch.hppc.cursors.IntIntCursor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
@@ -29,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -63,6 +66,11 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.FSTCompiler;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.QueryElevationParams;
 import org.apache.solr.common.params.SolrParams;
@@ -111,6 +119,12 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
   // Constants used in solrconfig.xml
   @VisibleForTesting static final String FIELD_TYPE = "queryFieldType";
   @VisibleForTesting static final String CONFIG_FILE = "config-file";
+  @VisibleForTesting static final String ELEVATION_PROVIDER = "elevationProvider";
+  @VisibleForTesting static final String ANALYZED_QUERY_CACHE_SIZE = "analyzedQueryCacheSize";
+  /** Value of {@link #ELEVATION_PROVIDER} for the {@link DefaultElevationProvider}. */
+  static final String TRIE_ELEVATION_PROVIDER = "trie";
+  /** Value of {@link #ELEVATION_PROVIDER} for the {@link CompiledElevationProvider}. */
+  static final String FST_ELEVATION_PROVIDER = "fst";
   private static final String EXCLUDE = "exclude";
 
   /**
@@ -132,6 +146,7 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
   private static final boolean DEFAULT_SUBSET_MATCH = false;
   private static final String DEFAULT_EXCLUDE_MARKER_FIELD_NAME = "excluded";
   private static final String DEFAULT_EDITORIAL_MARKER_FIELD_NAME = "elevated";
+  private static final int DEFAULT_ANALYZED_QUERY_CACHE_SIZE = 1000;
   private static final WeakReference<IndexReader> NULL_REF = new WeakReference<>(null);
 
   protected SolrParams initArgs;
@@ -150,6 +165,12 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
    */
   protected boolean useConfiguredElevatedOrder;
 
+  /** Whether rules are compiled by the {@link CompiledElevationProvider}. */
+  protected boolean compiledElevationProvider;
+
+  /** Maximum number of analyzed queries cached by the {@link CompiledElevationProvider}. */
+  protected int analyzedQueryCacheSize;
+
   /** If {@link #inform(SolrCore)} completed without error. */
   protected boolean initialized;
 
@@ -176,6 +197,15 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
    */
   protected long cacheVersion;
 
+  /**
+   * Incremented each time the cache is cleared, so that a provider loaded in the background does
+   * not replace one set afterwards. Must be accessed under lock.
+   */
+  private long cacheGeneration;
+
+  /** Whether a provider is being loaded in the background. Must be accessed under lock. */
+  private boolean cacheReloading;
+
   @Override
   public void init(NamedList<?> args) {
     this.initArgs = args.toSolrParams();
@@ -191,6 +221,7 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
       parseEditorialMarkerFieldName(core);
       parseForceElevation();
       parseUseConfiguredOrderForElevations();
+      parseElevationProvider();
       loadElevationConfiguration(core);
       initialized = true;
     } catch (InitializationException e) {
@@ -250,6 +281,21 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
             DEFAULT_USE_CONFIGURED_ELEVATED_ORDER);
   }
 
+  private void parseElevationProvider() throws InitializationException {
+    String provider = initArgs.get(ELEVATION_PROVIDER, TRIE_ELEVATION_PROVIDER);
+    if (FST_ELEVATION_PROVIDER.equals(provider)) {
+      compiledElevationProvider = true;
+    } else if (TRIE_ELEVATION_PROVIDER.equals(provider)) {
+      compiledElevationProvider = false;
+    } else {
+      throw new InitializationException(
+          "Parameter " + ELEVATION_PROVIDER + " defines an unknown provider \"" + provider + "\"",
+          InitializationExceptionCause.OTHER);
+    }
+    analyzedQueryCacheSize =
+        initArgs.getInt(ANALYZED_QUERY_CACHE_SIZE, DEFAULT_ANALYZED_QUERY_CACHE_SIZE);
+  }
+
   /**
    * (Re)Loads elevation configuration.
    *
@@ -335,32 +381,67 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
    * Gets the {@link ElevationProvider}; typically cached. If there was a problem, it might return a
    * previously cached or dummy entry, or possibly rethrow the exception.
    *
+   * <p>When a previous provider is cached, a new one is loaded without holding the lock, so that
+   * searches running meanwhile keep using the previous provider rather than waiting for the
+   * (possibly long) loading to complete.
+   *
    * @return The cached or loaded {@link ElevationProvider}.
    */
   protected ElevationProvider getElevationProvider(IndexReader reader, SolrCore core) {
+    final long version;
+    final long generation;
     synchronized (LOCK) {
       if (cacheElevationProvider != null && Objects.equals(cacheIndexReader.get(), reader)) {
         return cacheElevationProvider; // cache hit !
       }
 
-      final long version = getConfigVersion(core);
-      try {
-        // check version to see if should re-use
-        if (cacheVersion != -1 && cacheVersion == version) {
-          return cacheElevationProvider; // cache hit !
-        }
-
+      version = getConfigVersion(core);
+      // check version to see if should re-use
+      if (cacheElevationProvider == null || (cacheVersion != -1 && cacheVersion == version)) {
         try {
-          return cacheElevationProvider = loadElevationProvider(core);
-        } catch (Exception e) {
-          return cacheElevationProvider = handleConfigLoadingException(e);
-        }
-      } finally {
-        if (cacheElevationProvider != null) { // could be null if re-throwing
-          cacheIndexReader = new WeakReference<>(reader); // cache the decision
-          cacheVersion = version;
+          if (cacheElevationProvider != null) {
+            return cacheElevationProvider; // cache hit !
+          }
+          try {
+            return cacheElevationProvider = loadElevationProvider(core);
+          } catch (Exception e) {
+            return cacheElevationProvider = handleConfigLoadingException(e);
+          }
+        } finally {
+          if (cacheElevationProvider != null) { // could be null if re-throwing
+            cacheIndexReader = new WeakReference<>(reader); // cache the decision
+            cacheVersion = version;
+          }
         }
       }
+
+      if (cacheReloading) {
+        return cacheElevationProvider; // being reloaded by another search
+      }
+      cacheReloading = true;
+      generation = cacheGeneration;
+    }
+
+    ElevationProvider elevationProvider = null;
+    Exception exception = null;
+    try {
+      elevationProvider = loadElevationProvider(core);
+    } catch (Exception e) {
+      exception = e;
+    }
+
+    synchronized (LOCK) {
+      cacheReloading = false;
+      if (exception != null) {
+        elevationProvider = handleConfigLoadingException(exception);
+      }
+      // unless the cache was cleared meanwhile, e.g. by a reload of the configuration
+      if (generation == cacheGeneration && elevationProvider != null) {
+        cacheElevationProvider = elevationProvider;
+        cacheIndexReader = new WeakReference<>(reader); // cache the decision
+        cacheVersion = version;
+      }
+      return elevationProvider;
     }
   }
 
@@ -858,6 +939,9 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
    */
   protected ElevationProvider createElevationProvider(
       Map<ElevatingQuery, ElevationBuilder> elevationBuilderMap) {
+    if (compiledElevationProvider) {
+      return new CompiledElevationProvider(elevationBuilderMap, analyzedQueryCacheSize);
+    }
     return new DefaultElevationProvider(new TrieSubsetMatcher.Builder<>(), elevationBuilderMap);
   }
 
@@ -923,6 +1007,7 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
     Map<ElevatingQuery, ElevationBuilder> elevationBuilderMap =
         Map.of(elevatingQuery, elevationBuilder);
     synchronized (LOCK) {
+      cacheGeneration++;
       cacheIndexReader = new WeakReference<>(reader);
       cacheElevationProvider = createElevationProvider(elevationBuilderMap);
       cacheVersion = -1;
@@ -932,6 +1017,7 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
   @VisibleForTesting
   void clearElevationProviderCache() {
     synchronized (LOCK) {
+      cacheGeneration++;
       cacheIndexReader = NULL_REF;
       cacheElevationProvider = null;
       cacheVersion = -1;
@@ -1099,6 +1185,246 @@ public class QueryElevationComponent extends SearchComponent implements SolrCore
     }
   }
 
+  /**
+   * Provides the same elevations as the {@link DefaultElevationProvider}, from rules compiled into
+   * two {@link FST}s keyed on the analyzed query terms, which are much more compact than maps and
+   * tries of strings when there are many rules.
+   *
+   * <ul>
+   *   <li>The <b>exact match</b> FST maps the concatenation of the analyzed terms to the elevation.
+   *   <li>The <b>subset match</b> FST maps the sorted and deduplicated analyzed terms, each one
+   *       followed by a separator, to the elevation. The subsets matching a query are found by
+   *       walking the FST with each combination of the sorted query terms, pruning a combination as
+   *       soon as the FST has no arc for it.
+   * </ul>
+   *
+   * The analyzed form of the most recent queries is cached, so that repeated queries are not
+   * analyzed again.
+   */
+  protected class CompiledElevationProvider implements ElevationProvider {
+
+    private static final int TERM_SEPARATOR = 0;
+
+    private final FST<Long> exactMatchFst; // null if there is no exact match rule
+    private final FST<Long> subsetMatchFst; // null if there is no subset match rule
+    private final Elevation[] elevations; // indexed by the FST outputs
+    private final int size;
+    private final Cache<String, AnalyzedQuery> analyzedQueryCache; // may be null
+
+    /**
+     * @param elevationBuilderMap The map of elevation rules.
+     * @param analyzedQueryCacheSize The maximum number of analyzed queries to cache; <code>0</code>
+     *     disables the cache.
+     */
+    protected CompiledElevationProvider(
+        Map<ElevatingQuery, ElevationBuilder> elevationBuilderMap, int analyzedQueryCacheSize) {
+      Map<BytesRef, Elevation> exactMatchElevations = new HashMap<>();
+      Map<BytesRef, Elevation> subsetMatchElevations = new HashMap<>();
+      int subsetCount = 0;
+      BytesRefBuilder subsetKey = new BytesRefBuilder();
+      for (Map.Entry<ElevatingQuery, ElevationBuilder> entry : elevationBuilderMap.entrySet()) {
+        ElevatingQuery elevatingQuery = entry.getKey();
+        Elevation elevation = entry.getValue().build();
+        AnalyzedQuery analyzedQuery = analyze(elevatingQuery.queryString);
+        if (elevatingQuery.subsetMatch) {
+          if (analyzedQuery.sortedTerms.length == 0) {
+            continue;
+          }
+          subsetKey.clear();
+          for (BytesRef term : analyzedQuery.sortedTerms) {
+            subsetKey.append(term);
+            subsetKey.append((byte) TERM_SEPARATOR);
+          }
+          // like the trie, equal subsets provide all their elevations, in configured order
+          subsetMatchElevations.merge(subsetKey.toBytesRef(), elevation, Elevation::mergeWith);
+          subsetCount++;
+        } else {
+          exactMatchElevations.put(analyzedQuery.exactKey, elevation);
+        }
+      }
+      this.size = exactMatchElevations.size() + subsetCount;
+      this.elevations = new Elevation[exactMatchElevations.size() + subsetMatchElevations.size()];
+      this.exactMatchFst = compile(exactMatchElevations, elevations, 0);
+      this.subsetMatchFst =
+          compile(subsetMatchElevations, elevations, exactMatchElevations.size());
+      this.analyzedQueryCache =
+          analyzedQueryCacheSize > 0
+              ? Caffeine.newBuilder().maximumSize(analyzedQueryCacheSize).build()
+              : null;
+    }
+
+    private static FST<Long> compile(
+        Map<BytesRef, Elevation> keyedElevations, Elevation[] elevations, int firstOrd) {
+      if (keyedElevations.isEmpty()) {
+        return null;
+      }
+      BytesRef[] keys = keyedElevations.keySet().toArray(new BytesRef[0]);
+      Arrays.sort(keys); // the FST requires the keys in sorted order
+      FSTCompiler<Long> fstCompiler =
+          new FSTCompiler.Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton())
+              .build();
+      IntsRefBuilder scratchInts = new IntsRefBuilder();
+      try {
+        for (int i = 0; i < keys.length; i++) {
+          elevations[firstOrd + i] = keyedElevations.get(keys[i]);
+          fstCompiler.add(Util.toIntsRef(keys[i], scratchInts), (long) (firstOrd + i));
+        }
+        return FST.fromFSTReader(fstCompiler.compile(), fstCompiler.getFSTReader());
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    private AnalyzedQuery analyze(String queryString) {
+      BytesRefBuilder exactKey = new BytesRefBuilder();
+      SortedSet<BytesRef> terms = new TreeSet<>();
+      analyzeQuery(
+          queryString,
+          term -> {
+            BytesRef termBytes = new BytesRef(term);
+            exactKey.append(termBytes);
+            terms.add(termBytes);
+          });
+      return new AnalyzedQuery(exactKey.toBytesRef(), terms.toArray(new BytesRef[0]));
+    }
+
+    @Override
+    public Elevation getElevationForQuery(String queryString) {
+      if (exactMatchFst == null && subsetMatchFst == null) {
+        return null;
+      }
+      AnalyzedQuery analyzedQuery =
+          analyzedQueryCache == null
+              ? analyze(queryString)
+              : analyzedQueryCache.get(queryString, this::analyze);
+      try {
+        Elevation mergedElevation = null;
+        if (exactMatchFst != null) {
+          Long ord = Util.get(exactMatchFst, analyzedQuery.exactKey);
+          if (ord != null) {
+            mergedElevation = elevations[ord.intValue()];
+          }
+        }
+        if (subsetMatchFst != null && analyzedQuery.sortedTerms.length != 0) {
+          List<SubsetMatch> subsetMatches = new ArrayList<>();
+          findSubsetsMatching(
+              analyzedQuery.sortedTerms,
+              0,
+              subsetMatchFst.getFirstArc(new FST.Arc<>()),
+              0,
+              new int[analyzedQuery.sortedTerms.length],
+              0,
+              subsetMatchFst.getBytesReader(),
+              subsetMatches);
+          // merge in the same order as the TrieSubsetMatcher finds the subsets
+          subsetMatches.sort(SubsetMatch::compareTo);
+          for (SubsetMatch subsetMatch : subsetMatches) {
+            mergedElevation =
+                mergedElevation == null
+                    ? subsetMatch.elevation
+                    : mergedElevation.mergeWith(subsetMatch.elevation);
+          }
+        }
+        return mergedElevation;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    /**
+     * Walks the subset match FST from the given arc with each combination of the terms from the
+     * given index.
+     *
+     * @param terms The sorted query terms.
+     * @param from The index of the first term that may follow the terms already walked.
+     * @param arc The arc reached by the terms already walked.
+     * @param output The output accumulated by the terms already walked.
+     * @param termIndexes The indexes of the terms already walked, at positions before depth.
+     * @param depth The number of terms already walked.
+     */
+    private void findSubsetsMatching(
+        BytesRef[] terms,
+        int from,
+        FST.Arc<Long> arc,
+        long output,
+        int[] termIndexes,
+        int depth,
+        FST.BytesReader fstReader,
+        List<SubsetMatch> subsetMatches)
+        throws IOException {
+      FST.Arc<Long> nextArc = new FST.Arc<>();
+      for (int i = from; i < terms.length; i++) {
+        nextArc.copyFrom(arc);
+        long nextOutput = output;
+        BytesRef term = terms[i];
+        boolean found = true;
+        for (int j = 0; j <= term.length; j++) {
+          int label = j < term.length ? term.bytes[term.offset + j] & 0xFF : TERM_SEPARATOR;
+          if (subsetMatchFst.findTargetArc(label, nextArc, nextArc, fstReader) == null) {
+            found = false;
+            break;
+          }
+          nextOutput += nextArc.output();
+        }
+        if (!found) {
+          continue;
+        }
+        termIndexes[depth] = i;
+        if (nextArc.isFinal()) {
+          subsetMatches.add(
+              new SubsetMatch(
+                  Arrays.copyOf(termIndexes, depth + 1),
+                  elevations[(int) (nextOutput + nextArc.nextFinalOutput())]));
+        }
+        if (i + 1 < terms.length) {
+          findSubsetsMatching(
+              terms,
+              i + 1,
+              new FST.Arc<Long>().copyFrom(nextArc),
+              nextOutput,
+              termIndexes,
+              depth + 1,
+              fstReader,
+              subsetMatches);
+        }
+      }
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * The analyzed form of a query.
+   *
+   * @param exactKey The concatenation of the analyzed terms.
+   * @param sortedTerms The analyzed terms, sorted and without duplicates.
+   */
+  private record AnalyzedQuery(BytesRef exactKey, BytesRef[] sortedTerms) {}
+
+  /**
+   * A subset matched by the {@link CompiledElevationProvider}, ordered as the {@link
+   * TrieSubsetMatcher} finds them: by the index of their greatest term, then by the index of the
+   * previous one, and so on.
+   */
+  private record SubsetMatch(int[] termIndexes, Elevation elevation)
+      implements Comparable<SubsetMatch> {
+    @Override
+    public int compareTo(SubsetMatch o) {
+      int i = termIndexes.length - 1;
+      int j = o.termIndexes.length - 1;
+      for (; i >= 0 && j >= 0; i--, j--) {
+        int cmp = Integer.compare(termIndexes[i], o.termIndexes[j]);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return Integer.compare(termIndexes.length, o.termIndexes.length);
+    }
+  }
+
   /** Query triggering elevation. */
   @SuppressWarnings("WeakerAccess")
   protected static class ElevatingQuery {
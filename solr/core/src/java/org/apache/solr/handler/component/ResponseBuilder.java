@@ -187,6 +187,11 @@ public class ResponseBuilder {
   public final Map<String, Map<SearchGroup<BytesRef>, Set<String>>> searchGroupToShards =
       new HashMap<>();
   public final Map<String, TopGroups<BytesRef>> mergedTopGroups = new HashMap<>();
+  // Whether mergedTopGroups was filled from the first phase, see group.distributed.singlePass.
+  public boolean topGroupsFromFirstPhase;
+  // The merged search groups whose top documents must still be fetched by the second phase.
+  public final Map<String, Collection<SearchGroup<BytesRef>>> ambiguousSearchGroups =
+      new HashMap<>();
   public final Map<String, QueryCommandResult> mergedQueryCommandResults = new HashMap<>();
   public final Map<Object, SolrDocument> retrievedDocuments = new HashMap<>();
   public int totalHitCount; // Hit count used when distributed grouping is performed.
@@ -318,7 +318,8 @@ public class SpellCheckComponent extends SearchComponent implements SolrCoreAwar
             .setMaxCollationTries(maxCollationTries)
             .setMaxCollationEvaluations(maxCollationEvaluations)
             .setSuggestionsMayOverlap(suggestionsMayOverlap)
-            .setDocCollectionLimit(maxCollationCollectDocs);
+            .setDocCollectionLimit(maxCollationCollectDocs)
+            .setCollateParallel(params.getBool(SPELLCHECK_COLLATE_PARALLEL, false));
     List<SpellCheckCollation> collations = collator.collate(spellingResult, q, rb);
     // by sorting here we guarantee a non-distributed request returns all
     // results in the same order as a distributed request would,
@@ -17,9 +17,12 @@
 package org.apache.solr.handler.component;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.StatsParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -58,9 +61,22 @@ public class StatsComponent extends SearchComponent {
     if (!rb.doStats) return;
     Map<String, StatsValues> statsValues = new LinkedHashMap<>();
 
-    for (StatsField statsField : rb._statsInfo.getStatsFields()) {
-      DocSet docs = statsField.computeBaseDocSet();
-      statsValues.put(statsField.getOutputKey(), statsField.computeLocalStatsValues(docs));
+    List<StatsField> statsFields = rb._statsInfo.getStatsFields();
+    if (rb.req.getParams().getBool(StatsParams.STATS_PARALLEL, false) && statsFields.size() > 1) {
+      List<DocSet> bases = new ArrayList<>(statsFields.size());
+      for (StatsField statsField : statsFields) {
+        bases.add(statsField.computeBaseDocSet());
+      }
+      List<StatsValues> localStatsValues =
+          StatsField.computeLocalStatsValues(rb.req.getSearcher(), statsFields, bases);
+      for (int i = 0; i < statsFields.size(); i++) {
+        statsValues.put(statsFields.get(i).getOutputKey(), localStatsValues.get(i));
+      }
+    } else {
+      for (StatsField statsField : statsFields) {
+        DocSet docs = statsField.computeBaseDocSet();
+        statsValues.put(statsField.getOutputKey(), statsField.computeLocalStatsValues(docs));
+      }
     }
 
     rb.rsp.add("stats", convertToResponse(statsValues));
@@ -77,6 +93,7 @@ public class StatsComponent extends SearchComponent {
 
     if ((sreq.purpose & ShardRequest.PURPOSE_GET_TOP_IDS) != 0) {
       sreq.purpose |= ShardRequest.PURPOSE_GET_STATS;
+      sreq.params.set(ShardParams.SHARDS_COMPACT_SKETCHES, true);
     } else {
 
       // turn off stats on other requests
@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.queries.function.FunctionQuery;
 import org.apache.lucene.queries.function.ValueSource;
@@ -39,6 +40,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.params.StatsParams;
 import org.apache.solr.common.util.StrUtils;
@@ -224,6 +226,7 @@ public class StatsField {
   private final EnumSet<Stat> statsInResponse = EnumSet.noneOf(Stat.class);
   private final List<Double> percentilesList = new ArrayList<>();
   private final boolean isShard;
+  private final boolean compactSketches;
 
   private double tdigestCompression = 100.0D;
   private HllOptions hllOpts;
@@ -240,6 +243,7 @@ public class StatsField {
     SolrParams params = rb.req.getParams();
     try {
       isShard = params.getBool("isShard", false);
+      compactSketches = params.getBool(ShardParams.SHARDS_COMPACT_SKETCHES, false);
       SolrParams localParams = QueryParsing.getLocalParams(originalParam, params);
       if (null == localParams) {
         // simplest possible input: bare string (field name)
@@ -454,9 +458,7 @@ public class StatsField {
       return StatsValuesFactory.createStatsValues(this);
     }
 
-    if (null != schemaField
-        && !schemaField.getType().isPointField()
-        && (schemaField.multiValued() || schemaField.getType().multiValuedFieldCache())) {
+    if (usesDocValuesStats()) {
 
       // TODO: should this also be used for single-valued string fields? (should work fine)
       return DocValuesStats.getCounts(searcher, this, base, facets);
@@ -467,25 +469,94 @@ public class StatsField {
     }
   }
 
-  private StatsValues computeLocalValueSourceStats(DocSet base) throws IOException {
+  /**
+   * Computes the {@link StatsValues} of each of the {@link StatsField}s relative to the {@link
+   * DocSet} at the same position, as {@link #computeLocalStatsValues(DocSet)} would, in tasks run
+   * on the {@link SolrIndexSearcher#getTaskExecutor()} of the searcher.
+   *
+   * <p>The fields whose values come from a {@link ValueSource} and that have the same base {@link
+   * DocSet} share their passes over it: the fields are split into as many chunks as there are
+   * processors, and each task accumulates the stats of all the fields of its chunk in a single pass
+   * over the docs.
+   *
+   * @see StatsParams#STATS_PARALLEL
+   */
+  public static List<StatsValues> computeLocalStatsValues(
+      SolrIndexSearcher searcher, List<StatsField> statsFields, List<DocSet> bases)
+      throws IOException {
+    final StatsValues[] results = new StatsValues[statsFields.size()];
+    final List<Callable<Void>> tasks = new ArrayList<>();
+    final Map<DocSet, List<Integer>> sharedBases = new IdentityHashMap<>();
+    for (int i = 0; i < statsFields.size(); i++) {
+      final StatsField statsField = statsFields.get(i);
+      final DocSet base = bases.get(i);
+      if (statsField.statsToCalculate.isEmpty() || statsField.usesDocValuesStats()) {
+        final int index = i;
+        tasks.add(
+            () -> {
+              results[index] = statsField.computeLocalStatsValues(base);
+              return null;
+            });
+      } else {
+        sharedBases.computeIfAbsent(base, k -> new ArrayList<>()).add(i);
+      }
+    }
+
+    final int numProcessors = Runtime.getRuntime().availableProcessors();
+    for (Map.Entry<DocSet, List<Integer>> entry : sharedBases.entrySet()) {
+      final DocSet base = entry.getKey();
+      final List<Integer> indexes = entry.getValue();
+      final int numChunks = Math.min(indexes.size(), numProcessors);
+      for (int chunk = 0; chunk < numChunks; chunk++) {
+        final List<Integer> chunkIndexes =
+            indexes.subList(
+                chunk * indexes.size() / numChunks, (chunk + 1) * indexes.size() / numChunks);
+        tasks.add(
+            () -> {
+              List<StatsField> chunkFields = new ArrayList<>(chunkIndexes.size());
+              for (int index : chunkIndexes) {
+                chunkFields.add(statsFields.get(index));
+              }
+              List<StatsValues> chunkValues = computeLocalValueSourceStats(base, chunkFields);
+              for (int k = 0; k < chunkIndexes.size(); k++) {
+                results[chunkIndexes.get(k)] = chunkValues.get(k);
+              }
+              return null;
+            });
+      }
+    }
 
-    IndexSchema schema = searcher.getSchema();
+    searcher.getTaskExecutor().invokeAll(tasks);
+    return Arrays.asList(results);
+  }
 
-    final StatsValues allstats = StatsValuesFactory.createStatsValues(this);
+  /**
+   * Whether the stats are computed by {@link DocValuesStats}, rather than from the values of a
+   * {@link ValueSource}
+   */
+  private boolean usesDocValuesStats() {
+    return null != schemaField
+        && !schemaField.getType().isPointField()
+        && (schemaField.multiValued() || schemaField.getType().multiValuedFieldCache());
+  }
 
-    List<FieldFacetStats> facetStats = new ArrayList<>();
-    for (String facetField : facets) {
-      SchemaField fsf = schema.getField(facetField);
+  private StatsValues computeLocalValueSourceStats(DocSet base) throws IOException {
+    return computeLocalValueSourceStats(base, Collections.singletonList(this)).get(0);
+  }
 
-      if (fsf.multiValued()) {
-        throw new SolrException(
-            SolrException.ErrorCode.BAD_REQUEST,
-            "Stats can only facet on single-valued fields, not: " + facetField);
-      }
+  /**
+   * Computes the stats of the fields, whose values come from {@link ValueSource}s, in a single pass
+   * over the docs of the base {@link DocSet}
+   */
+  private static List<StatsValues> computeLocalValueSourceStats(
+      DocSet base, List<StatsField> statsFields) throws IOException {
 
-      facetStats.add(new FieldFacetStats(searcher, fsf, this));
+    final List<ValueSourceStats> allFieldStats = new ArrayList<>(statsFields.size());
+    for (StatsField statsField : statsFields) {
+      allFieldStats.add(statsField.new ValueSourceStats());
     }
 
+    final SolrIndexSearcher searcher = statsFields.get(0).searcher;
     final Iterator<LeafReaderContext> ctxIt = searcher.getIndexReader().leaves().iterator();
     LeafReaderContext ctx = null;
     for (DocIterator docsIt = base.iterator(); docsIt.hasNext(); ) {
@@ -498,23 +569,64 @@ public class StatsField {
         assert doc >= ctx.docBase;
 
         // propagate the context among accumulators.
-        allstats.setNextReader(ctx);
-        for (FieldFacetStats f : facetStats) {
-          f.setNextReader(ctx);
+        for (ValueSourceStats fieldStats : allFieldStats) {
+          fieldStats.setNextReader(ctx);
         }
       }
 
       // accumulate
-      allstats.accumulate(doc - ctx.docBase);
+      for (ValueSourceStats fieldStats : allFieldStats) {
+        fieldStats.accumulate(doc - ctx.docBase);
+      }
+    }
+
+    final List<StatsValues> results = new ArrayList<>(allFieldStats.size());
+    for (ValueSourceStats fieldStats : allFieldStats) {
+      results.add(fieldStats.finish());
+    }
+    return results;
+  }
+
+  /** The stats of this field, and of its facets, accumulated from the values of a ValueSource */
+  private class ValueSourceStats {
+    final StatsValues allstats = StatsValuesFactory.createStatsValues(StatsField.this);
+    final List<FieldFacetStats> facetStats = new ArrayList<>();
+
+    ValueSourceStats() {
+      IndexSchema schema = searcher.getSchema();
+      for (String facetField : facets) {
+        SchemaField fsf = schema.getField(facetField);
+
+        if (fsf.multiValued()) {
+          throw new SolrException(
+              SolrException.ErrorCode.BAD_REQUEST,
+              "Stats can only facet on single-valued fields, not: " + facetField);
+        }
+
+        facetStats.add(new FieldFacetStats(searcher, fsf, StatsField.this));
+      }
+    }
+
+    void setNextReader(LeafReaderContext ctx) throws IOException {
+      allstats.setNextReader(ctx);
+      for (FieldFacetStats f : facetStats) {
+        f.setNextReader(ctx);
+      }
+    }
+
+    void accumulate(int docId) throws IOException {
+      allstats.accumulate(docId);
       for (FieldFacetStats f : facetStats) {
-        f.facet(doc - ctx.docBase);
+        f.facet(docId);
       }
     }
 
-    for (FieldFacetStats f : facetStats) {
-      allstats.addFacet(f.name, f.facetStatsValues);
+    StatsValues finish() {
+      for (FieldFacetStats f : facetStats) {
+        allstats.addFacet(f.name, f.facetStatsValues);
+      }
+      return allstats;
     }
-    return allstats;
   }
 
   /**
@@ -624,6 +736,14 @@ public class StatsField {
     return isShard;
   }
 
+  /**
+   * @return true if the sketches of a shard response may use their compact encodings
+   * @see ShardParams#SHARDS_COMPACT_SKETCHES
+   */
+  public boolean useCompactSketches() {
+    return compactSketches;
+  }
+
   public double getTdigestCompression() {
     return tdigestCompression;
   }
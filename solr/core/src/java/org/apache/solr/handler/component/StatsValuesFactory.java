@@ -333,7 +333,9 @@ public class StatsValuesFactory {
       }
       if (statsField.includeInResponse(Stat.cardinality)) {
         if (statsField.getIsShard()) {
-          res.add("cardinality", hll.toBytes());
+          res.add(
+              "cardinality",
+              statsField.useCompactSketches() ? hll.toCompactBytes() : hll.toBytes());
         } else {
           res.add("cardinality", hll.cardinality());
         }
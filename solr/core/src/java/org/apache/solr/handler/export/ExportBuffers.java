@@ -30,11 +30,13 @@ import java.util.concurrent.atomic.LongAdder;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.common.IteratorWriter;
 import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.handler.export.ExportWriter.MergeIterator;
+import org.apache.solr.search.MemoryAccounting;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +65,9 @@ class ExportBuffers {
   Throwable error;
   LongAdder outputCounter = new LongAdder();
   volatile boolean shutDown = false;
+  // the accounting of the request, and the bytes of the buffers registered with it
+  final MemoryAccounting memoryAccounting = MemoryAccounting.current();
+  final long bufferBytes;
 
   ExportBuffers(
       ExportWriter exportWriter,
@@ -100,6 +105,12 @@ class ExportBuffers {
 
     bufferOne.initialize(writerSortDoc);
     bufferTwo.initialize(writerSortDoc);
+    bufferBytes =
+        2L
+            * queueSize
+            * (RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                + RamUsageEstimator.shallowSizeOf(writerSortDoc));
+    memoryAccounting.allocate(MemoryAccounting.EXPORT, bufferBytes);
     barrier = new CyclicBarrier(2, () -> swapBuffers());
     filler =
         () -> {
@@ -257,6 +268,7 @@ class ExportBuffers {
     } finally {
       log.debug("--- all done, shutting down buffers");
       shutdownNow();
+      memoryAccounting.release(MemoryAccounting.EXPORT, bufferBytes);
     }
   }
 
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.handler.tagger;
+
+import java.io.IOException;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRef;
+
+/**
+ * Cursor into the tag dictionary that advances word by word.
+ *
+ * @see TermPrefixCursor
+ * @see TagDictionary
+ */
+interface PrefixCursor {
+
+  /**
+   * Appends the separator char (if not the first) plus the given word to the prefix, then seeks to
+   * it. If the seek fails, false is returned and this cursor can be re-used as if in a new state.
+   * The {@code word} BytesRef is considered temporary, and is not saved within the cursor.
+   */
+  boolean advance(BytesRef word) throws IOException;
+
+  /**
+   * The docIds of the last call to advance, if it returned true. It might be null, but its length
+   * won't be 0. Treat as immutable.
+   */
+  IntsRef getDocIds();
+}
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.handler.tagger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.FSTCompiler;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.apache.solr.search.SegmentCache;
+
+/**
+ * The tag dictionary of a field, compiled into an FST per segment that maps each term to its
+ * postings, held in memory.
+ *
+ * <p>A {@link TermPrefixCursor} seeks the whole prefix in the terms index for each word of a
+ * candidate tag. The cursors of this dictionary instead walk the FST from where the previous word
+ * left it, and read the postings from memory. The dictionary of a segment doesn't depend on its
+ * deleted docs, so it is built once and kept in a {@link SegmentCache} of the handler, shared by
+ * all the searchers on the segment.
+ */
+class TagDictionary {
+  private static final IntsRef EMPTY_INTSREF = new IntsRef();
+
+  private final Segment[] segments;
+  private final int[] docBases;
+
+  /**
+   * @param cache caches the dictionaries of the segments
+   * @param leaves the segments of the searcher
+   * @param field the tag field
+   */
+  TagDictionary(SegmentCache cache, List<LeafReaderContext> leaves, String field)
+      throws IOException {
+    segments = new Segment[leaves.size()];
+    docBases = new int[leaves.size()];
+    for (int i = 0; i < segments.length; i++) {
+      LeafReaderContext leaf = leaves.get(i);
+      segments[i] =
+          cache.get(
+              leaf.reader().getCoreCacheHelper(),
+              Segment.class,
+              field,
+              () -> Segment.build(leaf.reader(), field));
+      docBases[i] = leaf.docBase;
+    }
+  }
+
+  /**
+   * A new cursor into this dictionary.
+   *
+   * @param liveDocs the top level docs that may be tagged, or null if all docs may be
+   * @param docIdsCache caches the docIds by prefix, may be null
+   */
+  PrefixCursor newCursor(Bits liveDocs, Map<BytesRef, IntsRef> docIdsCache) {
+    return new Cursor(liveDocs, docIdsCache);
+  }
+
+  /** The dictionary of a segment. */
+  static class Segment implements Accountable {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(Segment.class);
+
+    // null if the segment has no terms
+    private final FST<Long> fst;
+    // per term ordinal, the docs of the term, including the deleted ones
+    private final int[][] postings;
+
+    private Segment(FST<Long> fst, int[][] postings) {
+      this.fst = fst;
+      this.postings = postings;
+    }
+
+    static Segment build(LeafReader reader, String field) throws IOException {
+      Terms terms = reader.terms(field);
+      if (terms == null) {
+        return new Segment(null, new int[0][]);
+      }
+      FSTCompiler<Long> fstCompiler =
+          new FSTCompiler.Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton())
+              .build();
+      IntsRefBuilder scratchInts = new IntsRefBuilder();
+      List<int[]> postings = new ArrayList<>();
+      TermsEnum termsEnum = terms.iterator();
+      PostingsEnum postingsEnum = null;
+      BytesRef term;
+      while ((term = termsEnum.next()) != null) {
+        postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+        // the doc freq includes the deleted docs
+        int[] docIds = new int[termsEnum.docFreq()];
+        int length = 0;
+        int docId;
+        while ((docId = postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          docIds[length++] = docId;
+        }
+        assert length == docIds.length;
+        // the terms are in the order the FST requires
+        fstCompiler.add(Util.toIntsRef(term, scratchInts), (long) postings.size());
+        postings.add(docIds);
+      }
+      FST<Long> fst =
+          postings.isEmpty()
+              ? null
+              : FST.fromFSTReader(fstCompiler.compile(), fstCompiler.getFSTReader());
+      return new Segment(fst, postings.toArray(new int[0][]));
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      long ramBytesUsed = BASE_RAM_BYTES_USED + (fst != null ? fst.ramBytesUsed() : 0);
+      ramBytesUsed += RamUsageEstimator.shallowSizeOf(postings);
+      for (int[] docIds : postings) {
+        ramBytesUsed += RamUsageEstimator.sizeOf(docIds);
+      }
+      return ramBytesUsed;
+    }
+  }
+
+  /** Walks the FSTs of all the segments side by side, word by word. */
+  private class Cursor implements PrefixCursor {
+    private final Bits liveDocs;
+    private final Map<BytesRef, IntsRef> docIdsCache;
+    private final FST.BytesReader[] fstReaders;
+    // per segment, the arc reached by the prefix and the output accumulated along the way
+    private final FST.Arc<Long>[] arcs;
+    private final long[] outputs;
+    private final boolean[] reached;
+    private final FST.Arc<Long> scratchArc = new FST.Arc<>();
+    private final BytesRefBuilder prefix = new BytesRefBuilder();
+    private IntsRef docIds;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Cursor(Bits liveDocs, Map<BytesRef, IntsRef> docIdsCache) {
+      this.liveDocs = liveDocs;
+      this.docIdsCache = docIdsCache;
+      fstReaders = new FST.BytesReader[segments.length];
+      arcs = new FST.Arc[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        if (segments[i].fst != null) {
+          fstReaders[i] = segments[i].fst.getBytesReader();
+          arcs[i] = new FST.Arc<>();
+        }
+      }
+      outputs = new long[segments.length];
+      reached = new boolean[segments.length];
+    }
+
+    @Override
+    public boolean advance(BytesRef word) throws IOException {
+      boolean first = prefix.length() == 0;
+      if (!first) {
+        prefix.append(TermPrefixCursor.SEPARATOR_CHAR);
+      }
+      prefix.append(word);
+
+      boolean anyFinal = false;
+      boolean anyLonger = false;
+      for (int i = 0; i < segments.length; i++) {
+        FST<Long> fst = segments[i].fst;
+        if (fst == null) {
+          continue;
+        }
+        if (first) {
+          fst.getFirstArc(arcs[i]);
+          outputs[i] = 0;
+          reached[i] = true;
+        } else if (reached[i]) {
+          reached[i] = follow(i, TermPrefixCursor.SEPARATOR_CHAR);
+        }
+        for (int j = 0; j < word.length && reached[i]; j++) {
+          reached[i] = follow(i, word.bytes[word.offset + j] & 0xFF);
+        }
+        if (reached[i]) {
+          anyFinal |= arcs[i].isFinal();
+          anyLonger |=
+              fst.findTargetArc(TermPrefixCursor.SEPARATOR_CHAR, arcs[i], scratchArc, fstReaders[i])
+                  != null;
+        }
+      }
+
+      docIds = anyFinal ? lookupDocIds() : null;
+      if (docIds != null || anyLonger) {
+        return true;
+      }
+      // reset, to be re-used as if in a new state
+      prefix.clear();
+      return false;
+    }
+
+    /** Follows the arc with the given label from the arc the segment reached, if there is one. */
+    private boolean follow(int segment, int label) throws IOException {
+      FST.Arc<Long> arc = arcs[segment];
+      if (segments[segment].fst.findTargetArc(label, arc, arc, fstReaders[segment]) == null) {
+        return false;
+      }
+      outputs[segment] += arc.output();
+      return true;
+    }
+
+    /** The live top level docIds of the prefix, which is a term of some segments, or null. */
+    private IntsRef lookupDocIds() {
+      // (The cache can have empty IntsRefs)
+      IntsRef docIds = docIdsCache != null ? docIdsCache.get(prefix.get()) : null;
+      if (docIds == null) {
+        IntsRefBuilder builder = new IntsRefBuilder();
+        for (int i = 0; i < segments.length; i++) {
+          if (!reached[i] || !arcs[i].isFinal()) {
+            continue;
+          }
+          int ord = (int) (outputs[i] + arcs[i].nextFinalOutput());
+          for (int segDocId : segments[i].postings[ord]) {
+            int docId = docBases[i] + segDocId;
+            if (liveDocs == null || liveDocs.get(docId)) {
+              builder.append(docId);
+            }
+          }
+        }
+        docIds = builder.length() > 0 ? builder.get() : EMPTY_INTSREF;
+        if (docIdsCache != null) {
+          docIdsCache.put(prefix.toBytesRef(), docIds);
+        }
+      }
+      return docIds.length > 0 ? docIds : null;
+    }
+
+    @Override
+    public IntsRef getDocIds() {
+      assert docIds == null || docIds.length != 0;
+      return docIds;
+    }
+  }
+}
@@ -41,7 +41,7 @@ public class TagLL {
   private final TagLL[] head; // a shared pointer to the head; 1 element
   TagLL prevTag, nextTag; // linked list
 
-  private TermPrefixCursor cursor;
+  private PrefixCursor cursor;
 
   final int startOffset; // inclusive
   int endOffset; // exclusive
@@ -50,7 +50,7 @@ public class TagLL {
   /** optional boolean used by some TagClusterReducer's */
   boolean mark = false;
 
-  TagLL(TagLL[] head, TermPrefixCursor cursor, int startOffset, int endOffset, Object value) {
+  TagLL(TagLL[] head, PrefixCursor cursor, int startOffset, int endOffset, Object value) {
     this.head = head;
     this.cursor = cursor;
     this.startOffset = startOffset;
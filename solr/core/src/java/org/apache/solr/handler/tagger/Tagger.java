@@ -54,6 +54,7 @@ public abstract class Tagger {
 
   private final TagClusterReducer tagClusterReducer;
   private final Terms terms;
+  private final TagDictionary tagDictionary;
   private final Bits liveDocs;
   private final boolean skipAltTokens;
   private final boolean ignoreStopWords;
@@ -71,7 +72,21 @@ public abstract class Tagger {
       boolean skipAltTokens,
       boolean ignoreStopWords)
       throws IOException {
+    this(terms, null, liveDocs, tokenStream, tagClusterReducer, skipAltTokens, ignoreStopWords);
+  }
+
+  /** Tags with the given dictionary if not null, rather than by seeking the terms index. */
+  Tagger(
+      Terms terms,
+      TagDictionary tagDictionary,
+      Bits liveDocs,
+      TokenStream tokenStream,
+      TagClusterReducer tagClusterReducer,
+      boolean skipAltTokens,
+      boolean ignoreStopWords)
+      throws IOException {
     this.terms = terms;
+    this.tagDictionary = tagDictionary;
     this.liveDocs = liveDocs;
     this.tokenStream = tokenStream;
     this.skipAltTokens = skipAltTokens;
@@ -90,12 +105,12 @@ public abstract class Tagger {
   }
 
   public void process() throws IOException {
-    if (terms == null) return;
+    if (terms == null && tagDictionary == null) return;
 
     // a shared pointer to the head used by this method and each Tag instance.
     final TagLL[] head = new TagLL[1];
 
-    TermPrefixCursor cursor = null; // re-used
+    PrefixCursor cursor = null; // re-used
 
     // boolean switch used to log warnings in case tokens where skipped during tagging.
     boolean skippedTokens = false;
@@ -164,7 +179,10 @@ public abstract class Tagger {
         // determine if the terms index has a term starting with the provided term
         // TODO create a pool of these cursors to reuse them more?  could be trivial impl
         if (cursor == null) { // (else the existing cursor will be re-used)
-          cursor = new TermPrefixCursor(terms.iterator(), liveDocs, docIdsCache);
+          cursor =
+              tagDictionary != null
+                  ? tagDictionary.newCursor(liveDocs, docIdsCache)
+                  : new TermPrefixCursor(terms.iterator(), liveDocs, docIdsCache);
         }
         if (cursor.advance(term)) {
           TagLL newTail =
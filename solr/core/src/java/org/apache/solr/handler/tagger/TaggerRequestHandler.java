@@ -55,9 +55,11 @@ import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.CollectionUtil;
 import org.apache.solr.common.util.ContentStream;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.handler.RequestHandlerBase;
+import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.FieldType;
@@ -66,6 +68,7 @@ import org.apache.solr.search.DocList;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.DocSlice;
 import org.apache.solr.search.QParser;
+import org.apache.solr.search.SegmentCache;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrReturnFields;
 import org.apache.solr.search.SyntaxError;
@@ -99,8 +102,40 @@ public class TaggerRequestHandler extends RequestHandlerBase {
   /** Request parameter. */
   public static final String XML_OFFSET_ADJUST = "xmlOffsetAdjust";
 
+  /** Request parameter. */
+  public static final String CACHE_DICTIONARY = "cacheDictionary";
+
+  /** Request parameter. */
+  public static final String SPLIT_SIZE = "splitSize";
+
+  /** Init parameter with the maximum RAM used by the cached dictionaries, in MB. */
+  public static final String DICTIONARY_CACHE_MAX_RAM_MB = "dictionaryCacheMaxRamMB";
+
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  // the dictionaries of the segments, when cacheDictionary is set
+  private SegmentCache dictionaryCache;
+
+  @Override
+  public void init(NamedList<?> args) {
+    super.init(args);
+    Object maxRamMB = args != null ? args.get(DICTIONARY_CACHE_MAX_RAM_MB) : null;
+    dictionaryCache =
+        new SegmentCache(
+            (maxRamMB != null ? Long.parseLong(maxRamMB.toString()) : 100L) * 1024 * 1024);
+  }
+
+  @Override
+  public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+    super.initializeMetrics(parentContext, scope);
+    solrMetricsContext.gauge(
+        dictionaryCache.getMetricsMap(), true, "dictionaryCache", getCategory().toString(), scope);
+  }
+
+  SegmentCache getDictionaryCache() {
+    return dictionaryCache;
+  }
+
   @Override
   public String getDescription() {
     return "Processes input text to find matching tokens stored in the index.";
@@ -127,6 +162,8 @@ public class TaggerRequestHandler extends RequestHandlerBase {
     final boolean skipAltTokens = req.getParams().getBool(SKIP_ALT_TOKENS, false);
     final boolean ignoreStopWords =
         req.getParams().getBool(IGNORE_STOPWORDS, fieldHasIndexedStopFilter(indexedField, req));
+    final boolean cacheDictionary = req.getParams().getBool(CACHE_DICTIONARY, false);
+    final int splitSize = req.getParams().getInt(SPLIT_SIZE, 0);
 
     // --Get posted data
     Reader inputReader = null;
@@ -155,7 +192,7 @@ public class TaggerRequestHandler extends RequestHandlerBase {
     final OffsetCorrector offsetCorrector = getOffsetCorrector(req.getParams(), inputStringFuture);
 
     final String inputString; // only populated if needed
-    if (addMatchText || inputStringFuture.inputString != null) {
+    if (addMatchText || inputStringFuture.inputString != null || splitSize > 0) {
       // Read the input fully into a String buffer that we'll need later,
       // then replace the input with a reader wrapping the buffer.
       inputString = inputStringFuture.call();
@@ -168,76 +205,42 @@ public class TaggerRequestHandler extends RequestHandlerBase {
     final SolrIndexSearcher searcher = req.getSearcher();
     final FixedBitSet matchDocIdsBS = new FixedBitSet(searcher.maxDoc());
     final List<SimpleOrderedMap<?>> tags = new ArrayList<>(2000);
+    final TagCollector tagCollector =
+        new TagCollector(
+            searcher,
+            idSchemaField,
+            tagsLimit,
+            offsetCorrector,
+            addMatchText ? inputString : null,
+            matchDocIdsBS,
+            tags);
 
     try {
       Analyzer analyzer = req.getSchema().getField(indexedField).getType().getQueryAnalyzer();
-      try (TokenStream tokenStream = analyzer.tokenStream("", inputReader)) {
-        Terms terms = searcher.getSlowAtomicReader().terms(indexedField);
-        if (terms != null) {
-          Tagger tagger =
-              new Tagger(
-                  terms,
-                  computeDocCorpus(req),
-                  tokenStream,
-                  tagClusterReducer,
-                  skipAltTokens,
-                  ignoreStopWords) {
-                @Override
-                protected void tagCallback(int startOffset, int endOffset, Object docIdsKey) {
-                  if (tags.size() >= tagsLimit) return;
-                  if (offsetCorrector != null) {
-                    int[] offsetPair = offsetCorrector.correctPair(startOffset, endOffset);
-                    if (offsetPair == null) {
-                      log.debug(
-                          "Discarded offsets [{}, {}] because couldn't balance XML.",
-                          startOffset,
-                          endOffset);
-                      return;
-                    }
-                    startOffset = offsetPair[0];
-                    endOffset = offsetPair[1];
-                  }
-
-                  SimpleOrderedMap<Object> tag = new SimpleOrderedMap<>();
-                  tag.add("startOffset", startOffset);
-                  tag.add("endOffset", endOffset);
-                  if (addMatchText)
-                    tag.add("matchText", inputString.substring(startOffset, endOffset));
-                  // below caches, and also flags matchDocIdsBS
-                  tag.add("ids", lookupSchemaDocIds(docIdsKey));
-                  tags.add(tag);
-                }
-
-                Map<Object, List<Object>> docIdsListCache = CollectionUtil.newHashMap(2000);
-
-                ValueSourceAccessor uniqueKeyCache =
-                    new ValueSourceAccessor(
-                        searcher, idSchemaField.getType().getValueSource(idSchemaField, null));
-
-                private List<Object> lookupSchemaDocIds(Object docIdsKey) {
-                  List<Object> schemaDocIds = docIdsListCache.get(docIdsKey);
-                  if (schemaDocIds != null) return schemaDocIds;
-                  IntsRef docIds = lookupDocIds(docIdsKey);
-                  // translate lucene docIds to schema ids
-                  schemaDocIds = new ArrayList<>(docIds.length);
-                  for (int i = docIds.offset; i < docIds.offset + docIds.length; i++) {
-                    int docId = docIds.ints[i];
-                    assert i == docIds.offset || docIds.ints[i - 1] < docId : "not sorted?";
-                    matchDocIdsBS.set(docId); // also, flip docid in bitset
-                    try {
-                      schemaDocIds.add(uniqueKeyCache.objectVal(docId)); // translates here
-                    } catch (IOException e) {
-                      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
-                    }
-                  }
-                  assert !schemaDocIds.isEmpty();
-
-                  docIdsListCache.put(docIds, schemaDocIds);
-                  return schemaDocIds;
-                }
-              };
-          tagger.enableDocIdsCache(2000); // TODO configurable
-          tagger.process();
+      Terms terms = searcher.getSlowAtomicReader().terms(indexedField);
+      if (terms != null) {
+        TaggerConfig taggerConfig =
+            new TaggerConfig(
+                terms,
+                cacheDictionary
+                    ? new TagDictionary(
+                        dictionaryCache, searcher.getTopReaderContext().leaves(), indexedField)
+                    : null,
+                computeDocCorpus(req),
+                tagClusterReducer,
+                skipAltTokens,
+                ignoreStopWords);
+        // XML can't be analyzed in chunks
+        int[] chunkStarts =
+            splitSize > 0 && offsetCorrector == null
+                ? splitAtBlankLines(inputString, splitSize)
+                : new int[] {0};
+        if (chunkStarts.length > 1) {
+          tagInParallel(searcher, analyzer, inputString, chunkStarts, taggerConfig, tagCollector);
+        } else {
+          try (TokenStream tokenStream = analyzer.tokenStream("", inputReader)) {
+            taggerConfig.tag(tokenStream, 0, tagCollector);
+          }
         }
       }
     } finally {
@@ -257,6 +260,193 @@ public class TaggerRequestHandler extends RequestHandlerBase {
     return Name.READ_PERM;
   }
 
+  /** Receives the tags found, in order. */
+  private interface TagConsumer {
+    void accept(int startOffset, int endOffset, IntsRef docIds);
+  }
+
+  /** What a {@link Tagger} needs, besides the text to tag. */
+  private record TaggerConfig(
+      Terms terms,
+      TagDictionary tagDictionary,
+      Bits docCorpus,
+      TagClusterReducer tagClusterReducer,
+      boolean skipAltTokens,
+      boolean ignoreStopWords) {
+
+    /**
+     * Tags the text of the token stream, passing each tag to the consumer with its offsets shifted
+     * by the given amount.
+     */
+    void tag(TokenStream tokenStream, int offsetShift, TagConsumer tagConsumer)
+        throws IOException {
+      Tagger tagger =
+          new Tagger(
+              terms,
+              tagDictionary,
+              docCorpus,
+              tokenStream,
+              tagClusterReducer,
+              skipAltTokens,
+              ignoreStopWords) {
+            @Override
+            protected void tagCallback(int startOffset, int endOffset, Object docIdsKey) {
+              tagConsumer.accept(
+                  startOffset + offsetShift, endOffset + offsetShift, lookupDocIds(docIdsKey));
+            }
+          };
+      tagger.enableDocIdsCache(2000); // TODO configurable
+      tagger.process();
+    }
+  }
+
+  private record FoundTag(int startOffset, int endOffset, IntsRef docIds) {}
+
+  /**
+   * Tags the chunks of the text concurrently, with the executor of the searcher, then passes the
+   * tags of each chunk in turn to the consumer.
+   */
+  private static void tagInParallel(
+      SolrIndexSearcher searcher,
+      Analyzer analyzer,
+      String inputString,
+      int[] chunkStarts,
+      TaggerConfig taggerConfig,
+      TagConsumer tagConsumer)
+      throws IOException {
+    List<Callable<List<FoundTag>>> tasks = new ArrayList<>(chunkStarts.length);
+    for (int i = 0; i < chunkStarts.length; i++) {
+      final int start = chunkStarts[i];
+      final int end = i + 1 < chunkStarts.length ? chunkStarts[i + 1] : inputString.length();
+      tasks.add(
+          () -> {
+            List<FoundTag> chunkTags = new ArrayList<>();
+            try (TokenStream tokenStream =
+                analyzer.tokenStream("", new StringReader(inputString.substring(start, end)))) {
+              taggerConfig.tag(
+                  tokenStream,
+                  start,
+                  (startOffset, endOffset, docIds) ->
+                      chunkTags.add(new FoundTag(startOffset, endOffset, docIds)));
+            }
+            return chunkTags;
+          });
+    }
+    for (List<FoundTag> chunkTags : searcher.getTaskExecutor().invokeAll(tasks)) {
+      for (FoundTag tag : chunkTags) {
+        tagConsumer.accept(tag.startOffset(), tag.endOffset(), tag.docIds());
+      }
+    }
+  }
+
+  /**
+   * The start offsets of the chunks to split the text into, so that they can be tagged
+   * concurrently. The text is only split after blank lines, which tags are assumed not to span,
+   * and each chunk but the last is at least splitSize chars long.
+   */
+  static int[] splitAtBlankLines(String text, int splitSize) {
+    List<Integer> chunkStarts = new ArrayList<>();
+    chunkStarts.add(0);
+    int from = splitSize;
+    while (from < text.length()) {
+      int chunkStart = nextBlankLineEnd(text, from);
+      if (chunkStart < 0 || chunkStart >= text.length()) {
+        break;
+      }
+      chunkStarts.add(chunkStart);
+      from = chunkStart + splitSize;
+    }
+    return chunkStarts.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /** The offset following the first blank line after the given offset, or -1 if there is none. */
+  private static int nextBlankLineEnd(String text, int from) {
+    for (int i = text.indexOf('\n', from); i >= 0; i = text.indexOf('\n', i + 1)) {
+      int j = i + 1;
+      while (j < text.length() && Character.isWhitespace(text.charAt(j))) {
+        if (text.charAt(j) == '\n') {
+          return j + 1;
+        }
+        j++;
+      }
+    }
+    return -1;
+  }
+
+  /** Adds the tags to the response, and flags their docs. */
+  private static class TagCollector implements TagConsumer {
+    private final int tagsLimit;
+    private final OffsetCorrector offsetCorrector;
+    private final String matchTextInput; // null if the match text isn't added
+    private final FixedBitSet matchDocIdsBS;
+    private final List<SimpleOrderedMap<?>> tags;
+    private final Map<IntsRef, List<Object>> docIdsListCache = CollectionUtil.newHashMap(2000);
+    private final ValueSourceAccessor uniqueKeyCache;
+
+    TagCollector(
+        SolrIndexSearcher searcher,
+        SchemaField idSchemaField,
+        int tagsLimit,
+        OffsetCorrector offsetCorrector,
+        String matchTextInput,
+        FixedBitSet matchDocIdsBS,
+        List<SimpleOrderedMap<?>> tags) {
+      this.tagsLimit = tagsLimit;
+      this.offsetCorrector = offsetCorrector;
+      this.matchTextInput = matchTextInput;
+      this.matchDocIdsBS = matchDocIdsBS;
+      this.tags = tags;
+      this.uniqueKeyCache =
+          new ValueSourceAccessor(
+              searcher, idSchemaField.getType().getValueSource(idSchemaField, null));
+    }
+
+    @Override
+    public void accept(int startOffset, int endOffset, IntsRef docIds) {
+      if (tags.size() >= tagsLimit) return;
+      if (offsetCorrector != null) {
+        int[] offsetPair = offsetCorrector.correctPair(startOffset, endOffset);
+        if (offsetPair == null) {
+          log.debug(
+              "Discarded offsets [{}, {}] because couldn't balance XML.", startOffset, endOffset);
+          return;
+        }
+        startOffset = offsetPair[0];
+        endOffset = offsetPair[1];
+      }
+
+      SimpleOrderedMap<Object> tag = new SimpleOrderedMap<>();
+      tag.add("startOffset", startOffset);
+      tag.add("endOffset", endOffset);
+      if (matchTextInput != null)
+        tag.add("matchText", matchTextInput.substring(startOffset, endOffset));
+      // below caches, and also flags matchDocIdsBS
+      tag.add("ids", lookupSchemaDocIds(docIds));
+      tags.add(tag);
+    }
+
+    private List<Object> lookupSchemaDocIds(IntsRef docIds) {
+      List<Object> schemaDocIds = docIdsListCache.get(docIds);
+      if (schemaDocIds != null) return schemaDocIds;
+      // translate lucene docIds to schema ids
+      schemaDocIds = new ArrayList<>(docIds.length);
+      for (int i = docIds.offset; i < docIds.offset + docIds.length; i++) {
+        int docId = docIds.ints[i];
+        assert i == docIds.offset || docIds.ints[i - 1] < docId : "not sorted?";
+        matchDocIdsBS.set(docId); // also, flip docid in bitset
+        try {
+          schemaDocIds.add(uniqueKeyCache.objectVal(docId)); // translates here
+        } catch (IOException e) {
+          throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+        }
+      }
+      assert !schemaDocIds.isEmpty();
+
+      docIdsListCache.put(docIds, schemaDocIds);
+      return schemaDocIds;
+    }
+  }
+
   private static class InputStringLazy implements Callable<String> {
     final Reader inputReader;
     String inputString;
@@ -33,14 +33,14 @@ import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.IntsRef;
 
 /** Cursor into the terms that advances by prefix. */
-class TermPrefixCursor {
+class TermPrefixCursor implements PrefixCursor {
 
   // Note: this could be a lot more efficient if MemoryPostingsFormat supported ordinal lookup.
   // Maybe that could be added to Lucene.
 
   // TODO add bloom filter of hashcode of first ~ 6 bytes to avoid lookup into terms dict?
 
-  private static final byte SEPARATOR_CHAR =
+  static final byte SEPARATOR_CHAR =
       ConcatenateGraphFilter.SEP_LABEL; // used to be ' '; TODO configurable?
   private static final IntsRef EMPTY_INTSREF = new IntsRef();
 
@@ -60,12 +60,8 @@ class TermPrefixCursor {
     this.docIdsCache = docIdsCache;
   }
 
-  /**
-   * Appends the separator char (if not the first) plus the given word to the prefix buffer, then
-   * seeks to it. If the seek fails, false is returned and this cursor can be re-used as if in a new
-   * state. The {@code word} BytesRef is considered temporary, and is not saved within this class.
-   */
-  boolean advance(BytesRef word) throws IOException {
+  @Override
+  public boolean advance(BytesRef word) throws IOException {
     if (prefixBuf == null) { // first advance
       // set prefixBuf to word temporary. When advance() completes, we either null out or copy.
       prefixBuf = word;
@@ -180,11 +176,8 @@ class TermPrefixCursor {
     return docIds;
   }
 
-  /**
-   * The docIds of the last call to advance, if it returned true. It might be null, but its length
-   * won't be 0. Treat as immutable.
-   */
-  IntsRef getDocIds() {
+  @Override
+  public IntsRef getDocIds() {
     assert docIds == null || docIds.length != 0;
     return docIds;
   }
@@ -21,10 +21,14 @@ import java.text.BreakIterator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import org.apache.lucene.index.FieldInfo;
@@ -37,6 +41,8 @@ import org.apache.lucene.search.uhighlight.PassageFormatter;
 import org.apache.lucene.search.uhighlight.PassageScorer;
 import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.search.uhighlight.WholeBreakIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.HighlightParams;
@@ -49,6 +55,7 @@ import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
+import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.SolrDocumentFetcher;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrReturnFields;
@@ -129,12 +136,22 @@ import org.apache.solr.util.plugin.PluginInfoInitialized;
  *   <li>hl.weightMatches (bool) enables Lucene Weight Matches mode
  * </ul>
  *
+ * <p>The snippets are cached in the {@value #HIGHLIGHT_CACHE_NAME} user cache when it is defined in
+ * solrconfig.xml, e.g. <code>&lt;cache name="highlightCache" class="solr.CaffeineCache"
+ * maxRamMB="64"/&gt;</code>. Entries are keyed by the query, the field, the doc and the
+ * highlighting parameters, and belong to the searcher they were computed with. The docs missing
+ * from the cache are highlighted like without it, from the offsets in the postings when the field
+ * stores them (see hl.offsetSource).
+ *
  * @lucene.experimental
  */
 public class UnifiedSolrHighlighter extends SolrHighlighter implements PluginInfoInitialized {
 
   protected static final String SNIPPET_SEPARATOR = "\u0000";
 
+  /** Name of an optional user cache holding the snippets of a field of a doc for a query. */
+  public static final String HIGHLIGHT_CACHE_NAME = "highlightCache";
+
   @Override
   public void init(PluginInfo info) {}
 
@@ -160,13 +177,101 @@ public class UnifiedSolrHighlighter extends SolrHighlighter implements PluginInf
     }
 
     UnifiedHighlighter highlighter = getHighlighter(req);
-    Map<String, String[]> snippets =
-        fieldNames.length == 0
-            ? Collections.emptyMap()
-            : highlighter.highlightFields(fieldNames, query, docIDs, maxPassages);
+    @SuppressWarnings("unchecked")
+    SolrCache<HighlightCacheKey, CachedSnippet> highlightCache =
+        req.getSearcher().getCache(HIGHLIGHT_CACHE_NAME);
+    final Map<String, String[]> snippets;
+    if (fieldNames.length == 0) {
+      snippets = Collections.emptyMap();
+    } else if (highlightCache == null) {
+      snippets = highlighter.highlightFields(fieldNames, query, docIDs, maxPassages);
+    } else {
+      snippets =
+          highlightFieldsCached(
+              highlightCache, highlighter, params, fieldNames, query, docIDs, maxPassages);
+    }
     return encodeSnippets(keys, fieldNames, snippets);
   }
 
+  /**
+   * Highlights the fields of the docs like {@link UnifiedHighlighter#highlightFields(String[],
+   * Query, int[], int[])}, taking the snippets from the cache when present. The docs missing a
+   * snippet for any field are highlighted together, then their snippets are cached.
+   */
+  private Map<String, String[]> highlightFieldsCached(
+      SolrCache<HighlightCacheKey, CachedSnippet> highlightCache,
+      UnifiedHighlighter highlighter,
+      SolrParams params,
+      String[] fieldNames,
+      Query query,
+      int[] docIDs,
+      int[] maxPassages)
+      throws IOException {
+    String paramsKey = getHighlightParamsKey(params);
+    Map<String, String[]> snippets = new HashMap<>();
+    for (String field : fieldNames) {
+      snippets.put(field, new String[docIDs.length]);
+    }
+
+    int[] missingIndexes = new int[docIDs.length];
+    int missingCount = 0;
+    for (int i = 0; i < docIDs.length; i++) {
+      for (String field : fieldNames) {
+        CachedSnippet cached =
+            highlightCache.get(new HighlightCacheKey(query, field, docIDs[i], paramsKey));
+        if (cached == null) {
+          missingIndexes[missingCount++] = i;
+          break;
+        }
+        snippets.get(field)[i] = cached.snippet();
+      }
+    }
+    if (missingCount == 0) {
+      return snippets;
+    }
+
+    int[] missingDocIDs = new int[missingCount];
+    for (int i = 0; i < missingCount; i++) {
+      missingDocIDs[i] = docIDs[missingIndexes[i]];
+    }
+    Map<String, String[]> highlighted =
+        highlighter.highlightFields(fieldNames, query, missingDocIDs, maxPassages);
+    for (String field : fieldNames) {
+      String[] fieldSnippets = highlighted.get(field);
+      for (int i = 0; i < missingCount; i++) {
+        snippets.get(field)[missingIndexes[i]] = fieldSnippets[i];
+        highlightCache.put(
+            new HighlightCacheKey(query, field, missingDocIDs[i], paramsKey),
+            new CachedSnippet(fieldSnippets[i]));
+      }
+    }
+    return snippets;
+  }
+
+  /**
+   * The highlighting parameters, which may change the snippets of a field, as a string suitable
+   * for a cache key. The field list is left out since the snippets are cached per field.
+   */
+  private static String getHighlightParamsKey(SolrParams params) {
+    SortedMap<String, String[]> hlParams = new TreeMap<>();
+    Iterator<String> names = params.getParameterNamesIterator();
+    while (names.hasNext()) {
+      String name = names.next();
+      boolean isFieldParam =
+          name.startsWith("f.") && name.contains("." + HighlightParams.HIGHLIGHT + ".");
+      if ((name.startsWith(HighlightParams.HIGHLIGHT + ".") || isFieldParam)
+          && !name.equals(HighlightParams.FIELDS)) {
+        hlParams.put(name, params.getParams(name));
+      }
+    }
+    StringBuilder paramsKey = new StringBuilder();
+    for (Map.Entry<String, String[]> entry : hlParams.entrySet()) {
+      paramsKey.append(entry.getKey()).append('=');
+      paramsKey.append(String.join(",", entry.getValue())).append('&');
+    }
+    return paramsKey.toString();
+  }
+
   /**
    * Creates an instance of the Lucene {@link UnifiedHighlighter}. Provided for subclass extension
    * so that a subclass can return a subclass of {@link SolrExtendedUnifiedHighlighter}.
@@ -460,4 +565,31 @@ public class UnifiedSolrHighlighter extends SolrHighlighter implements PluginInf
       return NOT_REQUIRED_FIELD_MATCH_PREDICATE;
     }
   }
+
+  /** Key of the {@link #HIGHLIGHT_CACHE_NAME} cache */
+  record HighlightCacheKey(Query query, String field, int docID, String paramsKey)
+      implements Accountable {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(HighlightCacheKey.class);
+
+    @Override
+    public long ramBytesUsed() {
+      // the field is shared by all the entries. The query is shared by the entries of a request,
+      // but counts in each of them, to bound the cache when queries take more memory than snippets.
+      return BASE_RAM_BYTES_USED
+          + RamUsageEstimator.sizeOf(query, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED)
+          + RamUsageEstimator.sizeOf(paramsKey);
+    }
+  }
+
+  /** Value of the {@link #HIGHLIGHT_CACHE_NAME} cache; the snippet may be null */
+  record CachedSnippet(String snippet) implements Accountable {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(CachedSnippet.class);
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + (snippet == null ? 0 : RamUsageEstimator.sizeOf(snippet));
+    }
+  }
 }
@@ -92,6 +92,7 @@ import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.facet.FacetDebugInfo;
 import org.apache.solr.search.facet.FacetRequest;
+import org.apache.solr.search.facet.SweepQueryCounts;
 import org.apache.solr.search.grouping.GroupingSpecification;
 import org.apache.solr.util.BoundedTreeSet;
 import org.apache.solr.util.RTimer;
@@ -296,9 +297,51 @@ public class SimpleFacets {
     String[] facetQs = global.getParams(FacetParams.FACET_QUERY);
 
     if (null != facetQs && 0 != facetQs.length) {
+      final List<ParsedParams> parsedQs = new ArrayList<>(facetQs.length);
+      final List<Query> qobjs = new ArrayList<>(facetQs.length);
+      // the queries counted over the same docs, by the docs
+      final Map<DocSet, List<Integer>> sameDocsQs = new IdentityHashMap<>();
       for (String q : facetQs) {
         final ParsedParams parsed = parseParams(FacetParams.FACET_QUERY, q);
-        getFacetQueryCount(parsed, res);
+        // TODO: slight optimization would prevent double-parsing of any localParams
+        // TODO: SOLR-7753
+        final Query qobj = QParser.getParser(parsed.facetValue, req).getQuery();
+        if (qobj != null && !parsed.params.getBool(GroupParams.GROUP_FACET, false)) {
+          sameDocsQs.computeIfAbsent(parsed.docs, docs -> new ArrayList<>()).add(qobjs.size());
+        }
+        parsedQs.add(parsed);
+        qobjs.add(qobj);
+      }
+
+      // many queries over few docs are counted together, in one pass over the docs
+      final Integer[] sweptCounts = new Integer[facetQs.length];
+      for (Map.Entry<DocSet, List<Integer>> entry : sameDocsQs.entrySet()) {
+        final List<Integer> idxs = entry.getValue();
+        if (!SweepQueryCounts.isWorthSweeping(searcher, entry.getKey(), idxs.size())) {
+          continue;
+        }
+        final List<Query> sweptQs = new ArrayList<>(idxs.size());
+        for (int idx : idxs) {
+          sweptQs.add(qobjs.get(idx));
+        }
+        final SweepQueryCounts sweep = new SweepQueryCounts(searcher, sweptQs);
+        if (SweepQueryCounts.isWorthSweeping(searcher, entry.getKey(), sweep.getNumSwept())) {
+          final int[] counts = sweep.count(entry.getKey());
+          for (int i = 0; i < counts.length; i++) {
+            if (counts[i] >= 0) {
+              sweptCounts[idxs.get(i)] = counts[i];
+            }
+          }
+        }
+      }
+
+      for (int i = 0; i < facetQs.length; i++) {
+        final ParsedParams parsed = parsedQs.get(i);
+        if (sweptCounts[i] != null) {
+          res.add(parsed.key, sweptCounts[i]);
+        } else {
+          res.add(parsed.key, getFacetQueryCount(parsed, qobjs.get(i)));
+        }
       }
     }
 
@@ -310,13 +353,16 @@ public class SimpleFacets {
     // TODO: slight optimization would prevent double-parsing of any localParams
     // TODO: SOLR-7753
     Query qobj = QParser.getParser(parsed.facetValue, req).getQuery();
+    res.add(parsed.key, getFacetQueryCount(parsed, qobj));
+  }
 
+  private int getFacetQueryCount(ParsedParams parsed, Query qobj) throws IOException {
     if (qobj == null) {
-      res.add(parsed.key, 0);
+      return 0;
     } else if (parsed.params.getBool(GroupParams.GROUP_FACET, false)) {
-      res.add(parsed.key, getGroupedFacetQueryCount(qobj, parsed.docs));
+      return getGroupedFacetQueryCount(qobj, parsed.docs);
     } else {
-      res.add(parsed.key, searcher.numDocs(qobj, parsed.docs));
+      return searcher.numDocs(qobj, parsed.docs);
     }
   }
 
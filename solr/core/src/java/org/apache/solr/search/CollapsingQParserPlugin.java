@@ -610,6 +610,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private int nullDoc = -1;
     private boolean collectElevatedDocsWhenCollapsing;
     private FloatArrayList nullScores;
+    private long retainedBytes;
 
     private final BoostedDocsCollector boostedDocsCollector;
 
@@ -641,6 +642,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
       this.ords = new IntIntDynamicMap(valueCount, -1);
       this.scores = new IntFloatDynamicMap(valueCount, -Float.MAX_VALUE);
+      retainedBytes =
+          accountRetained(collapsedSet, (long) valueCount * (Integer.BYTES + Float.BYTES));
       this.nullPolicy = nullPolicy;
       if (nullPolicy == NullPolicy.EXPAND.getCode()) {
         nullScores = new FloatArrayList();
@@ -803,6 +806,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      releaseRetained(retainedBytes);
+
       if (delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).complete();
       }
@@ -827,6 +832,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private FloatArrayList nullScores;
     private String field;
     private boolean collectElevatedDocsWhenCollapsing;
+    private long retainedBytes;
 
     private final BoostedDocsCollector boostedDocsCollector;
 
@@ -853,6 +859,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         nullScores = new FloatArrayList();
       }
       this.cmap = new IntLongHashMap(size);
+      retainedBytes = accountRetained(collapsedSet, (long) size * (Integer.BYTES + Long.BYTES));
       this.field = field;
 
       this.boostedDocsCollector = BoostedDocsCollector.build(boostDocsMap);
@@ -993,6 +1000,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      releaseRetained(retainedBytes);
+
       if (delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).complete();
       }
@@ -1278,6 +1287,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      releaseRetained(collapseStrategy.retainedBytes);
+
       if (delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).complete();
       }
@@ -1507,6 +1518,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      releaseRetained(collapseStrategy.retainedBytes);
+
       if (delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).complete();
       }
@@ -2042,6 +2055,24 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     }
   }
 
+  /**
+   * Registers the collapsed doc set and the (estimated) size of the per group maps of a collapsing
+   * collector with the {@link MemoryAccounting} of the current request.
+   *
+   * @return the number of bytes registered, to be released by {@link #releaseRetained} once the
+   *     collector is complete
+   */
+  private static long accountRetained(FixedBitSet collapsedSet, long groupMapBytes) {
+    long bytes = collapsedSet.ramBytesUsed() + groupMapBytes;
+    MemoryAccounting.current().allocate(MemoryAccounting.COLLAPSE, bytes);
+    return bytes;
+  }
+
+  /** Releases the bytes registered by {@link #accountRetained}. */
+  private static void releaseRetained(long bytes) {
+    MemoryAccounting.current().release(MemoryAccounting.COLLAPSE, bytes);
+  }
+
   private static class CollectorFactory {
     /**
      * @see #isNumericCollapsible
@@ -2301,6 +2332,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     protected FixedBitSet collapsedSet;
     protected int nullDoc = -1;
     protected boolean needsScores;
+    protected long retainedBytes;
 
     private final BoostedDocsCollector boostedDocsCollector;
 
@@ -2328,6 +2360,10 @@ public class CollapsingQParserPlugin extends QParserPlugin {
           nullScores = new FloatArrayList();
         }
       }
+      retainedBytes =
+          accountRetained(
+              collapsedSet,
+              (long) valueCount * (needsScores ? Integer.BYTES + Float.BYTES : Integer.BYTES));
     }
 
     public FixedBitSet getCollapsedSet() {
@@ -2823,6 +2859,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     protected boolean needsScores;
     protected String collapseField;
     protected IntIntDynamicMap docs;
+    protected long retainedBytes;
 
     private final BoostedDocsCollector boostedDocsCollector;
 
@@ -2846,6 +2883,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.collapsedSet = new FixedBitSet(maxDoc);
       this.cmap = new IntIntHashMap(size);
       this.docs = new IntIntDynamicMap(size, 0);
+      retainedBytes = accountRetained(collapsedSet, (long) size * 3 * Integer.BYTES);
 
       this.boostedDocsCollector = boostedDocsCollector;
 
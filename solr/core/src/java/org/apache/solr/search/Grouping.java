@@ -348,6 +348,7 @@ public class Grouping {
     Collector allCollectors = MultiCollector.wrap(collectors);
 
     CachingCollector cachedCollector = null;
+    long cachedCollectorBytes = 0;
     if (cacheSecondPassSearch && allCollectors != null) {
       int maxDocsToCache = (int) Math.round(maxDoc * (maxDocsPercentageToCache / 100.0d));
       // Only makes sense to cache if we cache more than zero.
@@ -356,6 +357,10 @@ public class Grouping {
       if (maxDocsToCache > 0) {
         allCollectors =
             cachedCollector = CachingCollector.create(allCollectors, cacheScores, maxDocsToCache);
+        // the cache grows as needed, account for the most it may retain
+        cachedCollectorBytes =
+            (long) maxDocsToCache * (cacheScores ? Integer.BYTES + Float.BYTES : Integer.BYTES);
+        MemoryAccounting.current().allocate(MemoryAccounting.GROUPING, cachedCollectorBytes);
       }
     }
 
@@ -412,6 +417,8 @@ public class Grouping {
         }
       }
     }
+    // the cached docs aren't needed past the second pass
+    MemoryAccounting.current().release(MemoryAccounting.GROUPING, cachedCollectorBytes);
 
     for (Command<?> cmd : commands) {
       cmd.finish();
@@ -39,9 +39,14 @@ import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefArray;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.Counter;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.StringHelper;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -56,6 +61,13 @@ import org.apache.solr.util.RTimer;
 import org.apache.solr.util.RefCounted;
 
 class JoinQuery extends Query implements SolrSearcherRequirer {
+  /**
+   * Name of an optional user cache of the from core, holding the from terms matching a from query.
+   * Since entries only depend on the from searcher, a commit on the to core only requires mapping
+   * the cached terms to its docs again.
+   */
+  public static final String FROM_TERMS_CACHE_NAME = "joinFromTerms";
+
   String fromField;
   String toField;
   // TODO: name is missleading here compared to JoinQParserPlugin usage - here it must be a core
@@ -168,6 +180,7 @@ class JoinQuery extends Query implements SolrSearcherRequirer {
         if (debug) {
           SimpleOrderedMap<Object> dbg = new SimpleOrderedMap<>();
           dbg.add("time", (long) timer.getTime());
+          dbg.add("fromTermsCacheHit", fromTermsCacheHit);
           dbg.add("fromSetSize", fromSetSize); // the input
           dbg.add("toSetSize", resultSet.size()); // the output
 
@@ -201,6 +214,7 @@ class JoinQuery extends Query implements SolrSearcherRequirer {
     }
 
     // most of these statistics are only used for the enum method
+    boolean fromTermsCacheHit; // whether the from terms were found in the cache
     int fromSetSize; // number of docs in the fromSet (that match the from query)
     long resultListDocs; // total number of docs collected
     int fromTermCount;
@@ -248,20 +262,64 @@ class JoinQuery extends Query implements SolrSearcherRequirer {
     }
 
     public DocSet getDocSetEnumerate() throws IOException {
-      FixedBitSet resultBits = null;
+      LeafReader toReader = toSearcher.getSlowAtomicReader();
+      Terms toTerms = toReader.terms(toField);
+      if (toTerms == null) return DocSet.empty();
+
+      ToDocSetBuilder toDocSet = new ToDocSetBuilder(toTerms);
+      @SuppressWarnings("unchecked")
+      SolrCache<FromTermsKey, FromTerms> fromTermsCache =
+          fromSearcher.getCache(FROM_TERMS_CACHE_NAME);
+      if (fromTermsCache == null) {
+        // stream the from terms to the to side, which stops the enumeration past its last term
+        collectFromTerms(toDocSet::addTerm);
+      } else {
+        // the from side only depends on the from searcher, so that it may be cached independently
+        // of the to side, which then only needs to map the from terms to its own docs
+        BytesRefIterator fromTerms = getCachedFromTerms(fromTermsCache).iterator();
+        BytesRef term;
+        while ((term = fromTerms.next()) != null) {
+          if (!toDocSet.addTerm(term)) break;
+        }
+      }
+      return toDocSet.build();
+    }
+
+    /**
+     * The from terms matching docs of the from query, in term order, from the {@link
+     * #FROM_TERMS_CACHE_NAME} cache of the from searcher.
+     */
+    private BytesRefArray getCachedFromTerms(SolrCache<FromTermsKey, FromTerms> fromTermsCache)
+        throws IOException {
+      FromTermsKey key = new FromTermsKey(fromField, q);
+      FromTerms fromTerms = fromTermsCache.get(key);
+      if (fromTerms != null) {
+        fromTermsCacheHit = true;
+        fromSetSize = fromTerms.fromSetSize();
+      } else {
+        BytesRefArray terms = new BytesRefArray(Counter.newCounter());
+        collectFromTerms(
+            term -> {
+              terms.append(term);
+              return true;
+            });
+        fromTerms = new FromTerms(terms, fromSetSize);
+        fromTermsCache.put(key, fromTerms);
+      }
+      return fromTerms.terms();
+    }
 
+    /**
+     * Enumerates the from terms matching docs of the from query, in term order, until the consumer
+     * returns false.
+     */
+    private void collectFromTerms(FromTermConsumer consumer) throws IOException {
       // minimum docFreq to use the cache
       int minDocFreqFrom = Math.max(5, fromSearcher.maxDoc() >> 13);
-      int minDocFreqTo = Math.max(5, toSearcher.maxDoc() >> 13);
-
-      // use a smaller size than normal since we will need to sort and dedup the results
-      int maxSortedIntSize = Math.max(10, toSearcher.maxDoc() >> 10);
 
       DocSet fromSet = fromSearcher.getDocSet(q);
       fromSetSize = fromSet.size();
 
-      List<DocSet> resultList = new ArrayList<>(10);
-
       // make sure we have a set that is fast for random access, if we will use it for that
       Bits fastForRandomSet;
       if (minDocFreqFrom <= 0) {
@@ -271,20 +329,14 @@ class JoinQuery extends Query implements SolrSearcherRequirer {
       }
 
       LeafReader fromReader = fromSearcher.getSlowAtomicReader();
-      LeafReader toReader =
-          fromSearcher == toSearcher ? fromReader : toSearcher.getSlowAtomicReader();
       Terms terms = fromReader.terms(fromField);
-      Terms toTerms = toReader.terms(toField);
-      if (terms == null || toTerms == null) return DocSet.empty();
+      if (terms == null) return;
       String prefixStr =
           TrieField.getMainValuePrefix(fromSearcher.getSchema().getFieldType(fromField));
       BytesRef prefix = prefixStr == null ? null : new BytesRef(prefixStr);
 
       BytesRef term = null;
       TermsEnum termsEnum = terms.iterator();
-      TermsEnum toTermsEnum = toTerms.iterator();
-      SolrIndexSearcher.DocsEnumState fromDeState = null;
-      SolrIndexSearcher.DocsEnumState toDeState = null;
 
       if (prefix == null) {
         term = termsEnum.next();
@@ -294,23 +346,13 @@ class JoinQuery extends Query implements SolrSearcherRequirer {
         }
       }
 
-      Bits fromLiveDocs = fromSearcher.getLiveDocsBits();
-      Bits toLiveDocs = fromSearcher == toSearcher ? fromLiveDocs : toSearcher.getLiveDocsBits();
-
-      fromDeState = new SolrIndexSearcher.DocsEnumState();
+      SolrIndexSearcher.DocsEnumState fromDeState = new SolrIndexSearcher.DocsEnumState();
       fromDeState.fieldName = fromField;
-      fromDeState.liveDocs = fromLiveDocs;
+      fromDeState.liveDocs = fromSearcher.getLiveDocsBits();
       fromDeState.termsEnum = termsEnum;
       fromDeState.postingsEnum = null;
       fromDeState.minSetSizeCached = minDocFreqFrom;
 
-      toDeState = new SolrIndexSearcher.DocsEnumState();
-      toDeState.fieldName = toField;
-      toDeState.liveDocs = toLiveDocs;
-      toDeState.termsEnum = toTermsEnum;
-      toDeState.postingsEnum = null;
-      toDeState.minSetSizeCached = minDocFreqTo;
-
       while (term != null) {
         if (prefix != null && !StringHelper.startsWith(term, prefix)) break;
 
@@ -361,118 +403,167 @@ class JoinQuery extends Query implements SolrSearcherRequirer {
         if (intersects) {
           fromTermHits++;
           fromTermHitsTotalDf++;
-          TermsEnum.SeekStatus status = toTermsEnum.seekCeil(term);
-          if (status == TermsEnum.SeekStatus.END) break;
-          if (status == TermsEnum.SeekStatus.FOUND) {
-            toTermHits++;
-            int df = toTermsEnum.docFreq();
-            toTermHitsTotalDf += df;
-            if (resultBits == null
-                && df + resultListDocs > maxSortedIntSize
-                && resultList.size() > 0) {
-              resultBits = new FixedBitSet(toSearcher.maxDoc());
-            }
+          if (!consumer.accept(term)) break;
+        }
 
-            // if we don't have a bitset yet, or if the resulting set will be too large
-            // use the filterCache to get a DocSet
-            if (toTermsEnum.docFreq() >= minDocFreqTo || resultBits == null) {
-              // use filter cache
-              SolrCache<?, ?> filterCache = toSearcher.getFilterCache();
-              if (filterCache != null && !filterCache.isRecursionSupported()) {
-                throw new SolrException(
-                    SolrException.ErrorCode.INVALID_STATE,
-                    "Using join queries with synchronous filterCache is not supported! Details can be found in Solr Reference Guide under 'query-settings-in-solrconfig'.");
-              }
-              DocSet toTermSet = toSearcher.getDocSet(toDeState);
-              resultListDocs += toTermSet.size();
-              if (resultBits != null) {
-                toTermSet.addAllTo(resultBits);
-              } else {
-                if (toTermSet instanceof BitDocSet) {
-                  resultBits = ((BitDocSet) toTermSet).getBits().clone();
-                } else {
-                  resultList.add(toTermSet);
-                }
-              }
+        term = termsEnum.next();
+      }
+    }
+
+    /** Maps the from terms, in term order, to the docs of the to index having them. */
+    private class ToDocSetBuilder {
+      private final TermsEnum toTermsEnum;
+      private final SolrIndexSearcher.DocsEnumState toDeState;
+      // minimum docFreq to use the cache
+      private final int minDocFreqTo = Math.max(5, toSearcher.maxDoc() >> 13);
+      // use a smaller size than normal since we will need to sort and dedup the results
+      private final int maxSortedIntSize = Math.max(10, toSearcher.maxDoc() >> 10);
+      private final List<DocSet> resultList = new ArrayList<>(10);
+      private FixedBitSet resultBits = null;
+
+      ToDocSetBuilder(Terms toTerms) throws IOException {
+        toTermsEnum = toTerms.iterator();
+        toDeState = new SolrIndexSearcher.DocsEnumState();
+        toDeState.fieldName = toField;
+        toDeState.liveDocs = toSearcher.getLiveDocsBits();
+        toDeState.termsEnum = toTermsEnum;
+        toDeState.postingsEnum = null;
+        toDeState.minSetSizeCached = minDocFreqTo;
+      }
+
+      /** Adds the docs of the term, returning false if there are no more terms in the to index. */
+      boolean addTerm(BytesRef term) throws IOException {
+        TermsEnum.SeekStatus status = toTermsEnum.seekCeil(term);
+        if (status == TermsEnum.SeekStatus.END) return false;
+        if (status == TermsEnum.SeekStatus.FOUND) {
+          toTermHits++;
+          int df = toTermsEnum.docFreq();
+          toTermHitsTotalDf += df;
+          if (resultBits == null
+              && df + resultListDocs > maxSortedIntSize
+              && resultList.size() > 0) {
+            resultBits = new FixedBitSet(toSearcher.maxDoc());
+          }
+
+          // if we don't have a bitset yet, or if the resulting set will be too large
+          // use the filterCache to get a DocSet
+          if (toTermsEnum.docFreq() >= minDocFreqTo || resultBits == null) {
+            // use filter cache
+            SolrCache<?, ?> filterCache = toSearcher.getFilterCache();
+            if (filterCache != null && !filterCache.isRecursionSupported()) {
+              throw new SolrException(
+                  SolrException.ErrorCode.INVALID_STATE,
+                  "Using join queries with synchronous filterCache is not supported! Details can be found in Solr Reference Guide under 'query-settings-in-solrconfig'.");
+            }
+            DocSet toTermSet = toSearcher.getDocSet(toDeState);
+            resultListDocs += toTermSet.size();
+            if (resultBits != null) {
+              toTermSet.addAllTo(resultBits);
             } else {
-              toTermDirectCount++;
-
-              // need to use liveDocs here so we don't map to any deleted ones
-              toDeState.postingsEnum =
-                  toDeState.termsEnum.postings(toDeState.postingsEnum, PostingsEnum.NONE);
-              toDeState.postingsEnum =
-                  BitsFilteredPostingsEnum.wrap(toDeState.postingsEnum, toDeState.liveDocs);
-              PostingsEnum postingsEnum = toDeState.postingsEnum;
-
-              if (postingsEnum instanceof MultiPostingsEnum) {
-                MultiPostingsEnum.EnumWithSlice[] subs =
-                    ((MultiPostingsEnum) postingsEnum).getSubs();
-                int numSubs = ((MultiPostingsEnum) postingsEnum).getNumSubs();
-                for (int subindex = 0; subindex < numSubs; subindex++) {
-                  MultiPostingsEnum.EnumWithSlice sub = subs[subindex];
-                  if (sub.postingsEnum == null) continue;
-                  int base = sub.slice.start;
-                  int docid;
-                  while ((docid = sub.postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-                    resultListDocs++;
-                    resultBits.set(docid + base);
-                  }
-                }
+              if (toTermSet instanceof BitDocSet) {
+                resultBits = ((BitDocSet) toTermSet).getBits().clone();
               } else {
+                resultList.add(toTermSet);
+              }
+            }
+          } else {
+            toTermDirectCount++;
+
+            // need to use liveDocs here so we don't map to any deleted ones
+            toDeState.postingsEnum =
+                toDeState.termsEnum.postings(toDeState.postingsEnum, PostingsEnum.NONE);
+            toDeState.postingsEnum =
+                BitsFilteredPostingsEnum.wrap(toDeState.postingsEnum, toDeState.liveDocs);
+            PostingsEnum postingsEnum = toDeState.postingsEnum;
+
+            if (postingsEnum instanceof MultiPostingsEnum) {
+              MultiPostingsEnum.EnumWithSlice[] subs = ((MultiPostingsEnum) postingsEnum).getSubs();
+              int numSubs = ((MultiPostingsEnum) postingsEnum).getNumSubs();
+              for (int subindex = 0; subindex < numSubs; subindex++) {
+                MultiPostingsEnum.EnumWithSlice sub = subs[subindex];
+                if (sub.postingsEnum == null) continue;
+                int base = sub.slice.start;
                 int docid;
-                while ((docid = postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                while ((docid = sub.postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
                   resultListDocs++;
-                  resultBits.set(docid);
+                  resultBits.set(docid + base);
                 }
               }
+            } else {
+              int docid;
+              while ((docid = postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                resultListDocs++;
+                resultBits.set(docid);
+              }
             }
           }
         }
-
-        term = termsEnum.next();
+        return true;
       }
 
-      smallSetsDeferred = resultList.size();
+      DocSet build() {
+        smallSetsDeferred = resultList.size();
 
-      if (resultBits != null) {
-        for (DocSet set : resultList) {
-          set.addAllTo(resultBits);
+        if (resultBits != null) {
+          for (DocSet set : resultList) {
+            set.addAllTo(resultBits);
+          }
+          return new BitDocSet(resultBits);
         }
-        return new BitDocSet(resultBits);
-      }
 
-      if (resultList.size() == 0) {
-        return DocSet.empty();
-      }
+        if (resultList.size() == 0) {
+          return DocSet.empty();
+        }
 
-      if (resultList.size() == 1) {
-        return resultList.get(0);
-      }
+        if (resultList.size() == 1) {
+          return resultList.get(0);
+        }
 
-      int sz = 0;
+        int sz = 0;
 
-      for (DocSet set : resultList) sz += set.size();
+        for (DocSet set : resultList) sz += set.size();
 
-      int[] docs = new int[sz];
-      int pos = 0;
-      for (DocSet set : resultList) {
-        System.arraycopy(((SortedIntDocSet) set).getDocs(), 0, docs, pos, set.size());
-        pos += set.size();
-      }
-      Arrays.sort(docs);
-      int[] dedup = new int[sz];
-      pos = 0;
-      int last = -1;
-      for (int doc : docs) {
-        if (doc != last) dedup[pos++] = doc;
-        last = doc;
-      }
+        int[] docs = new int[sz];
+        int pos = 0;
+        for (DocSet set : resultList) {
+          System.arraycopy(((SortedIntDocSet) set).getDocs(), 0, docs, pos, set.size());
+          pos += set.size();
+        }
+        Arrays.sort(docs);
+        int[] dedup = new int[sz];
+        pos = 0;
+        int last = -1;
+        for (int doc : docs) {
+          if (doc != last) dedup[pos++] = doc;
+          last = doc;
+        }
+
+        if (pos != dedup.length) {
+          dedup = Arrays.copyOf(dedup, pos);
+        }
 
-      if (pos != dedup.length) {
-        dedup = Arrays.copyOf(dedup, pos);
+        return new SortedIntDocSet(dedup, dedup.length);
       }
+    }
+  }
 
-      return new SortedIntDocSet(dedup, dedup.length);
+  /** Key of the {@link #FROM_TERMS_CACHE_NAME} cache */
+  record FromTermsKey(String fromField, Query fromQuery) {}
+
+  /** Receives the from terms of a join, in term order. */
+  private interface FromTermConsumer {
+    /** Returns false to stop the enumeration of the from terms. */
+    boolean accept(BytesRef term) throws IOException;
+  }
+
+  /** Value of the {@link #FROM_TERMS_CACHE_NAME} cache */
+  record FromTerms(BytesRefArray terms, int fromSetSize) implements Accountable {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(FromTerms.class);
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + terms.ramBytesUsed();
     }
   }
 
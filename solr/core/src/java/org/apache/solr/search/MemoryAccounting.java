@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/**
+ * Request scoped accounting of the memory retained by large data structures, such as facet
+ * accumulator arrays or collapse maps, built while processing a request.
+ *
+ * <p>Unlike the thread allocation counter used by {@link MemAllowedLimit}, which also counts
+ * short-lived garbage, only allocations explicitly registered here by the components that own them
+ * are taken into account, and the total is broken down per component. Components should {@link
+ * #release(String, long)} memory they stop holding on to before the end of the request, e.g. when
+ * an array is replaced by a larger one, or when they are done with it. Structures that are
+ * allocated in many places but all dropped together, such as the accumulators of a facet, can
+ * instead be registered within a {@link Scope}, which releases them all when it is closed.
+ *
+ * <p>An instance is available from {@link QueryLimits#getMemoryAccounting()}, usually through
+ * {@link #current()}. It is thread-safe, since some components process a request with several
+ * threads. Tasks run by the Solr executors see the request and the scope of the thread submitting
+ * them, see {@link #getInheritableThreadLocalProvider()}.
+ *
+ * @see RetainedMemAllowedLimit
+ */
+public class MemoryAccounting {
+  public static final String FACET = "facet";
+  public static final String UNINVERTED_FIELD = "uninvertedField";
+  public static final String COLLAPSE = "collapse";
+  public static final String GROUPING = "grouping";
+  public static final String EXPORT = "export";
+
+  /** Accounting that ignores all registrations, for code running outside a request. */
+  public static final MemoryAccounting NONE =
+      new MemoryAccounting() {
+        @Override
+        public void allocate(String component, long bytes) {}
+
+        @Override
+        public void release(String component, long bytes) {}
+
+        @Override
+        public Scope openScope() {
+          return new Scope(null, null);
+        }
+      };
+
+  private final Map<String, LongAdder> retainedByComponent = new ConcurrentHashMap<>();
+  private final AtomicLong retained = new AtomicLong();
+  private final AtomicLong peakRetained = new AtomicLong();
+  // shared by the instances, so that it can be carried over to the threads of the executors
+  private static final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+  // the retained bytes not to exceed, and the retained bytes when they first exceeded it
+  private volatile long limitBytes = Long.MAX_VALUE;
+  private volatile long limitExceededAt = 0;
+
+  /**
+   * Registers memory retained by a component.
+   *
+   * @param component the name of the component, e.g. {@link #FACET}
+   * @param bytes the number of bytes retained
+   */
+  public void allocate(String component, long bytes) {
+    if (bytes <= 0) {
+      return;
+    }
+    retainedByComponent.computeIfAbsent(component, k -> new LongAdder()).add(bytes);
+    long current = retained.addAndGet(bytes);
+    peakRetained.accumulateAndGet(current, Math::max);
+    if (current > limitBytes && limitExceededAt == 0) {
+      // structures may be released before the limit is checked, so the excess is remembered
+      limitExceededAt = current;
+    }
+    Scope scope = innermostScope();
+    if (scope != null) {
+      scope.add(component, bytes);
+    }
+  }
+
+  /**
+   * Unregisters memory previously registered with {@link #allocate(String, long)}.
+   *
+   * @param component the name of the component, e.g. {@link #FACET}
+   * @param bytes the number of bytes no longer retained
+   */
+  public void release(String component, long bytes) {
+    if (bytes <= 0) {
+      return;
+    }
+    Scope scope = innermostScope();
+    if (scope != null) {
+      scope.add(component, -bytes);
+    }
+    doRelease(component, bytes);
+  }
+
+  // the innermost scope of this accounting opened by the current thread or its submitter
+  private Scope innermostScope() {
+    Scope scope = currentScope.get();
+    return scope != null && scope.getAccounting() == this ? scope : null;
+  }
+
+  private void doRelease(String component, long bytes) {
+    LongAdder adder = retainedByComponent.get(component);
+    if (adder != null) {
+      adder.add(-bytes);
+      retained.addAndGet(-bytes);
+    }
+  }
+
+  /**
+   * Opens a scope in which the memory registered by the current thread, and by the tasks it submits
+   * to the Solr executors, until the scope is closed, is released when the scope is closed. Scopes
+   * nest: what is released in a scope but was registered in an enclosing one is carried over to the
+   * enclosing one.
+   */
+  public Scope openScope() {
+    Scope scope = new Scope(innermostScope(), currentScope.get());
+    currentScope.set(scope);
+    return scope;
+  }
+
+  /**
+   * Memory registered by a thread while some structures are built, to be released all at once when
+   * they are dropped.
+   *
+   * @see #openScope()
+   */
+  public final class Scope implements AutoCloseable {
+    private final Scope parent;
+    // the current scope when this one was opened, possibly of another request's accounting
+    private final Scope previous;
+    private final Map<String, Long> bytesByComponent = new ConcurrentHashMap<>();
+
+    private Scope(Scope parent, Scope previous) {
+      this.parent = parent;
+      this.previous = previous;
+    }
+
+    private MemoryAccounting getAccounting() {
+      return MemoryAccounting.this;
+    }
+
+    private void add(String component, long bytes) {
+      bytesByComponent.merge(component, bytes, Long::sum);
+    }
+
+    /** Releases the memory registered in this scope, net of what was already released in it. */
+    @Override
+    public void close() {
+      if (currentScope.get() == this) {
+        if (previous == null) {
+          currentScope.remove();
+        } else {
+          currentScope.set(previous);
+        }
+      }
+      bytesByComponent.forEach(
+          (component, bytes) -> {
+            if (bytes > 0) {
+              doRelease(component, bytes);
+            } else if (bytes < 0 && parent != null) {
+              parent.add(component, bytes);
+            }
+          });
+    }
+  }
+
+  /** Registers the change of retained memory when a structure is replaced by a resized one. */
+  public void resize(String component, long oldBytes, long newBytes) {
+    if (newBytes > oldBytes) {
+      allocate(component, newBytes - oldBytes);
+    } else {
+      release(component, oldBytes - newBytes);
+    }
+  }
+
+  /** Sets the number of retained bytes beyond which {@link #getLimitExceededAt()} is set. */
+  void setLimit(long limitBytes) {
+    this.limitBytes = limitBytes;
+  }
+
+  /** The number of bytes retained when the limit was first exceeded, or 0 if it never was. */
+  long getLimitExceededAt() {
+    return limitExceededAt;
+  }
+
+  /** Total number of bytes currently retained. */
+  public long getRetainedBytes() {
+    return retained.get();
+  }
+
+  /** The highest number of bytes retained at any point during the request. */
+  public long getPeakRetainedBytes() {
+    return peakRetained.get();
+  }
+
+  /** Number of bytes currently retained by each component. */
+  public Map<String, Long> getRetainedBytesByComponent() {
+    Map<String, Long> result = new TreeMap<>();
+    retainedByComponent.forEach((k, v) -> result.put(k, v.sum()));
+    return result;
+  }
+
+  /** Summary suitable for debug output. */
+  public SimpleOrderedMap<Object> toNamedList() {
+    SimpleOrderedMap<Object> result = new SimpleOrderedMap<>();
+    result.add("retainedBytes", getRetainedBytes());
+    result.add("peakRetainedBytes", getPeakRetainedBytes());
+    SimpleOrderedMap<Object> components = new SimpleOrderedMap<>();
+    getRetainedBytesByComponent().forEach(components::add);
+    result.add("components", components);
+    return result;
+  }
+
+  /** The accounting of the current request, or {@link #NONE} if there isn't one. */
+  public static MemoryAccounting current() {
+    return QueryLimits.getCurrentLimits().getMemoryAccounting();
+  }
+
+  /**
+   * Carries the current scope over to the tasks run by the Solr executors, so that what they
+   * register is released with the scope of the thread submitting them. The accounting itself
+   * follows the {@link org.apache.solr.request.SolrRequestInfo} of the request.
+   */
+  public static ExecutorUtil.InheritableThreadLocalProvider getInheritableThreadLocalProvider() {
+    return new ExecutorUtil.InheritableThreadLocalProvider() {
+      @Override
+      public void store(AtomicReference<Object> ctx) {
+        ctx.set(currentScope.get());
+      }
+
+      @Override
+      public void set(AtomicReference<Object> ctx) {
+        Scope scope = (Scope) ctx.get();
+        if (scope != null) {
+          currentScope.set(scope);
+        }
+      }
+
+      @Override
+      public void clean(AtomicReference<Object> ctx) {
+        currentScope.remove();
+      }
+    };
+  }
+}
@@ -92,7 +92,16 @@ public class MinHashQParser extends QParser {
     ts.close();
   }
 
-  private Query createFingerPrintQuery(
+  /**
+   * Creates the query matching the docs that share hashes with the given finger print. Without a
+   * true positive rate below 1, each hash is a clause; the docs sharing more hashes score higher.
+   *
+   * @param field the field holding the hashes of the docs
+   * @param minhashes the hashes of the finger print
+   * @param similarity the similarity the docs must have, or 1 to match any shared hash
+   * @param expectedTruePositive the true positive rate; below 1 the hashes are grouped in bands
+   */
+  public static BooleanQuery createFingerPrintQuery(
       String field, List<BytesRef> minhashes, float similarity, float expectedTruePositive) {
     int bandSize = 1;
     if (expectedTruePositive < 1) {
@@ -46,6 +46,7 @@ public class QueryLimits implements QueryTimeout {
 
   private final SolrQueryResponse rsp;
   private final boolean allowPartialResults;
+  private final MemoryAccounting memoryAccounting;
 
   // short-circuit the checks if any limit has been tripped
   private volatile boolean limitsTripped = false;
@@ -64,6 +65,7 @@ public class QueryLimits implements QueryTimeout {
   public QueryLimits(SolrQueryRequest req, SolrQueryResponse rsp) {
     this.rsp = rsp;
     this.allowPartialResults = req == null || SolrQueryRequest.allowPartialResults(req.getParams());
+    this.memoryAccounting = req == null ? MemoryAccounting.NONE : new MemoryAccounting();
     if (req != null) {
       if (hasTimeLimit(req)) {
         limits.add(new TimeAllowedLimit(req));
@@ -74,6 +76,9 @@ public class QueryLimits implements QueryTimeout {
       if (MemAllowedLimit.hasMemLimit(req)) {
         limits.add(new MemAllowedLimit(req));
       }
+      if (RetainedMemAllowedLimit.hasRetainedMemLimit(req)) {
+        limits.add(new RetainedMemAllowedLimit(req, memoryAccounting));
+      }
     }
     // for testing
     if (TestInjection.queryTimeout != null) {
@@ -180,6 +185,14 @@ public class QueryLimits implements QueryTimeout {
     return Optional.empty();
   }
 
+  /**
+   * The accounting of memory retained by large data structures built for this request. This is
+   * available even if no {@link RetainedMemAllowedLimit} is enabled.
+   */
+  public MemoryAccounting getMemoryAccounting() {
+    return memoryAccounting;
+  }
+
   /** Return true if there are any limits enabled for the current request. */
   public boolean isLimitsEnabled() {
     return !limits.isEmpty();
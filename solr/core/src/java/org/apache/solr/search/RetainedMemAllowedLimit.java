@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.request.SolrQueryRequest;
+
+/**
+ * Enforces a limit on the memory retained by large data structures of a given SolrQueryRequest, as
+ * specified by the {@code memRetainedAllowed} query parameter, expressed in mebi-bytes.
+ *
+ * <p>Unlike {@link MemAllowedLimit}, this only considers memory registered with the request's
+ * {@link MemoryAccounting}, so that short-lived garbage does not count against the limit. The
+ * limit trips if the retained memory exceeded it at any point, even if it was released before the
+ * limit was checked, e.g. at the end of a facet.
+ */
+public class RetainedMemAllowedLimit implements QueryLimit {
+  private static final double MEBI = 1024.0 * 1024.0;
+
+  private final MemoryAccounting memoryAccounting;
+  private volatile long exitedAt = 0;
+
+  public RetainedMemAllowedLimit(SolrQueryRequest req, MemoryAccounting memoryAccounting) {
+    float reqMemLimit = req.getParams().getFloat(CommonParams.MEM_RETAINED_ALLOWED, -1.0f);
+    if (reqMemLimit <= 0.0f) {
+      throw new IllegalArgumentException(
+          "Check for limit with hasRetainedMemLimit(req) before creating a RetainedMemAllowedLimit");
+    }
+    long limitBytes = Math.round(reqMemLimit * MEBI);
+    this.memoryAccounting = memoryAccounting;
+    memoryAccounting.setLimit(limitBytes);
+  }
+
+  static boolean hasRetainedMemLimit(SolrQueryRequest req) {
+    return req.getParams().getFloat(CommonParams.MEM_RETAINED_ALLOWED, -1.0f) > 0.0f;
+  }
+
+  @Override
+  public boolean shouldExit() {
+    if (exitedAt > 0L) {
+      return true;
+    }
+    long exceededAt = memoryAccounting.getLimitExceededAt();
+    if (exceededAt > 0L) {
+      exitedAt = exceededAt;
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Object currentValue() {
+    return exitedAt > 0 ? exitedAt : memoryAccounting.getPeakRetainedBytes();
+  }
+}
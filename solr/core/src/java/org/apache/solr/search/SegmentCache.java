@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.IOSupplier;
+import org.apache.solr.common.util.EnvUtils;
+import org.apache.solr.metrics.MetricsMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A node wide cache of values computed from single segments, bounded by the RAM the values use.
+ *
+ * <p>Values are cached by the key of a {@link IndexReader.CacheHelper} of the segment: its core
+ * key for values that don't depend on the deleted docs, its reader key otherwise, since the reader
+ * of a segment changes when docs are deleted. Either way the values are never stale. They are
+ * shared by all the searchers that have the segment and by concurrent requests, so they must not be
+ * modified once computed. The values of a segment are removed when it is closed, and the least
+ * recently used values are evicted once they use more than {@value #MAX_RAM_MB_PROP} megabytes.
+ * A value that alone uses more than that is not cached at all.
+ *
+ * <p>The node reports the statistics of {@link #DEFAULT} as the {@code CACHE.segmentCache} metric.
+ */
+public class SegmentCache {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** The system property with the maximum RAM used by the values of {@link #DEFAULT}, in MB. */
+  public static final String MAX_RAM_MB_PROP = "solr.segmentCache.maxRamMB";
+
+  public static final SegmentCache DEFAULT =
+      new SegmentCache(EnvUtils.getPropertyAsLong(MAX_RAM_MB_PROP, 100L) * 1024 * 1024);
+
+  private record Key(IndexReader.CacheKey segment, Class<?> type, String name) {}
+
+  private final long maxRamBytes;
+  private final Cache<Key, Accountable> cache;
+  // the segments with a listener removing their values when they are closed
+  private final Set<IndexReader.CacheKey> segments = ConcurrentHashMap.newKeySet();
+
+  /**
+   * A cache separate from {@link #DEFAULT}, for values that shouldn't compete with the others for
+   * RAM.
+   *
+   * @param maxRamBytes the maximum RAM used by the cached values
+   */
+  public SegmentCache(long maxRamBytes) {
+    this.maxRamBytes = maxRamBytes;
+    this.cache =
+        Caffeine.newBuilder()
+            .executor(Runnable::run)
+            .maximumWeight(maxRamBytes)
+            .weigher(
+                (Key key, Accountable value) ->
+                    (int) Math.min(Integer.MAX_VALUE, value.ramBytesUsed()))
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Returns the value of the segment with the given type and name, computing it if it isn't cached.
+   *
+   * @param cacheHelper the core or reader cache helper of the segment, may be null if the segment
+   *     doesn't support caching, in which case the value is computed each time
+   * @param type the type of the value
+   * @param name what the value is computed from within the segment, such as a field name
+   * @param compute computes the value
+   */
+  public <V extends Accountable> V get(
+      IndexReader.CacheHelper cacheHelper, Class<V> type, String name, IOSupplier<V> compute)
+      throws IOException {
+    if (cacheHelper == null) {
+      return compute.get();
+    }
+    IndexReader.CacheKey segment = cacheHelper.getKey();
+    Key key = new Key(segment, type, name);
+    Accountable value = cache.getIfPresent(key);
+    if (value == null) {
+      if (segments.add(segment)) {
+        cacheHelper.addClosedListener(this::removeSegment);
+      }
+      // concurrent requests may compute the same value; only one is kept
+      value = compute.get();
+      if (value.ramBytesUsed() > maxRamBytes) {
+        // it would only be evicted right away
+        log.warn(
+            "Not caching the {} of {}, which uses {} bytes, more than the {} bytes of the cache",
+            type.getSimpleName(),
+            name,
+            value.ramBytesUsed(),
+            maxRamBytes);
+        return type.cast(value);
+      }
+      Accountable previous = cache.asMap().putIfAbsent(key, value);
+      if (previous != null) {
+        value = previous;
+      }
+    }
+    return type.cast(value);
+  }
+
+  private void removeSegment(IndexReader.CacheKey segment) {
+    segments.remove(segment);
+    cache.asMap().keySet().removeIf(key -> key.segment() == segment);
+  }
+
+  /** The number of cached values. */
+  public long size() {
+    cache.cleanUp();
+    return cache.estimatedSize();
+  }
+
+  /** The RAM used by the cached values. */
+  public long ramBytesUsed() {
+    cache.cleanUp();
+    return cache.policy().eviction().orElseThrow().weightedSize().orElse(0);
+  }
+
+  /** The statistics of this cache, as reported by the node metrics. */
+  public MetricsMap getMetricsMap() {
+    return new MetricsMap(
+        map -> {
+          CacheStats stats = cache.stats();
+          map.put("lookups", stats.requestCount());
+          map.put("hits", stats.hitCount());
+          map.put("evictions", stats.evictionCount());
+          map.put("size", cache.estimatedSize());
+          map.put("ramBytesUsed", ramBytesUsed());
+          map.put("maxRamMB", maxRamBytes / 1024 / 1024);
+        });
+  }
+}
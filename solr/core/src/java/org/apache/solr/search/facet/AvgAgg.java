@@ -63,6 +63,9 @@ public class AvgAgg extends SimpleAggValueSource {
       }
       vs = sf.getType().getValueSource(sf, null);
     }
+    if (SlotAcc.useSparseSlots(numDocs, numSlots)) {
+      return new SlotAcc.SparseAvgSlotAcc(vs, fcontext, numSlots);
+    }
     return new SlotAcc.AvgSlotAcc(vs, fcontext, numSlots);
   }
 
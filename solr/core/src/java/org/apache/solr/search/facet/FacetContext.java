@@ -30,6 +30,8 @@ public class FacetContext {
   // refinement: skip calculating this immediate facet, but proceed to specific sub-facets based on
   // facetInfo
   public static final int SKIP_FACET = 0x04;
+  // the coordinator can read compact sketches, see ShardParams.SHARDS_COMPACT_SKETCHES
+  public static final int COMPACT_SKETCHES = 0x08;
 
   FacetProcessor<?> processor;
   Map<String, Object> facetInfo; // refinement info for this node
@@ -55,6 +57,10 @@ public class FacetContext {
     return (flags & IS_SHARD) != 0;
   }
 
+  public boolean useCompactSketches() {
+    return (flags & COMPACT_SKETCHES) != 0;
+  }
+
   public FacetProcessor<?> getFacetProcessor() {
     return processor;
   }
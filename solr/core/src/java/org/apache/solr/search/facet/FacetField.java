@@ -20,10 +20,17 @@ import java.util.HashMap;
 import java.util.Map;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.EnvUtils;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.SchemaField;
 
 public class FacetField extends FacetRequestSorted {
+  /**
+   * The system property making the smart method facet multi-valued fields without docValues per
+   * segment, as method dv does, rather than with their top-level {@link UnInvertedField}.
+   */
+  public static final String UNINVERT_PER_SEGMENT_PROP = "solr.facet.uninvertPerSegment";
+
   public static final int DEFAULT_FACET_LIMIT = 10;
   String field;
   boolean missing;
@@ -35,6 +42,15 @@ public class FacetField extends FacetRequestSorted {
   FacetMethod method;
   int cacheDf; // 0 means "default", -1 means "never cache"
 
+  /**
+   * Number of bucket counts beyond the returned buckets each shard returns, along with a filter of
+   * the values of its other buckets, to refine buckets without another request to the shard. 0
+   * means no speculative refinement.
+   *
+   * @see SpeculativeBuckets
+   */
+  int speculate;
+
   // experimental - force perSeg collection when using dv method, currently for testing purposes
   // only.
   Boolean perSeg;
@@ -87,7 +103,7 @@ public class FacetField extends FacetRequestSorted {
     if (fcontext.facetInfo != null) {
       // refinement... we will end up either skipping the entire facet, or doing calculating only
       // specific facet buckets
-      if (multiToken && !sf.hasDocValues() && method != FacetMethod.DV && sf.isUninvertible()) {
+      if (multiToken && useUnInvertedField(sf)) {
         // Match the access method from the first phase.
         // It won't always matter, but does currently for an all-values bucket
         return new FacetFieldProcessorByArrayUIF(fcontext, this, sf);
@@ -135,6 +151,19 @@ public class FacetField extends FacetRequestSorted {
       return new FacetFieldProcessorByEnumTermsStream(fcontext, this, sf);
     }
 
+    // enumerating terms for the top counts only holds the top terms, rather than a count per term,
+    // but it can't tell how many buckets there are, nor count them all
+    if (method == FacetMethod.STREAM
+        && sf.indexed()
+        && !ft.isPointField()
+        && !(allBuckets || numBuckets || missing || processEmpty)
+        && null == prelim_sort
+        && FacetSort.COUNT_DESC.equals(sort)
+        && limit > 0
+        && mincount > 0) {
+      return new FacetFieldProcessorByEnumTermsTopK(fcontext, this, sf);
+    }
+
     // TODO if method=UIF and not single-valued numerics then simply choose that now? TODO add
     // FieldType.getDocValuesType()
 
@@ -159,8 +188,9 @@ public class FacetField extends FacetRequestSorted {
       return new FacetFieldProcessorByHashDV(fcontext, this, sf);
     }
 
-    if (sf.hasDocValues() || method == FacetMethod.DV || !sf.isUninvertible()) {
-      // single and multi-valued string docValues
+    if (!useUnInvertedField(sf)) {
+      // single and multi-valued string docValues, or multi-valued fields uninverted per segment
+      // with method dv
       return new FacetFieldProcessorByArrayDV(fcontext, this, sf);
     }
 
@@ -168,6 +198,26 @@ public class FacetField extends FacetRequestSorted {
     return new FacetFieldProcessorByArrayUIF(fcontext, this, sf);
   }
 
+  /**
+   * Whether a multi-valued field is faceted with its top-level {@link UnInvertedField} rather than
+   * per segment. This is the default for fields without docValues, unless {@value
+   * #UNINVERT_PER_SEGMENT_PROP} is true.
+   *
+   * <p>With method dv, or that property, such a field is uninverted per segment instead: each
+   * segment the first time it is used, kept in the field cache until the segment is closed, so that
+   * a new searcher only uninverts the segments it didn't share with the previous one, while the
+   * top-level structure is rebuilt for every new searcher. Method uif, and point fields, which
+   * can't be uninverted per segment, still use the top-level structure.
+   */
+  private boolean useUnInvertedField(SchemaField sf) {
+    if (sf.hasDocValues() || method == FacetMethod.DV || !sf.isUninvertible()) {
+      return false;
+    }
+    return method == FacetMethod.UIF
+        || sf.getType().isPointField()
+        || !EnvUtils.getPropertyAsBool(UNINVERT_PER_SEGMENT_PROP, false);
+  }
+
   private static DocValuesType dvType(FacetContext fcontext, String field) {
     var fieldInfo = fcontext.searcher.getFieldInfos().fieldInfo(field);
     return fieldInfo == null ? null : fieldInfo.getDocValuesType();
@@ -178,6 +228,20 @@ public class FacetField extends FacetRequestSorted {
     return new FacetFieldMerger(this);
   }
 
+  /**
+   * Whether shards return {@link SpeculativeBuckets} for this facet: when it is refined and its
+   * buckets have neither stats nor sub-facets, since only counts can be completed speculatively.
+   */
+  boolean speculates() {
+    return speculate > 0
+        && doRefine()
+        && limit > 0
+        && prelim_sort == null
+        && !processEmpty
+        && subFacets.isEmpty()
+        && facetStats.isEmpty();
+  }
+
   @Override
   public Map<String, Object> getFacetDescription() {
     Map<String, Object> descr = new HashMap<>();
@@ -37,6 +37,9 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
   // the number of buckets in the bucket lists returned from all of the shards
   int numReturnedBuckets;
 
+  // per shard, null if the shard returned none
+  SpeculativeBuckets[] speculativeBuckets;
+
   public FacetFieldMerger(FacetField freq) {
     super(freq);
   }
@@ -77,6 +80,15 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
     numReturnedBuckets += bucketList.size();
     mergeBucketList(bucketList, mcontext);
 
+    Object speculative = facetResult.get(SpeculativeBuckets.KEY);
+    if (speculative != null) {
+      if (speculativeBuckets == null) {
+        speculativeBuckets = new SpeculativeBuckets[mcontext.numShards];
+      }
+      speculativeBuckets[mcontext.shardNum] =
+          SpeculativeBuckets.fromResponse((SimpleOrderedMap<?>) speculative);
+    }
+
     if (freq.numBuckets) {
       Object nb = facetResult.get("numBuckets");
       if (nb != null) {
@@ -156,6 +168,22 @@ public class FacetFieldMerger extends FacetRequestSortedMerger<FacetField> {
     // basically , only do at the top-level facet?
   }
 
+  @Override
+  boolean completeWithoutRefinement(FacetBucket bucket, Context mcontext) {
+    SpeculativeBuckets speculative =
+        speculativeBuckets == null ? null : speculativeBuckets[mcontext.shardNum];
+    if (speculative == null || speculative.mayHaveUnknownBucket(bucket.bucketValue)) {
+      return false;
+    }
+    Long count = speculative.getCount(bucket.bucketValue);
+    if (count != null) {
+      bucket.count += count;
+    }
+    // the bucket now has the count of the shard, as if the shard had returned it
+    mcontext.setShardFlag(bucket.bucketNumber);
+    return true;
+  }
+
   @Override
   Map<String, Object> getRefinementSpecial(
       Context mcontext, Map<String, Object> refinement, Collection<String> tagsWithPartial) {
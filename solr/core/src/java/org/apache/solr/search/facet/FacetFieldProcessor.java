@@ -35,6 +35,7 @@ import java.util.function.IntFunction;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.PriorityQueue;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -307,7 +308,7 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
     }
   }
 
-  private static long applyDefaultOverrequest(long offset, long limit) {
+  static long applyDefaultOverrequest(long offset, long limit) {
     // NOTE: consider modifying the below heuristic; see SOLR-15760
     // add over-request if this is a shard request and if we have a small offset (large offsets will
     // already be gathering many more buckets than needed)
@@ -371,12 +372,15 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
       }
     }
 
+    // the number of buckets following the returned ones whose counts are returned as well
+    final int numSpeculative = fcontext.isShard() && freq.speculates() ? freq.speculate : 0;
+
     final int sortMul = sort.sortDirection.getMultiplier();
 
     int maxTopVals =
         (int)
             (effectiveLimit >= 0
-                ? Math.min(freq.offset + effectiveLimit, Integer.MAX_VALUE - 1)
+                ? Math.min(freq.offset + effectiveLimit + numSpeculative, Integer.MAX_VALUE - 1)
                 : Integer.MAX_VALUE - 1);
     maxTopVals = Math.min(maxTopVals, slotCardinality);
     final SlotAcc sortAcc = this.sortAcc, indexOrderAcc = this.indexOrderAcc;
@@ -476,6 +480,15 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
       createOtherAccs(-1, 1);
     }
 
+    // the least of the top buckets are the speculative ones, not returned as buckets
+    int numSpeculativeSlots =
+        numSpeculative > 0 ? (int) Math.max(0, queue.size() - (freq.offset + effectiveLimit)) : 0;
+    Slot[] speculativeSlots = new Slot[numSpeculativeSlots];
+    for (int i = speculativeSlots.length - 1; i >= 0; i--) {
+      speculativeSlots[i] = queue.pop();
+      shardHasMoreBuckets = true;
+    }
+
     // if we are deep paging, we don't have to order the highest "offset" counts...
     // ...unless we need to resort.
     int collectCount = Math.max(0, queue.size() - (null == this.resort ? off : 0));
@@ -521,6 +534,12 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
 
     res.add("buckets", bucketList);
 
+    if (numSpeculative > 0) {
+      res.add(
+          SpeculativeBuckets.KEY,
+          getSpeculativeBuckets(numSlots, sortedSlots, speculativeSlots, bucketValFromSlotNumFunc));
+    }
+
     if (fcontext.isShard() && shardHasMoreBuckets) {
       // Currently, "more" is an internal implementation detail and only returned for distributed
       // sub-requests
@@ -536,6 +555,49 @@ abstract class FacetFieldProcessor extends FacetProcessor<FacetField> {
     return res;
   }
 
+  /**
+   * Composes the speculative buckets of a shard response: the counts of the buckets following the
+   * returned ones, and the filter of the values of the other buckets, unless there are too many.
+   *
+   * @see SpeculativeBuckets
+   */
+  private SimpleOrderedMap<Object> getSpeculativeBuckets(
+      int numSlots,
+      Slot[] returnedSlots,
+      Slot[] speculativeSlots,
+      @SuppressWarnings("rawtypes") IntFunction<Comparable> bucketValFromSlotNumFunc) {
+    FixedBitSet knownSlots = new FixedBitSet(numSlots);
+    for (Slot slot : returnedSlots) {
+      knownSlots.set(slot.slot);
+    }
+    List<Object> vals = new ArrayList<>(speculativeSlots.length);
+    List<Long> counts = new ArrayList<>(speculativeSlots.length);
+    for (Slot slot : speculativeSlots) {
+      knownSlots.set(slot.slot);
+      vals.add(bucketValFromSlotNumFunc.apply(slot.slot));
+      counts.add(countAcc.getCount(slot.slot));
+    }
+
+    int numOtherBuckets = 0;
+    for (int slotNum = 0; slotNum < numSlots; slotNum++) {
+      if (!knownSlots.get(slotNum) && countAcc.getCount(slotNum) > 0) {
+        numOtherBuckets++;
+      }
+    }
+    byte[] filter = null;
+    if (numOtherBuckets <= SpeculativeBuckets.MAX_FILTER_VALUES) {
+      SpeculativeBuckets.FilterBuilder filterBuilder =
+          new SpeculativeBuckets.FilterBuilder(numOtherBuckets);
+      for (int slotNum = 0; slotNum < numSlots; slotNum++) {
+        if (!knownSlots.get(slotNum) && countAcc.getCount(slotNum) > 0) {
+          filterBuilder.add(bucketValFromSlotNumFunc.apply(slotNum));
+        }
+      }
+      filter = filterBuilder.build();
+    }
+    return SpeculativeBuckets.toResponse(vals, counts, filter);
+  }
+
   /** Trivial helper method for building up a bucket query given the (Stringified) bucket value */
   protected Query makeBucketQuery(final String bucketValue) {
     return sf.getType().getFieldTermQuery(null, sf, bucketValue);
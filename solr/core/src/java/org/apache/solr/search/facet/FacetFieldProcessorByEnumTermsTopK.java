@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.apache.lucene.index.MultiPostingsEnum;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.TrieField;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Finds the terms with the highest counts by enumerating the indexed terms, holding only the top
+ * terms found so far rather than a count for every term of the field.
+ *
+ * <p>The doc freq of a term, summed over the segments, bounds its count in any domain. Once the top
+ * terms are found, the terms whose doc freq doesn't exceed the lowest top count are skipped without
+ * reading their postings, since they come after the top terms in index order and so lose ties.
+ * Once the lowest top count reaches the size of the domain, no other term can make it, and the
+ * enumeration stops.
+ */
+class FacetFieldProcessorByEnumTermsTopK extends FacetFieldProcessor {
+
+  private static class TopTerm {
+    final BytesRef term;
+    final int count;
+
+    TopTerm(BytesRef term, int count) {
+      this.term = term;
+      this.count = count;
+    }
+  }
+
+  private int minDfFilterCache;
+  private SolrIndexSearcher.DocsEnumState deState;
+  private PostingsEnum postingsEnum;
+  private Bits fastForRandomSet;
+
+  FacetFieldProcessorByEnumTermsTopK(FacetContext fcontext, FacetField freq, SchemaField sf) {
+    super(fcontext, freq, sf);
+    assert freq.limit > 0 && FacetRequest.FacetSort.COUNT_DESC.equals(sort);
+  }
+
+  @Override
+  public void process() throws IOException {
+    super.process();
+    response = calcFacets();
+  }
+
+  private SimpleOrderedMap<Object> calcFacets() throws IOException {
+    long effectiveLimit = freq.limit;
+    if (fcontext.isShard()) {
+      if (freq.overrequest > 0) {
+        effectiveLimit += freq.overrequest;
+      } else if (freq.overrequest == -1) {
+        effectiveLimit = applyDefaultOverrequest(freq.offset, effectiveLimit);
+      } else if (freq.overrequest < -1) {
+        // other negative values are not supported
+        throw new IllegalArgumentException("Illegal `overrequest` specified: " + freq.overrequest);
+      }
+    }
+    final int off = fcontext.isShard() ? 0 : (int) freq.offset;
+    final long maxTopTerms = freq.offset + effectiveLimit;
+
+    // Minimum term docFreq in order to use the filterCache for that term.
+    if (freq.cacheDf == -1) { // -1 means never cache
+      minDfFilterCache = Integer.MAX_VALUE;
+    } else if (freq.cacheDf == 0) { // default; compute as fraction of maxDoc
+      // (minimum of 3 is for test coverage purposes)
+      minDfFilterCache = Math.max(fcontext.searcher.maxDoc() >> 4, 3);
+    } else {
+      minDfFilterCache = freq.cacheDf;
+    }
+
+    BytesRef startTermBytes = null;
+    if (freq.prefix != null) {
+      startTermBytes = new BytesRef(sf.getType().toInternal(freq.prefix));
+    } else if (sf.getType().getNumberType() != null) {
+      String triePrefix = TrieField.getMainValuePrefix(sf.getType());
+      if (triePrefix != null) {
+        startTermBytes = new BytesRef(triePrefix);
+      }
+    }
+
+    // the least of the top terms is the head: the one with the lowest count, or else the last term
+    PriorityQueue<TopTerm> queue =
+        new PriorityQueue<>(
+            (a, b) ->
+                a.count != b.count
+                    ? Integer.compare(a.count, b.count)
+                    : b.term.compareTo(a.term));
+    boolean shardHasMoreBuckets = false;
+
+    Terms terms = fcontext.searcher.getSlowAtomicReader().terms(sf.getName());
+    TermsEnum termsEnum = terms == null ? null : terms.iterator();
+    BytesRef term = null;
+    if (termsEnum != null) {
+      if (startTermBytes == null) {
+        term = termsEnum.next();
+      } else if (termsEnum.seekCeil(startTermBytes) != TermsEnum.SeekStatus.END) {
+        term = termsEnum.term();
+      }
+    }
+
+    final DocSet docs = fcontext.base;
+    final int domainSize = docs.size();
+    for (; term != null; term = termsEnum.next()) {
+      if (startTermBytes != null && !StringHelper.startsWith(term, startTermBytes)) {
+        break;
+      }
+
+      boolean full = queue.size() >= maxTopTerms;
+      if (full && queue.peek().count >= domainSize) {
+        // no other term can have a higher count
+        shardHasMoreBuckets = true;
+        break;
+      }
+      // the doc freq includes the deleted docs, so it is an upper bound of the count
+      int maxCount = Math.min(termsEnum.docFreq(), domainSize);
+      if (maxCount < effectiveMincount) {
+        continue;
+      }
+      if (full && maxCount <= queue.peek().count) {
+        // the term may have some count, but can't make it to the top terms
+        shardHasMoreBuckets = true;
+        continue;
+      }
+
+      int count = countTerm(termsEnum);
+      if (count < effectiveMincount) {
+        continue;
+      }
+      if (!full) {
+        queue.add(new TopTerm(BytesRef.deepCopyOf(term), count));
+      } else {
+        shardHasMoreBuckets = true;
+        if (count > queue.peek().count) {
+          queue.poll();
+          queue.add(new TopTerm(BytesRef.deepCopyOf(term), count));
+        }
+      }
+    }
+
+    TopTerm[] topTerms = new TopTerm[queue.size()];
+    for (int i = topTerms.length - 1; i >= 0; i--) {
+      topTerms[i] = queue.poll();
+    }
+
+    boolean needFilter = !freq.getFacetStats().isEmpty() || !freq.getSubFacets().isEmpty();
+    List<SimpleOrderedMap<?>> bucketList = new ArrayList<>(Math.max(0, topTerms.length - off));
+    for (int i = off; i < topTerms.length; i++) {
+      SimpleOrderedMap<Object> bucket = new SimpleOrderedMap<>();
+      bucket.add("val", sf.getType().toObject(sf, topTerms[i].term));
+      if (needFilter) {
+        fillBucket(
+            bucket, new TermQuery(new Term(sf.getName(), topTerms[i].term)), null, false, null);
+      } else {
+        bucket.add("count", (long) topTerms[i].count);
+      }
+      bucketList.add(bucket);
+    }
+
+    SimpleOrderedMap<Object> res = new SimpleOrderedMap<>();
+    res.add("buckets", bucketList);
+    if (fcontext.isShard() && shardHasMoreBuckets) {
+      // Currently, "more" is an internal implementation detail and only returned for distributed
+      // sub-requests
+      res.add("more", true);
+    }
+    return res;
+  }
+
+  /** Counts the docs of the domain that have the current term of the enum. */
+  private int countTerm(TermsEnum termsEnum) throws IOException {
+    final DocSet docs = fcontext.base;
+    if (termsEnum.docFreq() >= minDfFilterCache) {
+      // use the filter cache
+      if (deState == null) {
+        deState = new SolrIndexSearcher.DocsEnumState();
+        deState.fieldName = sf.getName();
+        deState.liveDocs = fcontext.searcher.getLiveDocsBits();
+        deState.minSetSizeCached = minDfFilterCache;
+      }
+      deState.termsEnum = termsEnum;
+      deState.postingsEnum = postingsEnum;
+      int count = fcontext.searcher.numDocs(docs, deState);
+      postingsEnum = deState.postingsEnum;
+      return count;
+    }
+
+    // iterate over TermDocs to calculate the intersection
+    if (fastForRandomSet == null) {
+      fastForRandomSet = docs.getBits();
+    }
+    postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+    int count = 0;
+    int docid;
+    if (postingsEnum instanceof MultiPostingsEnum) {
+      MultiPostingsEnum.EnumWithSlice[] subs = ((MultiPostingsEnum) postingsEnum).getSubs();
+      int numSubs = ((MultiPostingsEnum) postingsEnum).getNumSubs();
+      for (int subindex = 0; subindex < numSubs; subindex++) {
+        MultiPostingsEnum.EnumWithSlice sub = subs[subindex];
+        if (sub.postingsEnum == null) continue;
+        int base = sub.slice.start;
+        while ((docid = sub.postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (fastForRandomSet.get(docid + base)) count++;
+        }
+      }
+    } else {
+      while ((docid = postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        if (fastForRandomSet.get(docid)) count++;
+      }
+    }
+    return count;
+  }
+}
@@ -136,6 +136,9 @@ public class FacetModule extends SearchComponent {
     fcontext.cache = cache;
     if (isShard) {
       fcontext.flags |= FacetContext.IS_SHARD;
+      if (rb.req.getParams().getBool(ShardParams.SHARDS_COMPACT_SKETCHES, false)) {
+        fcontext.flags |= FacetContext.COMPACT_SKETCHES;
+      }
       fcontext.facetInfo =
           facetState.facetInfo.isEmpty()
               ? null
@@ -233,6 +236,7 @@ public class FacetModule extends SearchComponent {
       }
 
       shardsRefineRequest.purpose |= PURPOSE_REFINE_JSON_FACETS;
+      shardsRefineRequest.params.set(ShardParams.SHARDS_COMPACT_SKETCHES, true);
 
       Map<String, Object> finfo = CollectionUtil.newHashMap(1);
       finfo.put(FACET_REFINE, refinement);
@@ -276,6 +280,7 @@ public class FacetModule extends SearchComponent {
       sreq.purpose |= FacetModule.PURPOSE_GET_JSON_FACETS;
       // The presence of FACET_INFO (_facet_) turns on json faceting
       sreq.params.set(FACET_INFO, "{}");
+      sreq.params.set(ShardParams.SHARDS_COMPACT_SKETCHES, true);
     } else {
       // turn off faceting on other requests
       /* distributedProcess will need to use other requests for refinement
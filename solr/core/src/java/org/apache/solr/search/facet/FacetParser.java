@@ -553,6 +553,7 @@ abstract class FacetParser<T extends FacetRequest> {
         facet.limit = getLong(m, "limit", facet.limit);
         facet.overrequest = (int) getLong(m, "overrequest", facet.overrequest);
         facet.overrefine = (int) getLong(m, "overrefine", facet.overrefine);
+        facet.speculate = (int) getLong(m, "speculate", facet.speculate);
         if (facet.limit == 0)
           facet.offset = 0; // normalize.  an offset with a limit of non-zero isn't useful.
         facet.mincount = getLong(m, "mincount", facet.mincount);
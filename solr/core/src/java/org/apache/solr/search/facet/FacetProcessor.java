@@ -18,6 +18,7 @@ package org.apache.solr.search.facet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -27,6 +28,7 @@ import java.util.function.IntFunction;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -40,7 +42,9 @@ import org.apache.solr.search.DocSet;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.SortedIntDocSet;
 import org.apache.solr.search.SyntaxError;
+import org.apache.solr.search.facet.SlotAcc.SegmentSlotAcc;
 import org.apache.solr.search.facet.SlotAcc.SlotContext;
 
 /** Base abstraction for a class that computes facets. This is fairly internal to the module. */
@@ -57,6 +61,10 @@ public abstract class FacetProcessor<T extends FacetRequest> {
   SlotAcc[] accs;
   SlotAcc.CountSlotAcc countAcc;
 
+  // the plain query sub-facets, and their counting, set up on the first domain worth sweeping
+  private List<String> subQuerySweepKeys;
+  private SweepQueryCounts subQuerySweep;
+
   FacetProcessor(FacetContext fcontext, T freq) {
     this.fcontext = fcontext;
     this.freq = freq;
@@ -354,6 +362,14 @@ public abstract class FacetProcessor<T extends FacetRequest> {
       return count;
     }
 
+    if (accs != null) {
+      for (SlotAcc acc : accs) {
+        if (acc instanceof SegmentSlotAcc) {
+          return collectBySegment(docs, slot, slotContext);
+        }
+      }
+    }
+
     final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
     final Iterator<LeafReaderContext> ctxIt = leaves.iterator();
     LeafReaderContext ctx = null;
@@ -382,6 +398,91 @@ public abstract class FacetProcessor<T extends FacetRequest> {
     return count;
   }
 
+  /**
+   * Like {@link #collect(DocSet, int, IntFunction)}, but the accs that can collect whole segments
+   * at once do so for the segments whose live docs are all in the docs.
+   */
+  private long collectBySegment(DocSet docs, int slot, IntFunction<SlotContext> slotContext)
+      throws IOException {
+    boolean allCollectSegments = true;
+    for (SlotAcc acc : accs) {
+      allCollectSegments &= acc instanceof SegmentSlotAcc;
+    }
+    long count = 0;
+    for (LeafReaderContext ctx : fcontext.searcher.getTopReaderContext().leaves()) {
+      int numSegDocs = segmentSize(docs, ctx);
+      if (numSegDocs == 0) {
+        continue;
+      }
+      boolean wholeSegment = numSegDocs == ctx.reader().numDocs();
+      setNextReader(ctx);
+      if (wholeSegment && allCollectSegments) {
+        count += numSegDocs;
+      } else {
+        DocIdSetIterator segDocs = docs.iterator(ctx);
+        if (segDocs == null) {
+          continue;
+        }
+        for (int doc = segDocs.nextDoc();
+            doc != DocIdSetIterator.NO_MORE_DOCS;
+            doc = segDocs.nextDoc()) {
+          count++;
+          for (SlotAcc acc : accs) {
+            if (!wholeSegment || !(acc instanceof SegmentSlotAcc)) {
+              acc.collect(doc, slot, slotContext);
+            }
+          }
+        }
+      }
+      if (wholeSegment) {
+        for (SlotAcc acc : accs) {
+          if (acc instanceof SegmentSlotAcc segmentAcc) {
+            segmentAcc.collectSegment(ctx, slot);
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * The number of docs of the set in the segment, counted without iterating them, or -1 if the set
+   * doesn't allow it.
+   */
+  private static int segmentSize(DocSet docs, LeafReaderContext ctx) {
+    int from = ctx.docBase;
+    int to = from + ctx.reader().maxDoc();
+    if (from == to) {
+      return 0;
+    }
+    if (docs instanceof BitDocSet) {
+      long[] words = ((BitDocSet) docs).getBits().getBits();
+      int startWord = from >> 6;
+      int endWord = (to - 1) >> 6;
+      // the same masks as FixedBitSet.set(int, int)
+      long startMask = -1L << from;
+      long endMask = -1L >>> -to;
+      if (startWord == endWord) {
+        return Long.bitCount(words[startWord] & startMask & endMask);
+      }
+      int size = Long.bitCount(words[startWord] & startMask);
+      for (int word = startWord + 1; word < endWord; word++) {
+        size += Long.bitCount(words[word]);
+      }
+      return size + Long.bitCount(words[endWord] & endMask);
+    }
+    if (docs instanceof SortedIntDocSet) {
+      int[] sortedDocs = ((SortedIntDocSet) docs).getDocs();
+      return insertionPoint(sortedDocs, to) - insertionPoint(sortedDocs, from);
+    }
+    return -1;
+  }
+
+  private static int insertionPoint(int[] sortedDocs, int doc) {
+    int idx = Arrays.binarySearch(sortedDocs, doc);
+    return idx < 0 ? ~idx : idx;
+  }
+
   void collect(int segDoc, int slot, IntFunction<SlotContext> slotContext) throws IOException {
     if (accs != null) {
       for (SlotAcc acc : accs) {
@@ -461,6 +562,7 @@ public abstract class FacetProcessor<T extends FacetRequest> {
       throws IOException {
 
     boolean emptyDomain = domain == null || domain.size() == 0;
+    Map<String, Long> sweptCounts = sweepQueryCounts(domain, skip, facetInfo);
 
     for (Map.Entry<String, FacetRequest> sub : freq.getSubFacets().entrySet()) {
       FacetRequest subRequest = sub.getValue();
@@ -482,6 +584,14 @@ public abstract class FacetProcessor<T extends FacetRequest> {
       // specified.
       if (skip && facetInfoSub == null) continue;
 
+      Long sweptCount = sweptCounts == null ? null : sweptCounts.get(sub.getKey());
+      if (sweptCount != null) {
+        SimpleOrderedMap<Object> result = new SimpleOrderedMap<>();
+        result.add("count", sweptCount);
+        response.add(sub.getKey(), result);
+        continue;
+      }
+
       // make a new context for each sub-facet since they can change the domain
       FacetContext subContext = fcontext.sub(filter, domain);
       subContext.facetInfo = facetInfoSub;
@@ -503,6 +613,55 @@ public abstract class FacetProcessor<T extends FacetRequest> {
     }
   }
 
+  /**
+   * Counts the plain query sub-facets of the domain together, in a single pass over the domain,
+   * when there are enough of them and the domain is small enough for it to pay off.
+   *
+   * @return the counts by the keys of the sub-facets, or null if they are to be processed one by
+   *     one; the sub-facets that aren't swept have no count
+   */
+  private Map<String, Long> sweepQueryCounts(
+      DocSet domain, boolean skip, Map<String, Object> facetInfo) throws IOException {
+    if (skip || facetInfo != null || domain == null || fcontext.getDebugInfo() != null) {
+      return null;
+    }
+    if (subQuerySweepKeys == null) {
+      subQuerySweepKeys = new ArrayList<>();
+      for (Map.Entry<String, FacetRequest> sub : freq.getSubFacets().entrySet()) {
+        // a query facet with no domain change, stats or sub-facets is just a count
+        if (sub.getValue() instanceof FacetQuery subQuery
+            && subQuery.q != null
+            && subQuery.domain == null
+            && subQuery.getFacetStats().isEmpty()
+            && subQuery.getSubFacets().isEmpty()) {
+          subQuerySweepKeys.add(sub.getKey());
+        }
+      }
+    }
+    if (!SweepQueryCounts.isWorthSweeping(fcontext.searcher, domain, subQuerySweepKeys.size())) {
+      return null;
+    }
+    // the sweep is set up once, then reused for the domains of all the buckets
+    if (subQuerySweep == null) {
+      List<Query> queries = new ArrayList<>(subQuerySweepKeys.size());
+      for (String key : subQuerySweepKeys) {
+        queries.add(((FacetQuery) freq.getSubFacets().get(key)).q);
+      }
+      subQuerySweep = new SweepQueryCounts(fcontext.searcher, queries);
+    }
+    if (subQuerySweep.getNumSwept() < 2) {
+      return null;
+    }
+    int[] counts = subQuerySweep.count(domain);
+    Map<String, Long> countsByKey = new LinkedHashMap<>();
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] >= 0) {
+        countsByKey.put(subQuerySweepKeys.get(i), (long) counts[i]);
+      }
+    }
+    return countsByKey;
+  }
+
   @SuppressWarnings("unused")
   static DocSet getFieldMissing(SolrIndexSearcher searcher, DocSet docs, String fieldName)
       throws IOException {
@@ -30,6 +30,7 @@ public class FacetRange extends FacetRequestSorted {
   Object gap;
   Object ranges;
   boolean hardend = false;
+  boolean rollup = false;
   EnumSet<FacetRangeInclude> include;
   EnumSet<FacetRangeOther> others;
 
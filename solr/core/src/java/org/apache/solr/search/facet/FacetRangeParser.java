@@ -47,6 +47,7 @@ class FacetRangeParser extends FacetParser<FacetRange> {
     facet.end = getVal(m, "end", required);
     facet.gap = getVal(m, "gap", required);
     facet.hardend = getBoolean(m, "hardend", facet.hardend);
+    facet.rollup = getBoolean(m, "rollup", facet.rollup);
     facet.mincount = getLong(m, "mincount", 0);
 
     // TODO: refactor list-of-options code
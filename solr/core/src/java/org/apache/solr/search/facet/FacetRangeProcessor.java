@@ -25,6 +25,7 @@ import java.util.Date;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.NumericUtils;
 import org.apache.solr.common.EnumFieldValue;
@@ -43,6 +44,7 @@ import org.apache.solr.schema.TrieDateField;
 import org.apache.solr.schema.TrieField;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.ExtendedQuery;
+import org.apache.solr.search.SegmentCache;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.WrappedQuery;
 import org.apache.solr.util.DateMathParser;
@@ -526,12 +528,22 @@ class FacetRangeProcessor extends FacetProcessor<FacetRange> {
 
     createAccs(fcontext.base.size(), slotCount);
 
-    for (int idx = 0; idx < rangeList.size(); idx++) {
-      rangeStats(rangeList.get(idx), idx, hasSubFacets);
-    }
+    final List<RangeRollup> rollups = getRollups(hasSubFacets);
+    if (rollups != null) {
+      for (int idx = 0; idx < rangeList.size(); idx++) {
+        rollupCount(rollups, rangeList.get(idx), idx);
+      }
+      for (int idx = 0; idx < otherList.size(); idx++) {
+        rollupCount(rollups, otherList.get(idx), rangeList.size() + idx);
+      }
+    } else {
+      for (int idx = 0; idx < rangeList.size(); idx++) {
+        rangeStats(rangeList.get(idx), idx, hasSubFacets);
+      }
 
-    for (int idx = 0; idx < otherList.size(); idx++) {
-      rangeStats(otherList.get(idx), rangeList.size() + idx, hasSubFacets);
+      for (int idx = 0; idx < otherList.size(); idx++) {
+        rangeStats(otherList.get(idx), rangeList.size() + idx, hasSubFacets);
+      }
     }
 
     final SimpleOrderedMap res = new SimpleOrderedMap<>();
@@ -608,6 +620,55 @@ class FacetRangeProcessor extends FacetProcessor<FacetRange> {
     countAcc.incrementCount(slot, num); // TODO: roll this into collect()
   }
 
+  /**
+   * Returns the rollups of the segments for the field if a rollup was requested, the counts are all
+   * that's needed, and the domain is all the docs; otherwise null, and the ranges are queried.
+   */
+  private List<RangeRollup> getRollups(boolean hasSubFacets) throws IOException {
+    if (!freq.rollup || hasSubFacets || !freq.getFacetStats().isEmpty()) {
+      return null;
+    }
+    final FieldType ft = sf.getType();
+    if (!(ft instanceof TrieField || ft.isPointField())
+        || !sf.hasDocValues()
+        || sf.multiValued()
+        || !(calc instanceof IntCalc || calc instanceof LongCalc || calc instanceof DateCalc)) {
+      return null;
+    }
+    if (fcontext.base.size() != fcontext.searcher.getIndexReader().numDocs()) {
+      return null;
+    }
+    final List<LeafReaderContext> leaves = fcontext.searcher.getTopReaderContext().leaves();
+    final List<RangeRollup> rollups = new ArrayList<>(leaves.size());
+    for (LeafReaderContext leaf : leaves) {
+      rollups.add(
+          SegmentCache.DEFAULT.get(
+              leaf.reader().getReaderCacheHelper(),
+              RangeRollup.class,
+              sf.getName(),
+              () -> RangeRollup.build(leaf.reader(), sf.getName())));
+    }
+    return rollups;
+  }
+
+  private void rollupCount(List<RangeRollup> rollups, Range range, int slot) {
+    final Long low = toRollupValue(range.low);
+    final Long high = toRollupValue(range.high);
+    long num = 0;
+    for (RangeRollup rollup : rollups) {
+      num += rollup.count(low, range.includeLower, high, range.includeUpper);
+    }
+    countAcc.incrementCount(slot, num);
+  }
+
+  @SuppressWarnings({"rawtypes"})
+  private static Long toRollupValue(Comparable value) {
+    if (value == null) {
+      return null;
+    }
+    return value instanceof Date date ? date.getTime() : ((Number) value).longValue();
+  }
+
   @SuppressWarnings({"unchecked", "rawtypes"})
   private void doSubs(SimpleOrderedMap bucket, int slot) throws IOException {
     // handle sub-facets for this bucket
@@ -31,6 +31,7 @@ import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.JoinQParserPlugin;
+import org.apache.solr.search.MemoryAccounting;
 import org.apache.solr.search.QueryContext;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.WrappedQuery;
@@ -459,6 +460,16 @@ public abstract class FacetRequest {
 
   /** Process the request with the facet context settings, a parameter-object. */
   final Object process(FacetContext fcontext) throws IOException {
+    // the accumulators of the processor are dropped once it is done
+    MemoryAccounting.Scope scope = MemoryAccounting.current().openScope();
+    try {
+      return doProcess(fcontext);
+    } finally {
+      scope.close();
+    }
+  }
+
+  private Object doProcess(FacetContext fcontext) throws IOException {
     FacetProcessor<?> facetProcessor = createFacetProcessor(fcontext);
 
     FacetDebugInfo debugInfo = fcontext.getDebugInfo();
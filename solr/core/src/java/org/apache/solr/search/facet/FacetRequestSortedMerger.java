@@ -275,6 +275,11 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
       boolean saw = !thisMissing && mcontext.getShardFlag(bucket.bucketNumber);
       if (!saw && !returnedAllBuckets) {
         // we didn't see the bucket for this shard, and it's possible that the shard has it
+        if (!thisMissing && completeWithoutRefinement(bucket, mcontext)) {
+          // ...but the shard told enough about it in its response
+          continue;
+        }
+
         Map<String, Object> bucketRefinement = null;
 
         // find facets that we need to fill in buckets for
@@ -322,6 +327,14 @@ abstract class FacetRequestSortedMerger<FacetRequestT extends FacetRequestSorted
     return refinement;
   }
 
+  /**
+   * Completes a bucket the current shard didn't return from what else the shard returned, if it
+   * can, so that the bucket doesn't need refining. Returns true if it did.
+   */
+  boolean completeWithoutRefinement(FacetBucket bucket, Context mcontext) {
+    return false;
+  }
+
   // utility method for subclasses to override to finish calculating faceting (special buckets in
   // field facets)... this feels hacky and we should find a better way.
   Map<String, Object> getRefinementSpecial(
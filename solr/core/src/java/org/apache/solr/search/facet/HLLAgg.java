@@ -18,12 +18,17 @@ package org.apache.solr.search.facet;
 
 import java.io.IOException;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
 import org.apache.solr.common.util.Hash;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SegmentCache;
+import org.apache.solr.search.facet.SlotAcc.SegmentSlotAcc;
 import org.apache.solr.util.hll.HLL;
 import org.apache.solr.util.hll.HLLType;
 
@@ -37,6 +42,14 @@ public class HLLAgg extends StrAggValueSource {
     factory = new HLLFactory();
   }
 
+  /**
+   * Serializes the HLL of a shard response, in the compact format only when the coordinator can
+   * read it.
+   */
+  static byte[] toShardBytes(FacetContext fcontext, HLL hll) {
+    return fcontext.useCompactSketches() ? hll.toCompactBytes() : hll.toBytes();
+  }
+
   // factory for the hyper-log-log algorithm.
   // TODO: make stats component HllOptions inherit from this?
   public static class HLLFactory {
@@ -126,7 +139,7 @@ public class HLLAgg extends StrAggValueSource {
   // TODO: hybrid model for non-distrib numbers?
   // todo - better efficiency for sorting?
 
-  abstract class BaseNumericAcc extends DocValuesAcc {
+  abstract class BaseNumericAcc extends DocValuesAcc implements SegmentSlotAcc {
     HLL[] sets;
 
     public BaseNumericAcc(FacetContext fcontext, String field, int numSlots) throws IOException {
@@ -146,14 +159,55 @@ public class HLLAgg extends StrAggValueSource {
 
     @Override
     protected void collectValues(int doc, int slot) throws IOException {
+      collectValues(doc, getHLL(slot));
+    }
+
+    protected abstract void collectValues(int doc, HLL hll) throws IOException;
+
+    private HLL getHLL(int slot) {
       HLL hll = sets[slot];
       if (hll == null) {
         hll = sets[slot] = factory.getHLL();
       }
-      collectValues(doc, hll);
+      return hll;
     }
 
-    protected abstract void collectValues(int doc, HLL hll) throws IOException;
+    /**
+     * The sketch of the values of a whole segment is cached, so that requests over the same
+     * segments, such as those of older docs when the docs are those of a recent period, only read
+     * the values of the docs of the segments that are new or partly in the domain.
+     */
+    @Override
+    public void collectSegment(LeafReaderContext readerContext, int slot) throws IOException {
+      String key = sf.getName() + '/' + factory.log2m + '/' + factory.regwidth;
+      LeafReader reader = readerContext.reader();
+      HLL segmentHLL =
+          SegmentCache.DEFAULT.get(
+              reader.getReaderCacheHelper(), HLL.class, key, () -> computeSegmentHLL(reader));
+      if (segmentHLL.getType() != HLLType.EMPTY) {
+        getHLL(slot).union(segmentHLL);
+      }
+    }
+
+    /** Computes the sketch of the values of the live docs of the segment. */
+    private HLL computeSegmentHLL(LeafReader reader) throws IOException {
+      HLL hll = factory.getHLL();
+      DocIdSetIterator docs = segmentValues(reader);
+      Bits liveDocs = reader.getLiveDocs();
+      for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+        if (liveDocs == null || liveDocs.get(doc)) {
+          collectSegmentValues(docs, hll);
+        }
+      }
+      return hll;
+    }
+
+    /** The values of the field in the segment, independent of the values being collected. */
+    protected abstract DocIdSetIterator segmentValues(LeafReader reader) throws IOException;
+
+    /** Adds the values of the current doc of the segment values to the sketch. */
+    protected abstract void collectSegmentValues(DocIdSetIterator segmentValues, HLL hll)
+        throws IOException;
 
     @Override
     public Object getValue(int slot) throws IOException {
@@ -172,7 +226,7 @@ public class HLLAgg extends StrAggValueSource {
       HLL hll = sets[slot];
       if (hll == null) return NO_VALUES;
       SimpleOrderedMap<Object> map = new SimpleOrderedMap<>();
-      map.add("hll", hll.toBytes());
+      map.add("hll", toShardBytes(fcontext, hll));
       // optionally use explicit values
       return map;
     }
@@ -207,6 +261,17 @@ public class HLLAgg extends StrAggValueSource {
       long hash = Hash.fmix64(val);
       hll.addRaw(hash);
     }
+
+    @Override
+    protected DocIdSetIterator segmentValues(LeafReader reader) throws IOException {
+      return DocValues.getNumeric(reader, sf.getName());
+    }
+
+    @Override
+    protected void collectSegmentValues(DocIdSetIterator segmentValues, HLL hll)
+        throws IOException {
+      hll.addRaw(Hash.fmix64(((NumericDocValues) segmentValues).longValue()));
+    }
   }
 
   class SortedNumericAcc extends BaseNumericAcc {
@@ -236,5 +301,19 @@ public class HLLAgg extends StrAggValueSource {
         hll.addRaw(hash);
       }
     }
+
+    @Override
+    protected DocIdSetIterator segmentValues(LeafReader reader) throws IOException {
+      return DocValues.getSortedNumeric(reader, sf.getName());
+    }
+
+    @Override
+    protected void collectSegmentValues(DocIdSetIterator segmentValues, HLL hll)
+        throws IOException {
+      SortedNumericDocValues docValues = (SortedNumericDocValues) segmentValues;
+      for (int i = 0, count = docValues.docValueCount(); i < count; i++) {
+        hll.addRaw(Hash.fmix64(docValues.nextValue()));
+      }
+    }
   }
 }
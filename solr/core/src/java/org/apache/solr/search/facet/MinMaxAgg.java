@@ -91,22 +91,31 @@ public class MinMaxAgg extends SimpleAggValueSource {
       return new SingleValuedOrdAcc(fcontext, sf, numSlots);
     }
 
+    boolean sparse = SlotAcc.useSparseSlots(numDocs, numSlots);
     // Since functions don't currently have types, we rely on the type of the field
     if (sf != null && sf.getType().getNumberType() != null) {
       switch (sf.getType().getNumberType()) {
         case FLOAT:
         case DOUBLE:
-          return new DFuncAcc(vs, fcontext, numSlots);
+          return sparse
+              ? new SparseDFuncAcc(vs, fcontext, numSlots)
+              : new DFuncAcc(vs, fcontext, numSlots);
         case INTEGER:
         case LONG:
-          return new LFuncAcc(vs, fcontext, numSlots);
+          return sparse
+              ? new SparseLFuncAcc(vs, fcontext, numSlots)
+              : new LFuncAcc(vs, fcontext, numSlots);
         case DATE:
-          return new DateFuncAcc(vs, fcontext, numSlots);
+          return sparse
+              ? new SparseDateFuncAcc(vs, fcontext, numSlots)
+              : new DateFuncAcc(vs, fcontext, numSlots);
       }
     }
 
     // numeric functions
-    return new DFuncAcc(vs, fcontext, numSlots);
+    return sparse
+        ? new SparseDFuncAcc(vs, fcontext, numSlots)
+        : new DFuncAcc(vs, fcontext, numSlots);
   }
 
   @Override
@@ -368,6 +377,86 @@ public class MinMaxAgg extends SimpleAggValueSource {
     }
   }
 
+  class SparseDFuncAcc extends SlotAcc.SparseDoubleFuncSlotAcc {
+    public SparseDFuncAcc(ValueSource values, FacetContext fcontext, int numSlots) {
+      super(values, fcontext, numSlots, Double.NaN);
+    }
+
+    @Override
+    public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      double val = values.doubleVal(doc);
+      if (val == 0 && !values.exists(doc))
+        return; // depend on fact that non existing values return 0 for func query
+
+      int index = add(slotNum);
+      double currVal = result[index];
+      if (Double.compare(val, currVal) * minmax < 0 || Double.isNaN(currVal)) {
+        result[index] = val;
+      }
+    }
+
+    @Override
+    public Object getValue(int slot) {
+      double val = get(slot);
+      if (Double.isNaN(val)) {
+        return null;
+      } else {
+        return val;
+      }
+    }
+  }
+
+  /** The slots that weren't hit have no value, they sort before the others. */
+  class SparseLFuncAcc extends SlotAcc.SparseLongFuncSlotAcc {
+    public SparseLFuncAcc(ValueSource values, FacetContext fcontext, int numSlots) {
+      super(values, fcontext, numSlots, 0);
+    }
+
+    @Override
+    public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      long val = values.longVal(doc);
+      if (val == 0 && !values.exists(doc))
+        return; // depend on fact that non existing values return 0 for func query
+
+      int size = slots.size();
+      int index = add(slotNum);
+      if (index == size || Long.compare(val, result[index]) * minmax < 0) {
+        result[index] = val;
+      }
+    }
+
+    @Override
+    public Object getValue(int slot) {
+      int index = slots.index(slot);
+      return index < 0 ? null : result[index];
+    }
+
+    @Override
+    public int compare(int slotA, int slotB) {
+      int indexA = slots.index(slotA);
+      int indexB = slots.index(slotB);
+      if (indexA < 0 || indexB < 0) {
+        // TODO: we need context to be able to sort missing last! SOLR-10618
+        return Boolean.compare(indexA >= 0, indexB >= 0);
+      }
+      return Long.compare(result[indexA], result[indexB]);
+    }
+  }
+
+  class SparseDateFuncAcc extends SparseLFuncAcc {
+    public SparseDateFuncAcc(ValueSource values, FacetContext fcontext, int numSlots) {
+      super(values, fcontext, numSlots);
+    }
+
+    @Override
+    public Object getValue(int slot) {
+      int index = slots.index(slot);
+      return index < 0 ? null : new Date(result[index]);
+    }
+  }
+
   abstract static class OrdAcc extends SlotAcc {
     static final int MISSING = -1;
     SchemaField field;
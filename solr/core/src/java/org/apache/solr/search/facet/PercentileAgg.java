@@ -19,9 +19,7 @@ package org.apache.solr.search.facet;
 import com.tdunning.math.stats.AVLTreeDigest;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.function.IntFunction;
@@ -41,10 +39,20 @@ import org.apache.solr.search.function.FieldNameValueSource;
 
 public class PercentileAgg extends SimpleAggValueSource {
   List<Double> percentiles;
+  final double compression;
 
   public PercentileAgg(ValueSource vs, List<Double> percentiles) {
+    this(vs, percentiles, PercentileDigests.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param compression the compression of the t-digests; the higher, the more accurate the
+   *     percentiles, and the more memory is used
+   */
+  public PercentileAgg(ValueSource vs, List<Double> percentiles, double compression) {
     super("percentile", vs);
     this.percentiles = percentiles;
+    this.compression = compression;
   }
 
   @Override
@@ -87,12 +95,14 @@ public class PercentileAgg extends SimpleAggValueSource {
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof PercentileAgg other)) return false;
-    return this.arg.equals(other.arg) && this.percentiles.equals(other.percentiles);
+    return this.arg.equals(other.arg)
+        && this.percentiles.equals(other.percentiles)
+        && this.compression == other.compression;
   }
 
   @Override
   public int hashCode() {
-    return super.hashCode() * 31 + percentiles.hashCode();
+    return (super.hashCode() * 31 + percentiles.hashCode()) * 31 + Double.hashCode(compression);
   }
 
   public static class Parser extends ValueSourceParser {
@@ -113,7 +123,15 @@ public class PercentileAgg extends SimpleAggValueSource {
             "expected percentile(valsource,percent1[,percent2]*)  EXAMPLE:percentile(myfield,50)");
       }
 
-      return new PercentileAgg(vs, percentiles);
+      double compression = PercentileDigests.DEFAULT_COMPRESSION;
+      if (fp.getLocalParams() != null) {
+        compression = fp.getLocalParams().getDouble("compression", compression);
+        if (!(compression >= 1)) {
+          throw new SyntaxError("percentile compression must be at least 1.  got " + compression);
+        }
+      }
+
+      return new PercentileAgg(vs, percentiles, compression);
     }
   }
 
@@ -135,13 +153,12 @@ public class PercentileAgg extends SimpleAggValueSource {
   }
 
   class Acc extends SlotAcc.FuncSlotAcc {
-    protected AVLTreeDigest[] digests;
-    protected ByteBuffer buf;
+    protected PercentileDigests digests;
     protected double[] sortvals;
 
     public Acc(ValueSource values, FacetContext fcontext, int numSlots) {
       super(values, fcontext, numSlots);
-      digests = new AVLTreeDigest[numSlots];
+      digests = new PercentileDigests(compression, numSlots);
     }
 
     @Override
@@ -149,13 +166,7 @@ public class PercentileAgg extends SimpleAggValueSource {
         throws IOException {
       if (!values.exists(doc)) return;
       double val = values.doubleVal(doc);
-
-      AVLTreeDigest digest = digests[slotNum];
-      if (digest == null) {
-        digests[slotNum] = digest = new AVLTreeDigest(100); // TODO: make compression configurable
-      }
-
-      digest.add(val);
+      digests.add(slotNum, val);
     }
 
     @Override
@@ -167,10 +178,10 @@ public class PercentileAgg extends SimpleAggValueSource {
     }
 
     private void fillSortVals() {
-      sortvals = new double[digests.length];
+      sortvals = new double[digests.size()];
       double sortp = percentiles.get(0) * 0.01;
-      for (int i = 0; i < digests.length; i++) {
-        AVLTreeDigest digest = digests[i];
+      for (int i = 0; i < sortvals.length; i++) {
+        AVLTreeDigest digest = digests.getDigest(i);
         if (digest == null) {
           sortvals[i] = Double.NEGATIVE_INFINITY;
         } else {
@@ -186,48 +197,36 @@ public class PercentileAgg extends SimpleAggValueSource {
       }
       if (sortvals != null && percentiles.size() == 1) {
         // we've already calculated everything we need
-        return digests[slotNum] != null ? sortvals[slotNum] : null;
+        return digests.exists(slotNum) ? sortvals[slotNum] : null;
       }
-      return getValueFromDigest(digests[slotNum]);
+      return getValueFromDigest(digests.getDigest(slotNum));
     }
 
     public Object getShardValue(int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) return null; // no values for this slot
-
-      digest.compress();
-      int sz = digest.byteSize();
-      if (buf == null || buf.capacity() < sz) {
-        buf = ByteBuffer.allocate(sz + (sz >> 1)); // oversize by 50%
-      } else {
-        buf.clear();
-      }
-      digest.asSmallBytes(buf);
-      byte[] arr = Arrays.copyOf(buf.array(), buf.position());
-      return arr;
+      // null if no values for this slot
+      return digests.toBytes(slot, fcontext.useCompactSketches());
     }
 
     @Override
     public void reset() {
-      digests = new AVLTreeDigest[digests.length];
+      digests.reset();
       sortvals = null;
     }
 
     @Override
     public void resize(Resizer resizer) {
-      digests = resizer.resize(digests, null);
+      digests.resize(resizer);
     }
   }
 
   abstract class BasePercentileDVAcc extends DocValuesAcc {
-    AVLTreeDigest[] digests;
-    protected ByteBuffer buf;
+    PercentileDigests digests;
     double[] sortvals;
 
     public BasePercentileDVAcc(FacetContext fcontext, SchemaField sf, int numSlots)
         throws IOException {
       super(fcontext, sf);
-      digests = new AVLTreeDigest[numSlots];
+      digests = new PercentileDigests(compression, numSlots);
     }
 
     @Override
@@ -239,10 +238,10 @@ public class PercentileAgg extends SimpleAggValueSource {
     }
 
     private void fillSortVals() {
-      sortvals = new double[digests.length];
+      sortvals = new double[digests.size()];
       double sortp = percentiles.get(0) * 0.01;
-      for (int i = 0; i < digests.length; i++) {
-        AVLTreeDigest digest = digests[i];
+      for (int i = 0; i < sortvals.length; i++) {
+        AVLTreeDigest digest = digests.getDigest(i);
         if (digest == null) {
           sortvals[i] = Double.NEGATIVE_INFINITY;
         } else {
@@ -258,36 +257,25 @@ public class PercentileAgg extends SimpleAggValueSource {
       }
       if (sortvals != null && percentiles.size() == 1) {
         // we've already calculated everything we need
-        return digests[slotNum] != null ? sortvals[slotNum] : null;
+        return digests.exists(slotNum) ? sortvals[slotNum] : null;
       }
-      return getValueFromDigest(digests[slotNum]);
+      return getValueFromDigest(digests.getDigest(slotNum));
     }
 
     public Object getShardValue(int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) return null; // no values for this slot
-
-      digest.compress();
-      int sz = digest.byteSize();
-      if (buf == null || buf.capacity() < sz) {
-        buf = ByteBuffer.allocate(sz + (sz >> 1)); // oversize by 50%
-      } else {
-        buf.clear();
-      }
-      digest.asSmallBytes(buf);
-      byte[] arr = Arrays.copyOf(buf.array(), buf.position());
-      return arr;
+      // null if no values for this slot
+      return digests.toBytes(slot, fcontext.useCompactSketches());
     }
 
     @Override
     public void reset() {
-      digests = new AVLTreeDigest[digests.length];
+      digests.reset();
       sortvals = null;
     }
 
     @Override
     public void resize(Resizer resizer) {
-      digests = resizer.resize(digests, null);
+      digests.resize(resizer);
     }
   }
 
@@ -301,13 +289,9 @@ public class PercentileAgg extends SimpleAggValueSource {
 
     @Override
     protected void collectValues(int doc, int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) {
-        digests[slot] = digest = new AVLTreeDigest(100);
-      }
       for (int i = 0, count = values.docValueCount(); i < count; i++) {
         double val = getDouble(values.nextValue());
-        digest.add(val);
+        digests.add(slot, val);
       }
     }
 
@@ -350,16 +334,12 @@ public class PercentileAgg extends SimpleAggValueSource {
 
     @Override
     protected void collectValues(int doc, int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) {
-        digests[slot] = digest = new AVLTreeDigest(100);
-      }
       long ord;
       while ((ord = values.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
         BytesRef term = values.lookupOrd(ord);
         Object obj = sf.getType().toObject(sf, term);
         double val = obj instanceof Date ? ((Date) obj).getTime() : ((Number) obj).doubleValue();
-        digest.add(val);
+        digests.add(slot, val);
       }
     }
 
@@ -376,15 +356,14 @@ public class PercentileAgg extends SimpleAggValueSource {
   }
 
   class PercentileUnInvertedFieldAcc extends UnInvertedFieldAcc {
-    protected AVLTreeDigest[] digests;
-    protected ByteBuffer buf;
+    protected PercentileDigests digests;
     protected double[] sortvals;
     private int currentSlot;
 
     public PercentileUnInvertedFieldAcc(FacetContext fcontext, SchemaField sf, int numSlots)
         throws IOException {
       super(fcontext, sf, numSlots);
-      digests = new AVLTreeDigest[numSlots];
+      digests = new PercentileDigests(compression, numSlots);
     }
 
     @Override
@@ -404,10 +383,10 @@ public class PercentileAgg extends SimpleAggValueSource {
     }
 
     private void fillSortVals() {
-      sortvals = new double[digests.length];
+      sortvals = new double[digests.size()];
       double sortp = percentiles.get(0) * 0.01;
-      for (int i = 0; i < digests.length; i++) {
-        AVLTreeDigest digest = digests[i];
+      for (int i = 0; i < sortvals.length; i++) {
+        AVLTreeDigest digest = digests.getDigest(i);
         if (digest == null) {
           sortvals[i] = Double.NEGATIVE_INFINITY;
         } else {
@@ -423,49 +402,34 @@ public class PercentileAgg extends SimpleAggValueSource {
       }
       if (sortvals != null && percentiles.size() == 1) {
         // we've already calculated everything we need
-        return digests[slotNum] != null ? sortvals[slotNum] : null;
+        return digests.exists(slotNum) ? sortvals[slotNum] : null;
       }
-      return getValueFromDigest(digests[slotNum]);
+      return getValueFromDigest(digests.getDigest(slotNum));
     }
 
     public Object getShardValue(int slot) throws IOException {
-      AVLTreeDigest digest = digests[slot];
-      if (digest == null) return null;
-
-      digest.compress();
-      int sz = digest.byteSize();
-      if (buf == null || buf.capacity() < sz) {
-        buf = ByteBuffer.allocate(sz + (sz >> 1)); // oversize by 50%
-      } else {
-        buf.clear();
-      }
-      digest.asSmallBytes(buf);
-      byte[] arr = Arrays.copyOf(buf.array(), buf.position());
-      return arr;
+      // null if no values for this slot
+      return digests.toBytes(slot, fcontext.useCompactSketches());
     }
 
     @Override
     public void reset() {
-      digests = new AVLTreeDigest[digests.length];
+      digests.reset();
       sortvals = null;
     }
 
     @Override
     public void resize(Resizer resizer) {
-      digests = resizer.resize(digests, null);
+      digests.resize(resizer);
     }
 
     @Override
     public void call(int ord) {
-      AVLTreeDigest digest = digests[currentSlot];
-      if (digest == null) {
-        digests[currentSlot] = digest = new AVLTreeDigest(100);
-      }
       try {
         BytesRef term = docToTerm.lookupOrd(ord);
         Object obj = sf.getType().toObject(sf, term);
         double val = obj instanceof Date ? ((Date) obj).getTime() : ((Number) obj).doubleValue();
-        digest.add(val);
+        digests.add(currentSlot, val);
       } catch (IOException e) {
         throw new UncheckedIOException(e);
       }
@@ -473,25 +437,20 @@ public class PercentileAgg extends SimpleAggValueSource {
   }
 
   class Merger extends FacetModule.FacetSortableMerger {
-    protected AVLTreeDigest digest;
+    protected final PercentileDigests digests = new PercentileDigests(compression, 1);
     protected Double sortVal;
 
     @Override
     public void merge(Object facetResult, Context mcontext) {
       byte[] arr = (byte[]) facetResult;
       if (arr == null) return; // an explicit null can mean no values in the field
-      AVLTreeDigest subDigest = AVLTreeDigest.fromBytes(ByteBuffer.wrap(arr));
-      if (digest == null) {
-        digest = subDigest;
-      } else {
-        digest.add(subDigest);
-      }
+      digests.merge(0, arr);
     }
 
     @Override
     public Object getMergedResult() {
-      if (percentiles.size() == 1 && digest != null) return getSortVal();
-      return getValueFromDigest(digest);
+      if (percentiles.size() == 1 && digests.exists(0)) return getSortVal();
+      return getValueFromDigest(getDigest());
     }
 
     @Override
@@ -502,10 +461,16 @@ public class PercentileAgg extends SimpleAggValueSource {
 
     private Double getSortVal() {
       if (sortVal == null) {
+        AVLTreeDigest merged = getDigest();
         sortVal =
-            digest == null ? Double.NEGATIVE_INFINITY : digest.quantile(percentiles.get(0) * 0.01);
+            merged == null ? Double.NEGATIVE_INFINITY : merged.quantile(percentiles.get(0) * 0.01);
       }
       return sortVal;
     }
+
+    /** The digest of the merged shard digests, built once they're all merged */
+    private AVLTreeDigest getDigest() {
+      return digests.getDigest(0);
+    }
   }
 }
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import com.tdunning.math.stats.AVLTreeDigest;
+import com.tdunning.math.stats.Centroid;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.InPlaceMergeSorter;
+
+/**
+ * The t-digests of the slots of a percentile accumulator, each held in a primitive array.
+ *
+ * <p>The array of a slot is allocated when the first value of the slot is added, so slots without
+ * values cost no more than a null reference. It holds the (mean, weight) pairs of the centroids of
+ * the digest, followed by the values added since, each a centroid of weight 1. It starts small and
+ * grows up to a capacity depending on the compression. Once full, the centroids are sorted and the
+ * adjacent ones merged, as in the merging t-digest, in place.
+ *
+ * <p>The quantiles of a slot are computed by an {@link AVLTreeDigest} built from its centroids, so
+ * that a slot with few values, whose values are all centroids, gets the same quantiles as if its
+ * values had been added to an {@link AVLTreeDigest} as they were collected. The digest of a slot
+ * is kept until a value is added to the slot, since sorting by a percentile and then returning the
+ * percentiles of the top slots needs it twice.
+ */
+class PercentileDigests {
+  /** The compression of the digests when none is requested. */
+  static final double DEFAULT_COMPRESSION = 100;
+
+  // AVLTreeDigest encodings start with a big endian int code, whose first byte is 0
+  private static final byte COMPACT_ENCODING = 3;
+  private static final int INITIAL_CAPACITY = 4;
+
+  private final double compression;
+  // the number of centroids a slot holds before they are merged
+  private final int maxCentroids;
+  // per slot, the means and weights of the centroids, interleaved; null if the slot has no values
+  private double[][] centroids;
+  // per slot, the number of centroids
+  private int[] sizes;
+  // per slot, the digest built to compute the quantiles, or null if not built since the last value
+  private AVLTreeDigest[] digests;
+
+  PercentileDigests(double compression, int numSlots) {
+    this.compression = compression;
+    // a digest has fewer than about pi / 2 * compression centroids once merged
+    this.maxCentroids = (int) Math.ceil(5 * compression);
+    this.centroids = new double[numSlots][];
+    this.sizes = new int[numSlots];
+  }
+
+  /** Adds a value to the digest of the slot. */
+  void add(int slot, double value) {
+    add(slot, value, 1);
+  }
+
+  private void add(int slot, double mean, double weight) {
+    if (digests != null) {
+      digests[slot] = null;
+    }
+    double[] slotCentroids = centroids[slot];
+    int size = sizes[slot];
+    if (slotCentroids == null) {
+      centroids[slot] = slotCentroids = new double[INITIAL_CAPACITY * 2];
+    } else if (size * 2 == slotCentroids.length) {
+      if (size >= maxCentroids) {
+        sizes[slot] = size = compress(slotCentroids, size);
+      }
+      if (size * 2 == slotCentroids.length) {
+        // grows by half, up to the capacity unless merging didn't free any room
+        int newSize = size + (size >> 1) + 1;
+        if (size < maxCentroids) {
+          newSize = Math.min(newSize, maxCentroids);
+        }
+        centroids[slot] = slotCentroids = ArrayUtil.growExact(slotCentroids, newSize * 2);
+      }
+    }
+    slotCentroids[size * 2] = mean;
+    slotCentroids[size * 2 + 1] = weight;
+    sizes[slot] = size + 1;
+  }
+
+  /**
+   * Sorts the centroids by mean, then merges the adjacent centroids while the merged centroid is
+   * small enough for its quantile, in place.
+   *
+   * @return the number of centroids after merging
+   */
+  private int compress(double[] slotCentroids, int size) {
+    new InPlaceMergeSorter() {
+      @Override
+      protected int compare(int i, int j) {
+        return Double.compare(slotCentroids[i * 2], slotCentroids[j * 2]);
+      }
+
+      @Override
+      protected void swap(int i, int j) {
+        for (int k = 0; k < 2; k++) {
+          double tmp = slotCentroids[i * 2 + k];
+          slotCentroids[i * 2 + k] = slotCentroids[j * 2 + k];
+          slotCentroids[j * 2 + k] = tmp;
+        }
+      }
+    }.sort(0, size);
+
+    double totalWeight = 0;
+    for (int i = 0; i < size; i++) {
+      totalWeight += slotCentroids[i * 2 + 1];
+    }
+    int merged = 0;
+    double weightSoFar = 0;
+    double mean = slotCentroids[0];
+    double weight = slotCentroids[1];
+    for (int i = 1; i < size; i++) {
+      double nextMean = slotCentroids[i * 2];
+      double nextWeight = slotCentroids[i * 2 + 1];
+      double q = (weightSoFar + (weight + nextWeight) / 2) / totalWeight;
+      if (weight + nextWeight <= 4 * totalWeight * q * (1 - q) / compression) {
+        weight += nextWeight;
+        mean += (nextMean - mean) * nextWeight / weight;
+      } else {
+        slotCentroids[merged * 2] = mean;
+        slotCentroids[merged * 2 + 1] = weight;
+        merged++;
+        weightSoFar += weight;
+        mean = nextMean;
+        weight = nextWeight;
+      }
+    }
+    slotCentroids[merged * 2] = mean;
+    slotCentroids[merged * 2 + 1] = weight;
+    return merged + 1;
+  }
+
+  /** Whether the slot has values. */
+  boolean exists(int slot) {
+    return centroids[slot] != null;
+  }
+
+  /**
+   * The digest of the slot to compute its quantiles, or null if the slot has no values. It is built
+   * once until a value is added to the slot, and must not be modified.
+   */
+  AVLTreeDigest getDigest(int slot) {
+    if (centroids[slot] == null) {
+      return null;
+    }
+    if (digests == null) {
+      digests = new AVLTreeDigest[centroids.length];
+    }
+    AVLTreeDigest digest = digests[slot];
+    if (digest == null) {
+      digests[slot] = digest = buildDigest(slot);
+    }
+    return digest;
+  }
+
+  private AVLTreeDigest buildDigest(int slot) {
+    double[] slotCentroids = centroids[slot];
+    AVLTreeDigest digest = new AVLTreeDigest(compression);
+    for (int i = 0; i < sizes[slot]; i++) {
+      digest.add(slotCentroids[i * 2], (int) slotCentroids[i * 2 + 1]);
+    }
+    return digest;
+  }
+
+  /**
+   * Encodes the digest of the slot for a shard response, or returns null if the slot has no
+   * values. Unless compact, the digest is encoded by {@link AVLTreeDigest#asSmallBytes}, which all
+   * versions can read. Otherwise each centroid is encoded as its weight, then its mean, as a float
+   * when that's exact.
+   *
+   * @see org.apache.solr.common.params.ShardParams#SHARDS_COMPACT_SKETCHES
+   */
+  byte[] toBytes(int slot, boolean compact) {
+    double[] slotCentroids = centroids[slot];
+    if (slotCentroids == null) {
+      return null;
+    }
+    int size = sizes[slot];
+    if (size > maxCentroids / 2) {
+      sizes[slot] = size = compress(slotCentroids, size);
+    }
+    if (!compact) {
+      // the centroids are already merged, so the digest needs no compression
+      AVLTreeDigest digest = buildDigest(slot);
+      ByteBuffer buf = ByteBuffer.allocate(digest.byteSize()); // upper bound
+      digest.asSmallBytes(buf);
+      return Arrays.copyOf(buf.array(), buf.position());
+    }
+    // at most 10 bytes for the weight and 8 for the mean of each centroid
+    ByteBuffer buf = ByteBuffer.allocate(1 + 5 + size * 18);
+    buf.put(COMPACT_ENCODING);
+    writeVLong(buf, size);
+    for (int i = 0; i < size; i++) {
+      double mean = slotCentroids[i * 2];
+      long weight = (long) slotCentroids[i * 2 + 1];
+      float floatMean = (float) mean;
+      if (floatMean == mean) {
+        writeVLong(buf, weight << 1 | 1);
+        buf.putFloat(floatMean);
+      } else {
+        writeVLong(buf, weight << 1);
+        buf.putDouble(mean);
+      }
+    }
+    return Arrays.copyOf(buf.array(), buf.position());
+  }
+
+  /**
+   * Adds the centroids of an encoded digest to the digest of the slot. The digest may have been
+   * encoded by {@link #toBytes} or by {@link AVLTreeDigest#asSmallBytes}, as older versions did.
+   */
+  void merge(int slot, byte[] bytes) {
+    if (bytes[0] != COMPACT_ENCODING) {
+      for (Centroid centroid : AVLTreeDigest.fromBytes(ByteBuffer.wrap(bytes)).centroids()) {
+        add(slot, centroid.mean(), centroid.count());
+      }
+      return;
+    }
+    ByteBuffer buf = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+    int size = (int) readVLong(buf);
+    for (int i = 0; i < size; i++) {
+      long weightAndFlag = readVLong(buf);
+      double mean = (weightAndFlag & 1) != 0 ? buf.getFloat() : buf.getDouble();
+      add(slot, mean, weightAndFlag >>> 1);
+    }
+  }
+
+  private static void writeVLong(ByteBuffer buf, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buf.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buf.put((byte) value);
+  }
+
+  private static long readVLong(ByteBuffer buf) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = buf.get();
+      value |= (b & 0x7FL) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  void reset() {
+    centroids = new double[centroids.length][];
+    sizes = new int[sizes.length];
+    digests = null;
+  }
+
+  void resize(SlotAcc.Resizer resizer) {
+    centroids = resizer.resize(centroids, null);
+    sizes = resizer.resize(sizes, 0);
+    if (digests != null) {
+      digests = resizer.resize(digests, null);
+    }
+  }
+
+  int size() {
+    return sizes.length;
+  }
+}
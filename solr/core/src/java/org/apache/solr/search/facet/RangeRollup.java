@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * The distinct values of a single valued numeric docValues field in a segment, each with the number
+ * of live docs having up to that value, so that the count of any range of values in the segment
+ * takes two binary searches instead of a pass over the docs.
+ *
+ * <p>The memory it takes grows with the number of distinct values, so it suits fields indexed at a
+ * coarse granularity, like timestamps truncated to the minute, with many docs per value.
+ */
+class RangeRollup implements Accountable {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(RangeRollup.class);
+
+  private static final RangeRollup EMPTY = new RangeRollup(new long[0], new int[0]);
+
+  // sorted
+  private final long[] values;
+  // per value, the number of live docs with a value lower or equal to it
+  private final int[] counts;
+
+  private RangeRollup(long[] values, int[] counts) {
+    this.values = values;
+    this.counts = counts;
+  }
+
+  static RangeRollup build(LeafReader reader, String field) throws IOException {
+    NumericDocValues docValues = reader.getNumericDocValues(field);
+    if (docValues == null) {
+      return EMPTY;
+    }
+    Bits liveDocs = reader.getLiveDocs();
+    long[] docsValues = new long[reader.numDocs()];
+    int numDocsValues = 0;
+    for (int doc = docValues.nextDoc();
+        doc != DocIdSetIterator.NO_MORE_DOCS;
+        doc = docValues.nextDoc()) {
+      if (liveDocs == null || liveDocs.get(doc)) {
+        docsValues[numDocsValues++] = docValues.longValue();
+      }
+    }
+    Arrays.sort(docsValues, 0, numDocsValues);
+
+    // the distinct values are compacted in place
+    int[] counts = new int[numDocsValues];
+    int numValues = 0;
+    for (int i = 0; i < numDocsValues; i++) {
+      if (numValues > 0 && docsValues[numValues - 1] == docsValues[i]) {
+        counts[numValues - 1] = i + 1;
+      } else {
+        docsValues[numValues] = docsValues[i];
+        counts[numValues++] = i + 1;
+      }
+    }
+    return new RangeRollup(Arrays.copyOf(docsValues, numValues), Arrays.copyOf(counts, numValues));
+  }
+
+  /**
+   * Counts the live docs of the segment having a value in the range.
+   *
+   * @param low the lower bound of the range, or null if unbounded
+   * @param high the upper bound of the range, or null if unbounded
+   */
+  int count(Long low, boolean includeLower, Long high, boolean includeUpper) {
+    int total = counts.length == 0 ? 0 : counts[counts.length - 1];
+    int upTo = high == null ? total : countUpTo(high, includeUpper);
+    int below = low == null ? 0 : countUpTo(low, !includeLower);
+    return Math.max(0, upTo - below);
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED
+        + RamUsageEstimator.sizeOf(values)
+        + RamUsageEstimator.sizeOf(counts);
+  }
+
+  // the number of docs with a value lower than the given one, or equal to it if inclusive
+  private int countUpTo(long value, boolean inclusive) {
+    int idx = Arrays.binarySearch(values, value);
+    if (idx >= 0) {
+      if (inclusive) {
+        return counts[idx];
+      }
+    } else {
+      idx = -idx - 1;
+    }
+    return idx == 0 ? 0 : counts[idx - 1];
+  }
+}
@@ -30,10 +30,12 @@ import org.apache.lucene.queries.function.FunctionValues;
 import org.apache.lucene.queries.function.ValueSource;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocSet;
+import org.apache.solr.search.MemoryAccounting;
 import org.apache.solr.search.SolrIndexSearcher;
 
 /**
@@ -43,6 +45,11 @@ import org.apache.solr.search.SolrIndexSearcher;
  * nominal slot.
  */
 public abstract class SlotAcc implements Closeable {
+  // the slot values are held sparsely if there are at least this many slots...
+  private static final int MIN_SPARSE_SLOTS = 1024;
+  // ...and at most a doc to collect per 2^SHIFT slots
+  private static final int SPARSE_SLOTS_DENSITY_SHIFT = 4;
+
   String key; // todo...
   protected final FacetContext fcontext;
   protected LeafReaderContext currentReaderContext;
@@ -156,13 +163,46 @@ public abstract class SlotAcc implements Closeable {
   @Override
   public void close() throws IOException {}
 
+  /**
+   * Registers a per slot array with the {@link MemoryAccounting} of the current request.
+   *
+   * @param numSlots the length of the array
+   * @param bytesPerSlot the size of a single array element
+   */
+  protected static void accountSlots(int numSlots, int bytesPerSlot) {
+    MemoryAccounting.current().allocate(MemoryAccounting.FACET, (long) numSlots * bytesPerSlot);
+  }
+
+  /**
+   * Whether an accumulator had better hold the values of the slots hit, in {@link SparseSlots},
+   * than a value per slot: when there are many slots, and the docs can hit only a small part of
+   * them.
+   *
+   * @param numDocs the number of docs to collect, or -1 if unknown
+   * @param numSlots the number of slots
+   */
+  static boolean useSparseSlots(long numDocs, int numSlots) {
+    return numSlots >= MIN_SPARSE_SLOTS
+        && numDocs >= 0
+        && numDocs <= numSlots >>> SPARSE_SLOTS_DENSITY_SHIFT;
+  }
+
   public abstract static class Resizer {
     public abstract int getNewSize();
 
     public abstract int getNewSlot(int oldSlot);
 
+    private static void accountResize(int oldLength, int newLength, int bytesPerSlot) {
+      MemoryAccounting.current()
+          .resize(
+              MemoryAccounting.FACET,
+              (long) oldLength * bytesPerSlot,
+              (long) newLength * bytesPerSlot);
+    }
+
     public double[] resize(double[] old, double defaultValue) {
       double[] values = new double[getNewSize()];
+      accountResize(old.length, values.length, Double.BYTES);
       if (defaultValue != 0) {
         Arrays.fill(values, 0, values.length, defaultValue);
       }
@@ -180,6 +220,7 @@ public abstract class SlotAcc implements Closeable {
 
     public int[] resize(int[] old, int defaultValue) {
       int[] values = new int[getNewSize()];
+      accountResize(old.length, values.length, Integer.BYTES);
       if (defaultValue != 0) {
         Arrays.fill(values, 0, values.length, defaultValue);
       }
@@ -197,6 +238,7 @@ public abstract class SlotAcc implements Closeable {
 
     public long[] resize(long[] old, long defaultValue) {
       long[] values = new long[getNewSize()];
+      accountResize(old.length, values.length, Long.BYTES);
       if (defaultValue != 0) {
         Arrays.fill(values, 0, values.length, defaultValue);
       }
@@ -309,6 +351,7 @@ public abstract class SlotAcc implements Closeable {
       super(values, fcontext, numSlots);
       this.initialValue = initialValue;
       result = new double[numSlots];
+      accountSlots(numSlots, Double.BYTES);
       if (initialValue != 0) {
         reset();
       }
@@ -344,6 +387,7 @@ public abstract class SlotAcc implements Closeable {
       super(values, fcontext, numSlots);
       this.initialValue = initialValue;
       result = new long[numSlots];
+      accountSlots(numSlots, Long.BYTES);
       if (initialValue != 0) {
         reset();
       }
@@ -378,6 +422,7 @@ public abstract class SlotAcc implements Closeable {
       super(fcontext);
       this.initialValue = initialValue;
       result = new int[numSlots];
+      accountSlots(numSlots, Integer.BYTES);
       if (initialValue != 0) {
         reset();
       }
@@ -404,6 +449,133 @@ public abstract class SlotAcc implements Closeable {
     }
   }
 
+  /**
+   * A {@link DoubleFuncSlotAcc} holding the values of the slots hit only, for when few of the slots
+   * are expected to be hit. The slots that weren't hit have the initial value.
+   */
+  public abstract static class SparseDoubleFuncSlotAcc extends FuncSlotAcc {
+    protected final SparseSlots slots = new SparseSlots();
+    // per index of the slots
+    protected double[] result;
+    protected final double initialValue;
+
+    public SparseDoubleFuncSlotAcc(
+        ValueSource values, FacetContext fcontext, int numSlots, double initialValue) {
+      super(values, fcontext, numSlots);
+      this.initialValue = initialValue;
+      result = new double[0];
+    }
+
+    /** The value of the slot. */
+    protected double get(int slot) {
+      int index = slots.index(slot);
+      return index < 0 ? initialValue : result[index];
+    }
+
+    /** The index of the value of the slot, which is initialized if the slot wasn't hit yet. */
+    protected int add(int slot) {
+      int size = slots.size();
+      int index = slots.add(slot);
+      if (index == size) {
+        if (index == result.length) {
+          grow(ArrayUtil.oversize(index + 1, Double.BYTES));
+        }
+        init(index);
+      }
+      return index;
+    }
+
+    /** Grows the arrays of the values to the given length. */
+    protected void grow(int length) {
+      accountSlots(length - result.length, Double.BYTES);
+      result = Arrays.copyOf(result, length);
+    }
+
+    /** Initializes the values at the index, given to a slot hit for the first time. */
+    protected void init(int index) {
+      result[index] = initialValue;
+    }
+
+    @Override
+    public int compare(int slotA, int slotB) {
+      return Double.compare(get(slotA), get(slotB));
+    }
+
+    @Override
+    public Object getValue(int slot) {
+      return get(slot);
+    }
+
+    @Override
+    public void reset() {
+      slots.clear();
+    }
+
+    @Override
+    public void resize(Resizer resizer) {
+      slots.resize(resizer);
+    }
+  }
+
+  /**
+   * A {@link LongFuncSlotAcc} holding the values of the slots hit only, for when few of the slots
+   * are expected to be hit. The slots that weren't hit have the initial value.
+   */
+  public abstract static class SparseLongFuncSlotAcc extends FuncSlotAcc {
+    protected final SparseSlots slots = new SparseSlots();
+    // per index of the slots
+    protected long[] result;
+    protected final long initialValue;
+
+    public SparseLongFuncSlotAcc(
+        ValueSource values, FacetContext fcontext, int numSlots, long initialValue) {
+      super(values, fcontext, numSlots);
+      this.initialValue = initialValue;
+      result = new long[0];
+    }
+
+    /** The value of the slot. */
+    protected long get(int slot) {
+      int index = slots.index(slot);
+      return index < 0 ? initialValue : result[index];
+    }
+
+    /** The index of the value of the slot, which is initialized if the slot wasn't hit yet. */
+    protected int add(int slot) {
+      int size = slots.size();
+      int index = slots.add(slot);
+      if (index == size) {
+        if (index == result.length) {
+          int length = ArrayUtil.oversize(index + 1, Long.BYTES);
+          accountSlots(length - result.length, Long.BYTES);
+          result = Arrays.copyOf(result, length);
+        }
+        result[index] = initialValue;
+      }
+      return index;
+    }
+
+    @Override
+    public int compare(int slotA, int slotB) {
+      return Long.compare(get(slotA), get(slotB));
+    }
+
+    @Override
+    public Object getValue(int slot) {
+      return get(slot);
+    }
+
+    @Override
+    public void reset() {
+      slots.clear();
+    }
+
+    @Override
+    public void resize(Resizer resizer) {
+      slots.resize(resizer);
+    }
+  }
+
   static class SumSlotAcc extends DoubleFuncSlotAcc {
     public SumSlotAcc(ValueSource values, FacetContext fcontext, int numSlots) {
       super(values, fcontext, numSlots);
@@ -418,6 +590,19 @@ public abstract class SlotAcc implements Closeable {
     }
   }
 
+  static class SparseSumSlotAcc extends SparseDoubleFuncSlotAcc {
+    public SparseSumSlotAcc(ValueSource values, FacetContext fcontext, int numSlots) {
+      super(values, fcontext, numSlots, 0);
+    }
+
+    @Override
+    public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      double val = values.doubleVal(doc);
+      result[add(slotNum)] += val;
+    }
+  }
+
   static class SumsqSlotAcc extends DoubleFuncSlotAcc {
     public SumsqSlotAcc(ValueSource values, FacetContext fcontext, int numSlots) {
       super(values, fcontext, numSlots);
@@ -438,6 +623,7 @@ public abstract class SlotAcc implements Closeable {
     public AvgSlotAcc(ValueSource values, FacetContext fcontext, int numSlots) {
       super(values, fcontext, numSlots);
       counts = new int[numSlots];
+      accountSlots(numSlots, Integer.BYTES);
     }
 
     @Override
@@ -486,6 +672,65 @@ public abstract class SlotAcc implements Closeable {
     }
   }
 
+  static class SparseAvgSlotAcc extends SparseDoubleFuncSlotAcc {
+    // per index of the slots
+    int[] counts = new int[0];
+
+    public SparseAvgSlotAcc(ValueSource values, FacetContext fcontext, int numSlots) {
+      super(values, fcontext, numSlots, 0);
+    }
+
+    @Override
+    protected void grow(int length) {
+      super.grow(length);
+      accountSlots(length - counts.length, Integer.BYTES);
+      counts = Arrays.copyOf(counts, length);
+    }
+
+    @Override
+    protected void init(int index) {
+      super.init(index);
+      counts[index] = 0;
+    }
+
+    @Override
+    public void collect(int doc, int slotNum, IntFunction<SlotContext> slotContext)
+        throws IOException {
+      double val = values.doubleVal(doc);
+      if (val != 0 || values.exists(doc)) {
+        int index = add(slotNum);
+        result[index] += val;
+        counts[index] += 1;
+      }
+    }
+
+    private int count(int slot) {
+      int index = slots.index(slot);
+      return index < 0 ? 0 : counts[index];
+    }
+
+    private double avg(int slot) {
+      return AggUtil.avg(get(slot), count(slot));
+    }
+
+    @Override
+    public int compare(int slotA, int slotB) {
+      return Double.compare(avg(slotA), avg(slotB));
+    }
+
+    @Override
+    public Object getValue(int slot) {
+      if (fcontext.isShard()) {
+        ArrayList<Object> lst = new ArrayList<>(2);
+        lst.add(count(slot));
+        lst.add(get(slot));
+        return lst;
+      } else {
+        return avg(slot);
+      }
+    }
+  }
+
   static class VarianceSlotAcc extends DoubleFuncSlotAcc {
     int[] counts;
     double[] sum;
@@ -494,6 +739,7 @@ public abstract class SlotAcc implements Closeable {
       super(values, fcontext, numSlots);
       counts = new int[numSlots];
       sum = new double[numSlots];
+      accountSlots(numSlots, Integer.BYTES + Double.BYTES);
     }
 
     @Override
@@ -553,6 +799,7 @@ public abstract class SlotAcc implements Closeable {
       super(values, fcontext, numSlots);
       counts = new int[numSlots];
       sum = new double[numSlots];
+      accountSlots(numSlots, Integer.BYTES + Double.BYTES);
     }
 
     @Override
@@ -642,6 +889,20 @@ public abstract class SlotAcc implements Closeable {
     public T registerSweepingAccs(SweepingCountSlotAcc baseSweepingAcc);
   }
 
+  /**
+   * Implemented by SlotAccs that can collect all the live docs of a segment at once, faster than
+   * one by one.
+   *
+   * @see FacetProcessor#collect(DocSet, int, IntFunction)
+   */
+  static interface SegmentSlotAcc {
+    /**
+     * Collects all the live docs of the segment in the slot at once, instead of {@link
+     * SlotAcc#collect(int, int, IntFunction)} being called for each of them.
+     */
+    void collectSegment(LeafReaderContext readerContext, int slot) throws IOException;
+  }
+
   /**
    * A simple data structure to {@link DocSet} domains with an associated {@link CountSlotAcc}. This
    * may be used to support sweep count accumulation over different {@link DocSet} domains, but the
@@ -851,6 +1112,7 @@ public abstract class SlotAcc implements Closeable {
     public CountSlotArrAcc(FacetContext fcontext, int numSlots) {
       super(fcontext);
       result = new long[numSlots];
+      accountSlots(numSlots, Long.BYTES);
     }
 
     @Override
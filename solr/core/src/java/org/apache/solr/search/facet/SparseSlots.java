@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.Arrays;
+
+/**
+ * The slots of an accumulator that have been hit, each with an index into the arrays of the values
+ * of the accumulator. The indexes are given in the order the slots are first hit, so the value
+ * arrays only need to hold as many values as there are slots hit, rather than a value for every
+ * slot.
+ *
+ * <p>The slots are looked up in an open addressing hash table with linear probing.
+ */
+class SparseSlots {
+  private static final int EMPTY = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  // per index, the slot; EMPTY if the slot was dropped by a resize
+  private int[] slots;
+  // the hash table of the indexes, EMPTY where free; its length is a power of two
+  private int[] table;
+  private int size;
+
+  SparseSlots() {
+    slots = new int[INITIAL_CAPACITY];
+    table = new int[INITIAL_CAPACITY * 2];
+    Arrays.fill(table, EMPTY);
+    SlotAcc.accountSlots(slots.length + table.length, Integer.BYTES);
+  }
+
+  /** The number of indexes given, which the value arrays must be able to hold. */
+  int size() {
+    return size;
+  }
+
+  /** The index of the values of the slot, or -1 if the slot wasn't hit. */
+  int index(int slot) {
+    int mask = table.length - 1;
+    for (int pos = hash(slot) & mask; ; pos = (pos + 1) & mask) {
+      int index = table[pos];
+      if (index == EMPTY || slots[index] == slot) {
+        return index;
+      }
+    }
+  }
+
+  /**
+   * The index of the values of the slot, the next one if the slot wasn't hit yet, in which case
+   * {@link #size()} grows by one and the value arrays may have to grow too.
+   */
+  int add(int slot) {
+    int mask = table.length - 1;
+    int pos = hash(slot) & mask;
+    for (; table[pos] != EMPTY; pos = (pos + 1) & mask) {
+      if (slots[table[pos]] == slot) {
+        return table[pos];
+      }
+    }
+    if (size == slots.length) {
+      slots = Arrays.copyOf(slots, size * 2);
+      SlotAcc.accountSlots(size, Integer.BYTES);
+    }
+    int index = size++;
+    slots[index] = slot;
+    table[pos] = index;
+    if (size * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    return index;
+  }
+
+  /** Forgets all the slots, the indexes are given from 0 again. */
+  void clear() {
+    Arrays.fill(table, EMPTY);
+    size = 0;
+  }
+
+  /**
+   * Moves the indexes to the new slots of the slots. The indexes of the slots that have no new slot
+   * are dropped, and if several slots have the same new slot, the last one is kept, as {@link
+   * SlotAcc.Resizer} does for arrays.
+   */
+  void resize(SlotAcc.Resizer resizer) {
+    Arrays.fill(table, EMPTY);
+    int mask = table.length - 1;
+    for (int index = 0; index < size; index++) {
+      int oldSlot = slots[index];
+      int newSlot = oldSlot == EMPTY ? -1 : resizer.getNewSlot(oldSlot);
+      if (newSlot < 0) {
+        slots[index] = EMPTY;
+        continue;
+      }
+      slots[index] = newSlot;
+      int pos = hash(newSlot) & mask;
+      for (; table[pos] != EMPTY; pos = (pos + 1) & mask) {
+        if (slots[table[pos]] == newSlot) {
+          slots[table[pos]] = EMPTY;
+          break;
+        }
+      }
+      table[pos] = index;
+    }
+  }
+
+  private void rehash(int capacity) {
+    SlotAcc.accountSlots(capacity - table.length, Integer.BYTES);
+    table = new int[capacity];
+    Arrays.fill(table, EMPTY);
+    int mask = capacity - 1;
+    for (int index = 0; index < size; index++) {
+      if (slots[index] == EMPTY) {
+        continue;
+      }
+      int pos = hash(slots[index]) & mask;
+      while (table[pos] != EMPTY) {
+        pos = (pos + 1) & mask;
+      }
+      table[pos] = index;
+    }
+  }
+
+  private static int hash(int slot) {
+    // the slots hit are often close to each other, so they are spread
+    int h = slot * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
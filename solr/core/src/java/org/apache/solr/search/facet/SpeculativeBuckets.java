@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.common.util.Hash;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/**
+ * What a shard tells about the buckets it didn't return for a field facet with a {@code speculate}
+ * option, so that the buckets the other shards returned can be completed without refining them.
+ *
+ * <p>The shard returns the exact counts of the buckets that follow the returned ones, and a bloom
+ * filter of the values of all its other buckets. A bucket the shard didn't return is complete for
+ * the shard if its count is one of these, or if the filter tells the shard has no such bucket.
+ * Only the buckets that may be in the filter still need refining. Since a bloom filter has no false
+ * negatives, the merged counts are exact, as if the buckets were refined.
+ */
+class SpeculativeBuckets {
+  /** The key of the speculative buckets in the shard response of the facet. */
+  static final String KEY = "speculative";
+
+  /** The shard doesn't build a filter of more values than this, it returns no filter instead. */
+  static final int MAX_FILTER_VALUES = 1 << 16;
+
+  private static final int BITS_PER_VALUE = 10;
+  private static final int NUM_HASHES = 7;
+
+  // the counts of the buckets that follow the returned ones, by value
+  private final Map<Object, Long> counts;
+  // null if the shard has too many buckets to filter them
+  private final byte[] filter;
+
+  private SpeculativeBuckets(Map<Object, Long> counts, byte[] filter) {
+    this.counts = counts;
+    this.filter = filter;
+  }
+
+  /** Reads the speculative buckets from the shard response of the facet. */
+  @SuppressWarnings("unchecked")
+  static SpeculativeBuckets fromResponse(SimpleOrderedMap<?> speculative) {
+    List<Object> vals = (List<Object>) speculative.get("vals");
+    List<Number> counts = (List<Number>) speculative.get("counts");
+    Map<Object, Long> countsByVal = new HashMap<>();
+    for (int i = 0; i < vals.size(); i++) {
+      countsByVal.put(vals.get(i), counts.get(i).longValue());
+    }
+    return new SpeculativeBuckets(countsByVal, (byte[]) speculative.get("filter"));
+  }
+
+  /** The count of the bucket on the shard, or null if it is unknown. */
+  Long getCount(Object bucketVal) {
+    return counts.get(bucketVal);
+  }
+
+  /**
+   * Whether the shard may have the bucket. False if it is known to have no such bucket, or if it
+   * has the bucket and its count is known.
+   */
+  boolean mayHaveUnknownBucket(Object bucketVal) {
+    if (counts.containsKey(bucketVal)) {
+      return false;
+    }
+    return filter == null || mayContain(filter, bucketVal);
+  }
+
+  /** Builds the bloom filter of the values of the buckets a shard doesn't return. */
+  static class FilterBuilder {
+    private final byte[] filter;
+
+    /**
+     * @param numValues the number of values that will be added
+     */
+    FilterBuilder(int numValues) {
+      // a power of two, for the hashes to be masked
+      int numBits = Math.max(64, Integer.highestOneBit(numValues * BITS_PER_VALUE - 1) << 1);
+      filter = new byte[numBits >>> 3];
+    }
+
+    void add(Object bucketVal) {
+      String key = toKey(bucketVal);
+      int hash1 = hash(key, 0);
+      int hash2 = hash(key, hash1) | 1;
+      int mask = filter.length * 8 - 1;
+      for (int i = 0; i < NUM_HASHES; i++) {
+        int bit = (hash1 + i * hash2) & mask;
+        filter[bit >>> 3] |= (byte) (1 << (bit & 7));
+      }
+    }
+
+    byte[] build() {
+      return filter;
+    }
+  }
+
+  /** Composes the speculative buckets for the shard response of the facet. */
+  static SimpleOrderedMap<Object> toResponse(List<Object> vals, List<Long> counts, byte[] filter) {
+    SimpleOrderedMap<Object> speculative = new SimpleOrderedMap<>();
+    speculative.add("vals", vals);
+    speculative.add("counts", counts);
+    if (filter != null) {
+      speculative.add("filter", filter);
+    }
+    return speculative;
+  }
+
+  private static boolean mayContain(byte[] filter, Object bucketVal) {
+    String key = toKey(bucketVal);
+    int hash1 = hash(key, 0);
+    int hash2 = hash(key, hash1) | 1;
+    int mask = filter.length * 8 - 1;
+    for (int i = 0; i < NUM_HASHES; i++) {
+      int bit = (hash1 + i * hash2) & mask;
+      if ((filter[bit >>> 3] & (1 << (bit & 7))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // the same on the shard and on the coordinator, whatever the time zone
+  private static String toKey(Object bucketVal) {
+    return bucketVal instanceof Date date ? Long.toString(date.getTime()) : bucketVal.toString();
+  }
+
+  private static int hash(String key, int seed) {
+    return Hash.murmurhash3_x86_32(key, 0, key.length(), seed);
+  }
+}
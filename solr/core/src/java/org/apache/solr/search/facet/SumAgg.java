@@ -61,6 +61,9 @@ public class SumAgg extends SimpleAggValueSource {
       }
       vs = sf.getType().getValueSource(sf, null);
     }
+    if (SlotAcc.useSparseSlots(numDocs, numSlots)) {
+      return new SlotAcc.SparseSumSlotAcc(vs, fcontext, numSlots);
+    }
     return new SlotAcc.SumSlotAcc(vs, fcontext, numSlots);
   }
 
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.ExtendedQuery;
+import org.apache.solr.search.QueryUtils;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.WrappedQuery;
+
+/**
+ * Counts the docs of a base set matching each of many queries, such as facet queries, in a single
+ * pass over the base set per segment. An iterator per query is advanced along the docs of the base
+ * set: over the cached doc set of the query if it is in the filter cache, otherwise, if the filter
+ * cache would not hold it anyway, over the docs the query matches, so that such queries aren't run
+ * over the whole index.
+ *
+ * <p>A query that isn't in the filter cache yet but would be cached by {@link
+ * SolrIndexSearcher#numDocs(Query, DocSet)} isn't swept, so that counting it with {@code numDocs}
+ * still fills the cache for the next requests.
+ *
+ * <p>The cached doc sets and the weights of the queries are looked up once, and then used to count
+ * over as many base sets as needed, such as the buckets of a facet.
+ *
+ * <p>This takes a few steps per query per doc of the base set, while intersecting the base set with
+ * a cached doc set takes about a step per 64 docs of the index, so it only pays off for base sets
+ * that are small relative to the index.
+ */
+public final class SweepQueryCounts {
+  // the base set is swept if it has at most a doc per 2^SHIFT docs of the index
+  private static final int MAX_BASE_DENSITY_SHIFT = 6;
+
+  private final SolrIndexSearcher searcher;
+  private final boolean[] negative;
+  private final DocSet[] cachedDocSets;
+  private final Weight[] weights;
+  private int numSwept;
+
+  /** Looks up the queries in the filter cache, and makes the weights of those it would not hold. */
+  public SweepQueryCounts(SolrIndexSearcher searcher, List<Query> queries) throws IOException {
+    this.searcher = searcher;
+    final int numQueries = queries.size();
+    final SolrCache<Query, DocSet> filterCache = searcher.getFilterCache();
+    negative = new boolean[numQueries];
+    cachedDocSets = new DocSet[numQueries];
+    weights = new Weight[numQueries];
+    for (int i = 0; i < numQueries; i++) {
+      Query query = queries.get(i);
+      Query absQ = QueryUtils.getAbs(query);
+      negative[i] = !Objects.equals(query, absQ);
+      // the same as SolrIndexSearcher.getPositiveDocSet caches
+      boolean doCache = filterCache != null;
+      if (absQ instanceof ExtendedQuery) {
+        if (!((ExtendedQuery) absQ).getCache()) {
+          doCache = false;
+        }
+        if (absQ instanceof WrappedQuery) {
+          absQ = ((WrappedQuery) absQ).getWrappedQuery();
+        }
+      }
+      if (doCache) {
+        cachedDocSets[i] = filterCache.get(absQ);
+        if (cachedDocSets[i] == null) {
+          continue; // left to numDocs, which caches it
+        }
+      } else {
+        weights[i] =
+            searcher.createWeight(
+                searcher.rewrite(QueryUtils.makeQueryable(absQ)), ScoreMode.COMPLETE_NO_SCORES, 1);
+      }
+      numSwept++;
+    }
+  }
+
+  /** Whether counting that many queries in one pass over the base set is expected to pay off. */
+  public static boolean isWorthSweeping(SolrIndexSearcher searcher, DocSet base, int numQueries) {
+    return numQueries > 1
+        && base.size() > 0
+        && base.size() <= searcher.maxDoc() >>> MAX_BASE_DENSITY_SHIFT;
+  }
+
+  /** The number of queries counted by {@link #count}. */
+  public int getNumSwept() {
+    return numSwept;
+  }
+
+  /**
+   * Returns, per query, the number of docs of the base set that match it, as {@link
+   * SolrIndexSearcher#numDocs(Query, DocSet)} would, or -1 for the queries that aren't swept.
+   */
+  public int[] count(DocSet base) throws IOException {
+    final int numQueries = negative.length;
+    final int[] counts = new int[numQueries];
+    final DocIdSetIterator[] iterators = new DocIdSetIterator[numQueries];
+    for (LeafReaderContext leaf : searcher.getTopReaderContext().leaves()) {
+      DocIdSetIterator baseIterator = base.iterator(leaf);
+      if (baseIterator == null) {
+        continue;
+      }
+      for (int i = 0; i < numQueries; i++) {
+        if (cachedDocSets[i] != null) {
+          iterators[i] = cachedDocSets[i].iterator(leaf);
+        } else if (weights[i] != null) {
+          Scorer scorer = weights[i].scorer(leaf);
+          iterators[i] = scorer == null ? null : scorer.iterator();
+        } else {
+          iterators[i] = null;
+        }
+      }
+      // deleted docs may match the queries, but they aren't in the base set
+      for (int doc = baseIterator.nextDoc();
+          doc != DocIdSetIterator.NO_MORE_DOCS;
+          doc = baseIterator.nextDoc()) {
+        for (int i = 0; i < numQueries; i++) {
+          DocIdSetIterator iterator = iterators[i];
+          if (iterator == null) {
+            continue;
+          }
+          int queryDoc = iterator.docID();
+          if (queryDoc < doc) {
+            queryDoc = iterator.advance(doc);
+          }
+          if (queryDoc == doc) {
+            counts[i]++;
+          } else if (queryDoc == DocIdSetIterator.NO_MORE_DOCS) {
+            iterators[i] = null;
+          }
+        }
+      }
+    }
+
+    for (int i = 0; i < numQueries; i++) {
+      if (cachedDocSets[i] == null && weights[i] == null) {
+        counts[i] = -1;
+      } else if (negative[i]) {
+        counts[i] = base.size() - counts[i];
+      }
+    }
+    return counts;
+  }
+}
@@ -39,6 +39,7 @@ import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.TrieField;
 import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocSet;
+import org.apache.solr.search.MemoryAccounting;
 import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.facet.SlotAcc.CountSlotAcc;
@@ -627,11 +628,18 @@ public class UnInvertedField extends DocTermOrds {
       throws IOException {
     SolrCache<String, UnInvertedField> cache = searcher.getFieldValueCache();
     if (cache == null) {
-      return new UnInvertedField(field, searcher);
+      return accountBuilt(new UnInvertedField(field, searcher));
     }
+    // a cached field is shared by the requests, and accounted for by the cache
     return cache.computeIfAbsent(field, f -> new UnInvertedField(f, searcher));
   }
 
+  /** Without a cache, the field is uninverted for the request, which drops it once done */
+  private static UnInvertedField accountBuilt(UnInvertedField uif) {
+    MemoryAccounting.current().allocate(MemoryAccounting.UNINVERTED_FIELD, uif.memSize());
+    return uif;
+  }
+
   // Returns null if not already populated
   public static UnInvertedField checkUnInvertedField(String field, SolrIndexSearcher searcher)
       throws IOException {
@@ -91,7 +91,7 @@ abstract class UniqueSlotAcc extends SlotAcc {
     }
 
     SimpleOrderedMap<Object> map = new SimpleOrderedMap<>();
-    map.add("hll", hll.toBytes());
+    map.add("hll", HLLAgg.toShardBytes(fcontext, hll));
     return map;
   }
 
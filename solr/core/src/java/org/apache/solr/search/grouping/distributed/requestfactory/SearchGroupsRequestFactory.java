@@ -16,12 +16,14 @@
  */
 package org.apache.solr.search.grouping.distributed.requestfactory;
 
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.search.Grouping;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.grouping.GroupingSpecification;
 import org.apache.solr.search.grouping.distributed.ShardRequestFactory;
@@ -60,12 +62,29 @@ public class SearchGroupsRequestFactory implements ShardRequestFactory {
     // perhaps we shouldn't attempt to parse the query at this level?
     // Alternate Idea: instead of specifying all these things at the upper level,
     // we could just specify that this is a shard request.
+    boolean singlePass = isSinglePass(rb);
     if (rb.shards_rows > -1) {
       // if the client set shards.rows set this explicity
       sreq.params.set(CommonParams.ROWS, rb.shards_rows);
     } else {
-      sreq.params.set(
-          CommonParams.ROWS, rb.getSortSpec().getOffset() + rb.getSortSpec().getCount());
+      int rows = rb.getSortSpec().getOffset() + rb.getSortSpec().getCount();
+      if (singlePass) {
+        float overfetch = rb.req.getParams().getFloat(GroupParams.GROUP_DISTRIBUTED_OVERFETCH, 1f);
+        if (overfetch > 1f) {
+          rows = (int) Math.min(Integer.MAX_VALUE, Math.ceil(rows * (double) overfetch));
+        }
+      }
+      sreq.params.set(CommonParams.ROWS, rows);
+    }
+
+    if (singlePass) {
+      // the shards also return the top documents of their groups, as in the second phase
+      Grouping.Format responseFormat = groupingSpecification.getResponseFormat();
+      if (responseFormat == Grouping.Format.simple || groupingSpecification.isMain()) {
+        sreq.params.remove(GroupParams.GROUP_OFFSET);
+      }
+    } else {
+      sreq.params.remove(GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS);
     }
 
     // in this first phase, request only the unique key field
@@ -80,4 +99,32 @@ public class SearchGroupsRequestFactory implements ShardRequestFactory {
     }
     return new ShardRequest[] {sreq};
   }
+
+  /**
+   * Whether the shards should return the top documents of their groups along with the search
+   * groups, as requested with {@link GroupParams#GROUP_DISTRIBUTED_SINGLE_PASS}. This is not
+   * possible when grouping by query, or when other components rely on the second phase being sent
+   * to all shards, e.g. for faceting.
+   */
+  private static boolean isSinglePass(ResponseBuilder rb) {
+    String singlePass = rb.req.getParams().get(GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS);
+    if (singlePass == null || "false".equals(singlePass)) {
+      return false;
+    }
+    if (!GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_EXACT.equals(singlePass)
+        && !GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_APPROXIMATE.equals(singlePass)) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Invalid value for "
+              + GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS
+              + ": "
+              + singlePass
+              + ", expected one of "
+              + GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_EXACT
+              + ", "
+              + GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_APPROXIMATE
+              + " or false");
+    }
+    return rb.getGroupingSpec().getQueries().length == 0 && !rb.isNeedDocSet();
+  }
 }
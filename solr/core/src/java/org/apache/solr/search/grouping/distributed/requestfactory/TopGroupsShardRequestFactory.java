@@ -109,8 +109,10 @@ public class TopGroupsShardRequestFactory implements ShardRequestFactory {
 
     sreq.params.set(GroupParams.GROUP_DISTRIBUTED_SECOND, "true");
     final IndexSchema schema = rb.req.getSearcher().getSchema();
-    for (Map.Entry<String, Collection<SearchGroup<BytesRef>>> entry :
-        rb.mergedSearchGroups.entrySet()) {
+    // when the first phase already returned the top groups, only the ambiguous ones are needed
+    Map<String, Collection<SearchGroup<BytesRef>>> searchGroups =
+        rb.topGroupsFromFirstPhase ? rb.ambiguousSearchGroups : rb.mergedSearchGroups;
+    for (Map.Entry<String, Collection<SearchGroup<BytesRef>>> entry : searchGroups.entrySet()) {
       for (SearchGroup<BytesRef> searchGroup : entry.getValue()) {
         String groupValue;
         if (searchGroup.groupValue != null) {
@@ -30,6 +30,8 @@ import org.apache.lucene.search.grouping.SearchGroup;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.SolrResponse;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -58,9 +60,13 @@ public class SearchGroupShardResponseProcessor implements ShardResponseProcessor
         new HashMap<>(fields.length, 1.0f);
     final Map<String, Map<SearchGroup<BytesRef>, Set<String>>> tempSearchGroupToShards =
         new HashMap<>(fields.length, 1.0f);
+    // the shards that may have more groups than they returned, per field
+    final Map<String, Set<String>> truncatedShards = new HashMap<>(fields.length, 1.0f);
+    final int shardTopNGroups = shardRequest.params.getInt(CommonParams.ROWS, Integer.MAX_VALUE);
     for (String field : fields) {
       commandSearchGroups.put(field, new ArrayList<>(shardRequest.responses.size()));
       tempSearchGroupToShards.put(field, new HashMap<>());
+      truncatedShards.put(field, new HashSet<>());
       if (!rb.searchGroupToShards.containsKey(field)) {
         rb.searchGroupToShards.put(field, new HashMap<>());
       }
@@ -143,6 +149,9 @@ public class SearchGroupShardResponseProcessor implements ShardResponseProcessor
         }
 
         entry.getValue().add(searchGroups);
+        if (searchGroups.size() >= shardTopNGroups) {
+          truncatedShards.get(field).add(srsp.getShard());
+        }
         for (SearchGroup<BytesRef> searchGroup : searchGroups) {
           Map<SearchGroup<BytesRef>, Set<String>> map = tempSearchGroupToShards.get(field);
           Set<String> shards = map.computeIfAbsent(searchGroup, k -> new HashSet<>());
@@ -171,5 +180,14 @@ public class SearchGroupShardResponseProcessor implements ShardResponseProcessor
             .put(mergedTopGroup, tempSearchGroupToShards.get(groupField).get(mergedTopGroup));
       }
     }
+
+    String singlePass = shardRequest.params.get(GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS);
+    if (singlePass != null) {
+      new SinglePassTopGroupsMerger(
+              rb,
+              truncatedShards,
+              GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_EXACT.equals(singlePass))
+          .merge(shardRequest);
+    }
   }
 }
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.grouping.distributed.responseprocessor;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.grouping.GroupDocs;
+import org.apache.lucene.search.grouping.SearchGroup;
+import org.apache.lucene.search.grouping.TopGroups;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.solr.common.params.GroupParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.handler.component.ShardResponse;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.search.grouping.distributed.shardresultserializer.TopGroupsResultTransformer;
+import org.apache.solr.util.SolrResponseUtil;
+
+/**
+ * Merges the top groups that the shards computed for their own search groups during the first
+ * phase, when {@link GroupParams#GROUP_DISTRIBUTED_SINGLE_PASS} is enabled, so that the second
+ * phase can be skipped.
+ *
+ * <p>As with the second phase, only the shards that reported at least one of the merged groups are
+ * considered, and a shard that did not report a group contributes no documents to it. In exact
+ * mode, a group that was not reported by a shard that may have more groups than it returned is
+ * ambiguous: the shard may have documents in it. The top documents of the ambiguous groups are
+ * then fetched by a second phase restricted to these groups. In approximate mode the second phase
+ * is always skipped.
+ */
+class SinglePassTopGroupsMerger {
+
+  private final ResponseBuilder rb;
+  private final Map<String, Set<String>> truncatedShards;
+  private final boolean exact;
+
+  /**
+   * @param rb the response builder, with the merged search groups of the first phase
+   * @param truncatedShards per field, the shards that may have more groups than they returned
+   * @param exact whether ambiguous groups should be fetched by a second phase
+   */
+  SinglePassTopGroupsMerger(
+      ResponseBuilder rb, Map<String, Set<String>> truncatedShards, boolean exact) {
+    this.rb = rb;
+    this.truncatedShards = truncatedShards;
+    this.exact = exact;
+  }
+
+  /**
+   * Fills the {@link ResponseBuilder}'s <code>mergedTopGroups</code> from the first phase
+   * responses, unless a shard did not return its top groups, in which case the regular second phase
+   * is used.
+   */
+  @SuppressWarnings("unchecked")
+  void merge(ShardRequest shardRequest) {
+    Sort groupSort = rb.getGroupingSpec().getGroupSortSpec().getSort();
+    Sort withinGroupSort = rb.getGroupingSpec().getWithinGroupSortSpec().getSort();
+    TopGroupsResultTransformer serializer = new TopGroupsResultTransformer(rb);
+
+    Map<String, Map<String, ?>> shardTopGroups = new HashMap<>();
+    for (ShardResponse srsp : shardRequest.responses) {
+      if (srsp.getException() != null) {
+        continue; // the error is tolerated, see SearchGroupShardResponseProcessor
+      }
+      NamedList<NamedList<?>> secondPhaseResult =
+          (NamedList<NamedList<?>>)
+              SolrResponseUtil.getSubsectionFromShardResponse(rb, srsp, "secondPhase", false);
+      if (secondPhaseResult == null) {
+        return;
+      }
+      shardTopGroups.put(
+          srsp.getShard(),
+          serializer.transformToNative(
+              secondPhaseResult, groupSort, withinGroupSort, srsp.getShard()));
+    }
+
+    // as in the second phase, only the shards that reported one of the merged groups are used
+    Set<String> shards = new HashSet<>();
+    for (Map<SearchGroup<BytesRef>, Set<String>> groupToShards : rb.searchGroupToShards.values()) {
+      for (Set<String> groupShards : groupToShards.values()) {
+        shards.addAll(groupShards);
+      }
+    }
+
+    Map<String, TopGroups<BytesRef>> mergedTopGroups = new HashMap<>();
+    Map<String, Collection<SearchGroup<BytesRef>>> ambiguousSearchGroups = new HashMap<>();
+    for (String field : rb.getGroupingSpec().getFields()) {
+      Collection<SearchGroup<BytesRef>> searchGroups =
+          rb.mergedSearchGroups.getOrDefault(field, List.of());
+      Map<SearchGroup<BytesRef>, Set<String>> groupToShards =
+          rb.searchGroupToShards.getOrDefault(field, Map.of());
+      Set<String> fieldTruncatedShards = truncatedShards.getOrDefault(field, Set.of());
+
+      // the shards return readable group values in their top groups
+      FieldType fieldType = rb.req.getSchema().getField(field).getType();
+      BytesRef[] groupValues = new BytesRef[searchGroups.size()];
+      List<SearchGroup<BytesRef>> ambiguous = new ArrayList<>();
+      int i = 0;
+      for (SearchGroup<BytesRef> searchGroup : searchGroups) {
+        if (searchGroup.groupValue != null) {
+          groupValues[i] =
+              new BytesRef(
+                  fieldType.indexedToReadable(searchGroup.groupValue, new CharsRefBuilder()));
+        }
+        i++;
+        if (exact) {
+          Set<String> reportedBy = groupToShards.getOrDefault(searchGroup, Set.of());
+          for (String shard : shards) {
+            if (!reportedBy.contains(shard) && fieldTruncatedShards.contains(shard)) {
+              ambiguous.add(searchGroup);
+              break;
+            }
+          }
+        }
+      }
+
+      List<TopGroups<BytesRef>> alignedTopGroups = new ArrayList<>(shards.size());
+      for (String shard : shards) {
+        Map<String, ?> result = shardTopGroups.get(shard);
+        TopGroups<BytesRef> topGroups =
+            result != null ? (TopGroups<BytesRef>) result.get(field) : null;
+        if (topGroups == null) {
+          return;
+        }
+        alignedTopGroups.add(align(topGroups, groupValues, groupSort, withinGroupSort));
+      }
+      if (alignedTopGroups.isEmpty()) {
+        continue;
+      }
+      mergedTopGroups.put(
+          field, TopGroupsShardResponseProcessor.mergeTopGroups(rb, alignedTopGroups));
+      if (!ambiguous.isEmpty()) {
+        ambiguousSearchGroups.put(field, ambiguous);
+      }
+    }
+
+    rb.mergedTopGroups.putAll(mergedTopGroups);
+    rb.ambiguousSearchGroups.putAll(ambiguousSearchGroups);
+    rb.topGroupsFromFirstPhase = true;
+    if (ambiguousSearchGroups.isEmpty()) {
+      TopGroupsShardResponseProcessor.fillResultIds(rb);
+    }
+  }
+
+  /**
+   * Replaces groups of merged top groups by the groups with the same value in other top groups. The
+   * grouped hit count and the max score are those of the resulting groups.
+   *
+   * @param topGroups the top groups whose groups are replaced
+   * @param replacements the top groups containing the groups to replace
+   * @return the top groups with the replaced groups
+   */
+  @SuppressWarnings("unchecked")
+  static TopGroups<BytesRef> replaceGroups(
+      TopGroups<BytesRef> topGroups, TopGroups<BytesRef> replacements) {
+    Map<BytesRef, GroupDocs<BytesRef>> groupsByValue = new HashMap<>();
+    for (GroupDocs<BytesRef> group : replacements.groups) {
+      groupsByValue.put(group.groupValue, group);
+    }
+    GroupDocs<BytesRef>[] groups =
+        (GroupDocs<BytesRef>[]) Array.newInstance(GroupDocs.class, topGroups.groups.length);
+    int totalGroupedHitCount = 0;
+    float maxScore = Float.NaN;
+    for (int i = 0; i < groups.length; i++) {
+      GroupDocs<BytesRef> group =
+          groupsByValue.getOrDefault(topGroups.groups[i].groupValue, topGroups.groups[i]);
+      groups[i] = group;
+      totalGroupedHitCount += (int) group.totalHits.value;
+      if (Float.isNaN(maxScore) || group.maxScore > maxScore) {
+        maxScore = group.maxScore;
+      }
+    }
+    TopGroups<BytesRef> replaced =
+        new TopGroups<>(
+            topGroups.groupSort,
+            topGroups.withinGroupSort,
+            topGroups.totalHitCount,
+            totalGroupedHitCount,
+            groups,
+            maxScore);
+    return topGroups.totalGroupCount == null
+        ? replaced
+        : new TopGroups<>(replaced, topGroups.totalGroupCount);
+  }
+
+  /**
+   * Reorders the top groups of a shard to list the given groups, in that order, as {@link
+   * TopGroups#merge} requires, with an empty group for each group the shard did not report.
+   */
+  @SuppressWarnings("unchecked")
+  private static TopGroups<BytesRef> align(
+      TopGroups<BytesRef> topGroups, BytesRef[] groupValues, Sort groupSort, Sort withinGroupSort) {
+    Map<BytesRef, GroupDocs<BytesRef>> groupsByValue = new HashMap<>();
+    for (GroupDocs<BytesRef> group : topGroups.groups) {
+      groupsByValue.put(group.groupValue, group);
+    }
+
+    GroupDocs<BytesRef>[] aligned =
+        (GroupDocs<BytesRef>[]) Array.newInstance(GroupDocs.class, groupValues.length);
+    int totalGroupedHitCount = 0;
+    for (int i = 0; i < groupValues.length; i++) {
+      GroupDocs<BytesRef> group = groupsByValue.get(groupValues[i]);
+      if (group == null) {
+        group =
+            new GroupDocs<>(
+                Float.NaN,
+                Float.NaN,
+                new TotalHits(0, TotalHits.Relation.EQUAL_TO),
+                new ScoreDoc[0],
+                groupValues[i],
+                null);
+      }
+      aligned[i] = group;
+      totalGroupedHitCount += (int) group.totalHits.value;
+    }
+    return new TopGroups<>(
+        groupSort.getSort(),
+        withinGroupSort.getSort(),
+        topGroups.totalHitCount,
+        totalGroupedHitCount,
+        aligned,
+        topGroups.maxScore);
+  }
+}
@@ -163,24 +163,16 @@ public class TopGroupsShardResponseProcessor implements ShardResponseProcessor {
         continue;
       }
 
-      TopGroups<BytesRef>[] topGroupsArr =
-          (TopGroups<BytesRef>[]) Array.newInstance(TopGroups.class, topGroups.size());
-      int docsPerGroup = docsPerGroupDefault;
-      if (docsPerGroup < 0) {
-        docsPerGroup = 0;
-        for (TopGroups<?> subTopGroups : topGroups) {
-          docsPerGroup += subTopGroups.totalGroupedHitCount;
-        }
+      TopGroups<BytesRef> mergedTopGroups = mergeTopGroups(rb, topGroups);
+      TopGroups<BytesRef> firstPhaseTopGroups = rb.mergedTopGroups.get(entry.getKey());
+      if (rb.topGroupsFromFirstPhase && firstPhaseTopGroups != null) {
+        // only the ambiguous groups were requested, replace them in the single pass results
+        rb.mergedTopGroups.put(
+            entry.getKey(),
+            SinglePassTopGroupsMerger.replaceGroups(firstPhaseTopGroups, mergedTopGroups));
+      } else {
+        rb.mergedTopGroups.put(entry.getKey(), mergedTopGroups);
       }
-      rb.mergedTopGroups.put(
-          entry.getKey(),
-          TopGroups.merge(
-              topGroups.toArray(topGroupsArr),
-              groupSort,
-              withinGroupSort,
-              groupOffsetDefault,
-              docsPerGroup,
-              TopGroups.ScoreMergeMode.None));
     }
 
     // calculate topN and start for group.query
@@ -223,6 +215,46 @@ public class TopGroupsShardResponseProcessor implements ShardResponseProcessor {
     fillResultIds(rb);
   }
 
+  /**
+   * Merges the top groups returned by the shards for a field, which must list the same groups in
+   * the same order.
+   *
+   * @param rb the response builder
+   * @param topGroups the top groups of each shard
+   */
+  @SuppressWarnings("unchecked")
+  static TopGroups<BytesRef> mergeTopGroups(
+      ResponseBuilder rb, List<TopGroups<BytesRef>> topGroups) {
+    Sort groupSort = rb.getGroupingSpec().getGroupSortSpec().getSort();
+    SortSpec withinGroupSortSpec = rb.getGroupingSpec().getWithinGroupSortSpec();
+
+    // If group.format=simple group.offset doesn't make sense
+    int groupOffset;
+    if (rb.getGroupingSpec().getResponseFormat() == Grouping.Format.simple
+        || rb.getGroupingSpec().isMain()) {
+      groupOffset = 0;
+    } else {
+      groupOffset = withinGroupSortSpec.getOffset();
+    }
+    int docsPerGroup = withinGroupSortSpec.getCount();
+    if (docsPerGroup < 0) {
+      docsPerGroup = 0;
+      for (TopGroups<?> subTopGroups : topGroups) {
+        docsPerGroup += subTopGroups.totalGroupedHitCount;
+      }
+    }
+
+    TopGroups<BytesRef>[] topGroupsArr =
+        (TopGroups<BytesRef>[]) Array.newInstance(TopGroups.class, topGroups.size());
+    return TopGroups.merge(
+        topGroups.toArray(topGroupsArr),
+        groupSort,
+        withinGroupSortSpec.getSort(),
+        groupOffset,
+        docsPerGroup,
+        TopGroups.ScoreMergeMode.None);
+  }
+
   /**
    * Fill the {@link ResponseBuilder}'s <code>resultIds</code> field.
    *
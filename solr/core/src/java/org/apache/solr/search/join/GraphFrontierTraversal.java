@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.join;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LongBitSet;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Breadth first traversal of a graph whose frontiers are kept as bit sets, rather than turned into
+ * a query of the collected edge ids for each hop.
+ *
+ * <p>Each hop reads the edge ids of the docs newly added to the frontier from the docValues of the
+ * collect field, and seeks the ids that were not seen at a previous hop in the terms dictionary of
+ * the match field of each segment. Edge ordinals already looked up are tracked per segment, and
+ * docs already visited are skipped, so each edge id and each doc is only handled once per
+ * traversal.
+ *
+ * <p>Only usable when the collect field has sorted set docValues (or can be uninverted) and the
+ * match field is indexed.
+ *
+ * @lucene.internal
+ */
+class GraphFrontierTraversal {
+  private final List<LeafReaderContext> leaves;
+  private final SchemaField collectField;
+  private final SchemaField matchField;
+  private final DocSet leafNodes;
+  private final Bits traversalFilter;
+
+  // all the edge ids seen so far
+  private final BytesRefHash seenEdgeIds = new BytesRefHash();
+  // per segment, the ordinals of the collect field already looked up
+  private final LongBitSet[] seenOrds;
+
+  /**
+   * @param searcher the searcher to traverse
+   * @param collectField the field containing the edge ids
+   * @param matchField the field containing the node id
+   * @param leafNodes docs without edges, may be null
+   * @param traversalFilter docs that may be traversed to, or null if there is no restriction
+   */
+  GraphFrontierTraversal(
+      SolrIndexSearcher searcher,
+      SchemaField collectField,
+      SchemaField matchField,
+      DocSet leafNodes,
+      Bits traversalFilter) {
+    this.leaves = searcher.getTopReaderContext().leaves();
+    this.collectField = collectField;
+    this.matchField = matchField;
+    this.leafNodes = leafNodes;
+    this.traversalFilter = traversalFilter;
+    this.seenOrds = new LongBitSet[leaves.size()];
+  }
+
+  /** Whether the fields allow traversing with bit set frontiers. */
+  static boolean supports(SchemaField collectField, SchemaField matchField) {
+    return !collectField.getType().isPointField()
+        && !matchField.getType().isPointField()
+        && matchField.indexed();
+  }
+
+  /**
+   * Computes the next frontier.
+   *
+   * @param frontier the docs added to the traversal at the previous hop
+   * @param visited all the docs added to the traversal so far
+   * @return the docs reachable from the frontier that were not visited yet, or null if there are
+   *     none
+   */
+  FixedBitSet nextFrontier(FixedBitSet frontier, FixedBitSet visited) throws IOException {
+    BytesRef[] edgeIds = collectNewEdgeIds(frontier);
+    if (edgeIds.length == 0) {
+      return null;
+    }
+    Arrays.sort(edgeIds);
+
+    FixedBitSet next = new FixedBitSet(visited.length());
+    boolean found = false;
+    for (LeafReaderContext leaf : leaves) {
+      LeafReader reader = leaf.reader();
+      Terms terms = reader.terms(matchField.getName());
+      if (terms == null) {
+        continue;
+      }
+      Bits liveDocs = reader.getLiveDocs();
+      TermsEnum termsEnum = terms.iterator();
+      PostingsEnum postings = null;
+      for (BytesRef edgeId : edgeIds) {
+        if (!termsEnum.seekExact(edgeId)) {
+          continue;
+        }
+        postings = termsEnum.postings(postings, PostingsEnum.NONE);
+        int segDoc;
+        while ((segDoc = postings.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          int doc = leaf.docBase + segDoc;
+          if ((liveDocs != null && !liveDocs.get(segDoc))
+              || visited.get(doc)
+              || (traversalFilter != null && !traversalFilter.get(doc))) {
+            continue;
+          }
+          next.set(doc);
+          found = true;
+        }
+      }
+    }
+    return found ? next : null;
+  }
+
+  /** The edge ids of the frontier docs that were not seen at a previous hop */
+  private BytesRef[] collectNewEdgeIds(FixedBitSet frontier) throws IOException {
+    int firstNew = seenEdgeIds.size();
+    for (int i = 0; i < leaves.size(); i++) {
+      LeafReaderContext leaf = leaves.get(i);
+      int maxDoc = leaf.docBase + leaf.reader().maxDoc();
+      int doc = leaf.docBase < frontier.length() ? frontier.nextSetBit(leaf.docBase) : maxDoc;
+      if (doc >= maxDoc) {
+        continue;
+      }
+      SortedSetDocValues docTermOrds =
+          DocValues.getSortedSet(leaf.reader(), collectField.getName());
+      if (seenOrds[i] == null) {
+        seenOrds[i] = new LongBitSet(docTermOrds.getValueCount());
+      }
+      LongBitSet segSeenOrds = seenOrds[i];
+      while (doc < maxDoc) {
+        if ((leafNodes == null || !leafNodes.exists(doc))
+            && docTermOrds.advanceExact(doc - leaf.docBase)) {
+          long ord;
+          while ((ord = docTermOrds.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+            if (!segSeenOrds.getAndSet(ord)) {
+              seenEdgeIds.add(docTermOrds.lookupOrd(ord));
+            }
+          }
+        }
+        if (doc + 1 >= frontier.length()) {
+          break;
+        }
+        doc = frontier.nextSetBit(doc + 1);
+      }
+    }
+
+    BytesRef[] edgeIds = new BytesRef[seenEdgeIds.size() - firstNew];
+    for (int i = 0; i < edgeIds.length; i++) {
+      edgeIds[i] = seenEdgeIds.get(firstNew + i, new BytesRef());
+    }
+    return edgeIds;
+  }
+}
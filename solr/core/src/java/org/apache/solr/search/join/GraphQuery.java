@@ -45,6 +45,7 @@ import org.apache.lucene.util.automaton.DaciukMihovAutomatonBuilder;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocSet;
+import org.apache.solr.search.QueryLimits;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrSearcherRequirer;
 
@@ -91,6 +92,12 @@ public class GraphQuery extends Query implements SolrSearcherRequirer {
    */
   private boolean returnRoot = true;
 
+  /**
+   * False to build a query of the edge ids for each hop even when the fields allow keeping the
+   * frontiers as bit sets. Only for tests comparing both traversals.
+   */
+  private boolean frontierTraversal = true;
+
   /**
    * Create a graph query q - the starting node query fromField - the field containing the node id
    * toField - the field containing the edge ids
@@ -179,6 +186,10 @@ public class GraphQuery extends Query implements SolrSearcherRequirer {
      * @throws IOException - if a sub search fails... maybe other cases too! :)
      */
     private DocSet getDocSet() throws IOException {
+      if (frontierTraversal
+          && GraphFrontierTraversal.supports(collectSchemaField, matchSchemaField)) {
+        return getDocSetByFrontierTraversal();
+      }
       // Size that the bit set needs to be.
       int capacity = fromSearcher.getRawReader().maxDoc();
       // The bit set to contain the results that match the query.
@@ -191,6 +202,7 @@ public class GraphQuery extends Query implements SolrSearcherRequirer {
       Query frontierQuery = q;
       // Find all documents in this graph that are leaf nodes to speed traversal
       DocSet leafNodes = resolveLeafNodes();
+      QueryLimits queryLimits = QueryLimits.getCurrentLimits();
       // Start the breadth first graph traversal.
 
       do {
@@ -237,6 +249,10 @@ public class GraphQuery extends Query implements SolrSearcherRequirer {
         if ((maxDepth != -1 && currentDepth >= maxDepth)) {
           break;
         }
+        // the docs found so far are the partial results
+        if (queryLimits.maybeExitWithPartialResults("Graph traversal")) {
+          break;
+        }
       } while (frontierQuery != null);
       // helper bit set operations on the final result set
       if (!returnRoot) {
@@ -252,6 +268,54 @@ public class GraphQuery extends Query implements SolrSearcherRequirer {
       }
     }
 
+    /**
+     * Computes the matching doc set keeping each frontier as a bit set, see {@link
+     * GraphFrontierTraversal}. Equivalent to building a frontier query for each hop, which
+     * is still used for point fields.
+     */
+    private DocSet getDocSetByFrontierTraversal() throws IOException {
+      int capacity = fromSearcher.getRawReader().maxDoc();
+      FixedBitSet resultBits = new FixedBitSet(capacity);
+      DocSet leafNodes = resolveLeafNodes();
+      GraphFrontierTraversal traversal =
+          new GraphFrontierTraversal(
+              fromSearcher,
+              collectSchemaField,
+              matchSchemaField,
+              leafNodes,
+              getTraversalFilter() == null
+                  ? null
+                  : fromSearcher.getDocSetBits(getTraversalFilter()).getBits());
+
+      // the root docs, which are traversed regardless of the traversal filter
+      FixedBitSet frontier = fromSearcher.getDocSetBits(q).getBits().clone();
+      FixedBitSet rootBits = returnRoot ? null : frontier;
+      QueryLimits queryLimits = QueryLimits.getCurrentLimits();
+      currentDepth = 0;
+      while (frontier != null) {
+        resultBits.or(frontier);
+        if (maxDepth != -1 && currentDepth >= maxDepth) {
+          break;
+        }
+        // checked once per hop, the docs found so far are the partial results
+        if (queryLimits.maybeExitWithPartialResults("Graph traversal")) {
+          break;
+        }
+        frontier = traversal.nextFrontier(frontier, resultBits);
+        currentDepth++;
+      }
+
+      if (!returnRoot) {
+        resultBits.andNot(rootBits);
+      }
+      BitDocSet resultSet = new BitDocSet(resultBits);
+      if (onlyLeafNodes) {
+        return resultSet.intersection(leafNodes);
+      } else {
+        return resultSet;
+      }
+    }
+
     private DocSet resolveLeafNodes() throws IOException {
       String field = collectSchemaField.getName();
       BooleanQuery.Builder leafNodeQuery = new BooleanQuery.Builder();
@@ -416,6 +480,10 @@ public class GraphQuery extends Query implements SolrSearcherRequirer {
     this.returnRoot = returnRoot;
   }
 
+  void setFrontierTraversal(boolean frontierTraversal) {
+    this.frontierTraversal = frontierTraversal;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -16,6 +16,7 @@
  */
 package org.apache.solr.search.mlt;
 
+import static org.apache.solr.common.params.CommonParams.FL;
 import static org.apache.solr.common.params.CommonParams.ID;
 
 import java.io.IOException;
@@ -49,7 +50,7 @@ public class CloudMLTQParser extends SimpleMLTQParser {
   public Query parse() {
     String id = localParams.get(QueryParsing.V);
     // Do a Real Time Get for the document
-    SolrDocument doc = getDocument(id);
+    SolrDocument doc = getDocument(req, id, null);
     if (doc == null) {
       throw new SolrException(
           SolrException.ErrorCode.BAD_REQUEST,
@@ -97,11 +98,19 @@ public class CloudMLTQParser extends SimpleMLTQParser {
     return fields.toArray(new String[0]);
   }
 
-  private SolrDocument getDocument(String id) {
+  /**
+   * Real time gets the document with the given id, from any shard.
+   *
+   * @param fl the fields to return, or null for all of them
+   */
+  static SolrDocument getDocument(SolrQueryRequest req, String id, String fl) {
     SolrCore core = req.getCore();
     SolrQueryResponse rsp = new SolrQueryResponse();
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.add(ID, id);
+    if (fl != null) {
+      params.add(FL, fl);
+    }
 
     SolrQueryRequestBase request = new SolrQueryRequestBase(core, params) {};
 
@@ -21,14 +21,20 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QParserPlugin;
 
-/** Usage: {!mlt qf=queryField1,queryField2}uniqueId */
+/**
+ * Usage: {!mlt qf=queryField1,queryField2}uniqueId, or {!mlt signatureField=signatureField}uniqueId
+ * to find the similar docs by the signatures computed at index time; see {@link
+ * SignatureMLTQParser}.
+ */
 public class MLTQParserPlugin extends QParserPlugin {
   public static final String NAME = "mlt";
 
   @Override
   public QParser createParser(
       String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
-    if (req.getCore().getCoreDescriptor().getCloudDescriptor() != null) {
+    if (localParams != null && localParams.get(SignatureMLTQParser.SIGNATURE_FIELD) != null) {
+      return new SignatureMLTQParser(qstr, localParams, params, req);
+    } else if (req.getCore().getCoreDescriptor().getCloudDescriptor() != null) {
       return new CloudMLTQParser(qstr, localParams, params, req);
     } else {
       return new SimpleMLTQParser(qstr, localParams, params, req);
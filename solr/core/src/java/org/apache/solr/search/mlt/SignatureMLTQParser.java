@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.mlt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.MinHashQParser;
+import org.apache.solr.search.QueryParsing;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Finds the docs similar to a doc by the signature computed for each doc at index time, e.g. its
+ * min hashes or its top weighted terms, rather than by the terms of its analyzed fields. The
+ * signature of the doc is read from the docValues of the {@link #SIGNATURE_FIELD}, so neither term
+ * vectors nor stored fields are needed, and no text is analyzed. The docs sharing the most values
+ * of the signature score the highest; see {@link MinHashQParser#createFingerPrintQuery}.
+ *
+ * <p>The signatures are cached in the {@value #SIGNATURE_CACHE_NAME} user cache when it is defined
+ * in solrconfig.xml, e.g. <code>&lt;cache name="mltSignatureCache" class="solr.CaffeineCache"
+ * maxRamMB="16"/&gt;</code>.
+ *
+ * <p>Usage: {!mlt signatureField=signatureField sim=0.5 tp=1}uniqueId
+ */
+public class SignatureMLTQParser extends SimpleMLTQParser {
+  /** The field holding the signature of each doc, indexed and with sorted (set) docValues. */
+  public static final String SIGNATURE_FIELD = "signatureField";
+
+  /** Name of an optional user cache holding the signature of a doc. */
+  public static final String SIGNATURE_CACHE_NAME = "mltSignatureCache";
+
+  public SignatureMLTQParser(
+      String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
+    super(qstr, localParams, params, req);
+  }
+
+  @Override
+  public Query parse() {
+    String uniqueValue = localParams.get(QueryParsing.V);
+    SchemaField signatureField = req.getSchema().getField(localParams.get(SIGNATURE_FIELD));
+    if (!signatureField.indexed() || !signatureField.hasDocValues()) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "MoreLikeThis signature field ["
+              + signatureField.getName()
+              + "] must be indexed and have docValues");
+    }
+    // the signature is read as terms, which numeric docValues don't hold
+    FieldInfo fieldInfo = req.getSearcher().getFieldInfos().fieldInfo(signatureField.getName());
+    if (fieldInfo != null
+        && fieldInfo.getDocValuesType() != DocValuesType.SORTED
+        && fieldInfo.getDocValuesType() != DocValuesType.SORTED_SET) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "MoreLikeThis signature field ["
+              + signatureField.getName()
+              + "] must have SORTED or SORTED_SET docValues, not "
+              + fieldInfo.getDocValuesType());
+    }
+    Query docIdQuery = createIdQuery(req.getSchema().getUniqueKeyField().getName(), uniqueValue);
+
+    List<BytesRef> signature;
+    try {
+      signature = getSignature(signatureField, uniqueValue, docIdQuery);
+    } catch (IOException e) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "Error completing MLT request" + e.getMessage());
+    }
+    if (signature == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Error completing MLT request. Could not fetch "
+              + "document with id ["
+              + uniqueValue
+              + "]");
+    }
+    return exclude(
+        MinHashQParser.createFingerPrintQuery(
+            signatureField.getName(),
+            signature,
+            localParams.getFloat("sim", 1.0f),
+            localParams.getFloat("tp", 1.0f)),
+        docIdQuery);
+  }
+
+  /**
+   * The signature of the doc, from the cache, else from the docValues of the doc, else from a real
+   * time get of the doc when it is on another shard. Null if there is no such doc.
+   */
+  private List<BytesRef> getSignature(
+      SchemaField signatureField, String uniqueValue, Query docIdQuery) throws IOException {
+    SolrIndexSearcher searcher = req.getSearcher();
+    @SuppressWarnings("unchecked")
+    SolrCache<SignatureCacheKey, CachedSignature> signatureCache =
+        searcher.getCache(SIGNATURE_CACHE_NAME);
+    SignatureCacheKey cacheKey = new SignatureCacheKey(signatureField.getName(), uniqueValue);
+    if (signatureCache != null) {
+      CachedSignature cached = signatureCache.get(cacheKey);
+      if (cached != null) {
+        return cached.signature();
+      }
+    }
+
+    TopDocs td = searcher.search(docIdQuery, 2);
+    if (td.totalHits.value == 1) {
+      List<BytesRef> signature = readSignature(signatureField, td.scoreDocs[0].doc);
+      if (signatureCache != null) {
+        signatureCache.put(cacheKey, new CachedSignature(signature));
+      }
+      return signature;
+    } else if (td.totalHits.value == 0
+        && req.getCore().getCoreDescriptor().getCloudDescriptor() != null) {
+      // not cached: this searcher would not see the doc change on its shard
+      return fetchSignature(signatureField, uniqueValue);
+    }
+    return null;
+  }
+
+  /** Reads the signature of the doc from the docValues of the signature field. */
+  private List<BytesRef> readSignature(SchemaField signatureField, int docId) throws IOException {
+    List<LeafReaderContext> leaves = req.getSearcher().getTopReaderContext().leaves();
+    LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+    SortedSetDocValues docValues = DocValues.getSortedSet(leaf.reader(), signatureField.getName());
+    List<BytesRef> signature = new ArrayList<>();
+    if (docValues.advanceExact(docId - leaf.docBase)) {
+      for (int i = 0; i < docValues.docValueCount(); i++) {
+        signature.add(BytesRef.deepCopyOf(docValues.lookupOrd(docValues.nextOrd())));
+      }
+    }
+    return signature;
+  }
+
+  /** Fetches the signature of the doc with a real time get, or null if there is no such doc. */
+  private List<BytesRef> fetchSignature(SchemaField signatureField, String uniqueValue) {
+    SolrDocument doc = CloudMLTQParser.getDocument(req, uniqueValue, signatureField.getName());
+    if (doc == null) {
+      return null;
+    }
+    List<BytesRef> signature = new ArrayList<>();
+    Collection<Object> values = doc.getFieldValues(signatureField.getName());
+    if (values != null) {
+      for (Object value : values) {
+        BytesRefBuilder indexed = new BytesRefBuilder();
+        signatureField.getType().readableToIndexed(value.toString(), indexed);
+        signature.add(indexed.toBytesRef());
+      }
+    }
+    return signature;
+  }
+
+  /** Key of the {@link #SIGNATURE_CACHE_NAME} cache */
+  record SignatureCacheKey(String field, String uniqueValue) implements Accountable {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(SignatureCacheKey.class);
+
+    @Override
+    public long ramBytesUsed() {
+      // the field name is shared by the entries of the field
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(uniqueValue);
+    }
+  }
+
+  /** Value of the {@link #SIGNATURE_CACHE_NAME} cache */
+  record CachedSignature(List<BytesRef> signature) implements Accountable {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(CachedSignature.class);
+
+    @Override
+    public long ramBytesUsed() {
+      long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(signature);
+      for (BytesRef value : signature) {
+        ramBytesUsed +=
+            RamUsageEstimator.shallowSizeOf(value) + RamUsageEstimator.sizeOf(value.bytes);
+      }
+      return ramBytesUsed;
+    }
+  }
+}
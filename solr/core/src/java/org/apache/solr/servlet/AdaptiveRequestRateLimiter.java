@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.servlet;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.solr.core.RateLimiterConfig;
+
+/**
+ * A {@link RequestRateLimiter} whose concurrency limit is not fixed but continuously adjusted from
+ * the observed request latency.
+ *
+ * <p>Two exponentially weighted moving averages of request latency are kept: a short one tracking
+ * recent requests and a long one approximating the latency of an unloaded node. While the two
+ * agree, the limit grows by roughly the square root of its current value; once recent latency rises
+ * above the long term average (queueing has started somewhere), the limit is scaled down by the
+ * ratio of the two. The configured {@link RateLimiterConfig#allowedRequests} is used as the initial
+ * limit, and the limit always stays within {@link RateLimiterConfig#minAllowedRequests} and {@link
+ * RateLimiterConfig#maxAllowedRequests}.
+ *
+ * @lucene.experimental
+ */
+@ThreadSafe
+public class AdaptiveRequestRateLimiter extends RequestRateLimiter {
+
+  // Weight of a single latency sample in the short (recent) and long term averages
+  static final double SHORT_WINDOW_ALPHA = 0.1;
+  static final double LONG_WINDOW_ALPHA = 0.01;
+
+  // How much the recent latency may exceed the long term latency before the limit is reduced
+  static final double RTT_TOLERANCE = 1.5;
+
+  // Never shrink the limit by more than this factor in a single step
+  static final double MIN_GRADIENT = 0.5;
+
+  // Fraction of a newly computed limit that is blended into the current one
+  static final double LIMIT_SMOOTHING = 0.2;
+
+  private final RateLimiterConfig rateLimiterConfig;
+  private final int minLimit;
+  private final int maxLimit;
+
+  // All mutable state below is guarded by this
+  private int inFlight;
+  private double limit;
+  private double shortRttNanos = -1;
+  private double longRttNanos = -1;
+
+  public AdaptiveRequestRateLimiter(RateLimiterConfig rateLimiterConfig) {
+    super(rateLimiterConfig);
+    this.rateLimiterConfig = rateLimiterConfig;
+    this.minLimit = Math.max(1, rateLimiterConfig.minAllowedRequests);
+    this.maxLimit = Math.max(minLimit, rateLimiterConfig.maxAllowedRequests);
+    this.limit = Math.min(maxLimit, Math.max(minLimit, rateLimiterConfig.allowedRequests));
+  }
+
+  @Override
+  public SlotReservation handleRequest() throws InterruptedException {
+    if (!rateLimiterConfig.isEnabled) {
+      return UNLIMITED;
+    }
+    return acquire(rateLimiterConfig.waitForSlotAcquisition, 0, true);
+  }
+
+  /**
+   * Lends a slot to another request type as long as doing so leaves {@link
+   * RateLimiterConfig#guaranteedSlotsThreshold} slots of the current limit available to native
+   * requests. Borrowed requests do not contribute latency samples, since their latency says nothing
+   * about this request type.
+   */
+  @Override
+  public SlotReservation allowSlotBorrowing() throws InterruptedException {
+    if (!rateLimiterConfig.isSlotBorrowingEnabled) {
+      return null;
+    }
+    return acquire(0, Math.max(0, rateLimiterConfig.guaranteedSlotsThreshold), false);
+  }
+
+  private synchronized SlotReservation acquire(long waitMs, int reserved, boolean sample)
+      throws InterruptedException {
+    if (inFlight + reserved >= currentLimit()) {
+      if (waitMs <= 0) {
+        return null;
+      }
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+      while (inFlight + reserved >= currentLimit()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return null;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+    }
+    inFlight++;
+    return new AdaptiveReservation(sample);
+  }
+
+  private synchronized void release(long rttNanos, boolean sample) {
+    inFlight--;
+    if (sample) {
+      onSample(rttNanos, inFlight + 1);
+    }
+    // the limit may have grown, or at the very least a slot has been freed
+    notifyAll();
+  }
+
+  /**
+   * Feeds a latency sample into the limit estimation.
+   *
+   * @param rttNanos the time the request held its slot
+   * @param concurrency number of requests that were in flight when the sample was taken
+   */
+  @VisibleForTesting
+  synchronized void onSample(long rttNanos, int concurrency) {
+    if (rttNanos <= 0) {
+      return;
+    }
+    if (shortRttNanos < 0) {
+      shortRttNanos = longRttNanos = rttNanos;
+    } else {
+      shortRttNanos += (rttNanos - shortRttNanos) * SHORT_WINDOW_ALPHA;
+      longRttNanos += (rttNanos - longRttNanos) * LONG_WINDOW_ALPHA;
+    }
+
+    // After a period of overload the long term average is inflated; let it recover faster so that
+    // it does not mask the next episode of queueing
+    if (longRttNanos / shortRttNanos > 2.0) {
+      longRttNanos *= 0.95;
+    }
+
+    // Don't grow the limit when the load isn't even close to it, there is nothing to learn
+    if (concurrency < limit / 2) {
+      return;
+    }
+
+    double gradient =
+        Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRttNanos));
+    double newLimit = limit * gradient + Math.sqrt(limit);
+    newLimit = limit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING;
+    limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+  }
+
+  /** The number of concurrent requests currently admitted by this rate limiter. */
+  public synchronized int currentLimit() {
+    return (int) limit;
+  }
+
+  @VisibleForTesting
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  @Override
+  @VisibleForTesting
+  synchronized boolean isEmpty() {
+    return inFlight == 0;
+  }
+
+  private class AdaptiveReservation implements SlotReservation {
+    private final long startNanos = System.nanoTime();
+    private final boolean sample;
+
+    AdaptiveReservation(boolean sample) {
+      this.sample = sample;
+    }
+
+    @Override
+    public void close() {
+      release(System.nanoTime() - startNanos, sample);
+    }
+  }
+}
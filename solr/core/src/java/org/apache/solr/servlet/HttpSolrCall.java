@@ -151,6 +151,7 @@ public class HttpSolrCall {
   protected SolrCore core = null;
   protected SolrQueryRequest solrReq = null;
   private boolean mustClearSolrRequestInfo = false;
+  private RequestLanes.LaneReservation laneReservation;
   protected SolrRequestHandler handler = null;
   protected SolrParams queryParams;
   protected String path;
@@ -558,6 +559,10 @@ public class HttpSolrCall {
         }
       }
 
+      if (action == ADMIN || action == PROCESS) {
+        acquireLaneReservation();
+      }
+
       HttpServletResponse resp = response;
       switch (action) {
         case ADMIN_OR_REMOTEQUERY:
@@ -637,6 +642,27 @@ public class HttpSolrCall {
     }
   }
 
+  /**
+   * Takes a slot in the {@link RequestLanes} lane matching this request, which is released in
+   * {@link #destroy()}.
+   */
+  protected void acquireLaneReservation() {
+    RequestLanes.Lane lane =
+        RequestLanes.classify(
+            handler, path, solrReq != null ? solrReq.getParams() : queryParams, action == ADMIN);
+    try {
+      laneReservation = cores.getRequestLanes().acquire(lane);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(ErrorCode.SERVER_ERROR, e.getMessage());
+    }
+    if (laneReservation == null) {
+      throw new SolrException(
+          ErrorCode.TOO_MANY_REQUESTS,
+          "Too many concurrent " + lane.getName() + " requests. Please try after some time");
+    }
+  }
+
   /**
    * Handle a request whose "type" could not be discerned in advance and may be either "admin" or
    * "remotequery".
@@ -725,8 +751,14 @@ public class HttpSolrCall {
       try {
         if (core != null) core.close();
       } finally {
-        if (mustClearSolrRequestInfo) {
-          SolrRequestInfo.clearRequestInfo();
+        try {
+          if (laneReservation != null) {
+            laneReservation.close();
+          }
+        } finally {
+          if (mustClearSolrRequestInfo) {
+            SolrRequestInfo.clearRequestInfo();
+          }
         }
       }
       AuthenticationPlugin authcPlugin = cores.getAuthenticationPlugin();
@@ -71,7 +71,7 @@ public class QueryRateLimiter extends RequestRateLimiter {
 
   // To be used in initialization
   @SuppressWarnings({"unchecked"})
-  private static RateLimiterConfig constructQueryRateLimiterConfig(SolrZkClient zkClient) {
+  static RateLimiterConfig constructQueryRateLimiterConfig(SolrZkClient zkClient) {
     try {
 
       if (zkClient == null) {
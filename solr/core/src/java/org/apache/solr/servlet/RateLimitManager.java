@@ -74,7 +74,7 @@ public class RateLimitManager implements ClusterPropertiesListener {
             if (newConfig == null) {
               return v;
             } else {
-              return new QueryRateLimiter(newConfig);
+              return createRequestRateLimiter(newConfig);
             }
           } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -165,6 +165,18 @@ public class RateLimitManager implements ClusterPropertiesListener {
     return null;
   }
 
+  /**
+   * Creates the rate limiter implementation matching the given config: an {@link
+   * AdaptiveRequestRateLimiter} if adaptive limiting is enabled, otherwise a fixed slot {@link
+   * QueryRateLimiter}.
+   */
+  static RequestRateLimiter createRequestRateLimiter(RateLimiterConfig rateLimiterConfig) {
+    if (rateLimiterConfig.isAdaptive) {
+      return new AdaptiveRequestRateLimiter(rateLimiterConfig);
+    }
+    return new QueryRateLimiter(rateLimiterConfig);
+  }
+
   public void registerRequestRateLimiter(
       RequestRateLimiter requestRateLimiter, SolrRequest.SolrRequestType requestType) {
     requestRateLimiterMap.put(requestType.toString(), requestRateLimiter);
@@ -185,7 +197,8 @@ public class RateLimitManager implements ClusterPropertiesListener {
       RateLimitManager rateLimitManager = new RateLimitManager();
 
       rateLimitManager.registerRequestRateLimiter(
-          new QueryRateLimiter(solrZkClient), SolrRequest.SolrRequestType.QUERY);
+          createRequestRateLimiter(QueryRateLimiter.constructQueryRateLimiterConfig(solrZkClient)),
+          SolrRequest.SolrRequestType.QUERY);
 
       return rateLimitManager;
     }
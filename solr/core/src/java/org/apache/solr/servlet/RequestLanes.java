@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.servlet;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import java.lang.invoke.MethodHandles;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.EnvUtils;
+import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.handler.ReplicationHandler;
+import org.apache.solr.handler.UpdateRequestHandler;
+import org.apache.solr.metrics.SolrMetricProducer;
+import org.apache.solr.metrics.SolrMetricsContext;
+import org.apache.solr.request.SolrRequestHandler;
+import org.apache.solr.update.processor.DistributedUpdateProcessor;
+import org.apache.solr.update.processor.DistributingUpdateProcessorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounds the number of container threads each class of request may occupy at the same time, so
+ * that e.g. heavy bulk indexing cannot starve interactive queries served by the same node.
+ *
+ * <p>Every request processed by a core or container handler is classified into a {@link Lane}.
+ * Each lane has its own limit of concurrently executing requests and its own bounded queue of
+ * requests waiting for a slot; a request that finds the queue full, or that waits longer than the
+ * queue timeout, is rejected. Unlike the {@link RateLimitManager}, which only applies to external
+ * requests that declare their type, lanes also apply to internal requests such as shard
+ * sub-queries. Updates forwarded between replicas have a lane of their own, which is never limited:
+ * rejecting them would put replicas into recovery, and a leader waiting for the replicas while
+ * holding an update slot could deadlock with them.
+ *
+ * <p>Lanes are configured with system properties, e.g. {@code
+ * solr.requestlane.update.maxconcurrent}, {@code solr.requestlane.update.maxqueued} and {@code
+ * solr.requestlane.update.queuetimeoutms}. A lane without a positive {@code maxconcurrent} is
+ * unlimited, but its activity is still reported by the lane metrics.
+ */
+@ThreadSafe
+public class RequestLanes implements SolrMetricProducer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String SYSPROP_PREFIX = "solr.requestlane.";
+  public static final String MAX_CONCURRENT_SUFFIX = ".maxconcurrent";
+  public static final String MAX_QUEUED_SUFFIX = ".maxqueued";
+  public static final String QUEUE_TIMEOUT_MS_SUFFIX = ".queuetimeoutms";
+  public static final long DEFAULT_QUEUE_TIMEOUT_MS = 5000;
+
+  /** The classes of requests that are isolated from each other. */
+  public enum Lane {
+    /** Top level search requests, usually from clients */
+    QUERY,
+    /** Per shard sub-requests of a distributed search */
+    SHARD_QUERY,
+    /** Indexing requests */
+    UPDATE,
+    /** Updates forwarded to the leader or from the leader to the replicas, never limited */
+    FORWARDED_UPDATE(false),
+    /** Index replication between replicas */
+    REPLICATION,
+    /** Admin requests, to container or core admin handlers */
+    ADMIN;
+
+    private final boolean limitable;
+
+    Lane() {
+      this(true);
+    }
+
+    Lane(boolean limitable) {
+      this.limitable = limitable;
+    }
+
+    public String getName() {
+      return name().toLowerCase(Locale.ROOT).replace("_", "");
+    }
+
+    /** Whether the requests of this lane may be limited, otherwise its configuration is ignored. */
+    public boolean isLimitable() {
+      return limitable;
+    }
+  }
+
+  /** A slot taken in a lane, which must be closed once the request is completed. */
+  public interface LaneReservation extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private final Map<Lane, LaneLimiter> limiters = new EnumMap<>(Lane.class);
+  private SolrMetricsContext solrMetricsContext;
+
+  public RequestLanes(Map<Lane, LaneConfig> configs) {
+    for (Lane lane : Lane.values()) {
+      LaneConfig config =
+          lane.isLimitable()
+              ? configs.getOrDefault(lane, LaneConfig.UNLIMITED)
+              : LaneConfig.UNLIMITED;
+      limiters.put(lane, new LaneLimiter(config));
+    }
+  }
+
+  /** Creates lanes configured from the {@code solr.requestlane.*} system properties. */
+  public static RequestLanes fromSystemProperties() {
+    Map<Lane, LaneConfig> configs = new EnumMap<>(Lane.class);
+    for (Lane lane : Lane.values()) {
+      String prefix = SYSPROP_PREFIX + lane.getName();
+      int maxConcurrent = EnvUtils.getPropertyAsInteger(prefix + MAX_CONCURRENT_SUFFIX, -1);
+      if (maxConcurrent <= 0) {
+        continue;
+      }
+      if (!lane.isLimitable()) {
+        log.warn("Request lane {} can't be limited, ignoring its configuration", lane.getName());
+        continue;
+      }
+      LaneConfig config =
+          new LaneConfig(
+              maxConcurrent,
+              EnvUtils.getPropertyAsInteger(prefix + MAX_QUEUED_SUFFIX, maxConcurrent),
+              EnvUtils.getPropertyAsLong(
+                  prefix + QUEUE_TIMEOUT_MS_SUFFIX, DEFAULT_QUEUE_TIMEOUT_MS));
+      log.info("Request lane {} configured with {}", lane.getName(), config);
+      configs.put(lane, config);
+    }
+    return new RequestLanes(configs);
+  }
+
+  /**
+   * Classifies a request.
+   *
+   * @param handler the handler that will process the request
+   * @param path the path of the handler, relative to the core if any
+   * @param params the request parameters
+   * @param isContainerHandler whether the handler is a container level handler
+   */
+  public static Lane classify(
+      SolrRequestHandler handler, String path, SolrParams params, boolean isContainerHandler) {
+    if (isContainerHandler) {
+      return Lane.ADMIN;
+    }
+    if (handler instanceof ReplicationHandler) {
+      return Lane.REPLICATION;
+    }
+    if (handler instanceof UpdateRequestHandler) {
+      if (params != null
+          && (params.get(DistributedUpdateProcessor.DISTRIB_FROM) != null
+              || params.get(DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM) != null)) {
+        return Lane.FORWARDED_UPDATE;
+      }
+      return Lane.UPDATE;
+    }
+    if (path != null && path.startsWith("/admin/")) {
+      return Lane.ADMIN;
+    }
+    if (params != null && params.getBool(ShardParams.IS_SHARD, false)) {
+      return Lane.SHARD_QUERY;
+    }
+    return Lane.QUERY;
+  }
+
+  /**
+   * Takes a slot in the given lane, waiting in the lane's queue if there is none available.
+   *
+   * @return the reservation, or null if the request should be rejected
+   */
+  public LaneReservation acquire(Lane lane) throws InterruptedException {
+    return limiters.get(lane).acquire();
+  }
+
+  LaneConfig getLaneConfig(Lane lane) {
+    return limiters.get(lane).config;
+  }
+
+  int getActive(Lane lane) {
+    return limiters.get(lane).active.get();
+  }
+
+  int getQueued(Lane lane) {
+    return limiters.get(lane).queued.get();
+  }
+
+  @Override
+  public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+    solrMetricsContext = parentContext.getChildContext(this);
+    String category = SolrInfoBean.Category.CONTAINER.toString();
+    for (Map.Entry<Lane, LaneLimiter> entry : limiters.entrySet()) {
+      String laneName = entry.getKey().getName();
+      LaneLimiter limiter = entry.getValue();
+      solrMetricsContext.gauge(limiter.active::get, true, "active", category, scope, laneName);
+      solrMetricsContext.gauge(limiter.queued::get, true, "queued", category, scope, laneName);
+      limiter.rejected = solrMetricsContext.counter("rejected", category, scope, laneName);
+      limiter.queueTime = solrMetricsContext.timer("queueTime", category, scope, laneName);
+    }
+  }
+
+  @Override
+  public SolrMetricsContext getSolrMetricsContext() {
+    return solrMetricsContext;
+  }
+
+  /**
+   * The limits of a lane.
+   *
+   * @param maxConcurrent the maximum number of requests executing at the same time, or -1 if
+   *     unlimited
+   * @param maxQueued the maximum number of requests waiting for a slot
+   * @param queueTimeoutMs the maximum time a request waits for a slot, in milliseconds
+   */
+  public record LaneConfig(int maxConcurrent, int maxQueued, long queueTimeoutMs) {
+    public static final LaneConfig UNLIMITED = new LaneConfig(-1, 0, 0);
+
+    public boolean isLimited() {
+      return maxConcurrent > 0;
+    }
+  }
+
+  private static class LaneLimiter {
+    final LaneConfig config;
+    final Semaphore slots;
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger queued = new AtomicInteger();
+    volatile Counter rejected;
+    volatile Timer queueTime;
+
+    LaneLimiter(LaneConfig config) {
+      this.config = config;
+      this.slots = config.isLimited() ? new Semaphore(config.maxConcurrent(), true) : null;
+    }
+
+    LaneReservation acquire() throws InterruptedException {
+      if (slots != null && !slots.tryAcquire()) {
+        if (queued.incrementAndGet() > config.maxQueued()) {
+          queued.decrementAndGet();
+          reject();
+          return null;
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+          acquired = slots.tryAcquire(config.queueTimeoutMs(), TimeUnit.MILLISECONDS);
+        } finally {
+          queued.decrementAndGet();
+          Timer timer = queueTime;
+          if (timer != null) {
+            timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          }
+        }
+        if (!acquired) {
+          reject();
+          return null;
+        }
+      }
+      active.incrementAndGet();
+      return new LaneReservation() {
+        private boolean closed;
+
+        @Override
+        public void close() {
+          if (closed) {
+            return;
+          }
+          closed = true;
+          active.decrementAndGet();
+          if (slots != null) {
+            slots.release();
+          }
+        }
+      };
+    }
+
+    private void reject() {
+      Counter counter = rejected;
+      if (counter != null) {
+        counter.inc();
+      }
+    }
+  }
+}
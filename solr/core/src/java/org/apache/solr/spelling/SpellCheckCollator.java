@@ -18,12 +18,16 @@ package org.apache.solr.spelling;
 
 import static org.apache.solr.common.params.CommonParams.ID;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.DisMaxParams;
@@ -36,8 +40,17 @@ import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.handler.component.QueryComponent;
 import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.search.EarlyTerminatingCollector;
+import org.apache.solr.search.EarlyTerminatingCollectorException;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
 import org.apache.solr.search.QueryLimits;
+import org.apache.solr.search.QueryParsing;
+import org.apache.solr.search.QueryUtils;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.SolrIndexSearcher.ProcessedFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +61,7 @@ public class SpellCheckCollator {
   private int maxCollationEvaluations = 10000;
   private boolean suggestionsMayOverlap = false;
   private int docCollectionLimit = 0;
+  private boolean collateParallel = false;
 
   public List<SpellCheckCollation> collate(
       SpellingResult result, String originalQuery, ResponseBuilder ultimateResponse) {
@@ -93,6 +107,14 @@ public class SpellCheckCollator {
             maxNumberToIterate,
             maxCollationEvaluations,
             suggestionsMayOverlap);
+    if (verifyCandidateWithQuery && collateParallel) {
+      ProcessedFilter filter = getCollationFilter(originalQuery, ultimateResponse);
+      // post filters are only applied by the query component
+      if (filter != null && filter.postFilter == null) {
+        return collateInParallel(
+            possibilityIter, maxTries, originalQuery, filter.filter, ultimateResponse, queryLimits);
+      }
+    }
     while (tryNo < maxTries && collNo < maxCollations && possibilityIter.hasNext()) {
 
       if (queryLimits.maybeExitWithPartialResults("SpellCheck collator")) {
@@ -105,46 +127,7 @@ public class SpellCheckCollator {
 
       if (verifyCandidateWithQuery) {
         tryNo++;
-        SolrParams origParams = ultimateResponse.req.getParams();
-        ModifiableSolrParams params = new ModifiableSolrParams(origParams);
-        Iterator<String> origParamIterator = origParams.getParameterNamesIterator();
-        int pl = SpellingParams.SPELLCHECK_COLLATE_PARAM_OVERRIDE.length();
-        while (origParamIterator.hasNext()) {
-          String origParamName = origParamIterator.next();
-          if (origParamName.startsWith(SpellingParams.SPELLCHECK_COLLATE_PARAM_OVERRIDE)
-              && origParamName.length() > pl) {
-            String[] val = origParams.getParams(origParamName);
-            if (val.length == 1 && val[0].length() == 0) {
-              params.set(origParamName.substring(pl), (String[]) null);
-            } else {
-              params.set(origParamName.substring(pl), val);
-            }
-          }
-        }
-        params.set(CommonParams.Q, collationQueryStr);
-        params.remove(CommonParams.START);
-        params.set(CommonParams.ROWS, "" + docCollectionLimit);
-        if (docCollectionLimit > 0) {
-          params.set(CommonParams.MAX_HITS_ALLOWED, docCollectionLimit);
-        }
-        // we don't want any stored fields
-        params.set(CommonParams.FL, ID);
-        // we'll sort by doc id to ensure no scoring is done.
-        params.set(CommonParams.SORT, "_docid_ asc");
-        // CursorMark does not like _docid_ sorting, and we don't need it.
-        params.remove(CursorMarkParams.CURSOR_MARK_PARAM);
-        // If a dismax query, don't add unnecessary clauses for scoring
-        params.remove(DisMaxParams.TIE);
-        params.remove(DisMaxParams.PF);
-        params.remove(DisMaxParams.PF2);
-        params.remove(DisMaxParams.PF3);
-        params.remove(DisMaxParams.BQ);
-        params.remove(DisMaxParams.BF);
-        // Collate testing does not support Grouping (see SOLR-2577)
-        params.remove(GroupParams.GROUP);
-
-        // Collate testing does not support the Collapse QParser (See SOLR-8807)
-        params.remove("expand");
+        SolrParams params = getCollationParams(ultimateResponse.req.getParams(), collationQueryStr);
 
         // creating a request here... make sure to close it!
         ResponseBuilder checkResponse =
@@ -180,20 +163,7 @@ public class SpellCheckCollator {
       }
       if (hits > 0 || !verifyCandidateWithQuery) {
         collNo++;
-        SpellCheckCollation collation = new SpellCheckCollation();
-        collation.setCollationQuery(collationQueryStr);
-        collation.setHits(hits);
-        collation.setInternalRank(
-            suggestionsMayOverlap
-                ? ((possibility.rank * 1000) + possibility.index)
-                : possibility.rank);
-
-        NamedList<String> misspellingsAndCorrections = new NamedList<>();
-        for (SpellCheckCorrection corr : possibility.corrections) {
-          misspellingsAndCorrections.add(corr.getOriginal().toString(), corr.getCorrection());
-        }
-        collation.setMisspellingsAndCorrections(misspellingsAndCorrections);
-        collations.add(collation);
+        collations.add(createCollation(collationQueryStr, hits, possibility));
       }
       if (log.isDebugEnabled()) {
         log.debug(
@@ -205,6 +175,236 @@ public class SpellCheckCollator {
     return collations;
   }
 
+  /**
+   * Tests the collations by counting their hits against the filters of the original query,
+   * concurrently with the executor of the searcher. A collation is not tested once enough better
+   * ranked collations are known to have hits, as it could not be returned.
+   */
+  private List<SpellCheckCollation> collateInParallel(
+      PossibilityIterator possibilityIter,
+      int maxTries,
+      String originalQuery,
+      Query filter,
+      ResponseBuilder ultimateResponse,
+      QueryLimits queryLimits) {
+    List<PossibilityIterator.RankedSpellPossibility> possibilities = new ArrayList<>();
+    List<String> collationQueryStrs = new ArrayList<>();
+    List<Query> collationQueries = new ArrayList<>();
+    while (possibilities.size() < maxTries && possibilityIter.hasNext()) {
+      if (queryLimits.maybeExitWithPartialResults("SpellCheck collator")) {
+        return List.of();
+      }
+      PossibilityIterator.RankedSpellPossibility possibility = possibilityIter.next();
+      String collationQueryStr = getCollation(originalQuery, possibility.corrections);
+      possibilities.add(possibility);
+      collationQueryStrs.add(collationQueryStr);
+      // parsed by this thread, as query parsers may rely on the request info of the thread
+      collationQueries.add(parseCollation(collationQueryStr, ultimateResponse));
+    }
+
+    SolrIndexSearcher searcher = ultimateResponse.req.getSearcher();
+    long[] hits = new long[collationQueries.size()];
+    CollationBudget budget = new CollationBudget(collationQueries.size(), maxCollations);
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < collationQueries.size(); i++) {
+      if (collationQueries.get(i) == null) {
+        continue;
+      }
+      final int index = i;
+      final Query query = QueryUtils.combineQueryAndFilter(collationQueries.get(i), filter);
+      tasks.add(
+          () -> {
+            if (budget.isNeeded(index)) {
+              hits[index] = countHits(searcher, query);
+              if (hits[index] > 0) {
+                budget.setHasHits(index);
+              }
+            }
+            return null;
+          });
+    }
+    // the limits are checked by this thread, between batches of as many tasks as processors, as
+    // they may depend on the thread, e.g. its CPU time
+    int batchSize = Runtime.getRuntime().availableProcessors();
+    for (int start = 0; start < tasks.size(); start += batchSize) {
+      if (queryLimits.maybeExitWithPartialResults("SpellCheck collator")) {
+        return List.of();
+      }
+      try {
+        searcher
+            .getTaskExecutor()
+            .invokeAll(tasks.subList(start, Math.min(start + batchSize, tasks.size())));
+      } catch (IOException e) {
+        log.warn("Exception trying to count the hits of the spell check possibilities.", e);
+        return List.of();
+      }
+    }
+    if (queryLimits.maybeExitWithPartialResults("SpellCheck collator")) {
+      return List.of();
+    }
+
+    List<SpellCheckCollation> collations = new ArrayList<>();
+    for (int i = 0; i < possibilities.size() && collations.size() < maxCollations; i++) {
+      if (hits[i] > 0) {
+        collations.add(createCollation(collationQueryStrs.get(i), hits[i], possibilities.get(i)));
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Collation: {} will return {} hits.", collationQueryStrs.get(i), hits[i]);
+      }
+    }
+    return collations;
+  }
+
+  /**
+   * The filters the collations are tested against, as the test queries would: the filters of the
+   * original query, and the filter queries of the test queries, including those overridden with
+   * {@link SpellingParams#SPELLCHECK_COLLATE_PARAM_OVERRIDE}.
+   *
+   * @return the processed filters, or null if they could not be parsed
+   */
+  private ProcessedFilter getCollationFilter(
+      String originalQuery, ResponseBuilder ultimateResponse) {
+    List<Query> filters = new ArrayList<>();
+    if (ultimateResponse.getFilters() != null) {
+      filters.addAll(ultimateResponse.getFilters());
+    }
+    SolrParams params = getCollationParams(ultimateResponse.req.getParams(), originalQuery);
+    try (SolrQueryRequest req = ultimateResponse.req.subRequest(params)) {
+      filters.addAll(QueryUtils.parseFilterQueries(req));
+      return req.getSearcher().getProcessedFilter(filters);
+    } catch (Exception e) {
+      log.warn("Exception trying to parse the filters of the spell check possibilities.", e);
+      return null;
+    }
+  }
+
+  /** Parses a collation as the test query would, or returns null if it can't be parsed. */
+  private Query parseCollation(String collationQueryStr, ResponseBuilder ultimateResponse) {
+    SolrParams params = getCollationParams(ultimateResponse.req.getParams(), collationQueryStr);
+    String defType = params.get(QueryParsing.DEFTYPE, QParserPlugin.DEFAULT_QTYPE);
+    try (SolrQueryRequest req = ultimateResponse.req.subRequest(params)) {
+      Query query = QParser.getParser(collationQueryStr, defType, req).getQuery();
+      return query != null ? QueryUtils.makeQueryable(query) : null;
+    } catch (Exception e) {
+      log.warn(
+          "Exception trying to parse a spell check possibility to check if it would return any hits.",
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Counts the hits of a collation, or estimates them from the first docs when the number of docs
+   * to collect is limited, as the test query would with {@link CommonParams#MAX_HITS_ALLOWED}.
+   */
+  private long countHits(SolrIndexSearcher searcher, Query query) {
+    TotalHitCountCollector collector = new TotalHitCountCollector();
+    try {
+      if (docCollectionLimit > 0) {
+        searcher.search(query, new EarlyTerminatingCollector(collector, docCollectionLimit));
+      } else {
+        searcher.search(query, collector);
+      }
+    } catch (EarlyTerminatingCollectorException e) {
+      return e.getApproximateTotalHits(searcher.maxDoc());
+    } catch (Exception e) {
+      log.warn(
+          "Exception trying to re-query to check if a spell check possibility would return any hits.",
+          e);
+      return 0;
+    }
+    return collector.getTotalHits();
+  }
+
+  /** The parameters of the query testing a collation. */
+  private SolrParams getCollationParams(SolrParams origParams, String collationQueryStr) {
+    ModifiableSolrParams params = new ModifiableSolrParams(origParams);
+    Iterator<String> origParamIterator = origParams.getParameterNamesIterator();
+    int pl = SpellingParams.SPELLCHECK_COLLATE_PARAM_OVERRIDE.length();
+    while (origParamIterator.hasNext()) {
+      String origParamName = origParamIterator.next();
+      if (origParamName.startsWith(SpellingParams.SPELLCHECK_COLLATE_PARAM_OVERRIDE)
+          && origParamName.length() > pl) {
+        String[] val = origParams.getParams(origParamName);
+        if (val.length == 1 && val[0].length() == 0) {
+          params.set(origParamName.substring(pl), (String[]) null);
+        } else {
+          params.set(origParamName.substring(pl), val);
+        }
+      }
+    }
+    params.set(CommonParams.Q, collationQueryStr);
+    params.remove(CommonParams.START);
+    params.set(CommonParams.ROWS, "" + docCollectionLimit);
+    if (docCollectionLimit > 0) {
+      params.set(CommonParams.MAX_HITS_ALLOWED, docCollectionLimit);
+    }
+    // we don't want any stored fields
+    params.set(CommonParams.FL, ID);
+    // we'll sort by doc id to ensure no scoring is done.
+    params.set(CommonParams.SORT, "_docid_ asc");
+    // CursorMark does not like _docid_ sorting, and we don't need it.
+    params.remove(CursorMarkParams.CURSOR_MARK_PARAM);
+    // If a dismax query, don't add unnecessary clauses for scoring
+    params.remove(DisMaxParams.TIE);
+    params.remove(DisMaxParams.PF);
+    params.remove(DisMaxParams.PF2);
+    params.remove(DisMaxParams.PF3);
+    params.remove(DisMaxParams.BQ);
+    params.remove(DisMaxParams.BF);
+    // Collate testing does not support Grouping (see SOLR-2577)
+    params.remove(GroupParams.GROUP);
+
+    // Collate testing does not support the Collapse QParser (See SOLR-8807)
+    params.remove("expand");
+    return params;
+  }
+
+  private SpellCheckCollation createCollation(
+      String collationQueryStr, long hits, PossibilityIterator.RankedSpellPossibility possibility) {
+    SpellCheckCollation collation = new SpellCheckCollation();
+    collation.setCollationQuery(collationQueryStr);
+    collation.setHits(hits);
+    collation.setInternalRank(
+        suggestionsMayOverlap ? ((possibility.rank * 1000) + possibility.index) : possibility.rank);
+
+    NamedList<String> misspellingsAndCorrections = new NamedList<>();
+    for (SpellCheckCorrection corr : possibility.corrections) {
+      misspellingsAndCorrections.add(corr.getOriginal().toString(), corr.getCorrection());
+    }
+    collation.setMisspellingsAndCorrections(misspellingsAndCorrections);
+    return collation;
+  }
+
+  /**
+   * Tracks which collations, in rank order, have hits, so that the collations that can no longer be
+   * returned are not tested.
+   */
+  private static class CollationBudget {
+    private final boolean[] hasHits;
+    private final int maxCollations;
+
+    CollationBudget(int numCollations, int maxCollations) {
+      this.hasHits = new boolean[numCollations];
+      this.maxCollations = maxCollations;
+    }
+
+    synchronized void setHasHits(int index) {
+      hasHits[index] = true;
+    }
+
+    /** Whether fewer than maxCollations better ranked collations are known to have hits. */
+    synchronized boolean isNeeded(int index) {
+      int betterWithHits = 0;
+      for (int i = 0; i < index; i++) {
+        if (hasHits[i] && ++betterWithHits >= maxCollations) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   private String getCollation(String origQuery, List<SpellCheckCorrection> corrections) {
     StringBuilder collation = new StringBuilder(origQuery);
     int offset = 0;
@@ -284,4 +484,9 @@ public class SpellCheckCollator {
     this.docCollectionLimit = docCollectionLimit;
     return this;
   }
+
+  public SpellCheckCollator setCollateParallel(boolean collateParallel) {
+    this.collateParallel = collateParallel;
+    return this;
+  }
 }
@@ -17,6 +17,7 @@
 package org.apache.solr.spelling.suggest;
 
 import java.io.IOException;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.search.spell.Dictionary;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.SolrCore;
@@ -43,4 +44,16 @@ public abstract class DictionaryFactory {
    * </code>, in case of index based dictionaries
    */
   public abstract Dictionary create(SolrCore core, SolrIndexSearcher searcher) throws IOException;
+
+  /**
+   * Create a Dictionary of the documents of a single <code>segment</code> of the <code>searcher
+   * </code>, for suggesters built incrementally, segment by segment.
+   *
+   * @return the dictionary, or null if this factory does not support per-segment dictionaries
+   * @see SolrSuggester#INCREMENTAL
+   */
+  public Dictionary createForSegment(
+      SolrCore core, SolrIndexSearcher searcher, LeafReader segment) throws IOException {
+    return null;
+  }
 }
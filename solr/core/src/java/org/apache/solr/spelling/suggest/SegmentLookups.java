@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.spelling.suggest;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.spell.Dictionary;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.Lookup.LookupResult;
+import org.apache.lucene.util.Accountable;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.IOFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The lookups of an incremental {@link SolrSuggester}: one {@link Lookup} per index segment, built
+ * from the documents of that segment only.
+ *
+ * <p>When the suggester is built with a new searcher, the lookups of the segments the searcher
+ * shares with the previous one are reused, so only the new segments (flushed or merged since) and
+ * the segments with new deletions are read. Suggestions are looked up in each segment, then merged
+ * by weight, keeping the greatest weight of a suggestion found in several segments.
+ */
+class SegmentLookups implements Accountable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** The lookup of a segment, and the number of deleted docs of the segment when it was built. */
+  private record SegmentLookup(Lookup lookup, int numDeletedDocs) {}
+
+  private static final Comparator<LookupResult> BY_WEIGHT =
+      Comparator.<LookupResult>comparingLong(result -> result.value)
+          .reversed()
+          .thenComparing(result -> result.key.toString());
+
+  private final NamedList<?> config;
+  private final LookupFactory factory;
+  private final DictionaryFactory dictionaryFactory;
+
+  // keyed by the core cache key of the segments; replaced, not modified, by build
+  private volatile Map<Object, SegmentLookup> lookups = Map.of();
+
+  SegmentLookups(NamedList<?> config, LookupFactory factory, DictionaryFactory dictionaryFactory) {
+    this.config = config;
+    this.factory = factory;
+    this.dictionaryFactory = dictionaryFactory;
+  }
+
+  /** Builds the lookups of the segments of the searcher that were not built yet. */
+  synchronized void build(SolrCore core, SolrIndexSearcher searcher) throws IOException {
+    Map<Object, SegmentLookup> previousLookups = lookups;
+    Map<Object, SegmentLookup> newLookups = new HashMap<>();
+    int builtCount = 0;
+    for (LeafReaderContext leaf : searcher.getTopReaderContext().leaves()) {
+      LeafReader reader = leaf.reader();
+      if (reader.numDocs() == 0) {
+        continue;
+      }
+      IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+      Object key = cacheHelper != null ? cacheHelper.getKey() : reader;
+      SegmentLookup segmentLookup = previousLookups.get(key);
+      if (segmentLookup == null || segmentLookup.numDeletedDocs() != reader.numDeletedDocs()) {
+        Dictionary dictionary = dictionaryFactory.createForSegment(core, searcher, reader);
+        if (dictionary == null) {
+          throw new IllegalArgumentException(
+              dictionaryFactory.getClass().getSimpleName()
+                  + " does not support "
+                  + SolrSuggester.INCREMENTAL
+                  + " suggesters");
+        }
+        Lookup lookup = factory.create(config, core);
+        lookup.build(dictionary);
+        segmentLookup = new SegmentLookup(lookup, reader.numDeletedDocs());
+        builtCount++;
+      }
+      newLookups.put(key, segmentLookup);
+    }
+    lookups = newLookups;
+    if (log.isInfoEnabled()) {
+      log.info("Built the lookups of {} out of {} segments", builtCount, newLookups.size());
+    }
+  }
+
+  /**
+   * Looks up the suggestions of each segment, and merges them.
+   *
+   * @param segmentLookup looks up the suggestions of a segment; may return null if the lookup does
+   *     not support the request
+   * @param num the maximum number of suggestions to return
+   * @return the suggestions, or null if a segment returned null
+   */
+  List<LookupResult> lookup(IOFunction<Lookup, List<LookupResult>> segmentLookup, int num)
+      throws IOException {
+    Map<String, LookupResult> resultsByKey = new HashMap<>();
+    for (SegmentLookup lookup : lookups.values()) {
+      List<LookupResult> results = segmentLookup.apply(lookup.lookup());
+      if (results == null) {
+        return null;
+      }
+      for (LookupResult result : results) {
+        resultsByKey.merge(
+            result.key.toString(),
+            result,
+            (previous, current) -> current.value > previous.value ? current : previous);
+      }
+    }
+    List<LookupResult> merged = new ArrayList<>(resultsByKey.values());
+    merged.sort(BY_WEIGHT);
+    return merged.size() > num ? merged.subList(0, num) : merged;
+  }
+
+  /** The number of segments with a lookup */
+  int getSegmentCount() {
+    return lookups.size();
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long ramBytesUsed = 0;
+    for (SegmentLookup lookup : lookups.values()) {
+      ramBytesUsed += lookup.lookup().ramBytesUsed();
+    }
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    List<Accountable> childResources = new ArrayList<>();
+    for (SegmentLookup lookup : lookups.values()) {
+      childResources.add(lookup.lookup());
+    }
+    return childResources;
+  }
+}
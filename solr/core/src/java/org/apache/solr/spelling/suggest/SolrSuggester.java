@@ -45,6 +45,7 @@ import org.apache.solr.core.CloseHook;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.update.SolrCoreState;
+import org.apache.solr.util.IOFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,6 +75,13 @@ public class SolrSuggester implements Accountable {
    */
   public static final String STORE_DIR = "storeDir";
 
+  /**
+   * Whether to build one lookup per index segment, so that a build only reads the segments that
+   * changed since the previous build. Requires a dictionary supporting {@link
+   * DictionaryFactory#createForSegment} and an in-memory lookup; the lookups are not stored.
+   */
+  public static final String INCREMENTAL = "incremental";
+
   static SuggesterResult EMPTY_RESULT = new SuggesterResult();
 
   private String sourceLocation;
@@ -87,6 +95,7 @@ public class SolrSuggester implements Accountable {
   private LookupFactory factory;
   private DictionaryFactory dictionaryFactory;
   private Analyzer contextFilterQueryAnalyzer;
+  private SegmentLookups segmentLookups; // null unless incremental
 
   /**
    * Uses the <code>config</code> and the <code>core</code> to initialize the underlying Lucene
@@ -163,6 +172,18 @@ public class SolrSuggester implements Accountable {
     dictionaryFactory.setParams(config);
     log.info("Dictionary loaded with params: {}", config);
 
+    if (Boolean.parseBoolean(String.valueOf(config.get(INCREMENTAL)))) {
+      if (lookup instanceof Closeable) {
+        // such lookups, e.g. the infix ones, keep an index in a directory of their own
+        throw new IllegalArgumentException(
+            lookupImpl + " does not support " + INCREMENTAL + " suggesters");
+      }
+      if (storeDir != null) {
+        log.warn("{} is ignored by {} suggesters", STORE_DIR, INCREMENTAL);
+      }
+      segmentLookups = new SegmentLookups(config, factory, dictionaryFactory);
+    }
+
     return name;
   }
 
@@ -170,6 +191,19 @@ public class SolrSuggester implements Accountable {
   public void build(SolrCore core, SolrIndexSearcher searcher) throws IOException {
     log.info("SolrSuggester.build({})", name);
 
+    if (segmentLookups != null) {
+      try {
+        segmentLookups.build(core, searcher);
+      } catch (AlreadyClosedException e) {
+        RuntimeException e2 =
+            new SolrCoreState.CoreIsClosedException(
+                "Suggester build has been interrupted by a core reload or shutdown.");
+        e2.initCause(e);
+        throw e2;
+      }
+      return;
+    }
+
     dictionary = dictionaryFactory.create(core, searcher);
     try {
       lookup.build(dictionary);
@@ -195,7 +229,7 @@ public class SolrSuggester implements Accountable {
   /** Reloads the underlying Lucene Suggester */
   public void reload() throws IOException {
     log.info("SolrSuggester.reload({})", name);
-    if (dictionary == null && storeDir != null) {
+    if (segmentLookups == null && dictionary == null && storeDir != null) {
       Path lookupFile = getStoreFile();
       if (Files.exists(lookupFile)) {
         // this may be a firstSearcher event, try loading it
@@ -231,25 +265,41 @@ public class SolrSuggester implements Accountable {
     if (options.contextFilterQuery == null) {
       // TODO: this path needs to be fixed to accept query params to override configs such as
       // allTermsRequired, highlight
-      suggestions = lookup.lookup(options.token, false, options.count);
+      suggestions = lookup(l -> l.lookup(options.token, false, options.count), options.count);
     } else {
       BooleanQuery query = parseContextFilterQuery(options.contextFilterQuery);
       suggestions =
-          lookup.lookup(
-              options.token, query, options.count, options.allTermsRequired, options.highlight);
+          lookup(
+              l ->
+                  l.lookup(
+                      options.token,
+                      query,
+                      options.count,
+                      options.allTermsRequired,
+                      options.highlight),
+              options.count);
       if (suggestions == null) {
         // Context filtering not supported/configured by lookup
         // Silently ignore filtering and serve a result by querying without context filtering
         if (log.isDebugEnabled()) {
           log.debug("Context Filtering Query not supported by {}", lookup.getClass());
         }
-        suggestions = lookup.lookup(options.token, false, options.count);
+        suggestions = lookup(l -> l.lookup(options.token, false, options.count), options.count);
       }
     }
     res.add(getName(), options.token.toString(), suggestions);
     return res;
   }
 
+  /** Looks up the suggestions in the lookup, or in the lookups of each segment if incremental. */
+  private List<LookupResult> lookup(IOFunction<Lookup, List<LookupResult>> lookupFunction, int num)
+      throws IOException {
+    if (segmentLookups != null) {
+      return segmentLookups.lookup(lookupFunction, num);
+    }
+    return lookupFunction.apply(lookup);
+  }
+
   private BooleanQuery parseContextFilterQuery(String contextFilter) {
     if (contextFilter == null) {
       return null;
@@ -276,12 +326,12 @@ public class SolrSuggester implements Accountable {
 
   @Override
   public long ramBytesUsed() {
-    return lookup.ramBytesUsed();
+    return segmentLookups != null ? segmentLookups.ramBytesUsed() : lookup.ramBytesUsed();
   }
 
   @Override
   public Collection<Accountable> getChildResources() {
-    return lookup.getChildResources();
+    return segmentLookups != null ? segmentLookups.getChildResources() : lookup.getChildResources();
   }
 
   @Override
@@ -53,7 +53,7 @@ public class CircuitBreakerRegistry implements Closeable {
   private static final Map<SolrRequestType, List<CircuitBreaker>> globalCircuitBreakerMap =
       new HashMap<>();
   private static final Pattern SYSPROP_REGEX =
-      Pattern.compile("solr.circuitbreaker\\.(update|query)\\.(cpu|mem|loadavg)");
+      Pattern.compile("solr.circuitbreaker\\.(update|query)\\.(cpu|mem|loadavg|gc|allocrate)");
   public static final String SYSPROP_PREFIX = "solr.circuitbreaker.";
   public static final String SYSPROP_UPDATE_CPU = SYSPROP_PREFIX + "update.cpu";
   public static final String SYSPROP_UPDATE_MEM = SYSPROP_PREFIX + "update.mem";
@@ -61,6 +61,10 @@ public class CircuitBreakerRegistry implements Closeable {
   public static final String SYSPROP_QUERY_CPU = SYSPROP_PREFIX + "query.cpu";
   public static final String SYSPROP_QUERY_MEM = SYSPROP_PREFIX + "query.mem";
   public static final String SYSPROP_QUERY_LOADAVG = SYSPROP_PREFIX + "query.loadavg";
+  public static final String SYSPROP_UPDATE_GC = SYSPROP_PREFIX + "update.gc";
+  public static final String SYSPROP_QUERY_GC = SYSPROP_PREFIX + "query.gc";
+  public static final String SYSPROP_UPDATE_ALLOCRATE = SYSPROP_PREFIX + "update.allocrate";
+  public static final String SYSPROP_QUERY_ALLOCRATE = SYSPROP_PREFIX + "query.allocrate";
   public static final String SYSPROP_WARN_ONLY_SUFFIX = ".warnonly";
 
   public CircuitBreakerRegistry(CoreContainer coreContainer) {
@@ -74,8 +78,8 @@ public class CircuitBreakerRegistry implements Closeable {
     final var parsedBreakers = new ArrayList<CircuitBreaker>();
     EnvUtils.getProperties().keySet().stream()
         .map(SYSPROP_REGEX::matcher)
-        .filter(Matcher::matches) // 0=solr.circuitbreaker.(update|query).(cpu|mem|loadavg),
-        // 1=update|query, 2=cpu|mem|loadavg
+        .filter(Matcher::matches) // 0=solr.circuitbreaker.(update|query).(cpu|mem|loadavg|...),
+        // 1=update|query, 2=cpu|mem|loadavg|gc|allocrate
         .collect(Collectors.groupingBy(m -> buildCircuitBreakerKey(m.group(2), m.group(0))))
         .forEach(
             (breakerAndValue, breakers) -> {
@@ -100,6 +104,16 @@ public class CircuitBreakerRegistry implements Closeable {
                       new LoadAverageCircuitBreaker()
                           .setThreshold(Double.parseDouble(breakerAndValueArr[1]));
                   break;
+                case "gc":
+                  breaker =
+                      new GCCircuitBreaker()
+                          .setThreshold(Double.parseDouble(breakerAndValueArr[1]));
+                  break;
+                case "allocrate":
+                  breaker =
+                      new GCCircuitBreaker()
+                          .setAllocationRateThreshold(Double.parseDouble(breakerAndValueArr[1]));
+                  break;
                 default:
                   throw new IllegalArgumentException(
                       "Unknown circuit breaker type: " + breakerAndValueArr[0]);
@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.util.circuitbreaker;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the time the JVM spends in garbage collection pauses, and optionally the heap allocation
+ * rate, and triggers if a moving average over 30 seconds exceeds the configured thresholds.
+ *
+ * <p>Unlike {@link MemoryCircuitBreaker}, this is meaningful for collectors such as G1 or ZGC,
+ * where heap usage is close to the maximum most of the time regardless of load. A node entering a
+ * GC spiral shows up as a growing share of wall clock time spent in GC pauses, well before heap
+ * usage itself looks any different.
+ *
+ * <p>The GC pause threshold is defined as a percentage of wall clock time, see {@link
+ * #setThreshold(double)}. The allocation rate threshold is defined in MiB per second across all
+ * threads, see {@link #setAllocationRateThreshold(double)}; it is disabled unless set. Only
+ * stop-the-world collectors are taken into account, concurrent cycles (e.g. "ZGC Cycles") are not.
+ * The allocation rate relies on {@code
+ * com.sun.management.ThreadMXBean#getTotalThreadAllocatedBytes} and is not tracked on JVMs that do
+ * not provide it.
+ */
+public class GCCircuitBreaker extends CircuitBreaker {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final double MEBI = 1024.0 * 1024.0;
+
+  // One shared set of providers / executors for all instances of this class
+  private static RefCounted<GCMetricProviders> metricProviders;
+
+  private double gcPauseThreshold;
+  private double allocationRateThreshold = -1;
+
+  private static final ThreadLocal<Double> seenGcPause = ThreadLocal.withInitial(() -> 0.0);
+  private static final ThreadLocal<Double> seenAllocationRate = ThreadLocal.withInitial(() -> 0.0);
+
+  /** Creates an instance which averages over 6 samples during last 30 seconds. */
+  public GCCircuitBreaker() {
+    this(6, 5);
+  }
+
+  /**
+   * Constructor that allows override of sample interval. This is provided for testing, not intended
+   * for general use because the average metric provider implementation is the same for all
+   * instances of the class.
+   *
+   * @param numSamples number of samples to calculate average for
+   * @param sampleInterval interval between each sample
+   */
+  protected GCCircuitBreaker(int numSamples, int sampleInterval) {
+    super();
+    synchronized (GCCircuitBreaker.class) {
+      if (metricProviders == null || metricProviders.getRefcount() == 0) {
+        metricProviders =
+            new RefCounted<>(new GCMetricProviders(numSamples, sampleInterval)) {
+              @Override
+              protected void close() {
+                get().close();
+              }
+            };
+      }
+      metricProviders.incref();
+    }
+  }
+
+  /**
+   * Sets the GC pause threshold.
+   *
+   * @param thresholdValueInPercentage percentage of wall clock time spent in GC pauses
+   */
+  public GCCircuitBreaker setThreshold(double thresholdValueInPercentage) {
+    if (thresholdValueInPercentage > 100) {
+      throw new IllegalArgumentException("Invalid threshold value.");
+    }
+    if (thresholdValueInPercentage <= 0) {
+      throw new IllegalStateException("Threshold cannot be less than or equal to zero");
+    }
+    gcPauseThreshold = thresholdValueInPercentage;
+    return this;
+  }
+
+  /**
+   * Sets the allocation rate threshold.
+   *
+   * @param thresholdValueInMiBPerSecond heap allocation rate of all threads, in MiB per second
+   */
+  public GCCircuitBreaker setAllocationRateThreshold(double thresholdValueInMiBPerSecond) {
+    if (thresholdValueInMiBPerSecond <= 0) {
+      throw new IllegalStateException("Threshold cannot be less than or equal to zero");
+    }
+    if (!GCMetricProviders.isAllocationRateSupported()) {
+      log.warn(
+          "Allocation rate threshold configured but thread allocation tracking is not supported by the JVM, ignoring");
+    }
+    allocationRateThreshold = thresholdValueInMiBPerSecond;
+    return this;
+  }
+
+  public double getGcPauseThreshold() {
+    return gcPauseThreshold;
+  }
+
+  public double getAllocationRateThreshold() {
+    return allocationRateThreshold;
+  }
+
+  @Override
+  public boolean isTripped() {
+    double localSeenGcPause = getAvgGcPausePercentage();
+    double localSeenAllocationRate = getAvgAllocationRate();
+
+    seenGcPause.set(localSeenGcPause);
+    seenAllocationRate.set(localSeenAllocationRate);
+
+    if (gcPauseThreshold > 0 && localSeenGcPause >= gcPauseThreshold) {
+      return true;
+    }
+    return allocationRateThreshold > 0 && localSeenAllocationRate >= allocationRateThreshold;
+  }
+
+  /** Average percentage of wall clock time spent in GC pauses, or -1 if not yet sampled. */
+  protected double getAvgGcPausePercentage() {
+    return metricProviders.get().gcPause.getMetricValue();
+  }
+
+  /** Average heap allocation rate in MiB/s, or -1 if unknown. */
+  protected double getAvgAllocationRate() {
+    AveragingMetricProvider allocationRate = metricProviders.get().allocationRate;
+    return allocationRate == null ? -1 : allocationRate.getMetricValue();
+  }
+
+  @Override
+  public String getErrorMessage() {
+    return "GC Circuit Breaker triggered as GC pause time or allocation rate is above allowed threshold. "
+        + "Seen GC pause percentage "
+        + seenGcPause.get()
+        + " and allocated threshold "
+        + gcPauseThreshold
+        + ", seen allocation rate (MiB/s) "
+        + seenAllocationRate.get()
+        + " and allocated threshold "
+        + allocationRateThreshold;
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (GCCircuitBreaker.class) {
+      if (metricProviders != null && metricProviders.getRefcount() > 0) {
+        metricProviders.decref();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.ROOT,
+        "%s(threshold=%f, allocationRateThreshold=%f, warnOnly=%b)",
+        getClass().getSimpleName(),
+        gcPauseThreshold,
+        allocationRateThreshold,
+        isWarnOnly());
+  }
+
+  /** The averaged GC pause and allocation rate metrics shared by all GC circuit breakers. */
+  private static class GCMetricProviders {
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private static final Method GET_TOTAL_ALLOCATED_BYTES_METHOD = initAllocatedBytesMethod();
+
+    final AveragingMetricProvider gcPause;
+    final AveragingMetricProvider allocationRate;
+
+    GCMetricProviders(int numSamples, int sampleInterval) {
+      gcPause = new AveragingMetricProvider(new GcPauseProvider(), numSamples, sampleInterval);
+      allocationRate =
+          isAllocationRateSupported()
+              ? new AveragingMetricProvider(
+                  new AllocationRateProvider(), numSamples, sampleInterval)
+              : null;
+    }
+
+    static boolean isAllocationRateSupported() {
+      return GET_TOTAL_ALLOCATED_BYTES_METHOD != null;
+    }
+
+    private static Method initAllocatedBytesMethod() {
+      try {
+        Class<?> sunThreadBeanClz = Class.forName("com.sun.management.ThreadMXBean");
+        if (!sunThreadBeanClz.isAssignableFrom(threadBean.getClass())) {
+          return null;
+        }
+        Method m = sunThreadBeanClz.getMethod("isThreadAllocatedMemorySupported");
+        if (!(Boolean) m.invoke(threadBean)) {
+          return null;
+        }
+        m = sunThreadBeanClz.getMethod("setThreadAllocatedMemoryEnabled", boolean.class);
+        m.invoke(threadBean, Boolean.TRUE);
+        return sunThreadBeanClz.getMethod("getTotalThreadAllocatedBytes");
+      } catch (Exception e) {
+        return null;
+      }
+    }
+
+    void close() {
+      gcPause.close();
+      if (allocationRate != null) {
+        allocationRate.close();
+      }
+    }
+  }
+
+  /** Percentage of wall clock time spent in GC pauses since the previous sample. */
+  static class GcPauseProvider implements AveragingMetricProvider.MetricProvider {
+    private final List<GarbageCollectorMXBean> pauseCollectors =
+        ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .filter(GcPauseProvider::isPauseCollector)
+            .collect(Collectors.toList());
+    private long lastCollectionTimeMs = -1;
+    private long lastSampleNanos;
+
+    static boolean isPauseCollector(GarbageCollectorMXBean bean) {
+      String name = bean.getName();
+      return !name.contains("Cycles") && !name.contains("Concurrent");
+    }
+
+    @Override
+    public double getMetricValue() {
+      long now = System.nanoTime();
+      long collectionTimeMs = 0;
+      for (GarbageCollectorMXBean bean : pauseCollectors) {
+        collectionTimeMs += Math.max(0, bean.getCollectionTime());
+      }
+      double value = 0;
+      if (lastCollectionTimeMs >= 0) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - lastSampleNanos);
+        if (elapsedMs > 0) {
+          value = Math.min(100.0, 100.0 * (collectionTimeMs - lastCollectionTimeMs) / elapsedMs);
+        }
+      }
+      lastCollectionTimeMs = collectionTimeMs;
+      lastSampleNanos = now;
+      return value;
+    }
+  }
+
+  /** Heap allocation rate of all threads in MiB/s since the previous sample. */
+  static class AllocationRateProvider implements AveragingMetricProvider.MetricProvider {
+    private long lastAllocatedBytes = -1;
+    private long lastSampleNanos;
+
+    @Override
+    public double getMetricValue() {
+      long now = System.nanoTime();
+      long allocatedBytes;
+      try {
+        allocatedBytes =
+            (Long)
+                GCMetricProviders.GET_TOTAL_ALLOCATED_BYTES_METHOD.invoke(
+                    GCMetricProviders.threadBean);
+      } catch (Exception e) {
+        return -1;
+      }
+      double value = 0;
+      if (lastAllocatedBytes >= 0 && allocatedBytes >= lastAllocatedBytes) {
+        double elapsedSeconds = (now - lastSampleNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        if (elapsedSeconds > 0) {
+          value = (allocatedBytes - lastAllocatedBytes) / MEBI / elapsedSeconds;
+        }
+      }
+      lastAllocatedBytes = allocatedBytes;
+      lastSampleNanos = now;
+      return value;
+    }
+  }
+}
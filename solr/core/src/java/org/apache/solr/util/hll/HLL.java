@@ -21,6 +21,8 @@ import com.carrotsearch.hppc.LongHashSet;
 import com.carrotsearch.hppc.cursors.IntByteCursor;
 import com.carrotsearch.hppc.cursors.LongCursor;
 import java.util.Arrays;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.util.LongIterator;
 
 /**
@@ -52,7 +54,10 @@ import org.apache.solr.util.LongIterator;
  * when <a href="https://github.com/citusdata/postgresql-hll/blob/v2.9.0/STORAGE.markdown">properly
  * serialized</a>.
  */
-public class HLL implements Cloneable {
+public class HLL implements Cloneable, Accountable {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(HLL.class);
+
   // minimum and maximum values for the log-base-2 of the number of registers
   // in the HLL
   public static final int MINIMUM_LOG2M_PARAM = 4;
@@ -970,6 +975,53 @@ public class HLL implements Cloneable {
         throw new RuntimeException("Unsupported HLL type " + type);
     }
 
+    writeMetadata(schemaVersion, type, bytes);
+    return bytes;
+  }
+
+  /**
+   * Serializes the HLL like {@link #toBytes()}, except that a {@link HLLType#FULL} HLL whose
+   * non-zero registers take less room as {@link HLLType#SPARSE} "short words" than all of its
+   * registers is serialized as a {@link HLLType#SPARSE} one, even if the sparse representation is
+   * off. {@link #fromBytes(byte[])} reads it back as a {@link HLLType#FULL} HLL in that case.
+   *
+   * @return the array of bytes representing the HLL. This will never be <code>null</code> or empty.
+   */
+  public byte[] toCompactBytes() {
+    final ISchemaVersion schemaVersion = SerializationUtil.DEFAULT_SCHEMA_VERSION;
+    if (!HLLType.FULL.equals(type)) {
+      return toBytes(schemaVersion);
+    }
+
+    int nonZeroRegisters = 0;
+    for (final LongIterator iter = probabilisticStorage.registerIterator(); iter.hasNext(); ) {
+      if (iter.next() != 0) {
+        nonZeroRegisters++;
+      }
+    }
+    if ((long) nonZeroRegisters * shortWordLength >= (long) m * regwidth) {
+      return toBytes(schemaVersion);
+    }
+
+    final IWordSerializer serializer =
+        schemaVersion.getSerializer(HLLType.SPARSE, shortWordLength, nonZeroRegisters);
+    long registerIndex = 0;
+    for (final LongIterator iter = probabilisticStorage.registerIterator(); iter.hasNext(); ) {
+      final long registerValue = iter.next();
+      if (registerValue != 0) {
+        // pack index and value into "short word"
+        serializer.writeWord((registerIndex << regwidth) | registerValue);
+      }
+      registerIndex++;
+    }
+
+    final byte[] bytes = serializer.getBytes();
+    writeMetadata(schemaVersion, HLLType.SPARSE, bytes);
+    return bytes;
+  }
+
+  private void writeMetadata(
+      final ISchemaVersion schemaVersion, final HLLType type, final byte[] bytes) {
     final IHLLMetadata metadata =
         new HLLMetadata(
             schemaVersion.schemaVersionNumber(),
@@ -981,8 +1033,6 @@ public class HLL implements Cloneable {
             explicitAuto,
             !sparseOff);
     schemaVersion.writeMetadata(bytes, metadata);
-
-    return bytes;
   }
 
   /**
@@ -1013,7 +1063,11 @@ public class HLL implements Cloneable {
       expthresh = metadata.log2ExplicitCutoff() + 1;
     }
 
-    final HLL hll = new HLL(log2m, regwidth, expthresh, sparseon, type);
+    // a FULL HLL with the sparse representation off may be written as SPARSE, see
+    // toCompactBytes()
+    final boolean sparseAsFull = HLLType.SPARSE.equals(type) && !sparseon;
+    final HLL hll =
+        new HLL(log2m, regwidth, expthresh, sparseon, sparseAsFull ? HLLType.FULL : type);
 
     // Short-circuit on empty, which needs no other deserialization.
     if (HLLType.EMPTY.equals(type)) {
@@ -1058,7 +1112,12 @@ public class HLL implements Cloneable {
           final byte registerValue = (byte) (shortWord & hll.valueMask);
           // Only set non-zero registers.
           if (registerValue != 0) {
-            hll.sparseProbabilisticStorage.put((int) (shortWord >>> hll.regwidth), registerValue);
+            final int registerIndex = (int) (shortWord >>> hll.regwidth);
+            if (sparseAsFull) {
+              hll.probabilisticStorage.setRegister(registerIndex, registerValue);
+            } else {
+              hll.sparseProbabilisticStorage.put(registerIndex, registerValue);
+            }
           }
         }
         break;
@@ -1080,6 +1139,23 @@ public class HLL implements Cloneable {
     return hll;
   }
 
+  /** The RAM used by this HLL, counting the storage of its current type. */
+  @Override
+  public long ramBytesUsed() {
+    switch (type) {
+      case EXPLICIT:
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(explicitStorage.keys);
+      case SPARSE:
+        return BASE_RAM_BYTES_USED
+            + RamUsageEstimator.sizeOf(sparseProbabilisticStorage.keys)
+            + RamUsageEstimator.sizeOf(sparseProbabilisticStorage.values);
+      case FULL:
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(probabilisticStorage.words());
+      default:
+        return BASE_RAM_BYTES_USED;
+    }
+  }
+
   /**
    * Create a deep copy of this HLL.
    *
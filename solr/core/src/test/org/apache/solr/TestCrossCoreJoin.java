@@ -17,9 +17,13 @@
 package org.apache.solr;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.Utils;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.request.LocalSolrQueryRequest;
@@ -208,6 +212,51 @@ public class TestCrossCoreJoin extends SolrTestCaseJ4 {
         "/response=={'numFound':1,'start':0,'numFoundExact':true,'docs':[{'id':'1'}]}");
   }
 
+  @Test
+  public void testFromTermsCacheOfFromIndex() throws Exception {
+    // the main core has a joinFromTerms cache, so join the other core to it
+    String join = "{!join from=dept_s to=dept_id_s fromIndex=collection1}title:MTS";
+    Map<String, Object> rsp = queryFromCore(join);
+    assertEquals(Set.of("10", "12", "13"), getIds(rsp));
+    assertEquals(false, getJoinDebug(rsp).get("fromTermsCacheHit"));
+
+    // a commit on the to core doesn't invalidate the from terms
+    update(fromCore, add(doc("id", "14", "id_s_dv", "14", "dept_id_s", "Sales")));
+    update(fromCore, commit());
+    try {
+      rsp = queryFromCore(join);
+      assertEquals(Set.of("10", "12", "13", "14"), getIds(rsp));
+      assertEquals(true, getJoinDebug(rsp).get("fromTermsCacheHit"));
+    } finally {
+      update(fromCore, delI("14"));
+      update(fromCore, commit());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> queryFromCore(String q) throws Exception {
+    try (var req =
+        new LocalSolrQueryRequest(
+            fromCore, params("q", q, "fl", "id", "debugQuery", "true", "wt", "json"))) {
+      return (Map<String, Object>) Utils.fromJSONString(query(fromCore, req));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Set<String> getIds(Map<String, Object> rsp) {
+    List<Map<String, Object>> docs =
+        (List<Map<String, Object>>) ((Map<String, Object>) rsp.get("response")).get("docs");
+    return docs.stream().map(doc -> (String) doc.get("id")).collect(Collectors.toSet());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> getJoinDebug(Map<String, Object> rsp) {
+    Map<String, Object> joins =
+        (Map<String, Object>) ((Map<String, Object>) rsp.get("debug")).get("join");
+    assertEquals(joins.toString(), 1, joins.size());
+    return (Map<String, Object>) joins.values().iterator().next();
+  }
+
   @Test
   public void testCoresAreDifferent() throws Exception {
     assertQEx("schema12.xml" + " has no \"cat\" field", req("cat:*"), ErrorCode.BAD_REQUEST);
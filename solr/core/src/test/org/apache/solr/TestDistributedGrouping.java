@@ -27,6 +27,7 @@ import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
@@ -1269,6 +1270,107 @@ public class TestDistributedGrouping extends BaseDistributedSearchTestCase {
       }
     }
 
+    // single pass grouping must return the same results in exact mode
+    for (String overfetch : new String[] {"1", "3"}) {
+      query(
+          "q",
+          "*:*",
+          "rows",
+          5,
+          "fl",
+          "id," + i1,
+          "group",
+          "true",
+          "group.field",
+          i1,
+          "group.limit",
+          2,
+          "sort",
+          i1 + " asc, id asc",
+          GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS,
+          GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_EXACT,
+          GroupParams.GROUP_DISTRIBUTED_OVERFETCH,
+          overfetch);
+      query(
+          "q",
+          "*:*",
+          "start",
+          2,
+          "rows",
+          3,
+          "fl",
+          "id," + i1,
+          "group",
+          "true",
+          "group.field",
+          i1,
+          "group.limit",
+          3,
+          "group.offset",
+          1,
+          "group.ngroups",
+          "true",
+          "sort",
+          i1 + " desc, id asc",
+          "group.sort",
+          "id desc",
+          GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS,
+          GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_EXACT,
+          GroupParams.GROUP_DISTRIBUTED_OVERFETCH,
+          overfetch);
+      query(
+          "q",
+          "*:*",
+          "rows",
+          10,
+          "fl",
+          "id," + i1,
+          "group",
+          "true",
+          "group.field",
+          i1,
+          "group.format",
+          "simple",
+          "sort",
+          i1 + " asc, id asc",
+          GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS,
+          GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_EXACT,
+          GroupParams.GROUP_DISTRIBUTED_OVERFETCH,
+          overfetch);
+    }
+    // approximate mode can't be compared with the control, but must not fail
+    simpleQuery(
+        "q",
+        "*:*",
+        "rows",
+        5,
+        "fl",
+        "id," + i1,
+        "group",
+        "true",
+        "group.field",
+        i1,
+        "sort",
+        i1 + " asc, id asc",
+        GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS,
+        GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS_APPROXIMATE);
+    ignoreException("Invalid value for " + GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS);
+    SolrException e =
+        expectThrows(
+            SolrException.class,
+            () ->
+                simpleQuery(
+                    "q",
+                    "*:*",
+                    "group",
+                    "true",
+                    "group.field",
+                    i1,
+                    GroupParams.GROUP_DISTRIBUTED_SINGLE_PASS,
+                    "maybe"));
+    assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, e.code());
+    resetExceptionIgnores();
+
     ModifiableSolrParams params = new ModifiableSolrParams();
     Object[] q = {
       "q",
@@ -303,6 +303,25 @@ public class TestJoin extends SolrTestCaseJ4 {
         "/response=={'numFound':2,'start':0,'numFoundExact':true,'docs':[{'id':'3'},{'id':'4'}]}");
   }
 
+  @Test
+  public void testIndexJoinFromTermsCache() throws Exception {
+    indexEmployeeDocs();
+
+    ModifiableSolrParams p = params("sort", "id asc", "fl", "id", "debugQuery", "true");
+    String join = "{!join from=dept_ss_dv to=dept_id_indexed_sdv}title:MTS";
+
+    assertJQ(
+        req(p, "q", join),
+        "/response=={'numFound':3,'start':0,'numFoundExact':true,'docs':[{'id':'10'},{'id':'12'},{'id':'13'}]}",
+        "/debug/join/" + join + "=={'_MATCH_':'fromTermsCacheHit,fromSetSize', 'fromTermsCacheHit':false, 'fromSetSize':2}");
+
+    // a different filter on the to side re-executes the join, with the from terms from the cache
+    assertJQ(
+        req(p, "q", join, "fq", "id:[10 TO 12]"),
+        "/response=={'numFound':2,'start':0,'numFoundExact':true,'docs':[{'id':'10'},{'id':'12'}]}",
+        "/debug/join/" + join + "=={'_MATCH_':'fromTermsCacheHit,fromSetSize', 'fromTermsCacheHit':true, 'fromSetSize':2}");
+  }
+
   @Test
   @SuppressWarnings({"unchecked"})
   public void testRandomJoin() throws Exception {
@@ -176,6 +176,36 @@ public class DistributedFacetPivotLongTailTest extends BaseDistributedSearchTest
       assertEquals(0.55846323792, bbb0Stats.getStddev(), 0.1E-7);
     }
 
+    // without refinement, the pivots of the shards are merged in one round, so bbb0 lacks the count
+    // of shard2, which didn't return it
+    pivots =
+        queryServer(
+                params(
+                    "q",
+                    "*:*",
+                    "shards",
+                    getShardsString(),
+                    FacetParams.FACET_OVERREQUEST_COUNT,
+                    "0",
+                    FacetParams.FACET_OVERREQUEST_RATIO,
+                    "0",
+                    FacetParams.FACET_PIVOT_REFINE,
+                    "false",
+                    FacetParams.FACET_PIVOT_JSON,
+                    Boolean.toString(random().nextBoolean()),
+                    "facet",
+                    "true",
+                    "facet.limit",
+                    "6",
+                    "facet.pivot",
+                    "foo_s,bar_s"))
+            .getFacetPivot()
+            .get("foo_s,bar_s");
+    assertEquals(6, pivots.size());
+    pivot = pivots.get(5);
+    assertEquals(pivot.toString(), "bbb0", pivot.getValue());
+    assertEquals(pivot.toString(), 100, pivot.getCount());
+
     // with default overrequesting, we should find the correct top 6 including
     // long tail and top sub-pivots
     // (even if we disable overrequesting on the sub-pivot)
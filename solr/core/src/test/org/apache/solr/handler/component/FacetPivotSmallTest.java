@@ -690,6 +690,42 @@ public class FacetPivotSmallTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testPivotFacetJson() throws Exception {
+    index();
+    indexMissing();
+
+    // the pivots counted by nested JSON terms facets are the same
+    for (SolrParams variableParams :
+        new SolrParams[] {
+          params(),
+          params("facet.sort", "index"),
+          params("facet.limit", "2", "facet.offset", "1"),
+          params("facet.pivot.mincount", "3"),
+          params("f.company_t.facet.limit", "1", "f.company_t.facet.sort", "index"),
+          params("f.place_t.facet.prefix", "c"),
+          params("facet.pivot", "company_t,place_t,company_t")
+        }) {
+      SolrParams p =
+          SolrParams.wrapDefaults(
+              variableParams,
+              params(
+                  "q",
+                  "*:*",
+                  "rows",
+                  "0",
+                  "omitHeader",
+                  "true",
+                  "facet",
+                  "true",
+                  "facet.pivot",
+                  "place_t,company_t"));
+      String expected = h.query(req(p));
+      String actual =
+          h.query(req(SolrParams.wrapDefaults(params(FacetParams.FACET_PIVOT_JSON, "true"), p)));
+      assertEquals(variableParams.toString(), expected, actual);
+    }
+  }
+
   private void indexMissing() {
     String[] missingDoc = {"id", "777"};
     assertU(adoc(missingDoc));
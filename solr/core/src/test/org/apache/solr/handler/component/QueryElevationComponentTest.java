@@ -1546,6 +1546,71 @@ public class QueryElevationComponentTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testCompiledElevationProvider() throws Exception {
+    try (QueryElevationComponent trieComp = new QueryElevationComponent();
+        QueryElevationComponent fstComp = new QueryElevationComponent()) {
+      init("schema12.xml");
+      SolrCore core = h.getCore();
+
+      NamedList<String> args = new NamedList<>();
+      args.add(QueryElevationComponent.FIELD_TYPE, "text");
+      args.add(QueryElevationComponent.CONFIG_FILE, "elevate.xml");
+      trieComp.init(args);
+      trieComp.inform(core);
+
+      args.add(
+          QueryElevationComponent.ELEVATION_PROVIDER,
+          QueryElevationComponent.FST_ELEVATION_PROVIDER);
+      args.add(QueryElevationComponent.ANALYZED_QUERY_CACHE_SIZE, "2");
+      fstComp.init(args);
+      fstComp.inform(core);
+
+      IndexReader reader;
+      try (SolrQueryRequest req = req()) {
+        reader = req.getSearcher().getIndexReader();
+      }
+      QueryElevationComponent.ElevationProvider trieProvider =
+          trieComp.getElevationProvider(reader, core);
+      QueryElevationComponent.ElevationProvider fstProvider =
+          fstComp.getElevationProvider(reader, core);
+      assertTrue(fstProvider instanceof QueryElevationComponent.CompiledElevationProvider);
+      assertEquals(trieProvider.size(), fstProvider.size());
+
+      // twice, to also get the analyzed queries from the cache
+      for (int i = 0; i < 2; i++) {
+        for (String query :
+            new String[] {
+              "xxxx",
+              "XXXX XXXX",
+              "QQQQ",
+              "QQQQ EE",
+              "BB CC",
+              "bb DD CC vv",
+              "aa bb dd cc aa",
+              "AA RR BB DD AA",
+              "AA BB EE",
+              "CC BB AA DD",
+              ""
+            }) {
+          QueryElevationComponent.Elevation expected = trieProvider.getElevationForQuery(query);
+          QueryElevationComponent.Elevation actual = fstProvider.getElevationForQuery(query);
+          if (expected == null) {
+            assertNull(query, actual);
+          } else {
+            assertNotNull(query, actual);
+            // same ids, in the same order
+            assertEquals(
+                query, new ArrayList<>(expected.elevatedIds), new ArrayList<>(actual.elevatedIds));
+            assertEquals(query, expected.excludedIds, actual.excludedIds);
+          }
+        }
+      }
+    } finally {
+      delete();
+    }
+  }
+
   @Test
   public void testElevatedIds() throws Exception {
     try (QueryElevationComponent comp = new QueryElevationComponent()) {
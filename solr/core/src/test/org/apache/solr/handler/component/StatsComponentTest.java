@@ -1719,6 +1719,53 @@ public class StatsComponentTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testParallelStats() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      assertU(
+          adoc(
+              "id", String.valueOf(i),
+              "a_i", String.valueOf(i % 7),
+              "a_f", String.valueOf(i * 1.5F),
+              "b_f", String.valueOf(100 - i),
+              "cat_s", "c" + (i % 3),
+              "foo_ss", "x" + (i % 4),
+              "foo_ss", "y" + (i % 5)));
+      if (i % 20 == 19) {
+        assertU(commit()); // several segments
+      }
+    }
+    assertU(commit());
+
+    SolrParams params =
+        params(
+            "q", "*:*",
+            "fq", "{!tag=t}a_i:[1 TO 5]",
+            "rows", "0",
+            "omitHeader", "true",
+            "stats", "true",
+            "stats.field", "{!key=a_i}a_i",
+            "stats.field", "{!key=a_f percentiles='25,50,99' cardinality=true}a_f",
+            "stats.field", "{!key=b_f min=true max=true countDistinct=true}b_f",
+            "stats.field", "{!key=product func}product(a_f,b_f)",
+            "stats.field", "{!key=all_a_f ex=t}a_f",
+            "stats.field", "{!key=all_b_f ex=t}b_f",
+            "stats.field", "{!key=foo_ss}foo_ss",
+            "stats.field", "{!key=none min=$nomin}a_i",
+            "nomin", "false",
+            "f.b_f.stats.facet", "cat_s");
+
+    String sequential = h.query(req(params));
+    String parallel = h.query(req(params, StatsParams.STATS_PARALLEL, "true"));
+    assertEquals(sequential, parallel);
+
+    final String kpre = XPRE + "lst[@name='stats_fields']/";
+    assertQ(
+        req(params, StatsParams.STATS_PARALLEL, "true"),
+        kpre + "lst[@name='all_a_f']/long[@name='count'][.='50']",
+        kpre + "lst[@name='b_f']/lst[@name='facets']/lst[@name='cat_s']",
+        kpre + "lst[@name='foo_ss']/str[@name='min'][.='x0']");
+  }
+
   // Test for Solr-6349
   public void testCalcDistinctStats() {
     final String kpre = XPRE + "lst[@name='stats_fields']/lst[@name='k']/";
@@ -103,6 +103,49 @@ public class SuggestComponentTest extends SolrTestCaseJ4 {
         "//lst[@name='suggest']/lst[@name='suggest_fuzzy_doc_dict']/lst[@name='Rad']/arr[@name='suggestions']/lst[2]/long[@name='weight'][.='30']");
   }
 
+  @Test
+  public void testIncremental() throws Exception {
+    String suggester = "suggest_fuzzy_doc_dict_incremental";
+    String prefix = "//lst[@name='suggest']/lst[@name='" + suggester + "']/lst[@name='exampel']";
+    assertQ(
+        req(
+            "qt",
+            rh,
+            SuggesterParams.SUGGEST_DICT,
+            suggester,
+            SuggesterParams.SUGGEST_Q,
+            "exampel",
+            SuggesterParams.SUGGEST_COUNT,
+            "5"),
+        prefix + "/int[@name='numFound'][.='2']",
+        prefix + "/arr[@name='suggestions']/lst[1]/str[@name='term'][.='example inputdata']",
+        prefix + "/arr[@name='suggestions']/lst[1]/long[@name='weight'][.='45']",
+        prefix + "/arr[@name='suggestions']/lst[2]/str[@name='term'][.='example data']",
+        prefix + "/arr[@name='suggestions']/lst[2]/long[@name='weight'][.='40']");
+
+    // a commit builds the lookup of the new segment, and of the segment with a deletion
+    assertU(adoc("id", "11", "cat", "example newdata", "price", "60", "weight", "40"));
+    assertU(delI("8"));
+    assertU(commit());
+    waitForWarming();
+
+    assertQ(
+        req(
+            "qt",
+            rh,
+            SuggesterParams.SUGGEST_DICT,
+            suggester,
+            SuggesterParams.SUGGEST_Q,
+            "exampel",
+            SuggesterParams.SUGGEST_COUNT,
+            "5"),
+        prefix + "/int[@name='numFound'][.='2']",
+        prefix + "/arr[@name='suggestions']/lst[1]/str[@name='term'][.='example newdata']",
+        prefix + "/arr[@name='suggestions']/lst[1]/long[@name='weight'][.='60']",
+        prefix + "/arr[@name='suggestions']/lst[2]/str[@name='term'][.='example data']",
+        prefix + "/arr[@name='suggestions']/lst[2]/long[@name='weight'][.='40']");
+  }
+
   @Test
   public void testExpressionBased() {
     assertQ(
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Expanding over several index slices with multiThreaded=true must match a serial expand. */
+public class TestExpandComponentMultiThreaded extends SolrCloudTestCase {
+  private static final String COLLECTION = "expand";
+  private static final String[] WORDS = {"a", "b", "c"};
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    // Using NoMergePolicy, each commit adds a segment. With 20 segments and at most 5 segments
+    // per slice in lucene, the searcher has several slices for the executor configured in solr.xml
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    Path configSet = createTempDir();
+    copyMinConf(configSet);
+    configureCluster(1).addConfig("conf", configSet.resolve("conf")).configure();
+    SolrClient solrClient = cluster.getSolrClient();
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 1, 1).process(solrClient);
+    waitForState("active", COLLECTION, clusterShape(1, 1));
+    for (int i = 0; i < 200; i++) {
+      StringBuilder text = new StringBuilder();
+      for (int j = random().nextInt(5); j >= 0; j--) {
+        text.append(WORDS[random().nextInt(WORDS.length)]).append(' ');
+      }
+      solrClient.add(
+          COLLECTION,
+          sdoc(
+              "id", Integer.toString(i),
+              "group_s", "g" + (i % 7),
+              "word_s", WORDS[random().nextInt(WORDS.length)],
+              "text", text.toString()));
+      if (i % 10 == 9) {
+        solrClient.commit(COLLECTION);
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    systemClearPropertySolrTestsMergePolicyFactory();
+  }
+
+  @Test
+  public void testSameAsSingleThreaded() throws Exception {
+    SolrCore core = cluster.getJettySolrRunner(0).getCoreContainer().getCores().get(0);
+    int numSlices = core.withSearcher(searcher -> searcher.getSlices().length);
+    assertTrue("expected several slices, got " + numSlices, numSlices > 1);
+
+    for (String expandSort : new String[] {null, "id desc", "word_s asc, id asc"}) {
+      for (String q : new String[] {"*:*", "text:a"}) {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.add("q", q);
+        params.add("fq", "{!collapse field=group_s}");
+        params.add("expand", "true");
+        params.add("expand.rows", "4");
+        params.add("sort", "id asc");
+        params.add("rows", "10");
+        if (expandSort != null) {
+          params.add("expand.sort", expandSort);
+        }
+
+        QueryResponse serial = query(params, false);
+        QueryResponse parallel = query(params, true);
+        assertFalse(serial.getExpandedResults().isEmpty());
+        assertEquals(params.toString(), ids(serial.getResults()), ids(parallel.getResults()));
+        assertEquals(
+            params.toString(),
+            serial.getExpandedResults().keySet(),
+            parallel.getExpandedResults().keySet());
+        for (Map.Entry<String, SolrDocumentList> group : serial.getExpandedResults().entrySet()) {
+          SolrDocumentList parallelGroup = parallel.getExpandedResults().get(group.getKey());
+          assertEquals(group.getValue().getNumFound(), parallelGroup.getNumFound());
+          assertEquals(params + " " + group.getKey(), ids(group.getValue()), ids(parallelGroup));
+        }
+      }
+    }
+  }
+
+  private static QueryResponse query(ModifiableSolrParams params, boolean multiThreaded)
+      throws Exception {
+    ModifiableSolrParams p = new ModifiableSolrParams(params);
+    p.set("multiThreaded", multiThreaded);
+    return cluster.getSolrClient().query(COLLECTION, p);
+  }
+
+  private static List<String> ids(SolrDocumentList docs) {
+    List<String> ids = new ArrayList<>();
+    for (SolrDocument doc : docs) {
+      ids.add((String) doc.getFieldValue("id"));
+    }
+    return ids;
+  }
+}
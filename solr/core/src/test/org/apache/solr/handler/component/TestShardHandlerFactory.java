@@ -24,6 +24,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.impl.LBSolrClient;
 import org.apache.solr.client.solrj.request.QueryRequest;
@@ -33,8 +36,10 @@ import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.MockShardHandlerFactory;
+import org.apache.solr.core.PluginInfo;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.slf4j.MDC;
 
 /** Tests exercising Solr's two "out-of-the-box" ShardHandlerFactory implementations */
 public class TestShardHandlerFactory extends SolrTestCaseJ4 {
@@ -162,6 +167,31 @@ public class TestShardHandlerFactory extends SolrTestCaseJ4 {
     cc.shutdown();
   }
 
+  @Test
+  public void testVirtualThreads() throws Exception {
+    NamedList<Object> args = new NamedList<>();
+    args.add(HttpShardHandlerFactory.INIT_USE_VIRTUAL_THREADS, true);
+    HttpShardHandlerFactory factory = new ParallelHttpShardHandlerFactory();
+    try {
+      factory.init(new PluginInfo("shardHandlerFactory", Map.of(), args, null));
+      assertFalse(factory.commExecutor instanceof ThreadPoolExecutor);
+      Future<Boolean> isVirtual =
+          factory.commExecutor.submit(() -> Thread.currentThread().isVirtual());
+      assertTrue(isVirtual.get());
+
+      // tasks still run with the logging context of their submitter
+      MDC.put("shard", "shard1");
+      try {
+        Future<String> shard = factory.commExecutor.submit(() -> MDC.get("shard"));
+        assertEquals("shard1", shard.get());
+      } finally {
+        MDC.remove("shard");
+      }
+    } finally {
+      factory.close();
+    }
+  }
+
   /** Test {@link ShardHandler#setShardAttributesToParams} */
   @Test
   public void testSetShardAttributesToParams() {
@@ -122,6 +122,7 @@ public class RandomizedTaggerTest extends TaggerTestCase {
   private void assertBruteForce(String input) throws Exception {
     assertTrue(input.matches(" .* "));
     baseParams.set("overlaps", "ALL");
+    baseParams.set(TaggerRequestHandler.CACHE_DICTIONARY, random().nextBoolean());
 
     // loop through NAMES and find all tag offsets
     List<TestTag> testTags = new ArrayList<>();
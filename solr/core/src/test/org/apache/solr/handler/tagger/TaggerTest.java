@@ -24,9 +24,11 @@ package org.apache.solr.handler.tagger;
 
 import java.util.Arrays;
 import java.util.stream.Collectors;
+import org.apache.lucene.index.IndexReader;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.SegmentCache;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 
@@ -302,6 +304,104 @@ public class TaggerTest extends TaggerTestCase {
     assertTags(reqDoc(doc, p), tt(doc, "Boston", 0, N.Boston));
   }
 
+  public void testCacheDictionary() throws Exception {
+    baseParams.set("overlaps", "ALL");
+    baseParams.set(TaggerRequestHandler.CACHE_DICTIONARY, "true");
+    indexAndBuild();
+
+    String doc = "City of London Business School in Boston";
+    assertTags(
+        reqDoc(doc),
+        tt(doc, "City of London", 0, N.City_of_London),
+        tt(doc, "London", 0, N.London),
+        tt(doc, "London Business School", 0, N.London_Business_School),
+        tt(doc, "Boston", 0, N.Boston));
+
+    // the next request uses the same dictionary of the segment
+    TagDictionary.Segment segment = cachedSegment("name_tag");
+    assertTags(reqDoc("Boston"), tt("Boston", "Boston", 0, N.Boston));
+    assertSame(segment, cachedSegment("name_tag"));
+
+    // the dictionary of the segment is reused, with its deleted docs skipped
+    long hits = segmentCacheHits();
+    assertU(delI("" + N.London.ordinal()));
+    assertU(commit());
+    assertTags(
+        reqDoc(doc),
+        tt(doc, "City of London", 0, N.City_of_London),
+        tt(doc, "London Business School", 0, N.London_Business_School),
+        tt(doc, "Boston", 0, N.Boston));
+    assertTrue(segmentCacheHits() > hits);
+
+    // a term of several segments
+    assertU(adoc("id", "" + N.London.ordinal(), "name", N.London.getName()));
+    assertU(commit());
+    assertTags(
+        reqDoc(doc),
+        tt(doc, "City of London", 0, N.City_of_London),
+        tt(doc, "London", 0, N.London),
+        tt(doc, "London Business School", 0, N.London_Business_School),
+        tt(doc, "Boston", 0, N.Boston));
+
+    // partial matching
+    baseParams.set("field", "name_tagPartial");
+    doc = "school City";
+    assertTags(
+        reqDoc(doc),
+        tt(doc, "school", 0, N.London_Business_School),
+        tt(doc, "City", 0, N.City_of_London));
+  }
+
+  private static SegmentCache dictionaryCache() {
+    return ((TaggerRequestHandler) h.getCore().getRequestHandler("/tag")).getDictionaryCache();
+  }
+
+  private static long segmentCacheHits() {
+    return ((Number) dictionaryCache().getMetricsMap().getValue().get("hits")).longValue();
+  }
+
+  /** The cached dictionary of the first segment, failing if it isn't cached. */
+  private static TagDictionary.Segment cachedSegment(String field) throws Exception {
+    IndexReader.CacheHelper cacheHelper =
+        h.getCore()
+            .withSearcher(
+                searcher ->
+                    searcher.getTopReaderContext().leaves().get(0).reader().getCoreCacheHelper());
+    return dictionaryCache()
+        .get(
+            cacheHelper,
+            TagDictionary.Segment.class,
+            field,
+            () -> {
+              throw new AssertionError("the dictionary of " + field + " isn't cached");
+            });
+  }
+
+  public void testSplitSize() throws Exception {
+    baseParams.set("overlaps", "NO_SUB");
+    indexAndBuild();
+
+    String doc = "City of London\n\nBoston\n \nLondon Business School";
+    assertArrayEquals(new int[] {0}, TaggerRequestHandler.splitAtBlankLines(doc, 1000));
+    assertArrayEquals(new int[] {0, 16}, TaggerRequestHandler.splitAtBlankLines(doc, 10));
+    assertArrayEquals(new int[] {0, 16, 25}, TaggerRequestHandler.splitAtBlankLines(doc, 1));
+
+    for (String splitSize : new String[] {"0", "1", "10", "1000"}) {
+      for (String cacheDictionary : new String[] {"false", "true"}) {
+        assertTags(
+            reqDoc(
+                doc,
+                TaggerRequestHandler.SPLIT_SIZE,
+                splitSize,
+                TaggerRequestHandler.CACHE_DICTIONARY,
+                cacheDictionary),
+            tt(doc, "City of London", 0, N.City_of_London),
+            tt(doc, "Boston", 0, N.Boston),
+            tt(doc, "London Business School", 0, N.London_Business_School));
+      }
+    }
+  }
+
   private TestTag tt(String doc, String substring, int substringIndex, N name) {
     assertEquals(0, substringIndex);
 
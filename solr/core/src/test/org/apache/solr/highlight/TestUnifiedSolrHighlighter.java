@@ -16,9 +16,20 @@
  */
 package org.apache.solr.highlight;
 
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.highlight.UnifiedSolrHighlighter.CachedSnippet;
+import org.apache.solr.highlight.UnifiedSolrHighlighter.HighlightCacheKey;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 
@@ -31,6 +42,7 @@ public class TestUnifiedSolrHighlighter extends SolrTestCaseJ4 {
     System.setProperty("queryResultCache.enabled", "false");
     System.setProperty(
         "documentCache.enabled", "true"); // this is why we use this particular solrconfig
+    System.setProperty("highlightCache.enabled", "true");
     initCore("solrconfig-cache-enable-disable.xml", "schema-unifiedhighlight.xml");
 
     // test our config is sane, just to be sure:
@@ -47,6 +59,7 @@ public class TestUnifiedSolrHighlighter extends SolrTestCaseJ4 {
     System.clearProperty("filterCache.enabled");
     System.clearProperty("queryResultCache.enabled");
     System.clearProperty("documentCache.enabled");
+    System.clearProperty("highlightCache.enabled");
     System.clearProperty("solr.tests.id.stored");
     System.clearProperty("solr.tests.id.docValues");
   }
@@ -91,6 +104,95 @@ public class TestUnifiedSolrHighlighter extends SolrTestCaseJ4 {
         "//lst[@name='highlighting']/lst[@name='102']/arr[@name='text']/str='second <em>document</em>'");
   }
 
+  public void testHighlightCache() throws Exception {
+    String[] xpaths = {
+      "count(//lst[@name='highlighting']/*)=2",
+      "//lst[@name='highlighting']/lst[@name='101']/arr[@name='text']/str='<em>document</em> one'",
+      "//lst[@name='highlighting']/lst[@name='102']/arr[@name='text']/str='second <em>document</em>'"
+    };
+    assertQ(req("q", "text:document", "sort", "id asc", "hl", "true"), xpaths);
+
+    // the snippets are cached per query, field, doc and highlighting parameters
+    String paramsKey = "hl.method=unified&";
+    Query query = new TermQuery(new Term("text", "document"));
+    assertEquals("<em>document</em> one", getCachedSnippet(query, "text", "101", paramsKey));
+    assertEquals("second <em>document</em>", getCachedSnippet(query, "text", "102", paramsKey));
+    assertNull(getCachedSnippet(query, "text3", "101", paramsKey));
+
+    // and are taken from the cache
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              int docID = searcher.getFirstMatch(new Term("id", "101"));
+              getHighlightCache(searcher)
+                  .put(
+                      new HighlightCacheKey(query, "text", docID, paramsKey),
+                      new CachedSnippet("cached <em>document</em>"));
+              return null;
+            });
+    assertQ(
+        req("q", "text:document", "sort", "id asc", "hl", "true"),
+        "//lst[@name='highlighting']/lst[@name='101']/arr[@name='text']/str='cached <em>document</em>'",
+        "//lst[@name='highlighting']/lst[@name='102']/arr[@name='text']/str='second <em>document</em>'");
+
+    // other highlighting parameters produce other snippets
+    assertQ(
+        req(
+            "q",
+            "text:document",
+            "sort",
+            "id asc",
+            "hl",
+            "true",
+            "hl.tag.pre",
+            "[",
+            "hl.tag.post",
+            "]"),
+        "//lst[@name='highlighting']/lst[@name='101']/arr[@name='text']/str='[document] one'",
+        "//lst[@name='highlighting']/lst[@name='102']/arr[@name='text']/str='second [document]'");
+    String tagParamsKey = "hl.method=unified&hl.tag.post=]&hl.tag.pre=[&";
+    assertEquals("[document] one", getCachedSnippet(query, "text", "101", tagParamsKey));
+
+    // a doc missing the snippet of a field is highlighted again for all the fields
+    assertQ(
+        req("q", "text:document", "sort", "id asc", "hl", "true", "hl.fl", "text,text3"),
+        "//lst[@name='highlighting']/lst[@name='101']/arr[@name='text']/str='<em>document</em> one'",
+        "//lst[@name='highlighting']/lst[@name='101']/arr[@name='text3']/str='crappy <em>document</em>'");
+    assertEquals("crappy <em>document</em>", getCachedSnippet(query, "text3", "101", paramsKey));
+  }
+
+  public void testHighlightCacheKeyCountsQuery() {
+    List<BytesRef> terms = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      terms.add(new BytesRef("term" + i));
+    }
+    TermInSetQuery largeQuery = new TermInSetQuery("text", terms);
+    HighlightCacheKey largeKey = new HighlightCacheKey(largeQuery, "text", 0, "");
+    HighlightCacheKey smallKey =
+        new HighlightCacheKey(new TermQuery(new Term("text", "term0")), "text", 0, "");
+    assertTrue(largeKey.ramBytesUsed() > largeQuery.ramBytesUsed());
+    assertTrue(largeKey.ramBytesUsed() > smallKey.ramBytesUsed());
+  }
+
+  private String getCachedSnippet(Query query, String field, String id, String paramsKey)
+      throws Exception {
+    return h.getCore()
+        .withSearcher(
+            searcher -> {
+              int docID = searcher.getFirstMatch(new Term("id", id));
+              CachedSnippet cached =
+                  getHighlightCache(searcher)
+                      .get(new HighlightCacheKey(query, field, docID, paramsKey));
+              return cached == null ? null : cached.snippet();
+            });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SolrCache<HighlightCacheKey, CachedSnippet> getHighlightCache(
+      SolrIndexSearcher searcher) {
+    return searcher.getCache(UnifiedSolrHighlighter.HIGHLIGHT_CACHE_NAME);
+  }
+
   public void testImpossibleOffsetSource() {
     IllegalArgumentException e =
         expectThrows(
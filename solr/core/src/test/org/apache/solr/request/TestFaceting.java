@@ -17,10 +17,13 @@
 package org.apache.solr.request;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.Set;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermsEnum;
@@ -29,7 +32,10 @@ import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.search.facet.FacetField;
+import org.apache.solr.search.facet.UnInvertedField;
 import org.apache.solr.uninverting.DocTermOrds;
+import org.apache.solr.uninverting.FieldCache;
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -1361,4 +1367,72 @@ public class TestFaceting extends SolrTestCaseJ4 {
         "//*[@numFoundExact='true']",
         "//*[@numFound='" + NUM_DOCS + "']");
   }
+
+  @Test
+  public void testJsonFacetsUninvertPerSegment() throws Exception {
+    assertU(adoc("id", "1", "f0_ws", "a b"));
+    assertU(commit());
+    assertU(adoc("id", "2", "f0_ws", "b c"));
+    assertU(commit());
+    String expected = "facets/f/buckets==[{val:b,count:2},{val:a,count:1},{val:c,count:1}]";
+    assertJQ(
+        req("q", "*:*", "rows", "0", "json.facet", "{f:{type:terms, field:f0_ws, method:dv}}"),
+        expected);
+
+    // each segment was uninverted on its own, to be reused by the next searchers
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              assertNull(UnInvertedField.checkUnInvertedField("f0_ws", searcher));
+              Set<Object> uninvertedSegments = new HashSet<>();
+              for (FieldCache.CacheEntry entry : FieldCache.DEFAULT.getCacheEntries()) {
+                if ("f0_ws".equals(entry.getFieldName())) {
+                  uninvertedSegments.add(entry.getReaderKey());
+                }
+              }
+              for (LeafReaderContext leaf : searcher.getTopReaderContext().leaves()) {
+                assertTrue(
+                    uninvertedSegments.contains(leaf.reader().getCoreCacheHelper().getKey()));
+              }
+              return null;
+            });
+
+    // the top-level UnInvertedField is still the default
+    assertJQ(req("q", "*:*", "rows", "0", "json.facet", "{f:{type:terms, field:f0_ws}}"), expected);
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              assertNotNull(UnInvertedField.checkUnInvertedField("f0_ws", searcher));
+              return null;
+            });
+
+    // unless the smart method is configured to uninvert per segment
+    assertU(adoc("id", "3", "f0_ws", "c"));
+    assertU(commit());
+    expected = "facets/f/buckets==[{val:b,count:2},{val:c,count:2},{val:a,count:1}]";
+    System.setProperty(FacetField.UNINVERT_PER_SEGMENT_PROP, "true");
+    try {
+      assertJQ(
+          req("q", "*:*", "rows", "0", "json.facet", "{f:{type:terms, field:f0_ws}}"), expected);
+      h.getCore()
+          .withSearcher(
+              searcher -> {
+                assertNull(UnInvertedField.checkUnInvertedField("f0_ws", searcher));
+                return null;
+              });
+
+      // method uif still picks the top-level UnInvertedField
+      assertJQ(
+          req("q", "*:*", "rows", "0", "json.facet", "{f:{type:terms, field:f0_ws, method:uif}}"),
+          expected);
+      h.getCore()
+          .withSearcher(
+              searcher -> {
+                assertNotNull(UnInvertedField.checkUnInvertedField("f0_ws", searcher));
+                return null;
+              });
+    } finally {
+      System.clearProperty(FacetField.UNINVERT_PER_SEGMENT_PROP);
+    }
+  }
 }
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.common.util.Utils;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestRetainedMemAllowedLimit extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema_latest.xml");
+    for (int i = 0; i < 50; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", "cat" + (i % 7)));
+    }
+    assertU(commit());
+  }
+
+  @Test
+  public void testAccounting() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    accounting.allocate(MemoryAccounting.FACET, 1000);
+    accounting.allocate(MemoryAccounting.COLLAPSE, 500);
+    accounting.resize(MemoryAccounting.FACET, 1000, 4000);
+    assertEquals(4500, accounting.getRetainedBytes());
+    accounting.release(MemoryAccounting.COLLAPSE, 500);
+    assertEquals(4000, accounting.getRetainedBytes());
+    assertEquals(4500, accounting.getPeakRetainedBytes());
+    assertEquals(
+        Map.of(MemoryAccounting.FACET, 4000L, MemoryAccounting.COLLAPSE, 0L),
+        accounting.getRetainedBytesByComponent());
+
+    MemoryAccounting.NONE.allocate(MemoryAccounting.FACET, 1000);
+    assertEquals(0, MemoryAccounting.NONE.getRetainedBytes());
+  }
+
+  @Test
+  public void testLimit() {
+    try (SolrQueryRequest req = req(CommonParams.MEM_RETAINED_ALLOWED, "0.001")) {
+      QueryLimits limits = new QueryLimits(req, new SolrQueryResponse());
+      assertTrue(limits.isLimitsEnabled());
+      assertFalse(limits.shouldExit());
+      limits.getMemoryAccounting().allocate(MemoryAccounting.FACET, 2000);
+      assertTrue(limits.shouldExit());
+      assertEquals(
+          2000L, limits.currentLimitValueFor(RetainedMemAllowedLimit.class).orElseThrow());
+    }
+    try (SolrQueryRequest req = req()) {
+      QueryLimits limits = new QueryLimits(req, new SolrQueryResponse());
+      assertFalse(limits.isLimitsEnabled());
+      limits.getMemoryAccounting().allocate(MemoryAccounting.FACET, Long.MAX_VALUE / 2);
+      assertFalse(limits.shouldExit());
+    }
+  }
+
+  @Test
+  public void testScopes() {
+    MemoryAccounting accounting = new MemoryAccounting();
+    accounting.allocate(MemoryAccounting.FACET, 100);
+    MemoryAccounting.Scope outer = accounting.openScope();
+    accounting.allocate(MemoryAccounting.FACET, 1000);
+    MemoryAccounting.Scope inner = accounting.openScope();
+    accounting.allocate(MemoryAccounting.FACET, 500);
+    // released in the inner scope, but registered in the outer one
+    accounting.release(MemoryAccounting.FACET, 700);
+    assertEquals(900, accounting.getRetainedBytes());
+    inner.close();
+    assertEquals(900, accounting.getRetainedBytes());
+    outer.close();
+    // only what was registered outside of the scopes is left
+    assertEquals(100, accounting.getRetainedBytes());
+    assertEquals(1600, accounting.getPeakRetainedBytes());
+
+    // registered outside of any scope again
+    accounting.allocate(MemoryAccounting.FACET, 10);
+    assertEquals(110, accounting.getRetainedBytes());
+  }
+
+  @Test
+  public void testScopesOfExecutorTasks() throws Exception {
+    ExecutorUtil.addThreadLocalProvider(MemoryAccounting.getInheritableThreadLocalProvider());
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(2, new SolrNamedThreadFactory("testScopes"));
+    try {
+      MemoryAccounting accounting = new MemoryAccounting();
+      MemoryAccounting other = new MemoryAccounting();
+      try (MemoryAccounting.Scope scope = accounting.openScope()) {
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+          tasks.add(
+              executor.submit(
+                  () -> {
+                    accounting.allocate(MemoryAccounting.FACET, 1000);
+                    // another request's accounting run by the same thread isn't in the scope
+                    other.allocate(MemoryAccounting.FACET, 10);
+                  }));
+        }
+        for (Future<?> task : tasks) {
+          task.get();
+        }
+        assertEquals(4000, accounting.getRetainedBytes());
+      }
+      // released with the scope of the submitting thread
+      assertEquals(0, accounting.getRetainedBytes());
+      assertEquals(40, other.getRetainedBytes());
+
+      // the pooled threads don't keep the scope once their task is done
+      executor.submit(() -> accounting.allocate(MemoryAccounting.FACET, 100)).get();
+      assertEquals(100, accounting.getRetainedBytes());
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  @Test
+  public void testRepeatedAllocationsUnderLimit() {
+    try (SolrQueryRequest req = req(CommonParams.MEM_RETAINED_ALLOWED, "0.001")) {
+      QueryLimits limits = new QueryLimits(req, new SolrQueryResponse());
+      MemoryAccounting accounting = limits.getMemoryAccounting();
+      // far more than the limit is allocated in total, but never retained at once
+      for (int i = 0; i < 100; i++) {
+        MemoryAccounting.Scope scope = accounting.openScope();
+        accounting.allocate(MemoryAccounting.FACET, 400);
+        accounting.resize(MemoryAccounting.FACET, 400, 800);
+        scope.close();
+        accounting.allocate(MemoryAccounting.COLLAPSE, 200);
+        accounting.release(MemoryAccounting.COLLAPSE, 200);
+      }
+      assertEquals(0, accounting.getRetainedBytes());
+      assertFalse(limits.shouldExit());
+
+      // exceeding the limit trips it, even once released
+      MemoryAccounting.Scope scope = accounting.openScope();
+      accounting.allocate(MemoryAccounting.FACET, 2000);
+      scope.close();
+      assertEquals(0, accounting.getRetainedBytes());
+      assertTrue(limits.shouldExit());
+    }
+  }
+
+  @Test
+  public void testBreakdownInDebugOutput() {
+    // the facet is done with its accumulators by the time the debug output is written
+    assertQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "debug", "true",
+            "json.facet", "{cats:{type:terms, field:cat_s}}"),
+        "//lst[@name='debug']/lst[@name='memory']/long[@name='peakRetainedBytes'][. > 0]",
+        "//lst[@name='debug']/lst[@name='memory']/long[@name='retainedBytes'][. = 0]",
+        "//lst[@name='debug']/lst[@name='memory']/lst[@name='components']/long[@name='facet'][. = 0]");
+  }
+
+  @Test
+  public void testRequestStoppedByLimit() throws Exception {
+    String facet = "{ids:{type:terms, field:id, limit:-1}}";
+    long peak = getPeakRetainedBytes(facet);
+    assertTrue(peak > 0);
+
+    String limitAbove = Double.toString(2.0 * peak / (1024 * 1024));
+    assertJQ(
+        req("q", "*:*", "rows", "0", "json.facet", facet, "memRetainedAllowed", limitAbove),
+        "/facets/ids/buckets/[49]/count==1",
+        "!/responseHeader/partialResults==true");
+
+    String limitBelow = Double.toString(0.5 * peak / (1024 * 1024));
+    assertJQ(
+        req("q", "*:*", "rows", "0", "json.facet", facet, "memRetainedAllowed", limitBelow),
+        "/responseHeader/partialResults==true");
+  }
+
+  @Test
+  public void testNestedFacetsReleased() throws Exception {
+    long subPeak = getPeakRetainedBytes("{ids:{type:terms, field:id, limit:-1}}");
+    // a sub-facet per bucket, whose accumulators are dropped before the next bucket's
+    long nestedPeak =
+        getPeakRetainedBytes(
+            "{cats:{type:terms, field:cat_s, limit:-1,"
+                + " facet:{ids:{type:terms, field:id, limit:-1}}}}");
+    assertTrue(nestedPeak + " vs " + subPeak, nestedPeak < 3 * subPeak);
+
+    String limit = Double.toString(3.0 * subPeak / (1024 * 1024));
+    assertJQ(
+        req(
+            "q", "*:*",
+            "rows", "0",
+            "memRetainedAllowed", limit,
+            "json.facet",
+                "{cats:{type:terms, field:cat_s, limit:-1,"
+                    + " facet:{ids:{type:terms, field:id, limit:-1}}}}"),
+        "/facets/cats/buckets/[6]/ids/buckets/[6]/count==1",
+        "!/responseHeader/partialResults==true");
+  }
+
+  @SuppressWarnings("unchecked")
+  private long getPeakRetainedBytes(String facet) throws Exception {
+    String response = JQ(req("q", "*:*", "rows", "0", "debug", "true", "json.facet", facet));
+    Map<String, Object> debug =
+        (Map<String, Object>) ((Map<String, Object>) Utils.fromJSONString(response)).get("debug");
+    return ((Number) ((Map<String, Object>) debug.get("memory")).get("peakRetainedBytes"))
+        .longValue();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Accountable;
+import org.apache.solr.SolrTestCase;
+
+public class TestSegmentCache extends SolrTestCase {
+  private static final int NUM_SEGMENTS = 3;
+
+  private record Value(String name, long ramBytesUsed) implements Accountable {}
+
+  private Directory dir;
+  private DirectoryReader reader;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = newDirectory();
+    try (IndexWriter iw =
+        new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+      for (int i = 0; i < NUM_SEGMENTS; i++) {
+        Document doc = new Document();
+        doc.add(newStringField("id", Integer.toString(i), Field.Store.NO));
+        iw.addDocument(doc);
+        iw.commit();
+      }
+    }
+    reader = DirectoryReader.open(dir);
+    assertEquals(NUM_SEGMENTS, reader.leaves().size());
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    if (reader != null) {
+      reader.close();
+    }
+    dir.close();
+    super.tearDown();
+  }
+
+  public void testCachesPerSegmentAndName() throws IOException {
+    SegmentCache cache = new SegmentCache(1024 * 1024);
+    AtomicInteger computed = new AtomicInteger();
+    for (int i = 0; i < 2; i++) {
+      for (LeafReaderContext leaf : reader.leaves()) {
+        for (String name : new String[] {"a", "b"}) {
+          Value value = get(cache, leaf, name, 100, computed);
+          assertEquals(name, value.name());
+        }
+      }
+    }
+    assertEquals(NUM_SEGMENTS * 2, computed.get());
+    assertEquals(NUM_SEGMENTS * 2, cache.size());
+    assertEquals(NUM_SEGMENTS * 2 * 100, cache.ramBytesUsed());
+
+    Map<String, Object> metrics = cache.getMetricsMap().getValue();
+    assertEquals(NUM_SEGMENTS * 4L, metrics.get("lookups"));
+    assertEquals(NUM_SEGMENTS * 2L, metrics.get("hits"));
+    assertEquals(NUM_SEGMENTS * 2L, metrics.get("size"));
+    assertEquals(NUM_SEGMENTS * 2L * 100, metrics.get("ramBytesUsed"));
+    assertEquals(1L, metrics.get("maxRamMB"));
+  }
+
+  public void testComputesEachTimeWithoutCacheHelper() throws IOException {
+    SegmentCache cache = new SegmentCache(1024 * 1024);
+    AtomicInteger computed = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      cache.get(null, Value.class, "a", () -> new Value("a" + computed.incrementAndGet(), 100));
+    }
+    assertEquals(3, computed.get());
+    assertEquals(0, cache.size());
+  }
+
+  public void testEvictsBeyondMaxRam() throws IOException {
+    SegmentCache cache = new SegmentCache(1000);
+    AtomicInteger computed = new AtomicInteger();
+    for (int i = 0; i < 20; i++) {
+      get(cache, reader.leaves().get(0), "v" + i, 300, computed);
+      assertTrue(cache.ramBytesUsed() <= 1000);
+    }
+    assertEquals(20, computed.get());
+    assertTrue(cache.size() <= 3);
+    assertTrue(((Number) cache.getMetricsMap().getValue().get("evictions")).longValue() >= 17);
+  }
+
+  public void testSkipsValuesBeyondMaxRam() throws IOException {
+    SegmentCache cache = new SegmentCache(1000);
+    AtomicInteger computed = new AtomicInteger();
+    get(cache, reader.leaves().get(0), "a", 300, computed);
+    for (int i = 0; i < 2; i++) {
+      get(cache, reader.leaves().get(0), "b", 2000, computed);
+    }
+    assertEquals(3, computed.get());
+    // the value that fits is kept
+    assertEquals(1, cache.size());
+    assertEquals(300, cache.ramBytesUsed());
+    assertEquals(0L, cache.getMetricsMap().getValue().get("evictions"));
+  }
+
+  public void testRemovesClosedSegments() throws IOException {
+    SegmentCache cache = new SegmentCache(1024 * 1024);
+    AtomicInteger computed = new AtomicInteger();
+    for (LeafReaderContext leaf : reader.leaves()) {
+      get(cache, leaf, "a", 100, computed);
+    }
+    assertEquals(NUM_SEGMENTS, cache.size());
+
+    reader.close();
+    reader = null;
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.ramBytesUsed());
+  }
+
+  private static Value get(
+      SegmentCache cache,
+      LeafReaderContext leaf,
+      String name,
+      long ramBytes,
+      AtomicInteger computed)
+      throws IOException {
+    return cache.get(
+        leaf.reader().getReaderCacheHelper(),
+        Value.class,
+        name,
+        () -> {
+          computed.incrementAndGet();
+          return new Value(name, ramBytes);
+        });
+  }
+}
@@ -25,7 +25,9 @@ import org.apache.lucene.tests.util.TestUtil;
 import org.apache.solr.JSONTestUtil;
 import org.apache.solr.SolrTestCaseHS;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.request.SolrQueryRequest;
@@ -459,6 +461,126 @@ public class TestJsonFacetRefinement extends SolrTestCaseHS {
             + "    } }");
   }
 
+  @Test
+  public void testMergeWithSpeculativeBuckets() throws Exception {
+    // shard1 returned the count of x1, which then needs no refinement
+    doTestRefine(
+        "{x : {type:terms, field:X, limit:2, refine:true, speculate:1} }",
+        "{x: {buckets:[{val:x1, count:5}, {val:x2, count:3}], more:true } }",
+        "{x: {buckets:[{val:x2, count:4}, {val:x3, count:2}], more:true,"
+            + " speculative:{vals:[x1], counts:[1]} } }",
+        null,
+        null);
+
+    // shard1 returned the count of another bucket, and no filter of its other buckets
+    doTestRefine(
+        "{x : {type:terms, field:X, limit:2, refine:true, speculate:1} }",
+        "{x: {buckets:[{val:x1, count:5}, {val:x2, count:3}], more:true } }",
+        "{x: {buckets:[{val:x2, count:4}, {val:x3, count:2}], more:true,"
+            + " speculative:{vals:[x4], counts:[1]} } }",
+        null,
+        "=={x:{_l:[x1]}}");
+
+    // the speculative buckets are only used when refining
+    doTestRefine(
+        "{x : {type:terms, field:X, limit:2, refine:false, speculate:1} }",
+        "{x: {buckets:[{val:x1, count:5}, {val:x2, count:3}], more:true } }",
+        "{x: {buckets:[{val:x2, count:4}, {val:x3, count:2}], more:true,"
+            + " speculative:{vals:[x1], counts:[1]} } }",
+        null,
+        null);
+  }
+
+  @Test
+  public void testSpeculativeRefinement() throws Exception {
+    initServers();
+    final Client client = servers.getClient(random().nextInt());
+    client.queryDefaults().set("shards", servers.getShards());
+
+    List<SolrClient> clients = client.getClientProvider().all();
+    assertTrue(clients.size() >= 3); // we only use 2, but assert 3 to also test empty shard
+    final SolrClient c0 = clients.get(0);
+    final SolrClient c1 = clients.get(1);
+
+    client.deleteByQuery("*:*", null);
+    int id = 0;
+    // shard1: A=6,B=5,C=4,D=1
+    // shard2: E=7,D=5,F=4,A=2,B=1
+    String[] cats0 = {"A", "B", "C", "D"};
+    int[] counts0 = {6, 5, 4, 1};
+    String[] cats1 = {"E", "D", "F", "A", "B"};
+    int[] counts1 = {7, 5, 4, 2, 1};
+    for (int i = 0; i < cats0.length; i++) {
+      for (int j = 0; j < counts0[i]; j++) {
+        c0.add(sdoc("id", id++, "cat_s", cats0[i], "cat_i", (int) cats0[i].charAt(0)));
+      }
+    }
+    for (int i = 0; i < cats1.length; i++) {
+      for (int j = 0; j < counts1[i]; j++) {
+        c1.add(sdoc("id", id++, "cat_s", cats1[i], "cat_i", (int) cats1[i].charAt(0)));
+      }
+    }
+    client.commit();
+
+    // Whole Collection: A=8,E=7,B=6,D=6,C=4,F=4
+    // Without speculation, E is refined on shard1, and A and B on shard2. With 1 speculative
+    // bucket, shard1 tells it has no E and shard2 returns the count of A, only B needs refining.
+    // With 3, shard2 returns the count of B as well and nothing is refined.
+    // The counts are the same as with refinement
+    String[] speculates = {"0", "1", "3"};
+    int[] numRefinedShards = {2, 1, 0};
+    for (int i = 0; i < speculates.length; i++) {
+      String jsonFacet =
+          "{"
+              + " cat_s:{ type:terms, field:cat_s, limit:3, overrequest:0, refine:true,"
+              + "         speculate:"
+              + speculates[i]
+              + " },"
+              + " cat_i:{ type:terms, field:cat_i, limit:3, overrequest:0, refine:true,"
+              + "         speculate:"
+              + speculates[i]
+              + " }"
+              + "}";
+      client.testJQ(
+          params("q", "*:*", "rows", "0", "json.facet", jsonFacet),
+          "facets=={ count: "
+              + id
+              + ","
+              + "  cat_s:{ buckets:[ "
+              + "            {val:A,count:8},"
+              + "            {val:E,count:7},"
+              + "            {val:B,count:6},"
+              + "  ] },"
+              + "  cat_i:{ buckets:[ "
+              + "            {val:65,count:8},"
+              + "            {val:69,count:7},"
+              + "            {val:66,count:6},"
+              + "  ] }"
+              + "}");
+
+      // with rows=0, the only requests of the GET_FIELDS stage are the refinement requests
+      QueryResponse rsp =
+          c0.query(
+              params(
+                  "q",
+                  "*:*",
+                  "rows",
+                  "0",
+                  "json.facet",
+                  jsonFacet,
+                  "shards",
+                  servers.getShards(),
+                  "debug",
+                  "track"));
+      NamedList<?> track = (NamedList<?>) rsp.getDebugMap().get("track");
+      NamedList<?> refinements = (NamedList<?>) track.get("GET_FIELDS");
+      assertEquals(
+          "refined shards with speculate:" + speculates[i],
+          numRefinedShards[i],
+          refinements == null ? 0 : refinements.size());
+    }
+  }
+
   /**
    * When <code>prelim_sort</code> is used, all 'top bucket' choices for refinement should still be
    * based on it, not the <code>sort</code> param, so this test is just some sanity checks that the
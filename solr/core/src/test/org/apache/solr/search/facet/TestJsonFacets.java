@@ -19,6 +19,7 @@ package org.apache.solr.search.facet;
 import com.carrotsearch.randomizedtesting.annotations.ParametersFactory;
 import com.tdunning.math.stats.AVLTreeDigest;
 import java.nio.ByteBuffer;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -35,10 +36,14 @@ import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.macro.MacroExpander;
+import org.apache.solr.search.SegmentCache;
 import org.apache.solr.util.hll.HLL;
+import org.apache.solr.util.hll.HLLType;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -1426,6 +1431,189 @@ public class TestJsonFacets extends SolrTestCaseHS {
     assertJQ(req("q", "*:*", "fq", "cat_s:A"), "response/numFound==2");
   }
 
+  @Test
+  public void testMethodEnumTopCounts() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    String[] cats = {"A", "B", "C", "B", "E", "C", "A", "D", "B", "C", "E"};
+    for (int i = 0; i < cats.length; i++) {
+      client.add(
+          sdoc("id", Integer.toString(i), "cat_s", cats[i], "num_i", Integer.toString(i)), null);
+      if (i % 4 == 3) {
+        client.commit(); // terms in several segments
+      }
+    }
+    client.commit();
+
+    // the top terms by count are found enumerating the terms, ties are broken by index order
+    for (String method : new String[] {"enum", "stream", "dv"}) {
+      assertJQ(
+          req(
+              "q",
+              "*:*",
+              "rows",
+              "0",
+              "json.facet",
+              "{ cat:{terms:{field:cat_s, method:" + method + ", limit:2 }}"
+                  + ", cat2:{terms:{field:cat_s, method:" + method + ", limit:2, offset:1 }}"
+                  + ", cat3:{terms:{field:cat_s, method:" + method + ", mincount:2 }}"
+                  + ", cat4:{terms:{field:cat_s, method:" + method + ", prefix:D }}"
+                  + ", cat5:{terms:{field:cat_s, method:" + method + ", limit:2,"
+                  + "       facet:{x:'sum(num_i)'} }}"
+                  + "}"),
+          "facets=={count:11 "
+              + ", cat :{buckets:[{val:B, count:3},{val:C, count:3}]}"
+              + ", cat2:{buckets:[{val:C, count:3},{val:A, count:2}]}"
+              + ", cat3:{buckets:[{val:B, count:3},{val:C, count:3},{val:A, count:2},"
+              + "                 {val:E, count:2}]}"
+              + ", cat4:{buckets:[{val:D, count:1}]}"
+              + ", cat5:{buckets:[{val:B, count:3, x:12.0},{val:C, count:3, x:16.0}]}"
+              + " }");
+
+      // the counts are within the domain, not the doc freqs of the terms
+      assertJQ(
+          req(
+              "q",
+              "num_i:[3 TO *]",
+              "rows",
+              "0",
+              "json.facet",
+              "{ cat:{terms:{field:cat_s, method:" + method + ", limit:2 }} }"),
+          "facets=={count:8, cat:{buckets:[{val:B, count:2},{val:C, count:2}]} }");
+      assertJQ(
+          req(
+              "q",
+              "num_i:[6 TO *]",
+              "rows",
+              "0",
+              "json.facet",
+              "{ cat:{terms:{field:cat_s, method:" + method + ", limit:3 }} }"),
+          "facets=={count:5"
+              + ", cat:{buckets:[{val:A, count:1},{val:B, count:1},{val:C, count:1}]} }");
+    }
+  }
+
+  public void testSparseSlotStats() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    for (int i = 0; i < 1100; i++) {
+      client.add(
+          sdoc(
+              "id", Integer.toString(i),
+              "cat_s", "c" + (i % 1050),
+              "num_i", Integer.toString(i),
+              "num_d", Double.toString(i / 2.0),
+              "date_dt", Instant.ofEpochSecond(i).toString()),
+          null);
+    }
+    client.commit();
+
+    // many more buckets than docs: the stats are held only for the buckets hit
+    assertJQ(
+        req(
+            "q",
+            "id:(10 1060 20 1070 30)",
+            "rows",
+            "0",
+            "json.facet",
+            "{ cat:{terms:{field:cat_s, sort:'s desc', limit:2, facet:{"
+                + "  s:'sum(num_i)', a:'avg(num_i)', mn:'min(num_d)', mx:'max(num_i)',"
+                + "  d:'min(date_dt)' }}}}"),
+        "facets=={count:5, cat:{buckets:["
+            + "  {val:c20, count:2, s:1090.0, a:545.0, mn:10.0, mx:1070, d:'1970-01-01T00:00:20Z'}"
+            + ", {val:c10, count:2, s:1070.0, a:535.0, mn:5.0, mx:1060, d:'1970-01-01T00:00:10Z'}"
+            + "]} }");
+  }
+
+  public void testHllSegmentSketches() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    for (int i = 0; i < 30; i++) {
+      client.add(
+          sdoc(
+              "id", Integer.toString(i),
+              "num_i", Integer.toString(i % 20),
+              "num_is", Integer.toString(i),
+              "num_is", Integer.toString(i + 100)),
+          null);
+      if (i % 10 == 9) {
+        client.commit(); // several segments
+      }
+    }
+
+    // the sketches of the segments all in the domain are cached, the other docs are collected
+    for (String fq : new String[] {"*:*", "-id:25", "*:*"}) {
+      assertJQ(
+          req(
+              "q", "*:*",
+              "fq", fq,
+              "rows", "0",
+              "json.facet",
+                  "{ u:'hll(num_i)', m:'hll(num_is)'"
+                      + ", low:{query:{q:'num_i:[0 TO 4]', facet:{m:'hll(num_is)'}}} }"),
+          "facets=={count:" + (fq.equals("*:*") ? 30 : 29) + ", u:20"
+              + ", m:" + (fq.equals("*:*") ? 60 : 58) + ", low:{count:10, m:20} }");
+    }
+    assertTrue(SegmentCache.DEFAULT.size() > 0);
+
+    // the segment of a deleted doc gets a new sketch
+    client.deleteByQuery("id:0", null);
+    client.commit();
+    assertJQ(
+        req("q", "*:*", "rows", "0", "json.facet", "{ u:'hll(num_i)', m:'hll(num_is)' }"),
+        "facets=={count:29, u:20, m:58 }");
+  }
+
+  @SuppressWarnings("unchecked")
+  public void testShardSketchEncoding() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    for (int i = 0; i < 50; i++) {
+      SolrInputDocument doc = sdoc("id", Integer.toString(i));
+      for (int j = 0; j < 20; j++) {
+        doc.addField("num_is", i * 20 + j);
+      }
+      client.add(doc, null);
+    }
+    client.commit();
+
+    // only a coordinator that asks for them gets the compact encodings
+    Map<Boolean, byte[]> hlls = new HashMap<>();
+    Map<Boolean, byte[]> digests = new HashMap<>();
+    for (boolean compact : new boolean[] {false, true}) {
+      try (SolrQueryRequest req =
+          req(
+              "q", "*:*",
+              "rows", "0",
+              "distrib", "false",
+              "isShard", "true",
+              "_facet_", "{}",
+              "shards.purpose", "" + FacetModule.PURPOSE_GET_JSON_FACETS,
+              ShardParams.SHARDS_COMPACT_SKETCHES, Boolean.toString(compact),
+              "json.facet", "{ u:'hll(num_is)', p:'percentile(num_is,50)' }")) {
+        NamedList<Object> facets =
+            (NamedList<Object>) h.queryAndResponse("", req).getValues().get("facets");
+        hlls.put(compact, (byte[]) ((NamedList<Object>) facets.get("u")).get("hll"));
+        digests.put(compact, (byte[]) facets.get("p"));
+      }
+    }
+
+    HLL legacy = HLL.fromBytes(hlls.get(false));
+    assertEquals(HLLType.FULL, legacy.getType());
+    assertArrayEquals(legacy.toBytes(), hlls.get(false));
+    HLL compact = HLL.fromBytes(hlls.get(true));
+    assertEquals(HLLType.FULL, compact.getType());
+    assertTrue(hlls.get(true).length < hlls.get(false).length);
+    assertEquals(legacy.cardinality(), compact.cardinality());
+
+    AVLTreeDigest legacyDigest = AVLTreeDigest.fromBytes(ByteBuffer.wrap(digests.get(false)));
+    PercentileDigests compactDigest = new PercentileDigests(100, 1);
+    compactDigest.merge(0, digests.get(true));
+    assertEquals(legacyDigest.size(), compactDigest.getDigest(0).size());
+    // the small encoding keeps the means as floats
+    assertEquals(legacyDigest.quantile(0.5), compactDigest.getDigest(0).quantile(0.5), 1e-3);
+  }
+
   Map<String, String[]> suffixMap = new HashMap<>();
 
   {
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.Map;
 import org.apache.lucene.queries.function.valuesource.IntFieldSource;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.function.FieldNameValueSource;
@@ -140,4 +141,36 @@ public class TestJsonFacetsStatsParsing extends SolrTestCaseJ4 {
       assertNull(x.localParams.get("yaz"));
     }
   }
+
+  @SuppressWarnings({"unchecked"})
+  public void testPercentileCompression() throws IOException {
+    try (SolrQueryRequest req = req()) {
+      final FacetRequest fr =
+          FacetRequest.parse(
+              req,
+              (Map<String, Object>)
+                  ObjectBuilder.fromJSON(
+                      "{ p1:'percentile(foo_i,50)', "
+                          + "  p2:{ func:'percentile(foo_i,50)', compression:200 }, "
+                          + "  p3:{ type:func, func:'percentile(foo_i,50)', compression:200 } }"));
+
+      final Map<String, AggValueSource> stats = fr.getFacetStats();
+      assertEquals(3, stats.size());
+      PercentileAgg p1 = (PercentileAgg) stats.get("p1");
+      PercentileAgg p2 = (PercentileAgg) stats.get("p2");
+      assertEquals(PercentileDigests.DEFAULT_COMPRESSION, p1.compression, 0);
+      assertEquals(200, p2.compression, 0);
+      assertNotEquals(p1, p2);
+      assertEquals(p2, stats.get("p3"));
+
+      expectThrows(
+          SolrException.class,
+          () ->
+              FacetRequest.parse(
+                  req,
+                  (Map<String, Object>)
+                      ObjectBuilder.fromJSON(
+                          "{ p:{ func:'percentile(foo_i,50)', compression:0 } }")));
+    }
+  }
 }
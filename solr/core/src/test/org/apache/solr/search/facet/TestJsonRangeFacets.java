@@ -21,6 +21,7 @@ import java.util.Arrays;
 import org.apache.solr.JSONTestUtil;
 import org.apache.solr.SolrTestCaseHS;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.search.SegmentCache;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -358,6 +359,71 @@ public class TestJsonRangeFacets extends SolrTestCaseHS {
             + "}}");
   }
 
+  @Test
+  public void testRollup() throws Exception {
+    Client client = Client.localClient();
+    client.deleteByQuery("*:*", null);
+    String[] dates = {
+      "2014-01-01T00:00:00Z",
+      "2014-01-01T00:00:00Z",
+      "2014-01-15T10:00:00Z",
+      "2014-02-01T00:00:00Z",
+      "2014-02-20T00:00:00Z",
+      "2014-03-31T23:59:00Z",
+      "2014-04-01T00:00:00Z",
+      "2013-12-31T23:59:00Z"
+    };
+    for (int i = 0; i < dates.length; i++) {
+      client.add(sdoc("id", Integer.toString(i), "b_dtd", dates[i], "x_id", i), null);
+      if (i % 3 == 2) {
+        client.commit();
+      }
+    }
+    client.add(sdoc("id", "8"), null);
+    client.commit();
+    client.deleteByQuery("id:4", null);
+    client.commit();
+
+    // the same counts whether the rollups are used or not
+    for (String rollup : new String[] {"true", "false"}) {
+      SolrParams p = params("q", "*:*", "rows", "0");
+      client.testJQ(
+          params(
+              p,
+              "json.facet",
+              "{date:{type:range, field:b_dtd, rollup:"
+                  + rollup
+                  + ", start:'2014-01-01T00:00:00Z', end:'2014-04-01T00:00:00Z', gap:'+1MONTH',"
+                  + " other:all}"
+                  + ", num:{type:range, field:x_id, rollup:"
+                  + rollup
+                  + ", start:0, end:8, gap:3}"
+                  + ", num2:{type:range, field:x_id, rollup:"
+                  + rollup
+                  + ", ranges:[{from:1, to:3, inclusive_to:true}, {from:5}]}"
+                  + "}"),
+          "facets=={count:8"
+              + ", date:{buckets:[{val:\"2014-01-01T00:00:00Z\",count:3},"
+              + "                 {val:\"2014-02-01T00:00:00Z\",count:1},"
+              + "                 {val:\"2014-03-01T00:00:00Z\",count:1}],"
+              + "        before:{count:1}, after:{count:1}, between:{count:5}}"
+              + ", num:{buckets:[{val:0,count:3},{val:3,count:2},{val:6,count:2}]}"
+              + ", num2:{buckets:[{val:\"[1,3]\",count:3},{val:\"[5,*)\",count:3}]}"
+              + "}");
+
+      // the rollups only apply to all the docs, other domains are queried
+      client.testJQ(
+          params(
+              p,
+              "fq",
+              "x_id:[2 TO 5]",
+              "json.facet",
+              "{num:{type:range, field:x_id, rollup:" + rollup + ", start:0, end:8, gap:3}}"),
+          "facets=={count:3, num:{buckets:[{val:0,count:1},{val:3,count:2},{val:6,count:0}]}}");
+    }
+    assertTrue(SegmentCache.DEFAULT.size() > 0);
+  }
+
   @Test
   public void testRangeFacetWithRangesDistrib() throws Exception {
     initServers();
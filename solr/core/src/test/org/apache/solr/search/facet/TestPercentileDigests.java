@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import com.tdunning.math.stats.AVLTreeDigest;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.solr.SolrTestCase;
+
+public class TestPercentileDigests extends SolrTestCase {
+  private static final double[] QUANTILES = {0, 0.1, 0.5, 0.9, 0.99, 1};
+
+  public void testSparseSlots() {
+    PercentileDigests digests = new PercentileDigests(100, 3);
+    digests.add(1, 42);
+    assertFalse(digests.exists(0));
+    assertTrue(digests.exists(1));
+    assertNull(digests.getDigest(0));
+    assertNull(digests.toBytes(2, random().nextBoolean()));
+    assertEquals(42, digests.getDigest(1).quantile(0.5), 0);
+
+    digests.reset();
+    assertFalse(digests.exists(1));
+  }
+
+  public void testDigestIsBuiltOnce() {
+    PercentileDigests digests = new PercentileDigests(100, 2);
+    digests.add(0, 10);
+    digests.add(1, 20);
+    AVLTreeDigest digest = digests.getDigest(0);
+    assertSame(digest, digests.getDigest(0));
+
+    // a value added to another slot keeps the digest
+    digests.add(1, 30);
+    assertSame(digest, digests.getDigest(0));
+
+    // a value added to the slot rebuilds it
+    digests.add(0, 50);
+    AVLTreeDigest rebuilt = digests.getDigest(0);
+    assertNotSame(digest, rebuilt);
+    assertEquals(50, rebuilt.quantile(1), 0);
+  }
+
+  public void testFewValuesLikeAVLTreeDigest() {
+    PercentileDigests digests = new PercentileDigests(100, 1);
+    AVLTreeDigest expected = new AVLTreeDigest(100);
+    int numValues = atLeast(20);
+    for (int i = 0; i < numValues; i++) {
+      double value = random().nextInt(50) - 10;
+      digests.add(0, value);
+      expected.add(value);
+    }
+    for (double q : QUANTILES) {
+      assertEquals("quantile " + q, expected.quantile(q), digests.getDigest(0).quantile(q), 0);
+    }
+  }
+
+  public void testManyValues() {
+    double compression = 100 + random().nextInt(100);
+    PercentileDigests digests = new PercentileDigests(compression, 2);
+    int numValues = atLeast(20000);
+    double[] values = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      values[i] = random().nextGaussian() * 1000;
+      digests.add(i % 2, values[i]);
+    }
+    // the centroids of the slots are merged once the slots are full
+    PercentileDigests merged = new PercentileDigests(compression, 1);
+    merged.merge(0, digests.toBytes(0, true));
+    merged.merge(0, digests.toBytes(1, false));
+
+    Arrays.sort(values);
+    AVLTreeDigest digest = merged.getDigest(0);
+    assertEquals(values[0], digest.quantile(0), 0);
+    assertEquals(values[numValues - 1], digest.quantile(1), 0);
+    for (double q : QUANTILES) {
+      double actualRank = Arrays.binarySearch(values, digest.quantile(q));
+      if (actualRank < 0) {
+        actualRank = -actualRank - 1;
+      }
+      assertEquals("quantile " + q, q, actualRank / numValues, 0.02);
+    }
+  }
+
+  public void testEncoding() {
+    PercentileDigests digests = new PercentileDigests(100, 1);
+    digests.add(0, 1);
+    digests.add(0, 0.5);
+    digests.add(0, -1e300);
+    digests.add(0, 1);
+    byte[] bytes = digests.toBytes(0, true);
+    // a byte for the encoding and the number of centroids, plus per centroid its weight and mean
+    assertEquals(2 + 3 * (1 + 4) + (1 + 8), bytes.length);
+
+    PercentileDigests decoded = new PercentileDigests(100, 1);
+    decoded.merge(0, bytes);
+    AVLTreeDigest expected = digests.getDigest(0);
+    AVLTreeDigest actual = decoded.getDigest(0);
+    assertEquals(4, actual.size());
+    for (double q : QUANTILES) {
+      assertEquals("quantile " + q, expected.quantile(q), actual.quantile(q), 0);
+    }
+  }
+
+  public void testLegacyEncoding() {
+    PercentileDigests digests = new PercentileDigests(100, 1);
+    int numValues = atLeast(100);
+    for (int i = 0; i < numValues; i++) {
+      digests.add(0, random().nextInt(1000));
+    }
+    // older versions read the digests of shard responses as AVLTreeDigest small encodings
+    AVLTreeDigest expected = digests.getDigest(0);
+    AVLTreeDigest actual = AVLTreeDigest.fromBytes(ByteBuffer.wrap(digests.toBytes(0, false)));
+    assertEquals(expected.size(), actual.size());
+    for (double q : QUANTILES) {
+      // the small encoding keeps the means as floats
+      assertEquals("quantile " + q, expected.quantile(q), actual.quantile(q), 1e-3);
+    }
+  }
+
+  public void testMergeAVLTreeDigestBytes() {
+    AVLTreeDigest avlDigest = new AVLTreeDigest(100);
+    avlDigest.add(10);
+    avlDigest.add(90);
+    avlDigest.add(50);
+    avlDigest.compress();
+    ByteBuffer buf = ByteBuffer.allocate(avlDigest.byteSize());
+    avlDigest.asSmallBytes(buf);
+
+    PercentileDigests digests = new PercentileDigests(100, 1);
+    digests.add(0, 130);
+    digests.merge(0, Arrays.copyOf(buf.array(), buf.position()));
+    AVLTreeDigest digest = digests.getDigest(0);
+    assertEquals(4, digest.size());
+    assertEquals(10, digest.quantile(0), 0);
+    assertEquals(130, digest.quantile(1), 0);
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+
+public class TestSparseSlots extends SolrTestCase {
+
+  public void testAddAndIndex() {
+    SparseSlots slots = new SparseSlots();
+    Map<Integer, Integer> expected = new HashMap<>();
+    int numAdds = atLeast(1000);
+    for (int i = 0; i < numAdds; i++) {
+      int slot = random().nextInt(100000);
+      int index = slots.add(slot);
+      Integer expectedIndex = expected.putIfAbsent(slot, expected.size());
+      assertEquals(expectedIndex == null ? expected.size() - 1 : expectedIndex, index);
+      assertEquals(expected.size(), slots.size());
+    }
+    for (int slot = 0; slot < 100000; slot++) {
+      assertEquals(expected.getOrDefault(slot, -1).intValue(), slots.index(slot));
+    }
+
+    slots.clear();
+    assertEquals(0, slots.size());
+    assertEquals(-1, slots.index(expected.keySet().iterator().next()));
+    assertEquals(0, slots.add(42));
+  }
+
+  public void testResize() {
+    SparseSlots slots = new SparseSlots();
+    for (int slot = 0; slot < 100; slot++) {
+      slots.add(slot * 10);
+    }
+    // the odd slots are dropped, the others move down
+    slots.resize(
+        new SlotAcc.Resizer() {
+          @Override
+          public int getNewSize() {
+            return 500;
+          }
+
+          @Override
+          public int getNewSlot(int oldSlot) {
+            return oldSlot % 20 == 0 ? oldSlot / 2 : -1;
+          }
+        });
+    for (int slot = 0; slot < 100; slot++) {
+      assertEquals(slot % 2 == 0 ? slot : -1, slots.index(slot * 5));
+    }
+    // new slots get new indexes
+    assertEquals(100, slots.add(5));
+  }
+
+  public void testUseSparseSlots() {
+    assertFalse(SlotAcc.useSparseSlots(10, 1));
+    assertFalse(SlotAcc.useSparseSlots(-1, 100000));
+    assertFalse(SlotAcc.useSparseSlots(50000, 100000));
+    assertTrue(SlotAcc.useSparseSlots(100, 100000));
+  }
+}
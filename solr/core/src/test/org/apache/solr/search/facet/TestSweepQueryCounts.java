@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.facet;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.lucene.search.Query;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.BeforeClass;
+
+public class TestSweepQueryCounts extends SolrTestCaseJ4 {
+  private static final int NUM_DOCS = 256;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema15.xml");
+    for (int i = 0; i < NUM_DOCS; i++) {
+      assertU(adoc("id", Integer.toString(i), "num_i", Integer.toString(i), "cat_s", "c" + i % 3));
+      if (i % 100 == 99) {
+        assertU(commit()); // several segments
+      }
+    }
+    assertU(delI("5"));
+    assertU(commit());
+  }
+
+  public void testCountLikeNumDocs() throws Exception {
+    String[] qstrs = {
+      "cat_s:c1",
+      "{!cache=false}cat_s:c0",
+      "{!cache=false}num_i:[10 TO 200]",
+      "-cat_s:c1",
+      "{!cache=false}*:*",
+      "{!cache=false}cat_s:nope",
+      "{!cache=false}id:5",
+      "num_i:[0 TO 3]"
+    };
+    try (SolrQueryRequest req = req()) {
+      SolrIndexSearcher searcher = req.getSearcher();
+      // one of the queries is cached
+      searcher.getDocSet(QParser.getParser("cat_s:c1", req).getQuery());
+      DocSet base = searcher.getDocSet(QParser.getParser("id:(1 2 5 150)", req).getQuery());
+      assertTrue(SweepQueryCounts.isWorthSweeping(searcher, base, qstrs.length));
+      assertFalse(SweepQueryCounts.isWorthSweeping(searcher, base, 1));
+
+      List<Query> queries = new ArrayList<>();
+      for (String qstr : qstrs) {
+        queries.add(QParser.getParser(qstr, req).getQuery());
+      }
+      SweepQueryCounts sweep = new SweepQueryCounts(searcher, queries);
+      // the last query isn't cached yet, it is left to numDocs to cache it
+      assertEquals(qstrs.length - 1, sweep.getNumSwept());
+      int[] counts = sweep.count(base);
+      for (int i = 0; i < qstrs.length - 1; i++) {
+        assertEquals(qstrs[i], searcher.numDocs(queries.get(i), base), counts[i]);
+      }
+      assertEquals(-1, counts[qstrs.length - 1]);
+
+      // the sweep is reused over other base sets
+      DocSet otherBase = searcher.getDocSet(QParser.getParser("id:(3 4 6)", req).getQuery());
+      counts = sweep.count(otherBase);
+      for (int i = 0; i < qstrs.length - 1; i++) {
+        assertEquals(qstrs[i], searcher.numDocs(queries.get(i), otherBase), counts[i]);
+      }
+    }
+  }
+
+  public void testFillsFilterCache() throws Exception {
+    assertQ(
+        req(
+            "q", "*:*",
+            "fq", "id:(0 1 2)",
+            "rows", "0",
+            "facet", "true",
+            "facet.query", "num_i:[0 TO 10]",
+            "facet.query", "num_i:[0 TO 20]",
+            "facet.query", "num_i:[0 TO 30]"),
+        "//lst[@name='facet_queries']/int[@name='num_i:[0 TO 10]'][.='3']");
+    try (SolrQueryRequest req = req()) {
+      SolrIndexSearcher searcher = req.getSearcher();
+      for (String qstr : new String[] {"num_i:[0 TO 10]", "num_i:[0 TO 20]", "num_i:[0 TO 30]"}) {
+        Query query = QParser.getParser(qstr, req).getQuery();
+        assertNotNull(qstr, searcher.getFilterCache().get(query));
+      }
+    }
+  }
+
+  public void testFacetQueries() throws Exception {
+    assertQ(
+        req(
+            "q", "*:*",
+            "fq", "id:(0 1 2)",
+            "rows", "0",
+            "facet", "true",
+            "facet.query", "cat_s:c0",
+            "facet.query", "{!key=notC0}-cat_s:c0",
+            "facet.query", "num_i:[1 TO *]",
+            "facet.query", "{!ex=t key=all}*:*"),
+        "//lst[@name='facet_queries']/int[@name='cat_s:c0'][.='1']",
+        "//lst[@name='facet_queries']/int[@name='notC0'][.='2']",
+        "//lst[@name='facet_queries']/int[@name='num_i:[1 TO *]'][.='2']",
+        "//lst[@name='facet_queries']/int[@name='all'][.='3']");
+  }
+
+  public void testJsonQueryFacets() throws Exception {
+    assertJQ(
+        req(
+            "q", "id:(0 1 2 3)",
+            "rows", "0",
+            "json.facet",
+                "{ c0:{query:'cat_s:c0'}, notC0:{query:'-cat_s:c0'}"
+                    + ", big:{query:'num_i:[2 TO *]', facet:{x:'sum(num_i)'}}"
+                    + ", cats:{terms:{field:cat_s, facet:{low:{query:'num_i:[0 TO 1]'},"
+                    + "       high:{query:'num_i:[2 TO *]'}}}} }"),
+        "facets=={count:4"
+            + ", c0:{count:2}, notC0:{count:2}, big:{count:2, x:5.0}"
+            + ", cats:{buckets:[{val:c0, count:2, low:{count:1}, high:{count:1}}"
+            + ", {val:c1, count:1, low:{count:1}, high:{count:0}}"
+            + ", {val:c2, count:1, low:{count:0}, high:{count:1}}]} }");
+  }
+}
@@ -16,9 +16,18 @@
  */
 package org.apache.solr.search.join;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.DocIterator;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.DocSetUtil;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -142,6 +151,73 @@ public class GraphQueryTest extends SolrTestCaseJ4 {
         "/response/numFound==1");
   }
 
+  @Test
+  public void testFrontierTraversalMatchesQueryTraversal() throws Exception {
+    clearIndex();
+    // a random graph, with cycles, nodes with several ids, and updated docs in several segments
+    int numNodes = atLeast(40);
+    for (int i = 0; i < numNodes; i++) {
+      SolrInputDocument doc = sdoc("id", "doc_" + i, "node_s", Integer.toString(i));
+      doc.addField("node_ss", Integer.toString(i));
+      if (random().nextInt(4) == 0) {
+        doc.addField("node_ss", Integer.toString(i + numNodes));
+      }
+      int numEdges = random().nextInt(4);
+      for (int j = 0; j < numEdges; j++) {
+        doc.addField("edge_ss", Integer.toString(random().nextInt(numNodes * 2)));
+      }
+      if (random().nextBoolean()) {
+        doc.addField("text", "foo");
+      }
+      assertU(adoc(doc));
+      if (random().nextInt(10) == 0) {
+        assertU(commit());
+      }
+      if (i > 0 && random().nextInt(10) == 0) {
+        // updating a doc leaves a deleted copy in a previous segment
+        assertU(adoc("id", "doc_" + random().nextInt(i), "node_s", "-1", "edge_ss", "0"));
+      }
+    }
+    assertU(commit());
+
+    String[][] fields = {{"node_s", "edge_ss"}, {"node_ss", "edge_ss"}, {"edge_ss", "node_ss"}};
+    for (int iter = 0; iter < atLeast(50); iter++) {
+      String[] fromTo = fields[random().nextInt(fields.length)];
+      StringBuilder graph = new StringBuilder("{!graph from=").append(fromTo[0]);
+      graph.append(" to=").append(fromTo[1]);
+      graph.append(" maxDepth=").append(random().nextInt(5) - 1);
+      graph.append(" returnRoot=").append(random().nextBoolean());
+      graph.append(" returnOnlyLeaf=").append(random().nextBoolean());
+      if (random().nextBoolean()) {
+        graph.append(" traversalFilter=text:foo");
+      }
+      graph.append('}');
+      graph.append(random().nextBoolean() ? "text:foo" : "id:doc_" + random().nextInt(numNodes));
+      assertSameTraversal(graph.toString());
+    }
+    clearIndex();
+    assertU(commit());
+  }
+
+  private void assertSameTraversal(String graphQuery) throws Exception {
+    try (SolrQueryRequest req = req()) {
+      SolrIndexSearcher searcher = req.getSearcher();
+      GraphQuery query = (GraphQuery) QParser.getParser(graphQuery, req).getQuery();
+      DocSet byFrontiers = DocSetUtil.createDocSetGeneric(searcher, query);
+      query.setFrontierTraversal(false);
+      DocSet byQueries = DocSetUtil.createDocSetGeneric(searcher, query);
+      assertEquals(graphQuery, docs(byQueries), docs(byFrontiers));
+    }
+  }
+
+  private static List<Integer> docs(DocSet docSet) {
+    List<Integer> docs = new ArrayList<>();
+    for (DocIterator it = docSet.iterator(); it.hasNext(); ) {
+      docs.add(it.nextDoc());
+    }
+    return docs;
+  }
+
   @Test
   public void testGraphQueryParserValidation() {
     // from schema field existence
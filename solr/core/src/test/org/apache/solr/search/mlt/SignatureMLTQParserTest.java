@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.mlt;
+
+import java.util.List;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.mlt.SignatureMLTQParser.CachedSignature;
+import org.apache.solr.search.mlt.SignatureMLTQParser.SignatureCacheKey;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SignatureMLTQParserTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-minhash.xml", "schema-minhash.xml");
+  }
+
+  @After
+  public void afterTest() {
+    assertU(delQ("*:*"));
+    assertU(commit());
+  }
+
+  private void setupDocs() {
+    String field = "min_hash_signature";
+    assertU(adoc("id", "1", field, "HASH1", field, "HASH2", field, "HASH3", field, "HASH4"));
+    assertU(adoc("id", "2", field, "HASH1", field, "HASH2", field, "HASH3", field, "HASH4"));
+    assertU(adoc("id", "3", field, "HASH1", field, "HASH2", field, "HASH5"));
+    assertU(adoc("id", "4", field, "HASH5", field, "HASH6"));
+    assertU(adoc("id", "5", "min_hash_string", "HASH1"));
+    assertU(commit());
+  }
+
+  @Test
+  public void testSignature() {
+    setupDocs();
+
+    // the docs sharing the most hashes come first, the doc itself is excluded
+    assertQ(
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_signature}1"),
+        "//*[@numFound='2']",
+        "//result/doc[1]/str[@name='id'][.='2']",
+        "//result/doc[2]/str[@name='id'][.='3']");
+
+    assertQ(
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_signature sim=0.75}1"),
+        "//*[@numFound='1']",
+        "//result/doc[1]/str[@name='id'][.='2']");
+
+    assertQ(
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_signature}4"),
+        "//*[@numFound='1']",
+        "//result/doc[1]/str[@name='id'][.='3']");
+
+    // a doc without a signature is similar to no doc
+    assertQ(req(CommonParams.Q, "{!mlt signatureField=min_hash_signature}5"), "//*[@numFound='0']");
+  }
+
+  @Test
+  public void testSignatureCache() throws Exception {
+    setupDocs();
+
+    // the signature of the seed doc is cached by field and unique key
+    assertQ(req(CommonParams.Q, "{!mlt signatureField=min_hash_signature}1"), "//*[@numFound='2']");
+    assertEquals(
+        List.of(
+            new BytesRef("HASH1"),
+            new BytesRef("HASH2"),
+            new BytesRef("HASH3"),
+            new BytesRef("HASH4")),
+        getCachedSignature("1"));
+    assertNull(getCachedSignature("2"));
+
+    // and is taken from the cache
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              getSignatureCache(searcher)
+                  .put(
+                      new SignatureCacheKey("min_hash_signature", "1"),
+                      new CachedSignature(List.of(new BytesRef("HASH5"), new BytesRef("HASH6"))));
+              return null;
+            });
+    assertQ(
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_signature}1"),
+        "//*[@numFound='2']",
+        "//result/doc[1]/str[@name='id'][.='4']",
+        "//result/doc[2]/str[@name='id'][.='3']");
+
+    // a commit opens a new searcher, which reads the new signature
+    assertU(adoc("id", "1", "min_hash_signature", "HASH5"));
+    assertU(commit());
+    assertNull(getCachedSignature("1"));
+    assertQ(
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_signature}1"),
+        "//*[@numFound='2']",
+        "//result/doc[1]/str[@name='id'][.='3']",
+        "//result/doc[2]/str[@name='id'][.='4']");
+    assertEquals(List.of(new BytesRef("HASH5")), getCachedSignature("1"));
+  }
+
+  @Test
+  public void testInvalidSignature() {
+    setupDocs();
+
+    assertQEx(
+        "signature field without docValues",
+        "must be indexed and have docValues",
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_string}1"),
+        SolrException.ErrorCode.BAD_REQUEST);
+    assertU(adoc("id", "6", "min_hash_long_signature", "1", "min_hash_long_signature", "2"));
+    assertU(commit());
+    assertQEx(
+        "signature field with numeric docValues",
+        "must have SORTED or SORTED_SET docValues, not SORTED_NUMERIC",
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_long_signature}6"),
+        SolrException.ErrorCode.BAD_REQUEST);
+    assertQEx(
+        "unknown doc",
+        "Could not fetch document with id [42]",
+        req(CommonParams.Q, "{!mlt signatureField=min_hash_signature}42"),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+
+  private List<BytesRef> getCachedSignature(String id) throws Exception {
+    return h.getCore()
+        .withSearcher(
+            searcher -> {
+              CachedSignature cached =
+                  getSignatureCache(searcher).get(new SignatureCacheKey("min_hash_signature", id));
+              return cached == null ? null : cached.signature();
+            });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static SolrCache<SignatureCacheKey, CachedSignature> getSignatureCache(
+      SolrIndexSearcher searcher) {
+    return searcher.getCache(SignatureMLTQParser.SIGNATURE_CACHE_NAME);
+  }
+}
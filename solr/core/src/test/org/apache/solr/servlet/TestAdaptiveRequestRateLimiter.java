@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.servlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.request.beans.RateLimiterPayload;
+import org.apache.solr.core.RateLimiterConfig;
+import org.junit.Test;
+
+public class TestAdaptiveRequestRateLimiter extends SolrTestCase {
+
+  private static RateLimiterConfig adaptiveConfig(int initial, int min, int max) {
+    RateLimiterPayload payload = new RateLimiterPayload();
+    payload.enabled = true;
+    payload.adaptiveEnabled = true;
+    payload.allowedRequests = initial;
+    payload.minAllowedRequests = min;
+    payload.maxAllowedRequests = max;
+    payload.slotAcquisitionTimeoutInMS = 0;
+    return new RateLimiterConfig(SolrRequest.SolrRequestType.QUERY, payload);
+  }
+
+  @Test
+  public void testCreatedFromConfig() {
+    RateLimiterConfig config = adaptiveConfig(10, 2, 40);
+    assertTrue(config.isAdaptive);
+    assertEquals(2, config.minAllowedRequests);
+    assertEquals(40, config.maxAllowedRequests);
+    assertTrue(
+        RateLimitManager.createRequestRateLimiter(config) instanceof AdaptiveRequestRateLimiter);
+    assertTrue(
+        RateLimitManager.createRequestRateLimiter(
+                new RateLimiterConfig(SolrRequest.SolrRequestType.QUERY))
+            instanceof QueryRateLimiter);
+  }
+
+  @Test
+  public void testRejectsAboveLimit() throws Exception {
+    AdaptiveRequestRateLimiter limiter = new AdaptiveRequestRateLimiter(adaptiveConfig(5, 1, 5));
+    List<RequestRateLimiter.SlotReservation> reservations = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      RequestRateLimiter.SlotReservation reservation = limiter.handleRequest();
+      assertNotNull(reservation);
+      reservations.add(reservation);
+    }
+    assertNull(limiter.handleRequest());
+    assertEquals(5, limiter.getInFlight());
+    for (RequestRateLimiter.SlotReservation reservation : reservations) {
+      reservation.close();
+    }
+    assertTrue(limiter.isEmpty());
+    try (RequestRateLimiter.SlotReservation reservation = limiter.handleRequest()) {
+      assertNotNull(reservation);
+    }
+  }
+
+  @Test
+  public void testLimitGrowsWithStableLatency() {
+    AdaptiveRequestRateLimiter limiter = new AdaptiveRequestRateLimiter(adaptiveConfig(10, 2, 50));
+    for (int i = 0; i < 200; i++) {
+      limiter.onSample(1_000_000, limiter.currentLimit());
+    }
+    assertEquals(50, limiter.currentLimit());
+  }
+
+  @Test
+  public void testLimitShrinksWhenLatencyRises() {
+    AdaptiveRequestRateLimiter limiter = new AdaptiveRequestRateLimiter(adaptiveConfig(40, 2, 50));
+    for (int i = 0; i < 50; i++) {
+      limiter.onSample(1_000_000, limiter.currentLimit());
+    }
+    int before = limiter.currentLimit();
+    for (int i = 0; i < 50; i++) {
+      limiter.onSample(10_000_000, limiter.currentLimit());
+    }
+    assertTrue(
+        "limit should shrink: " + before + " -> " + limiter.currentLimit(),
+        limiter.currentLimit() < before);
+    assertTrue(limiter.currentLimit() >= 2);
+  }
+
+  @Test
+  public void testNoGrowthWhenUnderutilized() {
+    AdaptiveRequestRateLimiter limiter = new AdaptiveRequestRateLimiter(adaptiveConfig(20, 2, 50));
+    for (int i = 0; i < 100; i++) {
+      limiter.onSample(1_000_000, 1);
+    }
+    assertEquals(20, limiter.currentLimit());
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.servlet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.handler.ReplicationHandler;
+import org.apache.solr.handler.UpdateRequestHandler;
+import org.apache.solr.handler.component.SearchHandler;
+import org.apache.solr.servlet.RequestLanes.Lane;
+import org.apache.solr.servlet.RequestLanes.LaneConfig;
+import org.apache.solr.servlet.RequestLanes.LaneReservation;
+import org.apache.solr.update.processor.DistributedUpdateProcessor;
+import org.apache.solr.update.processor.DistributingUpdateProcessorFactory;
+import org.junit.Test;
+
+public class TestRequestLanes extends SolrTestCase {
+
+  @Test
+  public void testClassify() throws Exception {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    try (SearchHandler searchHandler = new SearchHandler()) {
+      assertEquals(Lane.QUERY, RequestLanes.classify(searchHandler, "/select", params, false));
+      assertEquals(Lane.ADMIN, RequestLanes.classify(searchHandler, "/admin/cores", params, true));
+      params.set(ShardParams.IS_SHARD, true);
+      assertEquals(
+          Lane.SHARD_QUERY, RequestLanes.classify(searchHandler, "/select", params, false));
+    }
+    try (UpdateRequestHandler updateHandler = new UpdateRequestHandler()) {
+      assertEquals(Lane.UPDATE, RequestLanes.classify(updateHandler, "/update", params, false));
+      ModifiableSolrParams forwarded = new ModifiableSolrParams();
+      forwarded.set(DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM, "TOLEADER");
+      forwarded.set(DistributedUpdateProcessor.DISTRIB_FROM, "http://127.0.0.1:8983/solr/c1");
+      assertEquals(
+          Lane.FORWARDED_UPDATE, RequestLanes.classify(updateHandler, "/update", forwarded, false));
+      forwarded.remove(DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM);
+      assertEquals(
+          Lane.FORWARDED_UPDATE, RequestLanes.classify(updateHandler, "/update", forwarded, false));
+    }
+    try (ReplicationHandler replicationHandler = new ReplicationHandler()) {
+      assertEquals(
+          Lane.REPLICATION,
+          RequestLanes.classify(replicationHandler, "/replication", params, false));
+    }
+    assertEquals(Lane.ADMIN, RequestLanes.classify(null, "/admin/ping", params, false));
+  }
+
+  @Test
+  public void testRejectsWhenQueueIsFull() throws Exception {
+    RequestLanes lanes = new RequestLanes(Map.of(Lane.UPDATE, new LaneConfig(2, 0, 1000)));
+    LaneReservation first = lanes.acquire(Lane.UPDATE);
+    LaneReservation second = lanes.acquire(Lane.UPDATE);
+    assertNotNull(first);
+    assertNotNull(second);
+    assertEquals(2, lanes.getActive(Lane.UPDATE));
+    assertNull(lanes.acquire(Lane.UPDATE));
+
+    // other lanes are not affected
+    try (LaneReservation query = lanes.acquire(Lane.QUERY)) {
+      assertNotNull(query);
+      assertEquals(1, lanes.getActive(Lane.QUERY));
+    }
+    assertEquals(0, lanes.getActive(Lane.QUERY));
+
+    first.close();
+    first.close(); // closing twice must not release two slots
+    try (LaneReservation third = lanes.acquire(Lane.UPDATE)) {
+      assertNotNull(third);
+      assertNull(lanes.acquire(Lane.UPDATE));
+    }
+    second.close();
+    assertEquals(0, lanes.getActive(Lane.UPDATE));
+  }
+
+  @Test
+  public void testForwardedUpdatesAreNeverLimited() throws Exception {
+    RequestLanes lanes =
+        new RequestLanes(
+            Map.of(
+                Lane.UPDATE, new LaneConfig(1, 0, 10),
+                Lane.FORWARDED_UPDATE, new LaneConfig(1, 0, 10)));
+    assertFalse(lanes.getLaneConfig(Lane.FORWARDED_UPDATE).isLimited());
+    try (LaneReservation update = lanes.acquire(Lane.UPDATE)) {
+      assertNotNull(update);
+      assertNull(lanes.acquire(Lane.UPDATE));
+      // the update lane is full, but updates forwarded between replicas still get through
+      List<LaneReservation> forwarded = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        LaneReservation reservation = lanes.acquire(Lane.FORWARDED_UPDATE);
+        assertNotNull(reservation);
+        forwarded.add(reservation);
+      }
+      assertEquals(10, lanes.getActive(Lane.FORWARDED_UPDATE));
+      forwarded.forEach(LaneReservation::close);
+    }
+    assertEquals(0, lanes.getActive(Lane.FORWARDED_UPDATE));
+
+    String prefix = RequestLanes.SYSPROP_PREFIX + Lane.FORWARDED_UPDATE.getName();
+    System.setProperty(prefix + RequestLanes.MAX_CONCURRENT_SUFFIX, "1");
+    try {
+      assertFalse(
+          RequestLanes.fromSystemProperties().getLaneConfig(Lane.FORWARDED_UPDATE).isLimited());
+    } finally {
+      System.clearProperty(prefix + RequestLanes.MAX_CONCURRENT_SUFFIX);
+    }
+  }
+
+  @Test
+  public void testRejectsAfterQueueTimeout() throws Exception {
+    RequestLanes lanes = new RequestLanes(Map.of(Lane.QUERY, new LaneConfig(1, 1, 10)));
+    try (LaneReservation first = lanes.acquire(Lane.QUERY)) {
+      assertNotNull(first);
+      assertNull(lanes.acquire(Lane.QUERY));
+      assertEquals(0, lanes.getQueued(Lane.QUERY));
+    }
+    try (LaneReservation next = lanes.acquire(Lane.QUERY)) {
+      assertNotNull(next);
+    }
+  }
+
+  @Test
+  public void testFromSystemProperties() {
+    String prefix = RequestLanes.SYSPROP_PREFIX + Lane.SHARD_QUERY.getName();
+    System.setProperty(prefix + RequestLanes.MAX_CONCURRENT_SUFFIX, "8");
+    System.setProperty(prefix + RequestLanes.QUEUE_TIMEOUT_MS_SUFFIX, "250");
+    try {
+      RequestLanes lanes = RequestLanes.fromSystemProperties();
+      assertEquals(new LaneConfig(8, 8, 250), lanes.getLaneConfig(Lane.SHARD_QUERY));
+      assertFalse(lanes.getLaneConfig(Lane.QUERY).isLimited());
+    } finally {
+      System.clearProperty(prefix + RequestLanes.MAX_CONCURRENT_SUFFIX);
+      System.clearProperty(prefix + RequestLanes.QUEUE_TIMEOUT_MS_SUFFIX);
+    }
+  }
+}
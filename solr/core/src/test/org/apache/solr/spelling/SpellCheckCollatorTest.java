@@ -16,6 +16,8 @@
  */
 package org.apache.solr.spelling;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -756,4 +758,96 @@ public class SpellCheckCollatorTest extends SolrTestCaseJ4 {
     List<?> collations = (List<?>) collationList.getAll("collation");
     assertEquals(1, collations.size());
   }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void testCollateParallel() {
+    SolrCore core = h.getCore();
+    SolrRequestHandler handler = core.getRequestHandler("/spellCheckCompRH");
+    for (String maxCollectDocs : new String[] {"0", "1", "5"}) {
+      List<List<Object>> collationsByMode = new ArrayList<>();
+      for (String collateParallel : new String[] {"false", "true"}) {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.add(SpellCheckComponent.COMPONENT_NAME, "true");
+        params.add(SpellingParams.SPELLCHECK_BUILD, "true");
+        params.add(SpellingParams.SPELLCHECK_COUNT, "10");
+        params.add(SpellingParams.SPELLCHECK_COLLATE, "true");
+        params.add(SpellingParams.SPELLCHECK_MAX_COLLATION_TRIES, "10");
+        params.add(SpellingParams.SPELLCHECK_MAX_COLLATIONS, "3");
+        params.add(SpellingParams.SPELLCHECK_COLLATE_EXTENDED_RESULTS, "true");
+        params.add(SpellingParams.SPELLCHECK_COLLATE_MAX_COLLECT_DOCS, maxCollectDocs);
+        params.add(SpellingParams.SPELLCHECK_COLLATE_PARALLEL, collateParallel);
+        params.add(CommonParams.Q, "lowerfilt:(+fauth +home +loane)");
+        params.add(CommonParams.FQ, "NOT(id:1)");
+        SolrQueryResponse rsp = new SolrQueryResponse();
+        rsp.addResponseHeader(new SimpleOrderedMap());
+        SolrQueryRequest req = new LocalSolrQueryRequest(core, params);
+        handler.handleRequest(req, rsp);
+        req.close();
+        NamedList spellCheck = (NamedList) rsp.getValues().get("spellcheck");
+        NamedList collationHolder = (NamedList) spellCheck.get("collations");
+        assertTrue(collationHolder.size() > 0);
+        List<Object> collations = new ArrayList<>();
+        for (NamedList collation : (List<NamedList>) collationHolder.getAll("collation")) {
+          assertNotEquals("lowerfilt:(+faith +hope +loaves)", collation.get("collationQuery"));
+          assertTrue(((Number) collation.get("hits")).longValue() > 0);
+          // estimated hit counts depend on the collector, exact ones must be the same
+          collations.add("0".equals(maxCollectDocs) ? collation : collation.get("collationQuery"));
+        }
+        collationsByMode.add(collations);
+      }
+      // the same collations are returned, in the same order
+      assertEquals(collationsByMode.get(0), collationsByMode.get(1));
+    }
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void testCollateParallelWithCollateParamFilters() {
+    SolrCore core = h.getCore();
+    SolrRequestHandler handler = core.getRequestHandler("/spellCheckCompRH");
+    // only doc 1 matches this collation
+    String collation = "lowerfilt:(+faith +hope +loaves)";
+    // the filter queries of the test queries are added to the filters of the original query
+    String[][] filtersAndExpected = {
+      {"NOT(id:1)", "", "false"},
+      {"NOT(id:1)", "id:1", "false"},
+      {null, "NOT(id:1)", "false"},
+      {null, "id:1", "true"}
+    };
+    for (String[] filterAndExpected : filtersAndExpected) {
+      List<List<Object>> collationsByMode = new ArrayList<>();
+      for (String collateParallel : new String[] {"false", "true"}) {
+        ModifiableSolrParams params = new ModifiableSolrParams();
+        params.add(SpellCheckComponent.COMPONENT_NAME, "true");
+        params.add(SpellingParams.SPELLCHECK_BUILD, "true");
+        params.add(SpellingParams.SPELLCHECK_COUNT, "10");
+        params.add(SpellingParams.SPELLCHECK_COLLATE, "true");
+        params.add(SpellingParams.SPELLCHECK_MAX_COLLATION_TRIES, "10");
+        params.add(SpellingParams.SPELLCHECK_MAX_COLLATIONS, "10");
+        params.add(SpellingParams.SPELLCHECK_COLLATE_PARALLEL, collateParallel);
+        params.add(
+            SpellingParams.SPELLCHECK_COLLATE_PARAM_OVERRIDE + CommonParams.FQ,
+            filterAndExpected[1]);
+        params.add(CommonParams.Q, "lowerfilt:(+fauth +home +loane)");
+        if (filterAndExpected[0] != null) {
+          params.add(CommonParams.FQ, filterAndExpected[0]);
+        }
+        SolrQueryResponse rsp = new SolrQueryResponse();
+        rsp.addResponseHeader(new SimpleOrderedMap());
+        SolrQueryRequest req = new LocalSolrQueryRequest(core, params);
+        handler.handleRequest(req, rsp);
+        req.close();
+        NamedList spellCheck = (NamedList) rsp.getValues().get("spellcheck");
+        NamedList collationHolder = (NamedList) spellCheck.get("collations");
+        List<Object> collations = new ArrayList<>(collationHolder.getAll("collation"));
+        assertEquals(
+            Arrays.toString(filterAndExpected) + " " + collations,
+            Boolean.parseBoolean(filterAndExpected[2]),
+            collations.contains(collation));
+        collationsByMode.add(collations);
+      }
+      assertEquals(collationsByMode.get(0), collationsByMode.get(1));
+    }
+  }
 }
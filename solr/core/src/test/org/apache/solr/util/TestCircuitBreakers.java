@@ -40,6 +40,7 @@ import org.apache.solr.core.CoreContainer;
 import org.apache.solr.util.circuitbreaker.CPUCircuitBreaker;
 import org.apache.solr.util.circuitbreaker.CircuitBreaker;
 import org.apache.solr.util.circuitbreaker.CircuitBreakerRegistry;
+import org.apache.solr.util.circuitbreaker.GCCircuitBreaker;
 import org.apache.solr.util.circuitbreaker.LoadAverageCircuitBreaker;
 import org.apache.solr.util.circuitbreaker.MemoryCircuitBreaker;
 import org.junit.After;
@@ -276,6 +277,68 @@ public class TestCircuitBreakers extends SolrTestCaseJ4 {
     assertThatHighQueryLoadTrips(circuitBreaker, 5);
   }
 
+  public void testFakeGCPauseCircuitBreaker() {
+    GCCircuitBreaker circuitBreaker = new FakeGCCircuitBreaker(Double.MAX_VALUE, 0);
+    circuitBreaker.setThreshold(20);
+
+    assertThatHighQueryLoadTrips(circuitBreaker, 5);
+  }
+
+  public void testFakeAllocationRateCircuitBreaker() {
+    GCCircuitBreaker circuitBreaker = new FakeGCCircuitBreaker(0, Double.MAX_VALUE);
+    circuitBreaker.setThreshold(20);
+    circuitBreaker.setAllocationRateThreshold(1024);
+
+    assertThatHighQueryLoadTrips(circuitBreaker, 5);
+  }
+
+  public void testGCCircuitBreakerNotTrippedBelowThresholds() throws IOException {
+    GCCircuitBreaker circuitBreaker = new FakeGCCircuitBreaker(5, Double.MAX_VALUE);
+    try {
+      // the allocation rate is only checked if a threshold is set for it
+      circuitBreaker.setThreshold(20);
+      assertFalse(circuitBreaker.isTripped());
+      circuitBreaker.setAllocationRateThreshold(1024);
+      assertTrue(circuitBreaker.isTripped());
+      assertThat(circuitBreaker.getErrorMessage(), containsString("GC Circuit Breaker"));
+    } finally {
+      circuitBreaker.close();
+    }
+  }
+
+  public void testGCCircuitBreakersCanBeParsedFromSystemProperties() throws IOException {
+    final var props = new Properties();
+    props.setProperty("solr.circuitbreaker.query.gc", "15");
+    props.setProperty("solr.circuitbreaker.update.gc", "15");
+    props.setProperty("solr.circuitbreaker.update.allocrate", "2048");
+    System.setProperties(props);
+
+    List<CircuitBreaker> parsedBreakers = List.of();
+    try {
+      parsedBreakers =
+          CircuitBreakerRegistry.parseCircuitBreakersFromProperties(h.getCoreContainer()).stream()
+              .sorted(Comparator.comparing(breaker -> breaker.toString()))
+              .collect(Collectors.toList());
+
+      assertEquals(2, parsedBreakers.size());
+
+      final var gcBreaker = (GCCircuitBreaker) parsedBreakers.get(1);
+      assertEquals(15.0, gcBreaker.getGcPauseThreshold(), 0.1);
+      assertEquals(
+          Set.of(SolrRequest.SolrRequestType.QUERY, SolrRequest.SolrRequestType.UPDATE),
+          gcBreaker.getRequestTypes());
+
+      final var allocBreaker = (GCCircuitBreaker) parsedBreakers.get(0);
+      assertEquals(2048.0, allocBreaker.getAllocationRateThreshold(), 0.1);
+      assertEquals(Set.of(SolrRequest.SolrRequestType.UPDATE), allocBreaker.getRequestTypes());
+    } finally {
+      props.keySet().stream().forEach(k -> System.clearProperty((String) k));
+      for (CircuitBreaker breaker : parsedBreakers) {
+        breaker.close();
+      }
+    }
+  }
+
   /**
    * Common assert method to be reused in tests
    *
@@ -452,4 +515,24 @@ public class TestCircuitBreakers extends SolrTestCaseJ4 {
       return Double.MAX_VALUE;
     }
   }
+
+  private static class FakeGCCircuitBreaker extends GCCircuitBreaker {
+    private final double gcPausePercentage;
+    private final double allocationRate;
+
+    public FakeGCCircuitBreaker(double gcPausePercentage, double allocationRate) {
+      this.gcPausePercentage = gcPausePercentage;
+      this.allocationRate = allocationRate;
+    }
+
+    @Override
+    protected double getAvgGcPausePercentage() {
+      return gcPausePercentage;
+    }
+
+    @Override
+    protected double getAvgAllocationRate() {
+      return allocationRate;
+    }
+  }
 }
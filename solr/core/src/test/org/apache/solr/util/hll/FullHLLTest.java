@@ -362,6 +362,52 @@ public class FullHLLTest extends SolrTestCase {
     }
   }
 
+  /** Tests {@link HLL#toCompactBytes()} and {@link HLL#fromBytes(byte[])}. */
+  @Test
+  public void toFromCompactBytesTest() {
+    final int log2m = 11 /*arbitrary*/;
+    final int regwidth = 5;
+    final int shortWordLength = log2m + regwidth;
+
+    final ISchemaVersion schemaVersion = SerializationUtil.DEFAULT_SCHEMA_VERSION;
+    final int fullByteCount =
+        schemaVersion.paddingBytes(HLLType.FULL)
+            + ProbabilisticTestUtil.getRequiredBytes(regwidth, (1 << log2m) /*aka 2^log2m = m*/);
+
+    { // a partially filled element is written as sparse, and read back as full
+      final HLL hll = new HLL(log2m, regwidth, -1, false /*sparseon*/, HLLType.FULL);
+      for (int i = 0; i < 3; i++) {
+        final long rawValue = ProbabilisticTestUtil.constructHLLValue(log2m, i * 7, (i + 9));
+        hll.addRaw(rawValue);
+      }
+
+      final byte[] bytes = hll.toCompactBytes();
+      assertEquals(
+          schemaVersion.paddingBytes(HLLType.SPARSE)
+              + ProbabilisticTestUtil.getRequiredBytes(shortWordLength, 3),
+          bytes.length);
+
+      final HLL inHLL = HLL.fromBytes(bytes);
+      assertEquals(HLLType.FULL, inHLL.getType());
+      assertElementsEqual(hll, inHLL);
+      assertEquals(hll.cardinality(), inHLL.cardinality());
+    }
+    { // a full set is written as full
+      final HLL hll = new HLL(log2m, regwidth, -1, false /*sparseon*/, HLLType.FULL);
+      for (int i = 0; i < (1 << log2m) /*aka 2^log2m*/; i++) {
+        final long rawValue = ProbabilisticTestUtil.constructHLLValue(log2m, i, (i % 9) + 1);
+        hll.addRaw(rawValue);
+      }
+
+      final byte[] bytes = hll.toCompactBytes();
+      assertEquals(fullByteCount, bytes.length);
+
+      final HLL inHLL = HLL.fromBytes(bytes);
+      assertEquals(HLLType.FULL, inHLL.getType());
+      assertElementsEqual(hll, inHLL);
+    }
+  }
+
   // ************************************************************************
   // Assertion Helpers
   /** Asserts that the two HLLs are register-wise equal. */
@@ -33,6 +33,12 @@ public class RateLimiterPayload implements ReflectMapWriter {
 
   @JsonProperty public Integer slotAcquisitionTimeoutInMS;
 
+  @JsonProperty public Boolean adaptiveEnabled;
+
+  @JsonProperty public Integer minAllowedRequests;
+
+  @JsonProperty public Integer maxAllowedRequests;
+
   public RateLimiterPayload copy() {
     RateLimiterPayload result = new RateLimiterPayload();
 
@@ -41,6 +47,9 @@ public class RateLimiterPayload implements ReflectMapWriter {
     result.allowedRequests = allowedRequests;
     result.slotBorrowingEnabled = slotBorrowingEnabled;
     result.slotAcquisitionTimeoutInMS = slotAcquisitionTimeoutInMS;
+    result.adaptiveEnabled = adaptiveEnabled;
+    result.minAllowedRequests = minAllowedRequests;
+    result.maxAllowedRequests = maxAllowedRequests;
 
     return result;
   }
@@ -52,7 +61,10 @@ public class RateLimiterPayload implements ReflectMapWriter {
           && Objects.equals(this.guaranteedSlots, that.guaranteedSlots)
           && Objects.equals(this.allowedRequests, that.allowedRequests)
           && Objects.equals(this.slotBorrowingEnabled, that.slotBorrowingEnabled)
-          && Objects.equals(this.slotAcquisitionTimeoutInMS, that.slotAcquisitionTimeoutInMS);
+          && Objects.equals(this.slotAcquisitionTimeoutInMS, that.slotAcquisitionTimeoutInMS)
+          && Objects.equals(this.adaptiveEnabled, that.adaptiveEnabled)
+          && Objects.equals(this.minAllowedRequests, that.minAllowedRequests)
+          && Objects.equals(this.maxAllowedRequests, that.maxAllowedRequests);
     }
     return false;
   }
@@ -64,6 +76,9 @@ public class RateLimiterPayload implements ReflectMapWriter {
         guaranteedSlots,
         allowedRequests,
         slotBorrowingEnabled,
-        slotAcquisitionTimeoutInMS);
+        slotAcquisitionTimeoutInMS,
+        adaptiveEnabled,
+        minAllowedRequests,
+        maxAllowedRequests);
   }
 }
@@ -183,6 +183,12 @@ public interface CommonParams {
    */
   String MEM_ALLOWED = "memAllowed";
 
+  /**
+   * Max memory in mebibytes (float) retained by large data structures built for the query, such as
+   * facet accumulators or collapse maps. If not set, or the value is &lt;= 0.0, there is no limit.
+   */
+  String MEM_RETAINED_ALLOWED = "memRetainedAllowed";
+
   /** The max hits to be collected per shard. */
   String MAX_HITS_ALLOWED = "maxHitsAllowed";
 
@@ -124,6 +124,23 @@ public interface FacetParams {
    */
   public static final String FACET_PIVOT_MINCOUNT = FACET_PIVOT + ".mincount";
 
+  /**
+   * Whether the values of a distributed pivot are refined by asking the shards that didn't return
+   * them for their counts. If false, the pivot trees returned by the shards are merged in one round,
+   * and the counts of the values some shards didn't return may be too low.
+   *
+   * <p>default value is true
+   */
+  public static final String FACET_PIVOT_REFINE = FACET_PIVOT + ".refine";
+
+  /**
+   * Whether the values of all the fields of a pivot are counted by a single JSON terms facet, with a
+   * nested terms facet per field, rather than a field facet per value of the parent field.
+   *
+   * <p>default value is false
+   */
+  public static final String FACET_PIVOT_JSON = FACET_PIVOT + ".json";
+
   /**
    * String option: "count" causes facets to be sorted by the count, "index" results in index order.
    */
@@ -69,4 +69,23 @@ public interface GroupParams {
   public static final String GROUP_DISTRIBUTED_SECOND = GROUP + ".distributed.second";
 
   public static final String GROUP_DISTRIBUTED_TOPGROUPS_PREFIX = GROUP + ".topgroups.";
+
+  /**
+   * Whether shards compute the top documents of their own top groups along with the search groups,
+   * so that the coordinator can skip the second (top groups) phase. One of {@link
+   * #GROUP_DISTRIBUTED_SINGLE_PASS_EXACT}, which only issues a second phase for the groups whose
+   * top documents may be incomplete, or {@link #GROUP_DISTRIBUTED_SINGLE_PASS_APPROXIMATE}, which
+   * never does. Disabled by default.
+   */
+  public static final String GROUP_DISTRIBUTED_SINGLE_PASS = GROUP + ".distributed.singlePass";
+
+  public static final String GROUP_DISTRIBUTED_SINGLE_PASS_EXACT = "exact";
+  public static final String GROUP_DISTRIBUTED_SINGLE_PASS_APPROXIMATE = "approximate";
+
+  /**
+   * With {@link #GROUP_DISTRIBUTED_SINGLE_PASS}, the factor by which the number of groups requested
+   * from each shard is multiplied, which makes it more likely that each shard reports all the top
+   * groups it has documents for. Defaults to 1.
+   */
+  public static final String GROUP_DISTRIBUTED_OVERFETCH = GROUP + ".distributed.overfetch";
 }
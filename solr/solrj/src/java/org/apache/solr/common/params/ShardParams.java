@@ -101,6 +101,14 @@ public interface ShardParams {
   /** Force a single-pass distributed query? (true/false) */
   String DISTRIB_SINGLE_PASS = "distrib.singlePass";
 
+  /**
+   * Sent by the coordinator of a distributed request when it can read the compact encodings of
+   * the sketches (HyperLogLog, t-digest) returned by the shards. Shards use the older encodings
+   * when it's absent, so that coordinators that predate the compact encodings can read the
+   * responses during a rolling upgrade.
+   */
+  String SHARDS_COMPACT_SKETCHES = "shards.compactSketches";
+
   /**
    * Throw an error from search requests when the {@value ShardParams#SHARDS_TOLERANT} param has
    * this value and ZooKeeper is not connected.
@@ -170,6 +170,14 @@ public interface SpellingParams {
   public static final String SPELLCHECK_COLLATE_PARAM_OVERRIDE =
       SPELLCHECK_PREFIX + "collateParam.";
 
+  /**
+   * For use with {@link SpellingParams#SPELLCHECK_MAX_COLLATION_TRIES}. If true, the collations are
+   * tested by counting their hits against the cached filters of the original query, concurrently,
+   * rather than by running a full query for each of them in turn. The collations tried are the same
+   * as in the default mode, and the hits are counted the same way. Default=false.
+   */
+  public static final String SPELLCHECK_COLLATE_PARALLEL = SPELLCHECK_PREFIX + "collateParallel";
+
   /** Certain spelling implementations may allow for an accuracy setting. */
   public static final String SPELLCHECK_ACCURACY = SPELLCHECK_PREFIX + "accuracy";
 }
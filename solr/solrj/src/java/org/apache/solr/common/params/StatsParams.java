@@ -22,4 +22,5 @@ public interface StatsParams {
   public static final String STATS_FIELD = STATS + ".field";
   public static final String STATS_FACET = STATS + ".facet";
   public static final String STATS_CALC_DISTINCT = STATS + ".calcdistinct";
+  public static final String STATS_PARALLEL = STATS + ".parallel";
 }
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -323,94 +324,151 @@ public class ExecutorUtil {
 
     @Override
     public void execute(final Runnable command) {
-      final Map<String, String> submitterContext = MDC.getCopyOfContextMap();
-      StringBuilder contextString = new StringBuilder();
-      if (submitterContext != null) {
-        Collection<String> values = submitterContext.values();
+      super.execute(withSubmitterContext(command, enableSubmitterStackTrace));
+    }
+  }
 
-        for (String value : values) {
-          contextString.append(value).append(' ');
-        }
-        if (contextString.length() > 1) {
-          contextString.setLength(contextString.length() - 1);
-        }
+  /**
+   * Wraps an executor so that its tasks run with the MDC context and the inheritable thread locals
+   * of the thread submitting them, like the tasks of a {@link MDCAwareThreadPoolExecutor}. This
+   * suits executors that aren't thread pools, like those starting a virtual thread per task.
+   */
+  public static ExecutorService newMDCAwareExecutor(
+      ExecutorService delegate, boolean enableSubmitterStackTrace) {
+    return new MDCAwareExecutorService(delegate, enableSubmitterStackTrace);
+  }
+
+  private static class MDCAwareExecutorService extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final boolean enableSubmitterStackTrace;
+
+    MDCAwareExecutorService(ExecutorService delegate, boolean enableSubmitterStackTrace) {
+      this.delegate = delegate;
+      this.enableSubmitterStackTrace = enableSubmitterStackTrace;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      delegate.execute(withSubmitterContext(command, enableSubmitterStackTrace));
+    }
+
+    @Override
+    public void shutdown() {
+      delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      return delegate.awaitTermination(timeout, unit);
+    }
+  }
+
+  /**
+   * Wraps a task so that it runs with the MDC context and the inheritable thread locals of the
+   * calling thread, which submits it.
+   */
+  private static Runnable withSubmitterContext(
+      final Runnable command, final boolean enableSubmitterStackTrace) {
+    final Map<String, String> submitterContext = MDC.getCopyOfContextMap();
+    StringBuilder contextString = new StringBuilder();
+    if (submitterContext != null) {
+      Collection<String> values = submitterContext.values();
+
+      for (String value : values) {
+        contextString.append(value).append(' ');
+      }
+      if (contextString.length() > 1) {
+        contextString.setLength(contextString.length() - 1);
       }
+    }
 
-      String ctxStr = contextString.toString().replace("/", "//");
-      final String submitterContextStr =
-          ctxStr.length() <= MAX_THREAD_NAME_LEN
-              ? ctxStr
-              : ctxStr.substring(0, MAX_THREAD_NAME_LEN);
-      final Throwable submitterStackTrace; // Never thrown, only used as stack trace holder
-      if (enableSubmitterStackTrace) {
-        Throwable grandParentSubmitter = submitter.get();
-        submitterStackTrace = new Exception("Submitter stack trace", grandParentSubmitter);
-      } else {
-        submitterStackTrace = null;
+    String ctxStr = contextString.toString().replace("/", "//");
+    final String submitterContextStr =
+        ctxStr.length() <= MDCAwareThreadPoolExecutor.MAX_THREAD_NAME_LEN
+            ? ctxStr
+            : ctxStr.substring(0, MDCAwareThreadPoolExecutor.MAX_THREAD_NAME_LEN);
+    final Throwable submitterStackTrace; // Never thrown, only used as stack trace holder
+    if (enableSubmitterStackTrace) {
+      Throwable grandParentSubmitter = submitter.get();
+      submitterStackTrace = new Exception("Submitter stack trace", grandParentSubmitter);
+    } else {
+      submitterStackTrace = null;
+    }
+    final List<InheritableThreadLocalProvider> providersCopy = providers;
+    final ArrayList<AtomicReference<Object>> ctx =
+        providersCopy.isEmpty() ? null : new ArrayList<>(providersCopy.size());
+    if (ctx != null) {
+      for (int i = 0; i < providers.size(); i++) {
+        AtomicReference<Object> reference = new AtomicReference<>();
+        ctx.add(reference);
+        providersCopy.get(i).store(reference);
       }
-      final List<InheritableThreadLocalProvider> providersCopy = providers;
-      final ArrayList<AtomicReference<Object>> ctx =
-          providersCopy.isEmpty() ? null : new ArrayList<>(providersCopy.size());
+    }
+    return () -> {
+      isServerPool.set(Boolean.TRUE);
       if (ctx != null) {
-        for (int i = 0; i < providers.size(); i++) {
-          AtomicReference<Object> reference = new AtomicReference<>();
-          ctx.add(reference);
-          providersCopy.get(i).store(reference);
+        for (int i = 0; i < providersCopy.size(); i++) providersCopy.get(i).set(ctx.get(i));
+      }
+      Map<String, String> threadContext = MDC.getCopyOfContextMap();
+      final Thread currentThread = Thread.currentThread();
+      final String oldName = currentThread.getName();
+      if (submitterContext != null && !submitterContext.isEmpty()) {
+        MDC.setContextMap(submitterContext);
+        currentThread.setName(oldName + "-processing-" + submitterContextStr);
+      } else {
+        MDC.clear();
+      }
+      if (enableSubmitterStackTrace) {
+        submitter.set(submitterStackTrace);
+      }
+      try {
+        command.run();
+      } catch (Throwable t) {
+        if (t instanceof OutOfMemoryError) {
+          throw t;
+        }
+        // Flip around the exception cause tree, because it is in reverse order
+        Throwable baseCause = t;
+        Throwable nextCause = submitterStackTrace;
+        while (nextCause != null) {
+          baseCause = new Exception(nextCause.getMessage(), baseCause);
+          baseCause.setStackTrace(nextCause.getStackTrace());
+          nextCause = nextCause.getCause();
+        }
+        log.error(
+            "Uncaught exception {} thrown by thread: {}",
+            t,
+            currentThread.getName(),
+            baseCause);
+        throw t;
+      } finally {
+        isServerPool.remove();
+        if (threadContext != null && !threadContext.isEmpty()) {
+          MDC.setContextMap(threadContext);
+        } else {
+          MDC.clear();
+        }
+        if (ctx != null) {
+          for (int i = 0; i < providersCopy.size(); i++) providersCopy.get(i).clean(ctx.get(i));
         }
+        currentThread.setName(oldName);
       }
-      super.execute(
-          () -> {
-            isServerPool.set(Boolean.TRUE);
-            if (ctx != null) {
-              for (int i = 0; i < providersCopy.size(); i++) providersCopy.get(i).set(ctx.get(i));
-            }
-            Map<String, String> threadContext = MDC.getCopyOfContextMap();
-            final Thread currentThread = Thread.currentThread();
-            final String oldName = currentThread.getName();
-            if (submitterContext != null && !submitterContext.isEmpty()) {
-              MDC.setContextMap(submitterContext);
-              currentThread.setName(oldName + "-processing-" + submitterContextStr);
-            } else {
-              MDC.clear();
-            }
-            if (enableSubmitterStackTrace) {
-              submitter.set(submitterStackTrace);
-            }
-            try {
-              command.run();
-            } catch (Throwable t) {
-              if (t instanceof OutOfMemoryError) {
-                throw t;
-              }
-              // Flip around the exception cause tree, because it is in reverse order
-              Throwable baseCause = t;
-              Throwable nextCause = submitterStackTrace;
-              while (nextCause != null) {
-                baseCause = new Exception(nextCause.getMessage(), baseCause);
-                baseCause.setStackTrace(nextCause.getStackTrace());
-                nextCause = nextCause.getCause();
-              }
-              log.error(
-                  "Uncaught exception {} thrown by thread: {}",
-                  t,
-                  currentThread.getName(),
-                  baseCause);
-              throw t;
-            } finally {
-              isServerPool.remove();
-              if (threadContext != null && !threadContext.isEmpty()) {
-                MDC.setContextMap(threadContext);
-              } else {
-                MDC.clear();
-              }
-              if (ctx != null) {
-                for (int i = 0; i < providersCopy.size(); i++)
-                  providersCopy.get(i).clean(ctx.get(i));
-              }
-              currentThread.setName(oldName);
-            }
-          });
-    }
+    };
   }
 
   private static final ThreadLocal<Boolean> isServerPool = new ThreadLocal<>();
@@ -76,6 +76,10 @@ public class ShardParamsTest extends SolrTestCase {
     assertEquals(ShardParams.DISTRIB_SINGLE_PASS, "distrib.singlePass");
   }
 
+  public void testShardsCompactSketches() {
+    assertEquals(ShardParams.SHARDS_COMPACT_SKETCHES, "shards.compactSketches");
+  }
+
   @Test
   public void testGetShardsTolerantAsBool() {
     ModifiableSolrParams params = new ModifiableSolrParams();